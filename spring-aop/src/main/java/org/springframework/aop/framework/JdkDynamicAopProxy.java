@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,9 +18,13 @@ package org.springframework.aop.framework;
 
 import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
@@ -30,6 +34,7 @@ import org.springframework.aop.AopInvocationException;
 import org.springframework.aop.RawTargetAccess;
 import org.springframework.aop.TargetSource;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.cglib.reflect.FastClass;
 import org.springframework.core.DecoratingProxy;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -53,6 +58,13 @@ import org.springframework.util.ClassUtils;
  * <p>Proxies are serializable so long as all Advisors (including Advices
  * and Pointcuts) and the TargetSource are serializable.
  *
+ * <p>For a {@link ProxyConfig#isFrozen() frozen} configuration with a static
+ * target, the interceptor chain of each proxied method gets determined once,
+ * on the first invocation of the method. The target method is invoked through
+ * a CGLIB {@link FastClass} for the proxied interface then, instead of through
+ * reflection. The FastClass gets generated on first use as well, so proxy
+ * creation itself does not obtain the target or generate any classes.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @author Rob Harrop
@@ -94,6 +106,19 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	 */
 	private boolean hashCodeDefined;
 
+	/**
+	 * Fixed interceptor chains per proxied method, in case of a frozen
+	 * configuration with a static target (not retained on serialization).
+	 */
+	@Nullable
+	private final transient Map<Method, FixedChain> fixedChains;
+
+	/**
+	 * FastClass per proxied interface, generated on demand for the fixed chains.
+	 */
+	@Nullable
+	private final transient Map<Class<?>, FastClass> fastClasses;
+
 
 	/**
 	 * 为给定的AOP配置构造一个新的JdkDynamicAopProxy
@@ -104,6 +129,14 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 			throw new AopConfigException("No advisors and no TargetSource specified");
 		}
 		this.advised = config;
+		if (config.isFrozen() && config.getTargetSource().isStatic()) {
+			this.fixedChains = new ConcurrentHashMap<>(32);
+			this.fastClasses = new ConcurrentHashMap<>(4);
+		}
+		else {
+			this.fixedChains = null;
+			this.fastClasses = null;
+		}
 	}
 
 
@@ -143,6 +176,76 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	}
 
 
+	/**
+	 * Obtain the fixed interceptor chain for the given method, determining it
+	 * along with a direct invoker for the target method on first invocation.
+	 * @return the fixed chain, or {@code null} if not applicable
+	 */
+	@Nullable
+	private FixedChain getFixedChain(Method method, @Nullable Object target) {
+		Map<Method, FixedChain> fixedChains = this.fixedChains;
+		if (fixedChains == null || target == null) {
+			return null;
+		}
+		FixedChain fixedChain = fixedChains.get(method);
+		if (fixedChain == null) {
+			List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, target.getClass());
+			Class<?> declaringClass = method.getDeclaringClass();
+			FastClass fastClass = (declaringClass.isInstance(target) ? getFastClass(declaringClass) : null);
+			fixedChain = new FixedChain(method, chain, fastClass);
+			FixedChain existing = fixedChains.putIfAbsent(method, fixedChain);
+			if (existing != null) {
+				fixedChain = existing;
+			}
+		}
+		return fixedChain;
+	}
+
+	@Nullable
+	private FastClass getFastClass(Class<?> proxiedInterface) {
+		Map<Class<?>, FastClass> fastClasses = this.fastClasses;
+		if (fastClasses == null) {
+			return null;
+		}
+		FastClass fastClass = fastClasses.get(proxiedInterface);
+		if (fastClass == null) {
+			fastClass = createFastClass(proxiedInterface);
+			if (fastClass != null) {
+				fastClasses.putIfAbsent(proxiedInterface, fastClass);
+			}
+		}
+		return fastClass;
+	}
+
+	/**
+	 * Generate a CGLIB {@link FastClass} for direct invocations of the given
+	 * interface's methods, if possible.
+	 * @return the FastClass, or {@code null} to fall back to reflection
+	 */
+	@Nullable
+	private static FastClass createFastClass(Class<?> proxiedInterface) {
+		ClassLoader classLoader = proxiedInterface.getClassLoader();
+		if (!Modifier.isPublic(proxiedInterface.getModifiers()) || classLoader == null ||
+				!ClassUtils.isVisible(FastClass.class, classLoader)) {
+			return null;
+		}
+		try {
+			FastClass.Generator generator = new FastClass.Generator();
+			generator.setType(proxiedInterface);
+			generator.setContextClass(proxiedInterface);
+			generator.setClassLoader(classLoader);
+			return generator.create();
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate FastClass for " + proxiedInterface.getName() +
+						" - falling back to reflective invocation: " + ex);
+			}
+			return null;
+		}
+	}
+
+
 	/**
 	 * 实现{@code InvocationHandler.invoke}
 	 * <p>调用者将看到目标抛出的异常，除非钩子方法抛出异常
@@ -189,8 +292,10 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 			target = targetSource.getTarget();
 			Class<?> targetClass = (target != null ? target.getClass() : null);
 
-			// Get the interception chain for this method.
-			List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+			// Get the interception chain for this method: fixed for a frozen configuration.
+			FixedChain fixedChain = getFixedChain(method, target);
+			List<Object> chain = (fixedChain != null ? fixedChain.chain :
+					this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass));
 
 			// Check whether we have any advice. If we don't, we can fallback on direct
 			// reflective invocation of the target, and avoid creating a MethodInvocation.
@@ -199,11 +304,14 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 				// Note that the final invoker must be an InvokerInterceptor so we know it does
 				// nothing but a reflective operation on the target, and no hot swapping or fancy proxying.
 				Object[] argsToUse = AopProxyUtils.adaptArgumentsIfNecessary(method, args);
-				retVal = AopUtils.invokeJoinpointUsingReflection(target, method, argsToUse);
+				retVal = (fixedChain != null ? fixedChain.invokeTarget(target, argsToUse) :
+						AopUtils.invokeJoinpointUsingReflection(target, method, argsToUse));
 			}
 			else {
 				// We need to create a method invocation...
-				invocation = new ReflectiveMethodInvocation(proxy, target, method, args, targetClass, chain);
+				invocation = (fixedChain != null ?
+						new FixedChainMethodInvocation(proxy, target, method, args, targetClass, fixedChain) :
+						new ReflectiveMethodInvocation(proxy, target, method, args, targetClass, chain));
 				// Proceed to the joinpoint through the interceptor chain.
 				retVal = invocation.proceed();
 			}
@@ -279,4 +387,65 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 		return JdkDynamicAopProxy.class.hashCode() * 13 + this.advised.getTargetSource().hashCode();
 	}
 
+
+	/**
+	 * Interceptor chain for a specific method of a frozen configuration,
+	 * with a direct invoker for the target method if available.
+	 */
+	private static final class FixedChain {
+
+		private final Method method;
+
+		private final List<Object> chain;
+
+		@Nullable
+		private final FastClass fastClass;
+
+		private final int methodIndex;
+
+		public FixedChain(Method method, List<Object> chain, @Nullable FastClass fastClass) {
+			this.method = method;
+			this.chain = chain;
+			int methodIndex = (fastClass != null ? fastClass.getIndex(method.getName(), method.getParameterTypes()) : -1);
+			this.fastClass = (methodIndex >= 0 ? fastClass : null);
+			this.methodIndex = methodIndex;
+		}
+
+		@Nullable
+		public Object invokeTarget(@Nullable Object target, Object[] args) throws Throwable {
+			if (this.fastClass != null) {
+				try {
+					return this.fastClass.invoke(this.methodIndex, target, args);
+				}
+				catch (InvocationTargetException ex) {
+					throw ex.getTargetException();
+				}
+			}
+			return AopUtils.invokeJoinpointUsingReflection(target, this.method, args);
+		}
+	}
+
+
+	/**
+	 * Method invocation for a fixed interceptor chain, invoking the
+	 * joinpoint through the direct invoker of the chain.
+	 */
+	private static class FixedChainMethodInvocation extends ReflectiveMethodInvocation {
+
+		private final FixedChain fixedChain;
+
+		public FixedChainMethodInvocation(Object proxy, @Nullable Object target, Method method,
+				Object[] arguments, @Nullable Class<?> targetClass, FixedChain fixedChain) {
+
+			super(proxy, target, method, arguments, targetClass, fixedChain.chain);
+			this.fixedChain = fixedChain;
+		}
+
+		@Override
+		@Nullable
+		protected Object invokeJoinpoint() throws Throwable {
+			return this.fixedChain.invokeTarget(this.target, this.arguments);
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,7 @@ import org.springframework.core.BridgeMethodResolver;
 import org.springframework.core.Ordered;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.lang.Nullable;
 import org.springframework.util.ClassUtils;
 
@@ -68,6 +69,9 @@ import org.springframework.util.ClassUtils;
  */
 public class AsyncExecutionInterceptor extends AsyncExecutionAspectSupport implements MethodInterceptor, Ordered {
 
+	private boolean virtualThreads = false;
+
+
 	/**
 	 * Create a new instance with a default {@link AsyncUncaughtExceptionHandler}.
 	 * @param defaultExecutor the {@link Executor} (typically a Spring {@link AsyncTaskExecutor}
@@ -90,6 +94,21 @@ public class AsyncExecutionInterceptor extends AsyncExecutionAspectSupport imple
 	}
 
 
+	/**
+	 * Specify whether the local executor built if no default executor could be
+	 * found should run each method invocation on a new virtual thread, through
+	 * a {@link VirtualThreadTaskExecutor} (on platform threads where virtual
+	 * threads are not supported by the runtime). Default is "false".
+	 * <p>Does not apply to an executor given to this interceptor, nor to an
+	 * executor bean found in the context.
+	 * @since 5.2
+	 * @see #getDefaultExecutor(BeanFactory)
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+
 	/**
 	 * Intercept the given method invocation, submit the actual calling of the method to
 	 * the correct task executor and return immediately to the caller.
@@ -148,14 +167,18 @@ public class AsyncExecutionInterceptor extends AsyncExecutionAspectSupport imple
 	 * bean in the context, or for an {@link Executor} bean named "taskExecutor" otherwise.
 	 * If neither of the two is resolvable (e.g. if no {@code BeanFactory} was configured at all),
 	 * this implementation falls back to a newly created {@link SimpleAsyncTaskExecutor} instance
-	 * for local use if no default could be found.
+	 * for local use if no default could be found, or to a {@link VirtualThreadTaskExecutor}
+	 * if {@linkplain #setVirtualThreads virtual threads} have been requested.
 	 * @see #DEFAULT_TASK_EXECUTOR_BEAN_NAME
 	 */
 	@Override
 	@Nullable
 	protected Executor getDefaultExecutor(@Nullable BeanFactory beanFactory) {
 		Executor defaultExecutor = super.getDefaultExecutor(beanFactory);
-		return (defaultExecutor != null ? defaultExecutor : new SimpleAsyncTaskExecutor());
+		if (defaultExecutor != null) {
+			return defaultExecutor;
+		}
+		return (this.virtualThreads ? new VirtualThreadTaskExecutor() : new SimpleAsyncTaskExecutor());
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,14 +19,20 @@ package org.springframework.aop.framework;
 import org.junit.Test;
 
 import org.springframework.aop.support.DelegatingIntroductionInterceptor;
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.tests.aop.interceptor.NopInterceptor;
 import org.springframework.tests.sample.beans.ITestBean;
 import org.springframework.tests.sample.beans.TestBean;
 import org.springframework.util.StopWatch;
 
+import static org.junit.Assert.*;
+
 /**
- * Benchmarks for introductions.
+ * Benchmarks for introductions and frozen proxies.
  *
- * NOTE: No assertions!
+ * NOTE: No assertions for introductions!
  *
  * @author Rod Johnson
  * @author Chris Beams
@@ -84,4 +90,45 @@ public class IntroductionBenchmarkTests {
 
 		System.out.println(sw.prettyPrint());
 	}
+
+	@Test
+	public void timeManyInvocationsOnFrozenProxy() {
+		Assume.group(TestGroup.PERFORMANCE);
+		TestBean target = new TestBean();
+		ITestBean proxy = createProxy(target, false);
+		ITestBean frozenProxy = createProxy(target, true);
+
+		long proxyMillis = Long.MAX_VALUE;
+		long frozenMillis = Long.MAX_VALUE;
+		for (int round = 0; round < 5; round++) {
+			StopWatch sw = new StopWatch("Invocations on proxy with 3 interceptors");
+			sw.start("proxy");
+			for (int i = 0; i < 10 * INVOCATIONS; i++) {
+				proxy.getAge();
+			}
+			sw.stop();
+			proxyMillis = Math.min(proxyMillis, sw.getLastTaskTimeMillis());
+			sw.start("frozen proxy");
+			for (int i = 0; i < 10 * INVOCATIONS; i++) {
+				frozenProxy.getAge();
+			}
+			sw.stop();
+			frozenMillis = Math.min(frozenMillis, sw.getLastTaskTimeMillis());
+		}
+		// Compare the fastest rounds
+		assertTrue("Frozen proxy took " + frozenMillis + " ms vs " + proxyMillis + " ms for non-frozen proxy",
+				frozenMillis <= proxyMillis);
+	}
+
+	private ITestBean createProxy(TestBean target, boolean frozen) {
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.setProxyTargetClass(false);
+		for (int i = 0; i < 3; i++) {
+			NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(new NopInterceptor());
+			advisor.setMappedName("getAge");
+			pf.addAdvisor(advisor);
+		}
+		pf.setFrozen(frozen);
+		return (ITestBean) pf.getProxy();
+	}
 }
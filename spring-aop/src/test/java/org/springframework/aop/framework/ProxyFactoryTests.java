@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,10 @@
 
 package org.springframework.aop.framework;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.accessibility.Accessible;
 import javax.swing.JFrame;
 import javax.swing.RootPaneContainer;
@@ -28,11 +30,13 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import org.springframework.aop.Advisor;
+import org.springframework.aop.TargetSource;
 import org.springframework.aop.interceptor.DebugInterceptor;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.aop.support.DefaultIntroductionAdvisor;
 import org.springframework.aop.support.DefaultPointcutAdvisor;
 import org.springframework.aop.support.DelegatingIntroductionInterceptor;
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.core.annotation.Order;
 import org.springframework.tests.TimeStamped;
@@ -51,6 +55,7 @@ import static org.junit.Assert.*;
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @author Chris Beams
+ * @author agent
  * @since 14.05.2003
  */
 public class ProxyFactoryTests {
@@ -379,6 +384,102 @@ public class ProxyFactoryTests {
 		assertEquals("tb", proxy.getName());
 	}
 
+	@Test
+	public void testFrozenInterfaceProxyWithFixedChains() throws Throwable {
+		TestBean target = new TestBean("tb");
+		ProxyFactory pf = new ProxyFactory(target);
+		NopInterceptor nop = new NopInterceptor();
+		NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(nop);
+		advisor.setMappedNames("setAge", "getAge", "exceptional", "returnsThis");
+		pf.addAdvisor(advisor);
+		pf.setFrozen(true);
+		ITestBean proxy = (ITestBean) pf.getProxy();
+		assertTrue(AopUtils.isJdkDynamicProxy(proxy));
+
+		proxy.setAge(42);
+		assertEquals(42, proxy.getAge());
+		assertEquals(2, nop.getCount());
+		assertEquals("tb", proxy.getName());
+		assertEquals(2, nop.getCount());
+		assertSame(target, proxy.returnsThis());
+		assertEquals(3, nop.getCount());
+
+		IOException ex = new IOException();
+		try {
+			proxy.exceptional(ex);
+			fail("Should have thrown IOException");
+		}
+		catch (IOException actual) {
+			assertSame(ex, actual);
+		}
+		assertEquals(4, nop.getCount());
+		assertEquals(42, target.getAge());
+	}
+
+	@Test
+	public void testFrozenInterfaceProxyWithIntroduction() {
+		TestBean target = new TestBean();
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvisor(new DefaultIntroductionAdvisor(new TimestampIntroductionInterceptor(42L), TimeStamped.class));
+		pf.setFrozen(true);
+		Object proxy = pf.getProxy();
+		assertEquals(42L, ((TimeStamped) proxy).getTimeStamp());
+		((ITestBean) proxy).setName("tb");
+		assertEquals("tb", target.getName());
+	}
+
+	@Test
+	public void testFrozenInterfaceProxyWithLazilyFixedChains() {
+		TestBean target = new TestBean("tb");
+		AtomicInteger targetLookups = new AtomicInteger();
+		ProxyFactory pf = new ProxyFactory();
+		pf.setTargetSource(new TargetSource() {
+			@Override
+			public Class<?> getTargetClass() {
+				return TestBean.class;
+			}
+			@Override
+			public boolean isStatic() {
+				return true;
+			}
+			@Override
+			public Object getTarget() {
+				targetLookups.incrementAndGet();
+				return target;
+			}
+			@Override
+			public void releaseTarget(Object target) {
+			}
+		});
+		pf.addInterface(ITestBean.class);
+		NopInterceptor nop = new NopInterceptor();
+		pf.addAdvice(nop);
+		pf.setFrozen(true);
+		ITestBean proxy = (ITestBean) pf.getProxy();
+		assertEquals(0, targetLookups.get());
+
+		assertEquals("tb", proxy.getName());
+		assertEquals("tb", proxy.getName());
+		assertEquals(2, targetLookups.get());
+		assertEquals(2, nop.getCount());
+	}
+
+	@Test
+	public void testFrozenInterfaceProxyWithNonPublicTypes() {
+		NopInterceptor nop = new NopInterceptor();
+		ProxyFactory pf = new ProxyFactory(new NonPublicGreeter());
+		pf.addAdvice(nop);
+		pf.setFrozen(true);
+		Object proxy = pf.getProxy();
+		assertTrue(AopUtils.isJdkDynamicProxy(proxy));
+
+		// Public interface on a private target class: invoked through a FastClass
+		assertEquals("Hello tb", ((Greeter) proxy).greet("tb"));
+		// Package-private interface: invoked through reflection
+		assertEquals("Hi tb", ((NonPublicGreeting) proxy).greetInformally("tb"));
+		assertEquals("Hello tb", ((Greeter) proxy).greet("tb"));
+		assertEquals(3, nop.getCount());
+	}
 
 	@SuppressWarnings("serial")
 	private static class TimestampIntroductionInterceptor extends DelegatingIntroductionInterceptor
@@ -404,6 +505,32 @@ public class ProxyFactoryTests {
 	}
 
 
+	public interface Greeter {
+
+		String greet(String name);
+	}
+
+
+	interface NonPublicGreeting {
+
+		String greetInformally(String name);
+	}
+
+
+	private static class NonPublicGreeter implements Greeter, NonPublicGreeting {
+
+		@Override
+		public String greet(String name) {
+			return "Hello " + name;
+		}
+
+		@Override
+		public String greetInformally(String name) {
+			return "Hi " + name;
+		}
+	}
+
+
 	@Order(2)
 	public static class A implements Runnable {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,12 +17,14 @@
 package org.springframework.beans.support;
 
 import java.beans.PropertyEditor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 import org.springframework.beans.PropertyEditorRegistry;
 import org.springframework.beans.SimpleTypeConverter;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.MethodInvokerFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.MethodInvoker;
@@ -46,6 +48,9 @@ public class ArgumentConvertingMethodInvoker extends MethodInvoker {
 
 	private boolean useDefaultConverter = true;
 
+	@Nullable
+	private volatile PreparedInvoker preparedInvoker;
+
 
 	/**
 	 * Set a TypeConverter to use for argument type conversion.
@@ -179,4 +184,40 @@ public class ArgumentConvertingMethodInvoker extends MethodInvoker {
 		return null;
 	}
 
+	/**
+	 * This implementation invokes the prepared method through a
+	 * {@link MethodInvokerFactory} invoker, avoiding {@link Method#invoke}
+	 * for repeated invocations such as from a scheduled
+	 * {@code MethodInvokingRunnable}.
+	 */
+	@Override
+	@Nullable
+	protected Object doInvoke(Method preparedMethod, @Nullable Object targetObject, Object[] arguments)
+			throws InvocationTargetException, IllegalAccessException {
+
+		PreparedInvoker invoker = this.preparedInvoker;
+		if (invoker == null || invoker.method != preparedMethod) {
+			invoker = new PreparedInvoker(preparedMethod);
+			this.preparedInvoker = invoker;
+		}
+		return invoker.invoker.invoke(targetObject, arguments);
+	}
+
+
+	/**
+	 * Holder for the invoker of a prepared method, resolved once
+	 * for repeated invocations of the same prepared method.
+	 */
+	private static class PreparedInvoker {
+
+		final Method method;
+
+		final MethodInvokerFactory.Invoker invoker;
+
+		PreparedInvoker(Method method) {
+			this.method = method;
+			this.invoker = MethodInvokerFactory.getInvoker(method);
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.CaffeineSpec;
@@ -45,6 +46,12 @@ import org.springframework.util.ObjectUtils;
  * A {@link CaffeineSpec}-compliant expression value can also be applied
  * via the {@link #setCacheSpecification "cacheSpecification"} bean property.
  *
+ * <p>With {@link #setAsyncCacheMode "asyncCacheMode"} switched on, each cache
+ * is backed by a Caffeine {@link AsyncCache}, serving asynchronous and reactive
+ * {@code @Cacheable} methods without blocking (requires Caffeine 2.7 or higher)
+ * once the cache interceptor caches their eventual values, as enabled through
+ * {@link org.springframework.cache.interceptor.CacheAspectSupport#setAsyncValueCaching}.
+ *
  * <p>Requires Caffeine 2.1 or higher.
  *
  * @author Ben Manes
@@ -66,6 +73,8 @@ public class CaffeineCacheManager implements CacheManager {
 
 	private boolean allowNullValues = true;
 
+	private boolean asyncCacheMode = false;
+
 
 	/**
 	 * Construct a dynamic CaffeineCacheManager,
@@ -169,6 +178,32 @@ public class CaffeineCacheManager implements CacheManager {
 		return this.allowNullValues;
 	}
 
+	/**
+	 * Specify whether to build each cache on a Caffeine {@link AsyncCache},
+	 * with non-blocking {@link Cache#retrieve} operations that share in-flight
+	 * loads between concurrent callers of the same key.
+	 * <p>Default is "false", building regular synchronous Caffeine caches.
+	 * Synchronous cache operations remain available in either mode.
+	 * @since 5.2
+	 * @see #createAsyncCaffeineCache
+	 * @see com.github.benmanes.caffeine.cache.Caffeine#buildAsync()
+	 */
+	public void setAsyncCacheMode(boolean asyncCacheMode) {
+		if (this.asyncCacheMode != asyncCacheMode) {
+			this.asyncCacheMode = asyncCacheMode;
+			refreshKnownCaches();
+		}
+	}
+
+	/**
+	 * Return whether this cache manager builds its caches on Caffeine's
+	 * {@link AsyncCache}.
+	 * @since 5.2
+	 */
+	public boolean isAsyncCacheMode() {
+		return this.asyncCacheMode;
+	}
+
 
 	@Override
 	public Collection<String> getCacheNames() {
@@ -197,6 +232,9 @@ public class CaffeineCacheManager implements CacheManager {
 	 * @return the Spring CaffeineCache adapter (or a decorator thereof)
 	 */
 	protected Cache createCaffeineCache(String name) {
+		if (isAsyncCacheMode()) {
+			return new CaffeineCache(name, createAsyncCaffeineCache(name), isAllowNullValues());
+		}
 		return new CaffeineCache(name, createNativeCaffeineCache(name), isAllowNullValues());
 	}
 
@@ -214,6 +252,22 @@ public class CaffeineCacheManager implements CacheManager {
 		}
 	}
 
+	/**
+	 * Create a Caffeine AsyncCache instance for the specified cache name,
+	 * used in {@link #setAsyncCacheMode "asyncCacheMode"}.
+	 * @param name the name of the cache
+	 * @return the Caffeine AsyncCache instance
+	 * @since 5.2
+	 */
+	protected AsyncCache<Object, Object> createAsyncCaffeineCache(String name) {
+		if (this.cacheLoader != null) {
+			return this.cacheBuilder.buildAsync(this.cacheLoader);
+		}
+		else {
+			return this.cacheBuilder.buildAsync();
+		}
+	}
+
 	private void doSetCaffeine(Caffeine<Object, Object> cacheBuilder) {
 		if (!ObjectUtils.nullSafeEquals(this.cacheBuilder, cacheBuilder)) {
 			this.cacheBuilder = cacheBuilder;
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.caffeine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.CacheInterceptor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for asynchronous and reactive {@code @Cacheable} methods
+ * on {@link CaffeineCache} instances backed by a Caffeine AsyncCache.
+ *
+ * @author agent
+ */
+public class CaffeineAsyncCachingTests {
+
+	private final CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+
+	private final TestService target = new TestService();
+
+	private AsyncService service;
+
+
+	@Before
+	public void setup() {
+		this.cacheManager.setAsyncCacheMode(true);
+		CacheInterceptor interceptor = new CacheInterceptor();
+		interceptor.setCacheOperationSource(new AnnotationCacheOperationSource());
+		interceptor.setCacheManager(this.cacheManager);
+		interceptor.setAsyncValueCaching(true);
+		interceptor.afterPropertiesSet();
+		interceptor.afterSingletonsInstantiated();
+		ProxyFactory proxyFactory = new ProxyFactory(this.target);
+		proxyFactory.addAdvice(interceptor);
+		this.service = (AsyncService) proxyFactory.getProxy();
+	}
+
+
+	@Test
+	public void cacheableFuture() throws Exception {
+		assertEquals("value1", this.service.getFuture("key").get());
+		assertEquals("value1", this.service.getFuture("key").get());
+		assertEquals(1, this.target.invocations.get());
+		assertEquals("value1", getCache().get("key").get());
+		assertEquals("value1", getCache().retrieve("key").get().get());
+	}
+
+	@Test
+	public void synchronizedFutureSharesInFlightLoad() throws Exception {
+		CompletableFuture<?> first = this.service.getFutureSync("key");
+		CompletableFuture<?> second = this.service.getFutureSync("key");
+		assertFalse(first.isDone());
+		assertFalse(second.isDone());
+		assertEquals(1, this.target.invocations.get());
+
+		this.target.pending.complete("value");
+		assertEquals("value", first.get());
+		assertEquals("value", second.get());
+		assertEquals("value", getCache().get("key").get());
+		assertEquals("value", this.service.getFutureSync("key").get());
+		assertEquals(1, this.target.invocations.get());
+	}
+
+	@Test
+	public void synchronizedFailedFutureNotCached() throws Exception {
+		CompletableFuture<?> result = this.service.getFutureSync("key");
+		IllegalStateException failure = new IllegalStateException("Expected exception");
+		this.target.pending.completeExceptionally(failure);
+		try {
+			result.get();
+			fail("Should have thrown ExecutionException");
+		}
+		catch (ExecutionException ex) {
+			assertSame(failure, ex.getCause());
+		}
+		assertNull(getCache().get("key"));
+		assertNull(getCache().retrieve("key").get());
+	}
+
+	@Test
+	public void cacheableMono() {
+		Mono<Object> mono = this.service.getMono("key");
+		assertEquals(0, this.target.invocations.get());
+		assertEquals("value1", mono.block());
+		assertEquals("value1", this.service.getMono("key").block());
+		assertEquals(1, this.target.invocations.get());
+		assertEquals("value1", getCache().get("key").get());
+	}
+
+
+	private Cache getCache() {
+		return this.cacheManager.getCache("test");
+	}
+
+
+	public interface AsyncService {
+
+		@Cacheable("test")
+		CompletableFuture<Object> getFuture(String key);
+
+		@Cacheable(cacheNames = "test", sync = true)
+		CompletableFuture<Object> getFutureSync(String key);
+
+		@Cacheable("test")
+		Mono<Object> getMono(String key);
+	}
+
+
+	private static class TestService implements AsyncService {
+
+		private final AtomicInteger invocations = new AtomicInteger();
+
+		private final CompletableFuture<Object> pending = new CompletableFuture<>();
+
+		@Override
+		public CompletableFuture<Object> getFuture(String key) {
+			return CompletableFuture.completedFuture("value" + this.invocations.incrementAndGet());
+		}
+
+		@Override
+		public CompletableFuture<Object> getFutureSync(String key) {
+			this.invocations.incrementAndGet();
+			return this.pending;
+		}
+
+		@Override
+		public Mono<Object> getMono(String key) {
+			return Mono.fromSupplier(() -> "value" + this.invocations.incrementAndGet());
+		}
+	}
+
+}
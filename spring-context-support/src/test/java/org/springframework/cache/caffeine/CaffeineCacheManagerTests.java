@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.cache.caffeine;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.CaffeineSpec;
@@ -192,6 +194,24 @@ public class CaffeineCacheManagerTests {
 		assertNull(cache1.get("foo"));
 	}
 
+	@Test
+	public void asyncCacheMode() throws Exception {
+		CaffeineCacheManager cm = new CaffeineCacheManager("c1");
+		Cache cache1 = cm.getCache("c1");
+		assertNull(((CaffeineCache) cache1).getAsyncCache());
+		cm.setAsyncCacheMode(true);
+		Cache cache1x = cm.getCache("c1");
+		assertNotSame(cache1x, cache1);
+		assertNotNull(((CaffeineCache) cache1x).getAsyncCache());
+
+		cache1x.put("key1", "value1");
+		assertEquals("value1", cache1x.retrieve("key1").get().get());
+		assertEquals("value1", cache1x.get("key1").get());
+		assertNull(cache1x.retrieve("key2").get());
+		assertEquals("value2", cache1x.retrieve("key2", () -> CompletableFuture.completedFuture("value2")).get());
+		assertEquals("value2", cache1x.get("key2").get());
+	}
+
 	@SuppressWarnings("unchecked")
 	private CacheLoader<Object, Object> mockCacheLoader() {
 		return mock(CacheLoader.class);
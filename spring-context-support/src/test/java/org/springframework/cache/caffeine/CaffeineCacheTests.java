@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.cache.caffeine;
 
+import java.util.concurrent.CompletableFuture;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import org.junit.Before;
 import org.junit.Test;
@@ -77,4 +80,26 @@ public class CaffeineCacheTests extends AbstractValueAdaptingCacheTests<Caffeine
 		assertEquals(value, cache.get(key).get()); // not changed
 	}
 
+	@Test
+	public void testRetrieveWithAsyncCache() throws Exception {
+		AsyncCache<Object, Object> nativeAsyncCache = Caffeine.newBuilder().buildAsync();
+		CaffeineCache cache = new CaffeineCache(CACHE_NAME, nativeAsyncCache, true);
+		assertSame(nativeAsyncCache, cache.getAsyncCache());
+
+		CompletableFuture<Object> pending = new CompletableFuture<>();
+		CompletableFuture<Object> first = cache.retrieve("key", () -> pending);
+		CompletableFuture<Object> second = cache.retrieve("key", () -> CompletableFuture.completedFuture("other"));
+		CompletableFuture<Cache.ValueWrapper> lookup = cache.retrieve("key");
+		assertFalse(first.isDone());
+		assertFalse(second.isDone());
+		assertFalse(lookup.isDone());
+
+		pending.complete(null);
+		assertNull(first.get());
+		assertNull(second.get());
+		assertNull(lookup.get().get());
+		assertNull(cache.get("key").get());
+		assertNull(cache.retrieve("missing").get());
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.cache;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import org.springframework.lang.Nullable;
 
@@ -98,6 +100,51 @@ public interface Cache {
 	@Nullable
 	<T> T get(Object key, Callable<T> valueLoader);
 
+	/**
+	 * Return the value to which this cache maps the specified key,
+	 * wrapped in a {@link CompletableFuture} for non-blocking retrieval.
+	 * <p>The returned future completes with {@code null} if the cache contains
+	 * no mapping for this key; otherwise, with the cached value (which may be
+	 * {@code null} itself) in a {@link ValueWrapper}, analogous to {@link #get(Object)}.
+	 * <p>The default implementation delegates to {@link #get(Object)} and returns
+	 * a completed future. Implementations backed by an asynchronous or remote store
+	 * should override this method to avoid blocking the calling thread.
+	 * @param key the key whose associated value is to be returned
+	 * @return a future for the value wrapper (never {@code null} itself)
+	 * @since 5.2
+	 * @see #retrieve(Object, Supplier)
+	 */
+	default CompletableFuture<ValueWrapper> retrieve(Object key) {
+		return CompletableFuture.completedFuture(get(key));
+	}
+
+	/**
+	 * Return the value to which this cache maps the specified key, obtaining
+	 * that value from {@code valueLoader} if necessary: the asynchronous
+	 * counterpart of {@link #get(Object, Callable)}.
+	 * <p>If possible, implementations should ensure that the loading operation
+	 * is only triggered once in case of concurrent access on the same key,
+	 * sharing the in-flight future between callers.
+	 * <p>The default implementation checks {@link #get(Object)} and otherwise
+	 * {@link #put puts} the loaded value once the loader's future completes.
+	 * A failed loader future is not cached and fails the returned future.
+	 * @param key the key whose associated value is to be returned
+	 * @param valueLoader the supplier of the future value, if not cached
+	 * @return a future for the cached or loaded value
+	 * @since 5.2
+	 */
+	@SuppressWarnings("unchecked")
+	default <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+		ValueWrapper wrapper = get(key);
+		if (wrapper != null) {
+			return CompletableFuture.completedFuture((T) wrapper.get());
+		}
+		return valueLoader.get().thenApply(value -> {
+			put(key, value);
+			return value;
+		});
+	}
+
 	/**
 	 * Associate the specified value with the specified key in this cache.
 	 * <p>If the cache previously contained a mapping for this key, the old
@@ -0,0 +1,966 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ConcurrentMap} with a maximum size and/or expiration of entries,
+ * suitable as the store of a {@link ConcurrentMapCache}.
+ *
+ * <p>Entries are evicted according to a W-TinyLFU policy: new entries enter
+ * a small LRU window, from which they get admitted into a segmented LRU main
+ * space (probation and protected) only if they have been used more frequently
+ * than the main space's eviction victim, as estimated by a compact count-min
+ * sketch with periodic aging. This keeps frequently used entries in the map,
+ * even across scans of entries which are only ever used once.
+ *
+ * <p>Reads are lock-free: they record the access in a striped, lossy buffer
+ * which gets drained in batches, applying the access to the eviction policy
+ * under a lock that is only ever tried, never waited for, by reading threads.
+ * Writes apply their changes to the eviction policy under that lock right away.
+ * Expired entries are treated as absent and removed on access, or during such
+ * maintenance once they have reached the head of the eviction order.
+ *
+ * <p>Hit, miss, eviction and expiration counts are exposed for monitoring
+ * purposes, with {@link #get} and {@link #computeIfAbsent} counting as lookups.
+ * Like {@link ConcurrentHashMap}, this map does not accept {@code null}
+ * keys or values.
+ *
+ * @author agent
+ * @since 5.2
+ * @param <K> the key type
+ * @param <V> the value type
+ * @see ConcurrentMapCacheSettings
+ * @see ConcurrentMapCacheManager#setDefaultCacheSettings
+ */
+public class BoundedConcurrentMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	private static final int READ_BUFFER_SIZE = 16;
+
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+	private static final int READ_BUFFER_STRIPES = stripeCount();
+
+
+	private final long maximumSize;
+
+	private final long windowMaximum;
+
+	private final long mainMaximum;
+
+	private final long protectedMaximum;
+
+	private final long expireAfterWriteNanos;
+
+	private final long expireAfterAccessNanos;
+
+	private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>(256);
+
+	private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFER_STRIPES];
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	// Guarded by the eviction lock
+	private final AccessOrderQueue<K, V> window = new AccessOrderQueue<>(Node.WINDOW);
+
+	private final AccessOrderQueue<K, V> probation = new AccessOrderQueue<>(Node.PROBATION);
+
+	private final AccessOrderQueue<K, V> protectedSpace = new AccessOrderQueue<>(Node.PROTECTED);
+
+	@Nullable
+	private final FrequencySketch sketch;
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private final LongAdder expirationCount = new LongAdder();
+
+	@Nullable
+	private EntrySet entrySet;
+
+
+	/**
+	 * Create a new BoundedConcurrentMap with the given maximum number of entries.
+	 */
+	public BoundedConcurrentMap(long maximumSize) {
+		this(new ConcurrentMapCacheSettings(maximumSize));
+	}
+
+	/**
+	 * Create a new BoundedConcurrentMap with the given size and expiration settings.
+	 */
+	public BoundedConcurrentMap(ConcurrentMapCacheSettings settings) {
+		Assert.notNull(settings, "ConcurrentMapCacheSettings must not be null");
+		Assert.isTrue(settings.hasLimits(), "ConcurrentMapCacheSettings must specify a size or time limit");
+		if (settings.getMaximumSize() > 0) {
+			this.maximumSize = settings.getMaximumSize();
+			this.windowMaximum = Math.max(1, this.maximumSize / 100);
+			this.mainMaximum = this.maximumSize - this.windowMaximum;
+			this.protectedMaximum = this.mainMaximum * 8 / 10;
+			this.sketch = new FrequencySketch();
+		}
+		else {
+			this.maximumSize = Long.MAX_VALUE;
+			this.windowMaximum = Long.MAX_VALUE;
+			this.mainMaximum = 0;
+			this.protectedMaximum = 0;
+			this.sketch = null;
+		}
+		this.expireAfterWriteNanos = toNanos(settings.getExpireAfterWrite());
+		this.expireAfterAccessNanos = toNanos(settings.getExpireAfterAccess());
+		for (int i = 0; i < this.readBuffers.length; i++) {
+			this.readBuffers[i] = new ReadBuffer();
+		}
+	}
+
+	private static long toNanos(@Nullable Duration duration) {
+		return (duration != null ? duration.toNanos() : 0);
+	}
+
+
+	/**
+	 * Return the maximum number of entries, or -1 if unbounded.
+	 */
+	public long getMaximumSize() {
+		return (this.sketch != null ? this.maximumSize : -1);
+	}
+
+	/**
+	 * Return the number of lookups which found a present entry.
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Return the number of lookups which did not find a present entry.
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Return the number of entries evicted due to the maximum size.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
+	/**
+	 * Return the number of entries removed due to expiration.
+	 */
+	public long getExpirationCount() {
+		return this.expirationCount.sum();
+	}
+
+	/**
+	 * Apply all pending accesses to the eviction policy
+	 * and remove expired entries which have reached the head of the eviction order.
+	 * <p>This happens automatically along with reads and writes; an explicit call
+	 * is only useful for releasing expired entries while the map is idle.
+	 */
+	public void cleanUp() {
+		this.evictionLock.lock();
+		try {
+			performMaintenance(currentTime());
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+
+	// Map operations
+
+	@Override
+	public int size() {
+		return this.data.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.data.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		Node<K, V> node = this.data.get(key);
+		return (node != null && !isExpired(node, currentTime()));
+	}
+
+	@Override
+	@Nullable
+	public V get(Object key) {
+		Node<K, V> node = this.data.get(key);
+		if (node != null) {
+			long now = currentTime();
+			if (!isExpired(node, now)) {
+				this.hitCount.increment();
+				afterRead(node, now);
+				return node.value;
+			}
+			expire(node);
+		}
+		this.missCount.increment();
+		return null;
+	}
+
+	@Override
+	@Nullable
+	public V put(K key, V value) {
+		assertNotNull(value);
+		long now = currentTime();
+		Outcome<K, V> outcome = new Outcome<>();
+		this.data.compute(key, (k, node) -> {
+			if (node != null && !isExpired(node, now)) {
+				outcome.previousValue = node.value;
+				node.update(value, now);
+				outcome.updated = node;
+				return node;
+			}
+			outcome.expired = node;
+			outcome.added = new Node<>(k, value, now);
+			return outcome.added;
+		});
+		afterWrite(outcome, now);
+		return outcome.previousValue;
+	}
+
+	@Override
+	@Nullable
+	public V putIfAbsent(K key, V value) {
+		assertNotNull(value);
+		long now = currentTime();
+		Node<K, V> existing = this.data.get(key);
+		if (existing != null && !isExpired(existing, now)) {
+			afterRead(existing, now);
+			return existing.value;
+		}
+		Outcome<K, V> outcome = new Outcome<>();
+		this.data.compute(key, (k, node) -> {
+			if (node != null && !isExpired(node, now)) {
+				outcome.previousValue = node.value;
+				return node;
+			}
+			outcome.expired = node;
+			outcome.added = new Node<>(k, value, now);
+			return outcome.added;
+		});
+		afterWrite(outcome, now);
+		return outcome.previousValue;
+	}
+
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		long now = currentTime();
+		Node<K, V> existing = this.data.get(key);
+		if (existing != null && !isExpired(existing, now)) {
+			this.hitCount.increment();
+			afterRead(existing, now);
+			return existing.value;
+		}
+		Outcome<K, V> outcome = new Outcome<>();
+		this.data.compute(key, (k, node) -> {
+			if (node != null && !isExpired(node, now)) {
+				outcome.previousValue = node.value;
+				return node;
+			}
+			outcome.expired = node;
+			V value = mappingFunction.apply(k);
+			if (value == null) {
+				return null;
+			}
+			outcome.added = new Node<>(k, value, now);
+			return outcome.added;
+		});
+		if (outcome.previousValue != null) {
+			this.hitCount.increment();
+			return outcome.previousValue;
+		}
+		this.missCount.increment();
+		afterWrite(outcome, now);
+		return (outcome.added != null ? outcome.added.value : null);
+	}
+
+	@Override
+	@Nullable
+	public V remove(Object key) {
+		Node<K, V> node = this.data.remove(key);
+		if (node == null) {
+			return null;
+		}
+		if (isExpired(node, currentTime())) {
+			this.expirationCount.increment();
+			afterRemove(node);
+			return null;
+		}
+		afterRemove(node);
+		return node.value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object key, Object value) {
+		long now = currentTime();
+		Outcome<K, V> outcome = new Outcome<>();
+		this.data.computeIfPresent((K) key, (k, node) -> {
+			if (isExpired(node, now)) {
+				outcome.expired = node;
+				return null;
+			}
+			if (node.value.equals(value)) {
+				outcome.removed = node;
+				return null;
+			}
+			return node;
+		});
+		afterWrite(outcome, now);
+		return (outcome.removed != null);
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		assertNotNull(newValue);
+		long now = currentTime();
+		Outcome<K, V> outcome = new Outcome<>();
+		this.data.computeIfPresent(key, (k, node) -> {
+			if (isExpired(node, now)) {
+				outcome.expired = node;
+				return null;
+			}
+			if (node.value.equals(oldValue)) {
+				node.update(newValue, now);
+				outcome.updated = node;
+			}
+			return node;
+		});
+		afterWrite(outcome, now);
+		return (outcome.updated != null);
+	}
+
+	@Override
+	@Nullable
+	public V replace(K key, V value) {
+		assertNotNull(value);
+		long now = currentTime();
+		Outcome<K, V> outcome = new Outcome<>();
+		this.data.computeIfPresent(key, (k, node) -> {
+			if (isExpired(node, now)) {
+				outcome.expired = node;
+				return null;
+			}
+			outcome.previousValue = node.value;
+			node.update(value, now);
+			outcome.updated = node;
+			return node;
+		});
+		afterWrite(outcome, now);
+		return outcome.previousValue;
+	}
+
+	@Override
+	public void clear() {
+		List<Node<K, V>> removed = new ArrayList<>();
+		for (Node<K, V> node : this.data.values()) {
+			if (this.data.remove(node.key, node)) {
+				removed.add(node);
+			}
+		}
+		this.evictionLock.lock();
+		try {
+			for (Node<K, V> node : removed) {
+				retire(node);
+			}
+			drainReadBuffers();
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		EntrySet entrySet = this.entrySet;
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+			this.entrySet = entrySet;
+		}
+		return entrySet;
+	}
+
+	private static void assertNotNull(@Nullable Object value) {
+		if (value == null) {
+			throw new NullPointerException("Null values not supported");
+		}
+	}
+
+
+	// Expiration and maintenance
+
+	private long currentTime() {
+		return (this.expireAfterWriteNanos > 0 || this.expireAfterAccessNanos > 0 ? System.nanoTime() : 0);
+	}
+
+	private boolean isExpired(Node<K, V> node, long now) {
+		return ((this.expireAfterWriteNanos > 0 && now - node.writeTime >= this.expireAfterWriteNanos) ||
+				(this.expireAfterAccessNanos > 0 && now - node.accessTime >= this.expireAfterAccessNanos));
+	}
+
+	private void expire(Node<K, V> node) {
+		if (this.data.remove(node.key, node)) {
+			this.expirationCount.increment();
+			afterRemove(node);
+		}
+	}
+
+	private void afterRead(Node<K, V> node, long now) {
+		if (this.expireAfterAccessNanos > 0) {
+			node.accessTime = now;
+		}
+		ReadBuffer buffer = this.readBuffers[(int) Thread.currentThread().getId() & (READ_BUFFER_STRIPES - 1)];
+		if (buffer.offer(node) && this.evictionLock.tryLock()) {
+			try {
+				performMaintenance(now);
+			}
+			finally {
+				this.evictionLock.unlock();
+			}
+		}
+	}
+
+	private void afterWrite(Outcome<K, V> outcome, long now) {
+		if (outcome.expired != null) {
+			this.expirationCount.increment();
+		}
+		if (outcome.expired == null && outcome.removed == null && outcome.added == null) {
+			if (outcome.updated != null) {
+				afterRead(outcome.updated, now);
+			}
+			return;
+		}
+		this.evictionLock.lock();
+		try {
+			// Apply pending reads first, not to mistake the new entry for the least recently used
+			drainReadBuffers();
+			if (outcome.expired != null) {
+				retire(outcome.expired);
+			}
+			if (outcome.removed != null) {
+				retire(outcome.removed);
+			}
+			if (outcome.added != null) {
+				add(outcome.added);
+			}
+			performMaintenance(now);
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+		if (outcome.updated != null) {
+			afterRead(outcome.updated, now);
+		}
+	}
+
+	private void afterRemove(Node<K, V> node) {
+		this.evictionLock.lock();
+		try {
+			retire(node);
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	// Guarded by the eviction lock
+	private void performMaintenance(long now) {
+		drainReadBuffers();
+		evictEntries();
+		if (this.expireAfterWriteNanos > 0 || this.expireAfterAccessNanos > 0) {
+			expireEntries(this.window, now);
+			expireEntries(this.probation, now);
+			expireEntries(this.protectedSpace, now);
+		}
+	}
+
+	// Guarded by the eviction lock
+	private void drainReadBuffers() {
+		for (ReadBuffer buffer : this.readBuffers) {
+			buffer.drainTo(this);
+		}
+	}
+
+	// Guarded by the eviction lock
+	private void expireEntries(AccessOrderQueue<K, V> queue, long now) {
+		Node<K, V> node;
+		while ((node = queue.peek()) != null && isExpired(node, now)) {
+			if (this.data.remove(node.key, node)) {
+				this.expirationCount.increment();
+			}
+			retire(node);
+		}
+	}
+
+
+	// W-TinyLFU eviction policy, guarded by the eviction lock
+
+	private void add(Node<K, V> node) {
+		if (node.retired) {
+			// Removed in the meantime
+			return;
+		}
+		if (this.sketch != null) {
+			this.sketch.ensureCapacity(Math.min(this.maximumSize, this.data.size()));
+			this.sketch.increment(node.key);
+		}
+		this.window.add(node);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void onAccess(Node<?, ?> accessed) {
+		Node<K, V> node = (Node<K, V>) accessed;
+		if (node.retired || node.queue == Node.NONE) {
+			// Removed in the meantime, or not added yet
+			return;
+		}
+		if (this.sketch != null) {
+			this.sketch.increment(node.key);
+		}
+		if (node.queue == Node.WINDOW) {
+			this.window.moveToTail(node);
+		}
+		else if (node.queue == Node.PROBATION) {
+			// Promote to protected space, demoting its least recently used entries
+			this.probation.remove(node);
+			this.protectedSpace.add(node);
+			while (this.protectedSpace.size > this.protectedMaximum) {
+				Node<K, V> demoted = this.protectedSpace.peek();
+				this.protectedSpace.remove(demoted);
+				this.probation.add(demoted);
+			}
+		}
+		else {
+			this.protectedSpace.moveToTail(node);
+		}
+	}
+
+	private void evictEntries() {
+		while (this.window.size > this.windowMaximum) {
+			Node<K, V> candidate = this.window.peek();
+			this.window.remove(candidate);
+			if (this.probation.size + this.protectedSpace.size < this.mainMaximum) {
+				this.probation.add(candidate);
+				continue;
+			}
+			Node<K, V> victim = this.probation.peek();
+			if (victim == null) {
+				victim = this.protectedSpace.peek();
+			}
+			if (victim != null && this.sketch != null &&
+					this.sketch.frequency(candidate.key) > this.sketch.frequency(victim.key)) {
+				evict(victim);
+				this.probation.add(candidate);
+			}
+			else {
+				evict(candidate);
+			}
+		}
+	}
+
+	private void evict(Node<K, V> node) {
+		if (this.data.remove(node.key, node)) {
+			this.evictionCount.increment();
+		}
+		retire(node);
+	}
+
+	private void retire(Node<K, V> node) {
+		if (!node.retired) {
+			node.retired = true;
+			if (node.queue == Node.WINDOW) {
+				this.window.remove(node);
+			}
+			else if (node.queue == Node.PROBATION) {
+				this.probation.remove(node);
+			}
+			else if (node.queue == Node.PROTECTED) {
+				this.protectedSpace.remove(node);
+			}
+		}
+	}
+
+	private static int stripeCount() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		return Math.min(64, Integer.highestOneBit(Math.max(1, processors * 2 - 1)) << 1);
+	}
+
+
+	/**
+	 * Map entry with access order links, guarded by the eviction lock.
+	 */
+	private static final class Node<K, V> {
+
+		static final byte NONE = 0;
+
+		static final byte WINDOW = 1;
+
+		static final byte PROBATION = 2;
+
+		static final byte PROTECTED = 3;
+
+		final K key;
+
+		volatile V value;
+
+		volatile long writeTime;
+
+		volatile long accessTime;
+
+		byte queue = NONE;
+
+		boolean retired;
+
+		@Nullable
+		Node<K, V> previous;
+
+		@Nullable
+		Node<K, V> next;
+
+		Node(K key, V value, long now) {
+			this.key = key;
+			this.value = value;
+			this.writeTime = now;
+			this.accessTime = now;
+		}
+
+		void update(V value, long now) {
+			this.value = value;
+			this.writeTime = now;
+			this.accessTime = now;
+		}
+	}
+
+
+	/**
+	 * Doubly-linked queue of nodes in access order, least recently used first.
+	 */
+	private static final class AccessOrderQueue<K, V> {
+
+		private final byte id;
+
+		@Nullable
+		private Node<K, V> head;
+
+		@Nullable
+		private Node<K, V> tail;
+
+		long size;
+
+		AccessOrderQueue(byte id) {
+			this.id = id;
+		}
+
+		@Nullable
+		Node<K, V> peek() {
+			return this.head;
+		}
+
+		void add(Node<K, V> node) {
+			node.queue = this.id;
+			node.previous = this.tail;
+			node.next = null;
+			if (this.tail == null) {
+				this.head = node;
+			}
+			else {
+				this.tail.next = node;
+			}
+			this.tail = node;
+			this.size++;
+		}
+
+		void remove(Node<K, V> node) {
+			if (node.previous == null) {
+				this.head = node.next;
+			}
+			else {
+				node.previous.next = node.next;
+			}
+			if (node.next == null) {
+				this.tail = node.previous;
+			}
+			else {
+				node.next.previous = node.previous;
+			}
+			node.previous = null;
+			node.next = null;
+			node.queue = Node.NONE;
+			this.size--;
+		}
+
+		void moveToTail(Node<K, V> node) {
+			if (node != this.tail) {
+				remove(node);
+				add(node);
+			}
+		}
+	}
+
+
+	/**
+	 * Lossy ring buffer of read accesses for a stripe of reading threads.
+	 */
+	private static final class ReadBuffer {
+
+		private final AtomicReferenceArray<Node<?, ?>> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+		private final AtomicLong writeCount = new AtomicLong();
+
+		// Only written under the eviction lock
+		private volatile long readCount;
+
+		/**
+		 * Record the given access, dropping it if the buffer is full.
+		 * @return whether the buffer should be drained
+		 */
+		boolean offer(Node<?, ?> node) {
+			long writes = this.writeCount.get();
+			long pending = writes - this.readCount;
+			if (pending >= READ_BUFFER_SIZE) {
+				return true;
+			}
+			if (this.writeCount.compareAndSet(writes, writes + 1)) {
+				this.buffer.lazySet((int) (writes & READ_BUFFER_MASK), node);
+			}
+			return (pending + 1 >= READ_BUFFER_SIZE);
+		}
+
+		void drainTo(BoundedConcurrentMap<?, ?> map) {
+			long reads = this.readCount;
+			long writes = this.writeCount.get();
+			for (; reads < writes; reads++) {
+				int index = (int) (reads & READ_BUFFER_MASK);
+				Node<?, ?> node = this.buffer.get(index);
+				if (node == null) {
+					// Slot claimed but not written yet
+					break;
+				}
+				this.buffer.lazySet(index, null);
+				map.onAccess(node);
+			}
+			this.readCount = reads;
+		}
+	}
+
+
+	/**
+	 * Count-min sketch with 4-bit counters, estimating the access frequency
+	 * of keys, with all counters halved periodically for aging.
+	 */
+	private static final class FrequencySketch {
+
+		private static final long[] SEEDS = {
+				0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+		private static final long RESET_MASK = 0x7777777777777777L;
+
+		private long[] table = new long[16];
+
+		private int sampleSize = 160;
+
+		private int additions;
+
+		void ensureCapacity(long expectedSize) {
+			if (expectedSize <= this.table.length) {
+				return;
+			}
+			int length = (int) Math.min(1 << 30, Long.highestOneBit(expectedSize - 1) << 1);
+			this.table = new long[length];
+			this.sampleSize = (length < Integer.MAX_VALUE / 10 ? length * 10 : Integer.MAX_VALUE);
+			this.additions = 0;
+		}
+
+		int frequency(Object key) {
+			int hash = spread(key.hashCode());
+			int start = (hash & 3) << 2;
+			int frequency = Integer.MAX_VALUE;
+			for (int i = 0; i < 4; i++) {
+				int index = indexOf(hash, i);
+				int count = (int) ((this.table[index] >>> ((start + i) << 2)) & 0xfL);
+				frequency = Math.min(frequency, count);
+			}
+			return frequency;
+		}
+
+		void increment(Object key) {
+			int hash = spread(key.hashCode());
+			int start = (hash & 3) << 2;
+			boolean added = false;
+			for (int i = 0; i < 4; i++) {
+				int index = indexOf(hash, i);
+				int offset = (start + i) << 2;
+				long mask = (0xfL << offset);
+				if ((this.table[index] & mask) != mask) {
+					this.table[index] += (1L << offset);
+					added = true;
+				}
+			}
+			if (added && ++this.additions >= this.sampleSize) {
+				reset();
+			}
+		}
+
+		private void reset() {
+			for (int i = 0; i < this.table.length; i++) {
+				this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+			}
+			this.additions = (this.additions >>> 1);
+		}
+
+		private int indexOf(int hash, int i) {
+			long h = (hash + SEEDS[i]) * SEEDS[i];
+			h += (h >>> 32);
+			return ((int) h) & (this.table.length - 1);
+		}
+
+		private static int spread(int hash) {
+			int h = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+			h = ((h >>> 16) ^ h) * 0x45d9f3b;
+			return (h >>> 16) ^ h;
+		}
+	}
+
+
+	/**
+	 * Changes applied by an atomic map operation, to be reflected in the eviction policy.
+	 */
+	private static final class Outcome<K, V> {
+
+		@Nullable
+		V previousValue;
+
+		@Nullable
+		Node<K, V> added;
+
+		@Nullable
+		Node<K, V> updated;
+
+		@Nullable
+		Node<K, V> removed;
+
+		@Nullable
+		Node<K, V> expired;
+	}
+
+
+	private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return BoundedConcurrentMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			BoundedConcurrentMap.this.clear();
+		}
+	}
+
+
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+		private final Iterator<Node<K, V>> delegate = data.values().iterator();
+
+		private final long now = currentTime();
+
+		@Nullable
+		private Node<K, V> next;
+
+		@Nullable
+		private Node<K, V> last;
+
+		@Override
+		public boolean hasNext() {
+			while (this.next == null && this.delegate.hasNext()) {
+				Node<K, V> candidate = this.delegate.next();
+				if (!isExpired(candidate, this.now)) {
+					this.next = candidate;
+				}
+			}
+			return (this.next != null);
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.last = this.next;
+			this.next = null;
+			return new WriteThroughEntry(this.last.key, this.last.value);
+		}
+
+		@Override
+		public void remove() {
+			Assert.state(this.last != null, "No current entry");
+			BoundedConcurrentMap.this.remove(this.last.key, this.last.value);
+			this.last = null;
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	private final class WriteThroughEntry extends SimpleEntry<K, V> {
+
+		WriteThroughEntry(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			put(getKey(), value);
+			return super.setValue(value);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.cache.concurrent;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -28,6 +29,7 @@ import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.core.serializer.support.SerializationDelegate;
 import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 
 /**
  * {@link CacheManager} implementation that lazily builds {@link ConcurrentMapCache}
@@ -35,9 +37,11 @@ import org.springframework.lang.Nullable;
  * the set of cache names is pre-defined through {@link #setCacheNames}, with no
  * dynamic creation of further cache regions at runtime.
  *
- * <p>Note: This is by no means a sophisticated CacheManager; it comes with no
- * cache configuration options. However, it may be useful for testing or simple
- * caching scenarios. For advanced local caching needs, consider
+ * <p>By default, caches are unbounded. A maximum size and/or expiration can be
+ * specified for all caches through {@link #setDefaultCacheSettings} or per cache
+ * through {@link #setCacheSettings}, with such caches storing their entries in a
+ * {@link BoundedConcurrentMap} which also exposes hit, miss and eviction counts.
+ * For further local caching needs, consider
  * {@link org.springframework.cache.jcache.JCacheCacheManager},
  * {@link org.springframework.cache.ehcache.EhCacheCacheManager},
  * {@link org.springframework.cache.caffeine.CaffeineCacheManager}.
@@ -45,6 +49,7 @@ import org.springframework.lang.Nullable;
  * @author Juergen Hoeller
  * @since 3.1
  * @see ConcurrentMapCache
+ * @see ConcurrentMapCacheSettings
  */
 public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderAware {
 
@@ -59,6 +64,11 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 	@Nullable
 	private SerializationDelegate serialization;
 
+	@Nullable
+	private ConcurrentMapCacheSettings defaultCacheSettings;
+
+	private Map<String, ConcurrentMapCacheSettings> cacheSettings = Collections.emptyMap();
+
 
 	/**
 	 * Construct a dynamic ConcurrentMapCacheManager,
@@ -146,6 +156,43 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 		return this.storeByValue;
 	}
 
+	/**
+	 * Specify size and expiration settings for all caches in this cache manager,
+	 * unless overridden for specific caches through {@link #setCacheSettings}.
+	 * <p>Default is none, i.e. unbounded caches.
+	 * <p>Note: A change of the default settings will reset all existing caches,
+	 * if any, to reconfigure them with the new settings.
+	 * @since 5.2
+	 */
+	public void setDefaultCacheSettings(@Nullable ConcurrentMapCacheSettings defaultCacheSettings) {
+		this.defaultCacheSettings = defaultCacheSettings;
+		recreateCaches();
+	}
+
+	/**
+	 * Specify size and expiration settings for specific caches, keyed by cache name.
+	 * <p>Note: A change of the cache settings will reset all existing caches,
+	 * if any, to reconfigure them with the new settings.
+	 * @since 5.2
+	 * @see #setDefaultCacheSettings
+	 */
+	public void setCacheSettings(Map<String, ConcurrentMapCacheSettings> cacheSettings) {
+		Assert.notNull(cacheSettings, "Cache settings Map must not be null");
+		this.cacheSettings = new HashMap<>(cacheSettings);
+		recreateCaches();
+	}
+
+	/**
+	 * Return the size and expiration settings for the specified cache, if any.
+	 * @param name the name of the cache
+	 * @since 5.2
+	 */
+	@Nullable
+	protected ConcurrentMapCacheSettings getCacheSettings(String name) {
+		ConcurrentMapCacheSettings settings = this.cacheSettings.get(name);
+		return (settings != null ? settings : this.defaultCacheSettings);
+	}
+
 	@Override
 	public void setBeanClassLoader(ClassLoader classLoader) {
 		this.serialization = new SerializationDelegate(classLoader);
@@ -190,9 +237,10 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 	 */
 	protected Cache createConcurrentMapCache(String name) {
 		SerializationDelegate actualSerialization = (isStoreByValue() ? this.serialization : null);
-		return new ConcurrentMapCache(name, new ConcurrentHashMap<>(256),
-				isAllowNullValues(), actualSerialization);
-
+		ConcurrentMapCacheSettings settings = getCacheSettings(name);
+		ConcurrentMap<Object, Object> store = (settings != null && settings.hasLimits() ?
+				new BoundedConcurrentMap<>(settings) : new ConcurrentHashMap<>(256));
+		return new ConcurrentMapCache(name, store, isAllowNullValues(), actualSerialization);
 	}
 
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Size and expiration settings for a {@link ConcurrentMapCache}, applied
+ * through a {@link BoundedConcurrentMap} as the cache's store.
+ *
+ * <p>Without any limits specified, a {@link ConcurrentMapCacheManager}
+ * creates its caches on a plain, unbounded {@code ConcurrentHashMap}.
+ *
+ * @author agent
+ * @since 5.2
+ * @see ConcurrentMapCacheManager#setDefaultCacheSettings
+ * @see ConcurrentMapCacheManager#setCacheSettings
+ */
+public class ConcurrentMapCacheSettings {
+
+	private long maximumSize = -1;
+
+	@Nullable
+	private Duration expireAfterWrite;
+
+	@Nullable
+	private Duration expireAfterAccess;
+
+
+	/**
+	 * Create new settings without any limits, to be configured
+	 * through the bean property setters.
+	 */
+	public ConcurrentMapCacheSettings() {
+	}
+
+	/**
+	 * Create new settings for the given maximum number of entries.
+	 */
+	public ConcurrentMapCacheSettings(long maximumSize) {
+		setMaximumSize(maximumSize);
+	}
+
+
+	/**
+	 * Set the maximum number of entries in the cache, beyond which entries
+	 * get evicted according to their frequency and recency of use.
+	 * <p>Default is -1, i.e. no size limit.
+	 */
+	public void setMaximumSize(long maximumSize) {
+		Assert.isTrue(maximumSize > 0 || maximumSize == -1, "Maximum size must be greater than 0 or -1");
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Return the maximum number of entries, or -1 if unbounded.
+	 */
+	public long getMaximumSize() {
+		return this.maximumSize;
+	}
+
+	/**
+	 * Set the time after which entries expire once created or updated.
+	 * <p>Default is none.
+	 */
+	public void setExpireAfterWrite(@Nullable Duration expireAfterWrite) {
+		Assert.isTrue(expireAfterWrite == null || !expireAfterWrite.isNegative() && !expireAfterWrite.isZero(),
+				"Expiration time must be positive");
+		this.expireAfterWrite = expireAfterWrite;
+	}
+
+	/**
+	 * Return the time after which entries expire once created or updated, if any.
+	 */
+	@Nullable
+	public Duration getExpireAfterWrite() {
+		return this.expireAfterWrite;
+	}
+
+	/**
+	 * Set the time after which entries expire once last read or written.
+	 * <p>Default is none.
+	 */
+	public void setExpireAfterAccess(@Nullable Duration expireAfterAccess) {
+		Assert.isTrue(expireAfterAccess == null || !expireAfterAccess.isNegative() && !expireAfterAccess.isZero(),
+				"Expiration time must be positive");
+		this.expireAfterAccess = expireAfterAccess;
+	}
+
+	/**
+	 * Return the time after which entries expire once last read or written, if any.
+	 */
+	@Nullable
+	public Duration getExpireAfterAccess() {
+		return this.expireAfterAccess;
+	}
+
+	/**
+	 * Return whether any size or time limits have been specified.
+	 */
+	public boolean hasLimits() {
+		return (this.maximumSize != -1 || this.expireAfterWrite != null || this.expireAfterAccess != null);
+	}
+
+
+	@Override
+	public String toString() {
+		return "ConcurrentMapCacheSettings: maximumSize=" + this.maximumSize +
+				", expireAfterWrite=" + this.expireAfterWrite + ", expireAfterAccess=" + this.expireAfterAccess;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.cache.interceptor;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,11 +26,20 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.aop.support.AopUtils;
@@ -42,8 +52,11 @@ import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
 import org.springframework.context.expression.AnnotatedElementKey;
 import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -69,6 +82,18 @@ import org.springframework.util.function.SupplierUtils;
  * used for determining caching operations, a {@link KeyGenerator} will build the
  * cache keys, and a {@link CacheResolver} will resolve the actual cache(s) to use.
  *
+ * <p>With {@link #setLoadCoalescing load coalescing} enabled, concurrent invocations
+ * missing the same keys in the same caches wait for a single invocation to complete
+ * and share its result, independent from the cache provider.
+ *
+ * <p>With {@link #setAsyncValueCaching async value caching} enabled, methods
+ * returning a {@link CompletableFuture} or {@link CompletionStage}, as well as
+ * reactive types supported by the {@link ReactiveAdapterRegistry} (with Reactor
+ * present), are cached based on their eventual values: cache lookups go through
+ * {@link Cache#retrieve(Object)}, and puts happen once the returned future or
+ * publisher completes. Multi-value publishers are cached as a {@code List} of
+ * their elements.
+ *
  * <p>Note: A cache aspect is serializable but does not perform any actual caching
  * after deserialization.
  *
@@ -83,12 +108,21 @@ import org.springframework.util.function.SupplierUtils;
 public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		implements BeanFactoryAware, InitializingBean, SmartInitializingSingleton {
 
+	private static final boolean reactorPresent = ClassUtils.isPresent(
+			"reactor.core.publisher.Flux", CacheAspectSupport.class.getClassLoader());
+
+
 	protected final Log logger = LogFactory.getLog(getClass());
 
 	private final Map<CacheOperationCacheKey, CacheOperationMetadata> metadataCache = new ConcurrentHashMap<>(1024);
 
 	private final CacheOperationExpressionEvaluator evaluator = new CacheOperationExpressionEvaluator();
 
+	private final Map<List<Object>, InFlightLoad> inFlightLoads = new ConcurrentHashMap<>(64);
+
+	@Nullable
+	private final ReactiveCachingHandler reactiveCachingHandler = (reactorPresent ? new ReactiveCachingHandler() : null);
+
 	@Nullable
 	private CacheOperationSource cacheOperationSource;
 
@@ -100,6 +134,13 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	@Nullable
 	private BeanFactory beanFactory;
 
+	private boolean loadCoalescing = false;
+
+	@Nullable
+	private Duration loadCoalescingTimeout;
+
+	private boolean asyncValueCaching = false;
+
 	private boolean initialized = false;
 
 
@@ -194,6 +235,90 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		this.cacheResolver = SingletonSupplier.of(new SimpleCacheResolver(cacheManager));
 	}
 
+	/**
+	 * Specify whether concurrent invocations which miss the same keys in the same
+	 * caches should wait for a single in-flight invocation and share its result
+	 * (or its exception), preventing a stampede of identical invocations for a hot
+	 * key, independent from the cache provider. Waiting invocations receive a
+	 * failure of the in-flight invocation as the cause of an
+	 * {@link IllegalStateException} of their own.
+	 * <p>This applies to any {@code @Cacheable} miss which does not come with an
+	 * applicable {@code @CachePut} operation on the same method. Default is "false".
+	 * <p>As opposed to {@code @Cacheable(sync=true)}, this can be combined with
+	 * multiple caches and further cache operations, and does not rely on the
+	 * locking semantics of {@link Cache#get(Object, java.util.concurrent.Callable)}.
+	 * Coalescing is local to this aspect, i.e. to the current JVM. A re-entrant
+	 * invocation for the same cache misses from within the in-flight invocation,
+	 * i.e. on the same thread, does not wait for it but proceeds without coalescing.
+	 * @since 5.2
+	 * @see #setLoadCoalescingTimeout
+	 */
+	public void setLoadCoalescing(boolean loadCoalescing) {
+		this.loadCoalescing = loadCoalescing;
+	}
+
+	/**
+	 * Return whether concurrent invocations for the same cache misses
+	 * wait for a single in-flight invocation.
+	 * @since 5.2
+	 */
+	public boolean isLoadCoalescing() {
+		return this.loadCoalescing;
+	}
+
+	/**
+	 * Specify the maximum time to wait for an in-flight invocation when
+	 * {@link #setLoadCoalescing load coalescing} is enabled.
+	 * <p>On timeout, an {@link IllegalStateException} (with a
+	 * {@link TimeoutException} as its cause) is passed to the
+	 * {@link #setErrorHandler CacheErrorHandler} as a cache get error: with the
+	 * default {@link SimpleCacheErrorHandler}, it is thrown to the caller, while
+	 * an error handler which ignores it lets the caller invoke the method itself.
+	 * <p>Default is none, i.e. to wait until the in-flight invocation completes.
+	 * @since 5.2
+	 */
+	public void setLoadCoalescingTimeout(@Nullable Duration loadCoalescingTimeout) {
+		Assert.isTrue(loadCoalescingTimeout == null || !loadCoalescingTimeout.isNegative(),
+				"Load coalescing timeout must not be negative");
+		this.loadCoalescingTimeout = loadCoalescingTimeout;
+	}
+
+	/**
+	 * Return the maximum time to wait for an in-flight invocation, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public Duration getLoadCoalescingTimeout() {
+		return this.loadCoalescingTimeout;
+	}
+
+	/**
+	 * Specify whether methods returning a {@link CompletableFuture}, a
+	 * {@link CompletionStage} or a reactive type with a value should be cached
+	 * based on the eventual value of the returned future or publisher, rather
+	 * than on the returned object itself. Default is "false".
+	 * <p>Note that this changes the visible semantics of such methods: the cache
+	 * stores the resolved value instead of the future or publisher instance, a
+	 * failed future or publisher is not cached at all, and an exception thrown by
+	 * the method itself is propagated through the returned future or publisher
+	 * instead of being thrown to the caller.
+	 * @since 5.2
+	 * @see Cache#retrieve(Object)
+	 * @see Cache#retrieve(Object, java.util.function.Supplier)
+	 */
+	public void setAsyncValueCaching(boolean asyncValueCaching) {
+		this.asyncValueCaching = asyncValueCaching;
+	}
+
+	/**
+	 * Return whether asynchronous and reactive return types are cached
+	 * based on their eventual values.
+	 * @since 5.2
+	 */
+	public boolean isAsyncValueCaching() {
+		return this.asyncValueCaching;
+	}
+
 	/**
 	 * Set the containing {@link BeanFactory} for {@link CacheManager} and other
 	 * service lookups.
@@ -371,6 +496,20 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 
 	@Nullable
 	private Object execute(final CacheOperationInvoker invoker, Method method, CacheOperationContexts contexts) {
+		// Special handling of asynchronous return types
+		if (this.asyncValueCaching) {
+			if (method.getReturnType() == CompletableFuture.class || method.getReturnType() == CompletionStage.class) {
+				return executeAsync(invoker, contexts,
+						returnValue -> ((CompletionStage<?>) returnValue).toCompletableFuture());
+			}
+			if (this.reactiveCachingHandler != null) {
+				Object returnValue = this.reactiveCachingHandler.executeReactive(invoker, method, contexts);
+				if (returnValue != null) {
+					return returnValue;
+				}
+			}
+		}
+
 		// Special handling of synchronized invocation
 		if (contexts.isSynchronized()) {
 			CacheOperationContext context = contexts.get(CacheableOperation.class).iterator().next();
@@ -407,26 +546,68 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 					CacheOperationExpressionEvaluator.NO_RESULT, cachePutRequests);
 		}
 
+		InFlightLoad inFlightLoad = null;
 		Object cacheValue;
 		Object returnValue;
 
-		if (cacheHit != null && !hasCachePut(contexts)) {
-			// If there are no put requests, just use the cache hit
-			cacheValue = cacheHit.get();
-			returnValue = wrapCacheValue(method, cacheValue);
-		}
-		else {
-			// Invoke the method if we don't have a cache hit
-			returnValue = invokeOperation(invoker);
-			cacheValue = unwrapReturnValue(returnValue);
-		}
+		try {
+			// Join an in-flight invocation for the same cache misses, if any
+			if (cacheHit == null && this.loadCoalescing && !cachePutRequests.isEmpty() && !hasCachePut(contexts)) {
+				InFlightLoad newLoad = new InFlightLoad(cachePutRequests);
+				InFlightLoad existingLoad = this.inFlightLoads.putIfAbsent(newLoad.key, newLoad);
+				if (existingLoad == null) {
+					inFlightLoad = newLoad;
+					// Check again, in case a preceding invocation completed in the meantime
+					cacheHit = findCachedItem(contexts.get(CacheableOperation.class));
+					if (cacheHit != null) {
+						inFlightLoad.future.complete(cacheHit.get());
+						cachePutRequests.clear();
+					}
+				}
+				else if (existingLoad.owner != Thread.currentThread()) {
+					// A re-entrant invocation from the in-flight one simply proceeds without coalescing
+					cacheHit = awaitInFlightLoad(existingLoad, cachePutRequests.get(0));
+					if (cacheHit != null) {
+						// Already put by the in-flight invocation
+						cachePutRequests.clear();
+					}
+				}
+			}
 
-		// Collect any explicit @CachePuts
-		collectPutRequests(contexts.get(CachePutOperation.class), cacheValue, cachePutRequests);
+			if (cacheHit != null && !hasCachePut(contexts)) {
+				// If there are no put requests, just use the cache hit
+				cacheValue = cacheHit.get();
+				returnValue = wrapCacheValue(method, cacheValue);
+			}
+			else {
+				// Invoke the method if we don't have a cache hit
+				returnValue = invokeOperation(invoker);
+				cacheValue = unwrapReturnValue(returnValue);
+				if (inFlightLoad != null) {
+					inFlightLoad.future.complete(cacheValue);
+				}
+			}
 
-		// Process any collected put requests, either from @CachePut or a @Cacheable miss
-		for (CachePutRequest cachePutRequest : cachePutRequests) {
-			cachePutRequest.apply(cacheValue);
+			// Collect any explicit @CachePuts
+			collectPutRequests(contexts.get(CachePutOperation.class), cacheValue, cachePutRequests);
+
+			// Process any collected put requests, either from @CachePut or a @Cacheable miss
+			for (CachePutRequest cachePutRequest : cachePutRequests) {
+				cachePutRequest.apply(cacheValue);
+			}
+		}
+		catch (Throwable ex) {
+			if (inFlightLoad != null) {
+				// Release waiting invocations, unless the shared result has been completed already
+				inFlightLoad.future.completeExceptionally(ex);
+			}
+			throw ex;
+		}
+		finally {
+			if (inFlightLoad != null) {
+				// Only after the puts, for subsequent invocations to find the cached value
+				this.inFlightLoads.remove(inFlightLoad.key, inFlightLoad);
+			}
 		}
 
 		// Process any late evictions
@@ -435,6 +616,121 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return returnValue;
 	}
 
+	/**
+	 * Execute the cache operations for a method with an asynchronous return type,
+	 * based on the eventual value of the invocation as adapted by the given function.
+	 * <p>Cache lookups are non-blocking through {@link Cache#retrieve(Object)};
+	 * puts and late evictions are performed on completion of the invocation, and
+	 * a failed invocation fails the returned future without touching the caches.
+	 */
+	private CompletableFuture<Object> executeAsync(CacheOperationInvoker invoker, CacheOperationContexts contexts,
+			Function<Object, CompletableFuture<?>> futureAdapter) {
+
+		// Special handling of synchronized invocation
+		if (contexts.isSynchronized()) {
+			CacheOperationContext context = contexts.get(CacheableOperation.class).iterator().next();
+			if (isConditionPassing(context, CacheOperationExpressionEvaluator.NO_RESULT)) {
+				Object key = generateKey(context, CacheOperationExpressionEvaluator.NO_RESULT);
+				Cache cache = context.getCaches().iterator().next();
+				return cache.retrieve(key, () -> invokeOperationAsync(invoker, futureAdapter));
+			}
+			else {
+				// No caching required, only call the underlying method
+				return invokeOperationAsync(invoker, futureAdapter);
+			}
+		}
+
+		// Process any early evictions
+		processCacheEvicts(contexts.get(CacheEvictOperation.class), true,
+				CacheOperationExpressionEvaluator.NO_RESULT);
+
+		// Check if we have a cached item matching the conditions
+		return findCachedItemAsync(contexts.get(CacheableOperation.class)).thenCompose(cacheHit -> {
+			if (cacheHit != null && !hasCachePut(contexts)) {
+				// If there are no put requests, just use the cache hit
+				Object cacheValue = cacheHit.get();
+				processCacheEvicts(contexts.get(CacheEvictOperation.class), false, cacheValue);
+				return CompletableFuture.completedFuture(cacheValue);
+			}
+
+			// Collect puts from any @Cacheable miss, if no cached item is found
+			List<CachePutRequest> cachePutRequests = new LinkedList<>();
+			if (cacheHit == null) {
+				collectPutRequests(contexts.get(CacheableOperation.class),
+						CacheOperationExpressionEvaluator.NO_RESULT, cachePutRequests);
+			}
+
+			// Invoke the method and process puts and late evictions on completion
+			return invokeOperationAsync(invoker, futureAdapter).thenApply(cacheValue -> {
+				collectPutRequests(contexts.get(CachePutOperation.class), cacheValue, cachePutRequests);
+				for (CachePutRequest cachePutRequest : cachePutRequests) {
+					cachePutRequest.apply(cacheValue);
+				}
+				processCacheEvicts(contexts.get(CacheEvictOperation.class), false, cacheValue);
+				return cacheValue;
+			});
+		});
+	}
+
+	/**
+	 * Invoke the underlying method and adapt its return value to a future,
+	 * propagating an invocation exception through the returned future.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<T> invokeOperationAsync(CacheOperationInvoker invoker,
+			Function<Object, CompletableFuture<?>> futureAdapter) {
+
+		try {
+			Object returnValue = invokeOperation(invoker);
+			return (returnValue != null ? (CompletableFuture<T>) futureAdapter.apply(returnValue) :
+					CompletableFuture.completedFuture(null));
+		}
+		catch (CacheOperationInvoker.ThrowableWrapper ex) {
+			CompletableFuture<T> failure = new CompletableFuture<>();
+			failure.completeExceptionally(ex.getOriginal());
+			return failure;
+		}
+	}
+
+	/**
+	 * Wait for the given in-flight invocation, returning its result as a cache hit.
+	 * @return the shared result, or {@code null} if the caller should invoke the
+	 * method itself after a timeout which has been ignored by the error handler
+	 */
+	@Nullable
+	private Cache.ValueWrapper awaitInFlightLoad(InFlightLoad load, CachePutRequest request) {
+		RuntimeException failure;
+		try {
+			Object value = (this.loadCoalescingTimeout != null ?
+					load.future.get(this.loadCoalescingTimeout.toNanos(), TimeUnit.NANOSECONDS) :
+					load.future.get());
+			return new SimpleValueWrapper(value);
+		}
+		catch (ExecutionException ex) {
+			// Shared failure of the in-flight invocation: never rethrow the same
+			// instance from several threads but wrap it for the current caller
+			Throwable cause = ex.getCause();
+			if (cause instanceof CacheOperationInvoker.ThrowableWrapper) {
+				cause = ((CacheOperationInvoker.ThrowableWrapper) cause).getOriginal();
+			}
+			throw new CacheOperationInvoker.ThrowableWrapper(new IllegalStateException(
+					"In-flight invocation of " + request.context.metadata.method +
+					" for cache key '" + request.key + "' failed", cause));
+		}
+		catch (TimeoutException ex) {
+			failure = new IllegalStateException("Timed out after " + this.loadCoalescingTimeout +
+					" waiting for in-flight invocation of " + request.context.metadata.method +
+					" for cache key '" + request.key + "'", ex);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			failure = new IllegalStateException("Interrupted while waiting for in-flight invocation of " +
+					request.context.metadata.method + " for cache key '" + request.key + "'", ex);
+		}
+		getErrorHandler().handleCacheGetError(failure, request.context.getCaches().iterator().next(), request.key);
+		return null;
+	}
+
 	@Nullable
 	private Object wrapCacheValue(Method method, @Nullable Object cacheValue) {
 		if (method.getReturnType() == Optional.class &&
@@ -530,6 +826,27 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return null;
 	}
 
+	/**
+	 * Find a cached item only for {@link CacheableOperation} that passes the condition,
+	 * retrieving from each cache in turn until the first hit.
+	 * @param contexts the cacheable operations
+	 * @return a future for the {@link Cache.ValueWrapper} holding the cached item,
+	 * completing with {@code null} if none is found
+	 */
+	private CompletableFuture<Cache.ValueWrapper> findCachedItemAsync(Collection<CacheOperationContext> contexts) {
+		CompletableFuture<Cache.ValueWrapper> result = CompletableFuture.completedFuture(null);
+		for (CacheOperationContext context : contexts) {
+			if (isConditionPassing(context, CacheOperationExpressionEvaluator.NO_RESULT)) {
+				Object key = generateKey(context, CacheOperationExpressionEvaluator.NO_RESULT);
+				for (Cache cache : context.getCaches()) {
+					result = result.thenCompose(cached -> (cached != null ?
+							CompletableFuture.completedFuture(cached) : doRetrieve(cache, key)));
+				}
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Collect the {@link CachePutRequest} for all {@link CacheOperation} using
 	 * the specified result item.
@@ -584,6 +901,49 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	}
 
 
+	/**
+	 * Inner class to avoid a hard dependency on Reactor at runtime,
+	 * adapting reactive return types to the asynchronous execution path.
+	 */
+	private class ReactiveCachingHandler {
+
+		private final ReactiveAdapterRegistry registry = ReactiveAdapterRegistry.getSharedInstance();
+
+		/**
+		 * Execute the cache operations for the given method if it returns a
+		 * reactive type with a value, deferring them until subscription.
+		 * @return the reactive return value, or {@code null} if not applicable
+		 */
+		@Nullable
+		public Object executeReactive(CacheOperationInvoker invoker, Method method, CacheOperationContexts contexts) {
+			ReactiveAdapter adapter = this.registry.getAdapter(method.getReturnType());
+			if (adapter == null || adapter.isNoValue()) {
+				return null;
+			}
+			if (adapter.isMultiValue()) {
+				Flux<?> flux = Mono.defer(() -> fromFuture(executeAsync(invoker, contexts,
+						returnValue -> Flux.from(adapter.toPublisher(returnValue)).collectList().toFuture())))
+						.flatMapIterable(cacheValue -> (Iterable<?>) cacheValue);
+				return adapter.fromPublisher(flux);
+			}
+			else {
+				Mono<?> mono = Mono.defer(() -> fromFuture(executeAsync(invoker, contexts,
+						returnValue -> Mono.from(adapter.toPublisher(returnValue)).toFuture())));
+				return adapter.fromPublisher(mono);
+			}
+		}
+
+		/**
+		 * Adapt the given future to a {@link Mono}, signalling the original
+		 * failure rather than the {@link CompletionException} of a dependent stage.
+		 */
+		private Mono<Object> fromFuture(CompletableFuture<Object> future) {
+			return Mono.fromFuture(future).onErrorMap(CompletionException.class,
+					ex -> (ex.getCause() != null ? ex.getCause() : ex));
+		}
+	}
+
+
 	private class CacheOperationContexts {
 
 		private final MultiValueMap<Class<? extends CacheOperation>, CacheOperationContext> contexts;
@@ -824,6 +1184,28 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	}
 
 
+	/**
+	 * In-flight invocation for a specific set of cache misses,
+	 * keyed by the target caches and their keys.
+	 */
+	private static final class InFlightLoad {
+
+		private final List<Object> key;
+
+		private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+		private final Thread owner = Thread.currentThread();
+
+		public InFlightLoad(Collection<CachePutRequest> cachePutRequests) {
+			this.key = new ArrayList<>();
+			for (CachePutRequest request : cachePutRequests) {
+				this.key.addAll(request.context.getCaches());
+				this.key.add(request.key);
+			}
+		}
+	}
+
+
 	private static final class CacheOperationCacheKey implements Comparable<CacheOperationCacheKey> {
 
 		private final CacheOperation cacheOperation;
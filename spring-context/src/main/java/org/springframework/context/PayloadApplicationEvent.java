@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,12 @@
 
 package org.springframework.context;
 
+import java.util.Map;
+
 import org.springframework.core.ResolvableType;
 import org.springframework.core.ResolvableTypeProvider;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
 
 /**
  * An {@link ApplicationEvent} that carries an arbitrary payload.
@@ -32,6 +35,9 @@ import org.springframework.util.Assert;
 @SuppressWarnings("serial")
 public class PayloadApplicationEvent<T> extends ApplicationEvent implements ResolvableTypeProvider {
 
+	private static final Map<Class<?>, ResolvableType> resolvableTypeCache = new ConcurrentReferenceHashMap<>();
+
+
 	private final T payload;
 
 
@@ -47,9 +53,19 @@ public class PayloadApplicationEvent<T> extends ApplicationEvent implements Reso
 	}
 
 
+	/**
+	 * Return the generic type of this event, i.e. this event class with the
+	 * payload type as its type argument.
+	 * <p>As of 5.2, the type of a plain {@code PayloadApplicationEvent} is cached
+	 * per payload class, avoiding its re-resolution on every event publication.
+	 * @see #resolvableTypeForPayload
+	 */
 	@Override
 	public ResolvableType getResolvableType() {
-		return ResolvableType.forClassWithGenerics(getClass(), ResolvableType.forInstance(getPayload()));
+		if (getClass() != PayloadApplicationEvent.class) {
+			return ResolvableType.forClassWithGenerics(getClass(), ResolvableType.forInstance(getPayload()));
+		}
+		return resolvableTypeForPayload(this.payload);
 	}
 
 	/**
@@ -59,4 +75,26 @@ public class PayloadApplicationEvent<T> extends ApplicationEvent implements Reso
 		return this.payload;
 	}
 
+
+	/**
+	 * Return the generic type of a plain {@code PayloadApplicationEvent} for the
+	 * given payload, without having to create the event itself.
+	 * @param payload the payload object
+	 * @since 5.2
+	 * @see #getResolvableType()
+	 */
+	public static ResolvableType resolvableTypeForPayload(Object payload) {
+		Assert.notNull(payload, "Payload must not be null");
+		if (payload instanceof ResolvableTypeProvider) {
+			return ResolvableType.forClassWithGenerics(PayloadApplicationEvent.class, ResolvableType.forInstance(payload));
+		}
+		Class<?> payloadClass = payload.getClass();
+		ResolvableType resolvableType = resolvableTypeCache.get(payloadClass);
+		if (resolvableType == null) {
+			resolvableType = ResolvableType.forClassWithGenerics(PayloadApplicationEvent.class, payloadClass);
+			resolvableTypeCache.put(payloadClass, resolvableType);
+		}
+		return resolvableType;
+	}
+
 }
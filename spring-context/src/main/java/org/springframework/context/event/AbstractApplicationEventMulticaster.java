@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,9 @@ package org.springframework.context.event;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,24 +35,58 @@ import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.lang.Nullable;
-import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
-import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * {@link ApplicationEventMulticaster}接口的抽象实现，提供基本的侦听器注册功能。
+ *
+ * <p>Registered listeners are indexed by the event classes that they declare,
+ * so that determining the listeners for a new event type only evaluates the
+ * listeners declared for that event class or any of its supertypes, next to
+ * the listeners that may support any event type.
+ *
+ * <p>Matching listeners are cached per event type and source type. Cache entries
+ * are built without holding the registry lock and are invalidated incrementally:
+ * registering or removing a listener only evicts the entries for the event types
+ * that the listener applies to, keeping all other entries intact.
  */
 public abstract class AbstractApplicationEventMulticaster
 		implements ApplicationEventMulticaster, BeanClassLoaderAware, BeanFactoryAware {
 
+	// Stands in for a null source type in the retriever cache, since no source object can have it
+	private static final Class<?> NULL_SOURCE_TYPE = void.class;
+
+
 	// 监听器(注册器)
 	private final ListenerRetriever defaultRetriever = new ListenerRetriever(false);
 
-	// 监听器缓存key -> 监听器注册器
-	final Map<ListenerCacheKey, ListenerRetriever> retrieverCache = new ConcurrentHashMap<>(64);
+	// 事件类型 -> 源类型 -> 监听器注册器
+	final Map<ResolvableType, Map<Class<?>, CachedListenerRetriever>> retrieverCache = new ConcurrentHashMap<>(64);
+
+	// Registrations per listener instance or listener bean name, in registration order
+	private final Map<Object, ListenerRegistration> registrations = new LinkedHashMap<>();
+
+	// Registrations per declared event class, with Object.class for listeners supporting any event type
+	private final Map<Class<?>, List<ListenerRegistration>> registrationIndex = new HashMap<>();
+
+	// Listener bean registrations whose bean type has not been resolved yet
+	private final Set<ListenerRegistration> unresolvedRegistrations = new LinkedHashSet<>();
+
+	private long registrationSequence;
+
+	// Incremented on every registry change, for detecting stale cache entries
+	private volatile int registryVersion;
+
+	// Whether the supportsEvent variants are the default ones, which the index reflects
+	private final boolean indexingApplicable;
+
+	// Whether multicastEvent is a default one, which only delivers to the registered listeners
+	private final boolean multicastingToListenersOnly;
 
 	@Nullable
 	private ClassLoader beanClassLoader;
@@ -61,6 +98,18 @@ public abstract class AbstractApplicationEventMulticaster
 	private Object retrievalMutex = this.defaultRetriever;
 
 
+	public AbstractApplicationEventMulticaster() {
+		this.indexingApplicable = !ReflectionUtils.isOverridden(getClass(), AbstractApplicationEventMulticaster.class,
+				"supportsEvent", Class.class, ResolvableType.class) &&
+				!ReflectionUtils.isOverridden(getClass(), AbstractApplicationEventMulticaster.class,
+						"supportsEvent", ApplicationListener.class, ResolvableType.class, Class.class);
+		this.multicastingToListenersOnly = !ReflectionUtils.isOverridden(getClass(), SimpleApplicationEventMulticaster.class,
+				"multicastEvent", ApplicationEvent.class, ResolvableType.class) ||
+				!ReflectionUtils.isOverridden(getClass(), AsyncApplicationEventMulticaster.class,
+						"multicastEvent", ApplicationEvent.class, ResolvableType.class);
+	}
+
+
 	@Override
 	public void setBeanClassLoader(ClassLoader classLoader) {
 		this.beanClassLoader = classLoader;
@@ -95,35 +144,66 @@ public abstract class AbstractApplicationEventMulticaster
 			// Explicitly remove target for a proxy, if registered already,
 			// in order to avoid double invocations of the same listener.
 			Object singletonTarget = AopProxyUtils.getSingletonTarget(listener);
-			if (singletonTarget instanceof ApplicationListener) {
-				this.defaultRetriever.applicationListeners.remove(singletonTarget);
+			if (singletonTarget instanceof ApplicationListener &&
+					this.defaultRetriever.applicationListeners.remove(singletonTarget)) {
+				unregister(singletonTarget);
+				evictRetrieversContaining(singletonTarget);
+			}
+			if (this.defaultRetriever.applicationListeners.add(listener)) {
+				register(new ListenerRegistration(listener, null, this.registrationSequence++),
+						determineEventClasses(listener));
 			}
-			this.defaultRetriever.applicationListeners.add(listener);
-			this.retrieverCache.clear();
+			evictRetrieversSupporting(listener);
 		}
 	}
 
 	@Override
 	public void addApplicationListenerBean(String listenerBeanName) {
 		synchronized (this.retrievalMutex) {
-			this.defaultRetriever.applicationListenerBeans.add(listenerBeanName);
-			this.retrieverCache.clear();
+			ApplicationListener<?> listener = getSingletonListener(listenerBeanName);
+			if (this.defaultRetriever.applicationListenerBeans.add(listenerBeanName)) {
+				ListenerRegistration registration =
+						new ListenerRegistration(null, listenerBeanName, this.registrationSequence++);
+				if (listener != null) {
+					register(registration, determineEventClasses(listener));
+				}
+				else {
+					// Bean type to be resolved on first retrieval, not triggering any initialization here
+					this.registrations.put(listenerBeanName, registration);
+					this.unresolvedRegistrations.add(registration);
+				}
+			}
+			if (listener != null) {
+				evictRetrieversSupporting(listener);
+			}
+			else {
+				evictAllRetrievers();
+			}
 		}
 	}
 
 	@Override
 	public void removeApplicationListener(ApplicationListener<?> listener) {
 		synchronized (this.retrievalMutex) {
-			this.defaultRetriever.applicationListeners.remove(listener);
-			this.retrieverCache.clear();
+			if (this.defaultRetriever.applicationListeners.remove(listener)) {
+				unregister(listener);
+				evictRetrieversContaining(listener);
+			}
 		}
 	}
 
 	@Override
 	public void removeApplicationListenerBean(String listenerBeanName) {
 		synchronized (this.retrievalMutex) {
-			this.defaultRetriever.applicationListenerBeans.remove(listenerBeanName);
-			this.retrieverCache.clear();
+			if (this.defaultRetriever.applicationListenerBeans.remove(listenerBeanName)) {
+				unregister(listenerBeanName);
+				ApplicationListener<?> listener = getSingletonListener(listenerBeanName);
+				for (Map<Class<?>, CachedListenerRetriever> retrievers : this.retrieverCache.values()) {
+					retrievers.values().removeIf(retriever -> retriever.mayContain(listenerBeanName) ||
+							(listener != null && retriever.mayContain(listener)));
+				}
+				this.registryVersion++;
+			}
 		}
 	}
 
@@ -132,8 +212,201 @@ public abstract class AbstractApplicationEventMulticaster
 		synchronized (this.retrievalMutex) {
 			this.defaultRetriever.applicationListeners.clear();
 			this.defaultRetriever.applicationListenerBeans.clear();
-			this.retrieverCache.clear();
+			this.registrations.clear();
+			this.registrationIndex.clear();
+			this.unresolvedRegistrations.clear();
+			evictAllRetrievers();
+		}
+	}
+
+	/**
+	 * Evict all cached retrievers for event and source types that the
+	 * given (newly registered) listener supports.
+	 */
+	private void evictRetrieversSupporting(ApplicationListener<?> listener) {
+		this.retrieverCache.forEach((eventType, retrievers) -> retrievers.keySet().removeIf(sourceType ->
+				supportsEvent(listener, eventType, (sourceType != NULL_SOURCE_TYPE ? sourceType : null))));
+		this.registryVersion++;
+	}
+
+	/**
+	 * Evict all cached retrievers that (may) contain the given (removed) listener.
+	 */
+	private void evictRetrieversContaining(Object listener) {
+		for (Map<Class<?>, CachedListenerRetriever> retrievers : this.retrieverCache.values()) {
+			retrievers.values().removeIf(retriever -> retriever.mayContain(listener));
 		}
+		this.registryVersion++;
+	}
+
+	private void evictAllRetrievers() {
+		this.retrieverCache.clear();
+		this.registryVersion++;
+	}
+
+	/**
+	 * Return the singleton listener instance for the given bean name,
+	 * if already created, without triggering its creation.
+	 */
+	@Nullable
+	private ApplicationListener<?> getSingletonListener(String listenerBeanName) {
+		if (this.beanFactory instanceof ConfigurableBeanFactory) {
+			Object singleton = ((ConfigurableBeanFactory) this.beanFactory).getSingleton(listenerBeanName);
+			if (singleton instanceof ApplicationListener) {
+				return (ApplicationListener<?>) singleton;
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Index the given registration under the given event classes,
+	 * or under {@code Object} if it may support any event type.
+	 * To be called with the registry lock held.
+	 */
+	private void register(ListenerRegistration registration, @Nullable Class<?>[] eventClasses) {
+		this.registrations.put(
+				(registration.listener != null ? registration.listener : registration.listenerBeanName), registration);
+		registration.eventClasses = (eventClasses != null ? eventClasses : new Class<?>[] {Object.class});
+		for (Class<?> eventClass : registration.eventClasses) {
+			this.registrationIndex.computeIfAbsent(eventClass, type -> new ArrayList<>()).add(registration);
+		}
+	}
+
+	/**
+	 * Remove the registration for the given listener instance or listener bean name.
+	 * To be called with the registry lock held.
+	 */
+	private void unregister(Object listenerOrBeanName) {
+		ListenerRegistration registration = this.registrations.remove(listenerOrBeanName);
+		if (registration != null && !this.unresolvedRegistrations.remove(registration)) {
+			for (Class<?> eventClass : registration.eventClasses) {
+				List<ListenerRegistration> indexed = this.registrationIndex.get(eventClass);
+				if (indexed != null) {
+					indexed.remove(registration);
+					if (indexed.isEmpty()) {
+						this.registrationIndex.remove(eventClass);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolve the bean types of listener beans registered by name, indexing them
+	 * accordingly. Bean types are resolved outside of the registry lock, on the first
+	 * retrieval after registration, just like for the listener evaluation itself.
+	 */
+	private void resolveRegistrations() {
+		List<ListenerRegistration> unresolved;
+		synchronized (this.retrievalMutex) {
+			if (this.unresolvedRegistrations.isEmpty()) {
+				return;
+			}
+			unresolved = new ArrayList<>(this.unresolvedRegistrations);
+		}
+		BeanFactory beanFactory = getBeanFactory();
+		for (ListenerRegistration registration : unresolved) {
+			Class<?> listenerType;
+			try {
+				listenerType = beanFactory.getType(registration.listenerBeanName);
+			}
+			catch (NoSuchBeanDefinitionException ex) {
+				// Remains unresolved, i.e. evaluated for every event type
+				continue;
+			}
+			Class<?>[] eventClasses = determineEventClasses(listenerType);
+			synchronized (this.retrievalMutex) {
+				if (this.unresolvedRegistrations.remove(registration)) {
+					register(registration, eventClasses);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the registrations that may support the given event type, in registration order.
+	 */
+	private List<ListenerRegistration> getCandidateRegistrations(ResolvableType eventType) {
+		Class<?> eventClass = eventType.resolve();
+		List<ListenerRegistration> candidates;
+		synchronized (this.retrievalMutex) {
+			if (!this.indexingApplicable || eventClass == null || eventType.hasUnresolvableGenerics()) {
+				// Listener methods match event types with unresolvable generics in any case
+				return new ArrayList<>(this.registrations.values());
+			}
+			candidates = new ArrayList<>(this.unresolvedRegistrations);
+			for (Class<?> type = eventClass; type != null; type = type.getSuperclass()) {
+				addCandidates(type, candidates);
+			}
+			for (Class<?> ifc : ClassUtils.getAllInterfacesForClassAsSet(eventClass)) {
+				addCandidates(ifc, candidates);
+			}
+		}
+		candidates.sort((registration1, registration2) ->
+				Long.compare(registration1.sequence, registration2.sequence));
+		// Listener methods may be indexed under several supertypes of the same event
+		List<ListenerRegistration> result = new ArrayList<>(candidates.size());
+		for (ListenerRegistration candidate : candidates) {
+			if (result.isEmpty() || result.get(result.size() - 1) != candidate) {
+				result.add(candidate);
+			}
+		}
+		return result;
+	}
+
+	private void addCandidates(Class<?> eventClass, List<ListenerRegistration> candidates) {
+		List<ListenerRegistration> indexed = this.registrationIndex.get(eventClass);
+		if (indexed != null) {
+			candidates.addAll(indexed);
+		}
+	}
+
+	/**
+	 * Determine the event classes that the given listener is declared for,
+	 * or {@code null} if it may support any event type.
+	 */
+	@Nullable
+	private static Class<?>[] determineEventClasses(ApplicationListener<?> listener) {
+		if (listener instanceof ApplicationListenerMethodAdapter) {
+			if (ReflectionUtils.isOverridden(listener.getClass(), ApplicationListenerMethodAdapter.class,
+					"supportsEventType", ResolvableType.class)) {
+				return null;
+			}
+			// Declared event types may also match the payload of a PayloadApplicationEvent
+			List<ResolvableType> declaredEventTypes = ((ApplicationListenerMethodAdapter) listener).getDeclaredEventTypes();
+			List<Class<?>> eventClasses = new ArrayList<>(declaredEventTypes.size() + 1);
+			for (ResolvableType declaredEventType : declaredEventTypes) {
+				eventClasses.add(declaredEventType.toClass());
+			}
+			eventClasses.add(PayloadApplicationEvent.class);
+			return eventClasses.toArray(new Class<?>[0]);
+		}
+		if (listener instanceof GenericApplicationListener || listener instanceof SmartApplicationListener) {
+			return null;
+		}
+		return toEventClasses(GenericApplicationListenerAdapter.resolveDeclaredEventType(listener));
+	}
+
+	/**
+	 * Determine the event classes that a listener bean of the given type is declared for,
+	 * or {@code null} if it may support any event type, in line with
+	 * {@link #supportsEvent(Class, ResolvableType)}.
+	 */
+	@Nullable
+	private static Class<?>[] determineEventClasses(@Nullable Class<?> listenerType) {
+		if (listenerType == null || GenericApplicationListener.class.isAssignableFrom(listenerType) ||
+				SmartApplicationListener.class.isAssignableFrom(listenerType)) {
+			return null;
+		}
+		return toEventClasses(GenericApplicationListenerAdapter.resolveDeclaredEventType(listenerType));
+	}
+
+	@Nullable
+	private static Class<?>[] toEventClasses(@Nullable ResolvableType declaredEventType) {
+		Class<?> eventClass = (declaredEventType != null ? declaredEventType.resolve() : null);
+		return (eventClass != null ? new Class<?>[] {eventClass} : null);
 	}
 
 
@@ -150,6 +423,9 @@ public abstract class AbstractApplicationEventMulticaster
 
 	/**
 	 * 返回与给定事件类型匹配的ApplicationListeners的集合。不匹配的侦听器会很早被排除
+	 * <p>For a cached combination of event type and source type with singleton
+	 * listeners only, the same unmodifiable pre-sorted Collection is returned
+	 * on every call, without any locking, copying or allocation.
 	 */
 	protected Collection<ApplicationListener<?>> getApplicationListeners(
 			ApplicationEvent event, ResolvableType eventType) {
@@ -157,29 +433,71 @@ public abstract class AbstractApplicationEventMulticaster
 		// 这里对象为 ApplicationEvent 应用事件
 		Object source = event.getSource();
 		Class<?> sourceType = (source != null ? source.getClass() : null);
-		ListenerCacheKey cacheKey = new ListenerCacheKey(eventType, sourceType);
+		return getApplicationListeners(eventType, sourceType, event.getClass());
+	}
+
+	/**
+	 * Determine whether any registered listener supports the given event type
+	 * and source type, e.g. for avoiding the creation of an event object that
+	 * no listener is going to receive.
+	 * <p>Always returns {@code true} if {@code multicastEvent} is not the one of
+	 * {@link SimpleApplicationEventMulticaster} or {@link AsyncApplicationEventMulticaster},
+	 * since it may then multicast events beyond the registered listeners.
+	 * Other subclasses which do so should override this method to return {@code true}.
+	 * @param eventType the event type
+	 * @param sourceType the type of the event source
+	 * @since 5.2
+	 */
+	public boolean hasApplicationListeners(ResolvableType eventType, @Nullable Class<?> sourceType) {
+		if (!this.multicastingToListenersOnly) {
+			return true;
+		}
+		return !getApplicationListeners(eventType, sourceType, eventType.resolve()).isEmpty();
+	}
+
+	private Collection<ApplicationListener<?>> getApplicationListeners(
+			ResolvableType eventType, @Nullable Class<?> sourceType, @Nullable Class<?> eventClass) {
+
+		Class<?> sourceKey = (sourceType != null ? sourceType : NULL_SOURCE_TYPE);
 
 		// 快速检查现有 entry on ConcurrentHashMap...
-		ListenerRetriever retriever = this.retrieverCache.get(cacheKey);
-		if (retriever != null) {
-			return retriever.getApplicationListeners();
+		Map<Class<?>, CachedListenerRetriever> retrievers = this.retrieverCache.get(eventType);
+		CachedListenerRetriever existingRetriever = (retrievers != null ? retrievers.get(sourceKey) : null);
+		if (existingRetriever != null) {
+			Collection<ApplicationListener<?>> result = existingRetriever.getApplicationListeners();
+			if (result != null) {
+				return result;
+			}
+			// Not fully populated by another thread yet:
+			// proceed like caching wasn't possible for this current local attempt.
+			return retrieveApplicationListeners(eventType, sourceType, null);
 		}
 
-		if (this.beanClassLoader == null ||
-				(ClassUtils.isCacheSafe(event.getClass(), this.beanClassLoader) &&
+		if (this.beanClassLoader == null || (eventClass != null &&
+				ClassUtils.isCacheSafe(eventClass, this.beanClassLoader) &&
 						(sourceType == null || ClassUtils.isCacheSafe(sourceType, this.beanClassLoader)))) {
-			// Fully synchronized building and caching of a ListenerRetriever
-			synchronized (this.retrievalMutex) {
-				retriever = this.retrieverCache.get(cacheKey);
-				if (retriever != null) {
-					return retriever.getApplicationListeners();
-				}
-				retriever = new ListenerRetriever(true);
+			// Populate a new CachedListenerRetriever outside of the registry lock,
+			// dropping it again if the registry changed in the meantime
+			CachedListenerRetriever newRetriever = new CachedListenerRetriever();
+			retrievers = this.retrieverCache.computeIfAbsent(eventType, key -> new ConcurrentHashMap<>(4));
+			existingRetriever = retrievers.putIfAbsent(sourceKey, newRetriever);
+			if (existingRetriever != null) {
+				Collection<ApplicationListener<?>> result = existingRetriever.getApplicationListeners();
+				return (result != null ? result : retrieveApplicationListeners(eventType, sourceType, null));
+			}
+			int version = this.registryVersion;
+			boolean populated = false;
+			try {
 				Collection<ApplicationListener<?>> listeners =
-						retrieveApplicationListeners(eventType, sourceType, retriever);
-				this.retrieverCache.put(cacheKey, retriever);
+						retrieveApplicationListeners(eventType, sourceType, newRetriever);
+				populated = (version == this.registryVersion);
 				return listeners;
 			}
+			finally {
+				if (!populated) {
+					retrievers.remove(sourceKey, newRetriever);
+				}
+			}
 		}
 		else {
 			// retrieve检索
@@ -192,19 +510,26 @@ public abstract class AbstractApplicationEventMulticaster
 	 * Actually retrieve the application listeners for the given event and source type.
 	 */
 	private Collection<ApplicationListener<?>> retrieveApplicationListeners(
-			ResolvableType eventType, @Nullable Class<?> sourceType, @Nullable ListenerRetriever retriever) {
+			ResolvableType eventType, @Nullable Class<?> sourceType, @Nullable CachedListenerRetriever retriever) {
 
 		List<ApplicationListener<?>> allListeners = new ArrayList<>();
-		Set<ApplicationListener<?>> listeners;
-		Set<String> listenerBeans;
-		synchronized (this.retrievalMutex) {
-			listeners = new LinkedHashSet<>(this.defaultRetriever.applicationListeners);
-			listenerBeans = new LinkedHashSet<>(this.defaultRetriever.applicationListenerBeans);
+		Set<ApplicationListener<?>> filteredListeners = (retriever != null ? new LinkedHashSet<>() : null);
+		Set<String> filteredListenerBeans = (retriever != null ? new LinkedHashSet<>() : null);
+		List<ApplicationListener<?>> listeners = new ArrayList<>();
+		List<String> listenerBeans = new ArrayList<>();
+		resolveRegistrations();
+		for (ListenerRegistration registration : getCandidateRegistrations(eventType)) {
+			if (registration.listener != null) {
+				listeners.add(registration.listener);
+			}
+			else {
+				listenerBeans.add(registration.listenerBeanName);
+			}
 		}
 		for (ApplicationListener<?> listener : listeners) {
 			if (supportsEvent(listener, eventType, sourceType)) {
 				if (retriever != null) {
-					retriever.applicationListeners.add(listener);
+					filteredListeners.add(listener);
 				}
 				allListeners.add(listener);
 			}
@@ -220,10 +545,10 @@ public abstract class AbstractApplicationEventMulticaster
 						if (!allListeners.contains(listener) && supportsEvent(listener, eventType, sourceType)) {
 							if (retriever != null) {
 								if (beanFactory.isSingleton(listenerBeanName)) {
-									retriever.applicationListeners.add(listener);
+									filteredListeners.add(listener);
 								}
 								else {
-									retriever.applicationListenerBeans.add(listenerBeanName);
+									filteredListenerBeans.add(listenerBeanName);
 								}
 							}
 							allListeners.add(listener);
@@ -237,9 +562,13 @@ public abstract class AbstractApplicationEventMulticaster
 			}
 		}
 		AnnotationAwareOrderComparator.sort(allListeners);
-		if (retriever != null && retriever.applicationListenerBeans.isEmpty()) {
-			retriever.applicationListeners.clear();
-			retriever.applicationListeners.addAll(allListeners);
+		if (retriever != null) {
+			if (filteredListenerBeans.isEmpty()) {
+				return retriever.setApplicationListeners(allListeners);
+			}
+			else {
+				retriever.setApplicationListeners(filteredListeners, filteredListenerBeans);
+			}
 		}
 		return allListeners;
 	}
@@ -250,6 +579,8 @@ public abstract class AbstractApplicationEventMulticaster
 	 * <p>If this method returns {@code true} for a given listener as a first pass,
 	 * the listener instance will get retrieved and fully evaluated through a
 	 * {@link #supportsEvent(ApplicationListener,ResolvableType, Class)}  call afterwards.
+	 * <p>Overriding this method turns off the index of listeners by declared
+	 * event class, evaluating all listeners for every new event type instead.
 	 * @param listenerType the listener's type as determined by the BeanFactory
 	 * @param eventType the event type to check
 	 * @return whether the given listener should be included in the candidates
@@ -270,6 +601,8 @@ public abstract class AbstractApplicationEventMulticaster
 	 * and {@link GenericApplicationListener} interfaces. In case of a standard
 	 * {@link ApplicationListener}, a {@link GenericApplicationListenerAdapter}
 	 * will be used to introspect the generically declared type of the target listener.
+	 * <p>Overriding this method turns off the index of listeners by declared
+	 * event class, evaluating all listeners for every new event type instead.
 	 * @param listener the target listener to check
 	 * @param eventType the event type to check against
 	 * @param sourceType the source type to check against
@@ -286,55 +619,103 @@ public abstract class AbstractApplicationEventMulticaster
 
 
 	/**
-	 * Cache key for ListenerRetrievers, based on event type and source type.
-	 * 基于事件类型和源类型的ListenerRetrievers的缓存键
+	 * A registered listener instance or listener bean name, together with
+	 * its registration sequence and the event classes it is indexed under.
 	 */
-	private static final class ListenerCacheKey implements Comparable<ListenerCacheKey> {
+	private static final class ListenerRegistration {
 
-		private final ResolvableType eventType;
+		@Nullable
+		final ApplicationListener<?> listener;
 
 		@Nullable
-		private final Class<?> sourceType;
+		final String listenerBeanName;
 
-		public ListenerCacheKey(ResolvableType eventType, @Nullable Class<?> sourceType) {
-			Assert.notNull(eventType, "Event type must not be null");
-			this.eventType = eventType;
-			this.sourceType = sourceType;
-		}
+		final long sequence;
 
-		@Override
-		public boolean equals(Object other) {
-			if (this == other) {
-				return true;
-			}
-			ListenerCacheKey otherKey = (ListenerCacheKey) other;
-			return (this.eventType.equals(otherKey.eventType) &&
-					ObjectUtils.nullSafeEquals(this.sourceType, otherKey.sourceType));
+		Class<?>[] eventClasses = new Class<?>[0];
+
+		ListenerRegistration(@Nullable ApplicationListener<?> listener, @Nullable String listenerBeanName, long sequence) {
+			this.listener = listener;
+			this.listenerBeanName = listenerBeanName;
+			this.sequence = sequence;
 		}
+	}
+
+
+	/**
+	 * Helper class that encapsulates a specific set of target listeners for a
+	 * cached combination of event type and source type, populated once after
+	 * registration in the cache.
+	 */
+	private class CachedListenerRetriever {
 
-		@Override
-		public int hashCode() {
-			return this.eventType.hashCode() * 29 + ObjectUtils.nullSafeHashCode(this.sourceType);
+		@Nullable
+		private volatile List<ApplicationListener<?>> sortedListeners;
+
+		@Nullable
+		private volatile Set<ApplicationListener<?>> applicationListeners;
+
+		@Nullable
+		private volatile Set<String> applicationListenerBeans;
+
+		public List<ApplicationListener<?>> setApplicationListeners(List<ApplicationListener<?>> sortedListeners) {
+			List<ApplicationListener<?>> listenersToUse = Collections.unmodifiableList(new ArrayList<>(sortedListeners));
+			this.sortedListeners = listenersToUse;
+			this.applicationListeners = new LinkedHashSet<>(sortedListeners);
+			return listenersToUse;
 		}
 
-		@Override
-		public String toString() {
-			return "ListenerCacheKey [eventType = " + this.eventType + ", sourceType = " + this.sourceType + "]";
+		public void setApplicationListeners(
+				Set<ApplicationListener<?>> applicationListeners, Set<String> applicationListenerBeans) {
+
+			this.applicationListenerBeans = applicationListenerBeans;
+			this.applicationListeners = applicationListeners;
 		}
 
-		@Override
-		public int compareTo(ListenerCacheKey other) {
-			int result = this.eventType.toString().compareTo(other.eventType.toString());
-			if (result == 0) {
-				if (this.sourceType == null) {
-					return (other.sourceType == null ? 0 : -1);
+		/**
+		 * Return the pre-filtered listeners, or {@code null} if not populated yet.
+		 */
+		@Nullable
+		public Collection<ApplicationListener<?>> getApplicationListeners() {
+			Set<ApplicationListener<?>> applicationListeners = this.applicationListeners;
+			if (applicationListeners == null) {
+				return null;
+			}
+			List<ApplicationListener<?>> sortedListeners = this.sortedListeners;
+			if (sortedListeners != null) {
+				return sortedListeners;
+			}
+			Set<String> applicationListenerBeans = this.applicationListenerBeans;
+			List<ApplicationListener<?>> allListeners = new ArrayList<>(
+					applicationListeners.size() + applicationListenerBeans.size());
+			allListeners.addAll(applicationListeners);
+			BeanFactory beanFactory = getBeanFactory();
+			for (String listenerBeanName : applicationListenerBeans) {
+				try {
+					allListeners.add(beanFactory.getBean(listenerBeanName, ApplicationListener.class));
 				}
-				if (other.sourceType == null) {
-					return 1;
+				catch (NoSuchBeanDefinitionException ex) {
+					// Singleton listener instance (without backing bean definition) disappeared -
+					// probably in the middle of the destruction phase
 				}
-				result = this.sourceType.getName().compareTo(other.sourceType.getName());
 			}
-			return result;
+			AnnotationAwareOrderComparator.sort(allListeners);
+			return allListeners;
+		}
+
+		/**
+		 * Determine whether the given listener instance or bean name may be
+		 * contained in this retriever, conservatively assuming so while
+		 * not populated yet.
+		 */
+		public boolean mayContain(Object listenerOrBeanName) {
+			Set<ApplicationListener<?>> applicationListeners = this.applicationListeners;
+			if (applicationListeners == null) {
+				return true;
+			}
+			Set<String> applicationListenerBeans = this.applicationListenerBeans;
+			return (applicationListeners.contains(listenerOrBeanName) ||
+					(applicationListenerBeans != null && applicationListenerBeans.contains(listenerOrBeanName)));
 		}
 	}
 
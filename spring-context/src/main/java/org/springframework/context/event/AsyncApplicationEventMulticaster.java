@@ -0,0 +1,485 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * Asynchronous variant of {@link SimpleApplicationEventMulticaster}, delivering
+ * events through a bounded queue per listener.
+ *
+ * <p>Every listener receives its events in the order of publication, one at a
+ * time, while different listeners are invoked concurrently through the
+ * {@link #setTaskExecutor task executor}: a single task drains a listener's queue
+ * until it is empty, so a slow listener only ever occupies a single thread and
+ * can only ever hold {@link #setQueueCapacity "queueCapacity"} pending events.
+ * When its queue is full, the {@link #setOverflowPolicy overflow policy} applies.
+ *
+ * <p>A {@link BatchApplicationListener} receives all events pending in its queue
+ * as a single list, up to the {@link #setMaxBatchSize "maxBatchSize"}.
+ *
+ * <p>Exceptions thrown by a listener are passed to the
+ * {@link #setErrorHandler ErrorHandler}, if any, or logged otherwise.
+ *
+ * <p>On {@link #stop() stop} or {@link #destroy() destruction}, e.g. on close of
+ * the containing application context, pending events are drained for up to
+ * {@link #setAwaitTerminationMillis "awaitTerminationMillis"}. Events published
+ * afterwards are delivered synchronously in the publishing thread.
+ *
+ * @author agent
+ * @since 5.2
+ * @see BatchApplicationListener
+ */
+public class AsyncApplicationEventMulticaster extends SimpleApplicationEventMulticaster
+		implements SmartLifecycle, DisposableBean {
+
+	/**
+	 * Policy for events published to a listener with a full queue.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * Block the publishing thread until the listener's queue has space again.
+		 * <p>If the publishing thread gets interrupted while waiting, its interrupt
+		 * flag is restored and the event is rejected with a {@link TaskRejectedException}.
+		 * <p>Note that a listener must not publish events to itself with this policy.
+		 */
+		BLOCK,
+
+		/**
+		 * Drop the event for the listener in question.
+		 * @see #getDroppedEventCount()
+		 */
+		DROP,
+
+		/**
+		 * Invoke the listener in the publishing thread, slowing the publisher down.
+		 * <p>Note that the event may get delivered ahead of events still queued
+		 * for the same listener.
+		 */
+		CALLER_RUNS
+	}
+
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private volatile int queueCapacity = 1024;
+
+	private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+	private volatile int maxBatchSize = 100;
+
+	private long awaitTerminationMillis = 5000;
+
+	@Nullable
+	private volatile ExecutorService defaultTaskExecutor;
+
+	private final Map<ApplicationListener<?>, ListenerQueue> listenerQueues = new ConcurrentHashMap<>(64);
+
+	private final LongAdder droppedEventCount = new LongAdder();
+
+	// Notified on retirement of a listener queue while draining
+	private final Object drainMonitor = new Object();
+
+	private volatile boolean draining;
+
+	private volatile boolean running = true;
+
+
+	/**
+	 * Create a new AsyncApplicationEventMulticaster.
+	 */
+	public AsyncApplicationEventMulticaster() {
+	}
+
+	/**
+	 * Create a new AsyncApplicationEventMulticaster for the given BeanFactory.
+	 */
+	public AsyncApplicationEventMulticaster(BeanFactory beanFactory) {
+		super(beanFactory);
+	}
+
+
+	/**
+	 * Set the {@link Executor} to drain the listener queues with.
+	 * <p>Default is an internal cached thread pool, reusing idle threads across
+	 * bursts of events and shut down on {@link #destroy()}. A given executor
+	 * is not shut down by this multicaster.
+	 */
+	@Override
+	public void setTaskExecutor(@Nullable Executor taskExecutor) {
+		super.setTaskExecutor(taskExecutor);
+	}
+
+	/**
+	 * Set the maximum number of pending events per listener. Default is 1024.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		Assert.isTrue(queueCapacity > 0, "Queue capacity must be greater than 0");
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Set the policy for events published to a listener with a full queue.
+	 * Default is {@link OverflowPolicy#BLOCK}.
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		Assert.notNull(overflowPolicy, "OverflowPolicy must not be null");
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Set the maximum number of events to deliver to a
+	 * {@link BatchApplicationListener} at once. Default is 100.
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "Max batch size must be greater than 0");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Set the maximum number of milliseconds to wait for pending events to be
+	 * delivered on {@link #stop()} or {@link #destroy()}. Default is 5000.
+	 * <p>Events still pending after this timeout remain queued for delivery
+	 * but are not waited for.
+	 */
+	public void setAwaitTerminationMillis(long awaitTerminationMillis) {
+		Assert.isTrue(awaitTerminationMillis >= 0, "Await termination millis must not be negative");
+		this.awaitTerminationMillis = awaitTerminationMillis;
+	}
+
+	/**
+	 * Return the number of events dropped so far,
+	 * according to {@link OverflowPolicy#DROP}.
+	 */
+	public long getDroppedEventCount() {
+		return this.droppedEventCount.sum();
+	}
+
+
+	@Override
+	public void multicastEvent(ApplicationEvent event, @Nullable ResolvableType eventType) {
+		ResolvableType type = (eventType != null ? eventType : resolveDefaultEventType(event));
+		for (ApplicationListener<?> listener : getApplicationListeners(event, type)) {
+			if (!this.running) {
+				// Stopped: no asynchronous delivery anymore
+				if (listener instanceof BatchApplicationListener) {
+					invokeBatchListener((BatchApplicationListener<?>) listener, Collections.singletonList(event));
+				}
+				else {
+					invokeListener(listener, event);
+				}
+				continue;
+			}
+			ListenerQueue queue;
+			do {
+				queue = this.listenerQueues.computeIfAbsent(listener, ListenerQueue::new);
+			}
+			while (!queue.add(event));
+		}
+	}
+
+	/**
+	 * Invoke the given batch listener with the given events.
+	 * @param listener the BatchApplicationListener to invoke
+	 * @param events the current events to propagate
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	protected void invokeBatchListener(BatchApplicationListener<?> listener, List<ApplicationEvent> events) {
+		ErrorHandler errorHandler = getErrorHandler();
+		if (errorHandler != null) {
+			try {
+				((BatchApplicationListener) listener).onApplicationEvents(events);
+			}
+			catch (Throwable err) {
+				errorHandler.handleError(err);
+			}
+		}
+		else {
+			((BatchApplicationListener) listener).onApplicationEvents(events);
+		}
+	}
+
+	private Executor getTaskExecutorToUse() {
+		Executor taskExecutor = getTaskExecutor();
+		if (taskExecutor != null) {
+			return taskExecutor;
+		}
+		ExecutorService defaultTaskExecutor = this.defaultTaskExecutor;
+		if (defaultTaskExecutor == null) {
+			synchronized (this.drainMonitor) {
+				defaultTaskExecutor = this.defaultTaskExecutor;
+				if (defaultTaskExecutor == null) {
+					defaultTaskExecutor = createDefaultTaskExecutor();
+					this.defaultTaskExecutor = defaultTaskExecutor;
+				}
+			}
+		}
+		return defaultTaskExecutor;
+	}
+
+	/**
+	 * Create the default executor: a thread pool without fixed threads, letting
+	 * idle threads wait a few seconds for the next burst of events.
+	 */
+	private ExecutorService createDefaultTaskExecutor() {
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 5, TimeUnit.SECONDS,
+				new SynchronousQueue<>(), new CustomizableThreadFactory("event-multicaster-"));
+	}
+
+
+	/**
+	 * Resume asynchronous delivery after a {@link #stop()}.
+	 */
+	@Override
+	public void start() {
+		this.running = true;
+	}
+
+	/**
+	 * Wait for pending events to be delivered, up to the configured
+	 * {@link #setAwaitTerminationMillis "awaitTerminationMillis"}, and
+	 * deliver any events published afterwards synchronously.
+	 */
+	@Override
+	public void stop() {
+		if (this.running) {
+			this.draining = true;
+			try {
+				awaitDrain();
+			}
+			finally {
+				this.running = false;
+				this.draining = false;
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	/**
+	 * Drain pending events like on {@link #stop()} and shut down
+	 * the default executor, if created.
+	 */
+	@Override
+	public void destroy() {
+		stop();
+		ExecutorService defaultTaskExecutor = this.defaultTaskExecutor;
+		if (defaultTaskExecutor != null) {
+			this.defaultTaskExecutor = null;
+			defaultTaskExecutor.shutdown();
+		}
+	}
+
+	private void awaitDrain() {
+		long deadline = System.currentTimeMillis() + this.awaitTerminationMillis;
+		synchronized (this.drainMonitor) {
+			while (!this.listenerQueues.isEmpty()) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					if (logger.isWarnEnabled()) {
+						logger.warn("Timed out after " + this.awaitTerminationMillis + " ms while waiting for " +
+								"pending events of " + this.listenerQueues.size() + " listener(s) to be delivered");
+					}
+					return;
+				}
+				try {
+					this.drainMonitor.wait(remaining);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Bounded queue of pending events for a specific listener, drained by a
+	 * single task and retired once found empty. All queue state is guarded by
+	 * the queue's monitor, which is never held while invoking the listener.
+	 */
+	private class ListenerQueue implements Runnable {
+
+		private final ApplicationListener<?> listener;
+
+		private final Deque<ApplicationEvent> events = new ArrayDeque<>();
+
+		private boolean scheduled;
+
+		private boolean retired;
+
+		private int blockedPublishers;
+
+		public ListenerQueue(ApplicationListener<?> listener) {
+			this.listener = listener;
+		}
+
+		/**
+		 * Add the given event to this queue, applying the overflow policy if full.
+		 * @return {@code true} if the event has been handled, or {@code false}
+		 * if this queue has been retired in the meantime
+		 */
+		public boolean add(ApplicationEvent event) {
+			boolean schedule = false;
+			boolean callerRuns = false;
+			synchronized (this) {
+				while (!this.retired && this.events.size() >= queueCapacity &&
+						overflowPolicy == OverflowPolicy.BLOCK) {
+					this.blockedPublishers++;
+					try {
+						wait();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new TaskRejectedException("Interrupted while waiting for queue space of listener [" +
+								this.listener + "]: rejecting event [" + event + "]", ex);
+					}
+					finally {
+						this.blockedPublishers--;
+					}
+				}
+				if (this.retired) {
+					return false;
+				}
+				if (this.events.size() < queueCapacity) {
+					this.events.add(event);
+					if (!this.scheduled) {
+						this.scheduled = true;
+						schedule = true;
+					}
+				}
+				else if (overflowPolicy == OverflowPolicy.DROP) {
+					drop(event);
+				}
+				else {
+					callerRuns = true;
+				}
+			}
+			if (callerRuns) {
+				deliver(event);
+			}
+			else if (schedule) {
+				try {
+					getTaskExecutorToUse().execute(this);
+				}
+				catch (RejectedExecutionException ex) {
+					run();
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public void run() {
+			boolean batch = (this.listener instanceof BatchApplicationListener);
+			while (true) {
+				List<ApplicationEvent> pending = new ArrayList<>(batch ? Math.min(maxBatchSize, 16) : 1);
+				synchronized (this) {
+					ApplicationEvent event;
+					while (pending.size() < (batch ? maxBatchSize : 1) && (event = this.events.poll()) != null) {
+						pending.add(event);
+					}
+					if (pending.isEmpty()) {
+						this.retired = true;
+						listenerQueues.remove(this.listener, this);
+						if (this.blockedPublishers > 0) {
+							notifyAll();
+						}
+						if (draining) {
+							synchronized (drainMonitor) {
+								drainMonitor.notifyAll();
+							}
+						}
+						return;
+					}
+					if (this.blockedPublishers > 0) {
+						notifyAll();
+					}
+				}
+				if (batch) {
+					deliver(pending);
+				}
+				else {
+					deliver(pending.get(0));
+				}
+			}
+		}
+
+		private void deliver(ApplicationEvent event) {
+			try {
+				invokeListener(this.listener, event);
+			}
+			catch (Throwable ex) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Listener [" + this.listener + "] failed to process event [" + event + "]", ex);
+				}
+			}
+		}
+
+		private void deliver(List<ApplicationEvent> batch) {
+			try {
+				invokeBatchListener((BatchApplicationListener<?>) this.listener, batch);
+			}
+			catch (Throwable ex) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Listener [" + this.listener + "] failed to process " + batch.size() + " events", ex);
+				}
+			}
+		}
+
+		private void drop(ApplicationEvent event) {
+			droppedEventCount.increment();
+			if (logger.isDebugEnabled()) {
+				logger.debug("Dropping event [" + event + "] for listener [" + this.listener + "]: queue full");
+			}
+		}
+	}
+
+}
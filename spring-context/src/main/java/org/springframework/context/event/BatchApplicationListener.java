@@ -0,0 +1,56 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Extended variant of the standard {@link ApplicationListener} interface,
+ * accepting events in micro-batches, e.g. for audit or event-sourcing listeners
+ * which benefit from writing several events at once.
+ *
+ * <p>Batches are delivered by an {@link AsyncApplicationEventMulticaster},
+ * in the order of publication. Other multicasters deliver every event
+ * individually, as a singleton list.
+ *
+ * @author agent
+ * @since 5.2
+ * @param <E> the specific {@code ApplicationEvent} subclass to listen to
+ * @see AsyncApplicationEventMulticaster#setMaxBatchSize
+ */
+@FunctionalInterface
+public interface BatchApplicationListener<E extends ApplicationEvent> extends ApplicationListener<E> {
+
+	/**
+	 * Handle a batch of application events.
+	 * @param events the events to respond to, in the order of publication
+	 */
+	void onApplicationEvents(List<E> events);
+
+	/**
+	 * Handle a single application event as a singleton batch.
+	 */
+	@Override
+	default void onApplicationEvent(E event) {
+		onApplicationEvents(Collections.singletonList(event));
+	}
+
+}
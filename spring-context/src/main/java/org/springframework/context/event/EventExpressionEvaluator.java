@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.context.event;
 
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -25,14 +27,37 @@ import org.springframework.context.ApplicationEvent;
 import org.springframework.context.expression.AnnotatedElementKey;
 import org.springframework.context.expression.BeanFactoryResolver;
 import org.springframework.context.expression.CachedExpressionEvaluator;
-import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.expression.BeanResolver;
+import org.springframework.expression.ConstructorResolver;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.OperatorOverloader;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypeComparator;
+import org.springframework.expression.TypeConverter;
+import org.springframework.expression.TypeLocator;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.FunctionReference;
+import org.springframework.expression.spel.ast.VariableReference;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.lang.Nullable;
 
 /**
  * Utility class handling the SpEL expression parsing. Meant to be used
  * as a reusable, thread-safe component.
  *
+ * <p>Condition expressions are compiled according to the
+ * {@link SpelCompilerMode} configured through the {@code spring.expression.compiler.mode}
+ * property, and an evaluation plan is cached per listener method: a
+ * condition which only refers to the root object (e.g. {@code "event.flag"}
+ * or {@code "@bean.accept(#root.event)"}) is evaluated against a shared
+ * evaluation context, while method argument variables (e.g. {@code "#p0.flag"})
+ * are exposed through a lightweight context with pre-resolved parameter names.
+ *
  * @author Stephane Nicoll
  * @since 4.2
  * @see CachedExpressionEvaluator
@@ -41,6 +66,8 @@ class EventExpressionEvaluator extends CachedExpressionEvaluator {
 
 	private final Map<ExpressionKey, Expression> conditionCache = new ConcurrentHashMap<>(64);
 
+	private final Map<AnnotatedElementKey, ConditionPlan> conditionPlanCache = new ConcurrentHashMap<>(64);
+
 
 	/**
 	 * Specify if the condition defined by the specified expression matches.
@@ -48,15 +75,187 @@ class EventExpressionEvaluator extends CachedExpressionEvaluator {
 	public boolean condition(String conditionExpression, ApplicationEvent event, Method targetMethod,
 			AnnotatedElementKey methodKey, Object[] args, @Nullable BeanFactory beanFactory) {
 
-		EventExpressionRootObject root = new EventExpressionRootObject(event, args);
-		MethodBasedEvaluationContext evaluationContext = new MethodBasedEvaluationContext(
-				root, targetMethod, args, getParameterNameDiscoverer());
-		if (beanFactory != null) {
-			evaluationContext.setBeanResolver(new BeanFactoryResolver(beanFactory));
+		ConditionPlan plan = this.conditionPlanCache.get(methodKey);
+		if (plan == null || !plan.isApplicable(conditionExpression, beanFactory)) {
+			plan = new ConditionPlan(conditionExpression,
+					getExpression(this.conditionCache, methodKey, conditionExpression), targetMethod, beanFactory);
+			this.conditionPlanCache.put(methodKey, plan);
+		}
+		return plan.matches(event, args);
+	}
+
+
+	/**
+	 * Evaluation plan for the condition of a specific listener method.
+	 */
+	private class ConditionPlan {
+
+		private final String conditionExpression;
+
+		private final Expression expression;
+
+		@Nullable
+		private final BeanFactory beanFactory;
+
+		private final StandardEvaluationContext sharedContext = new StandardEvaluationContext();
+
+		// null if the expression does not refer to any variables
+		@Nullable
+		private final Map<String, Integer> parameterIndexes;
+
+		public ConditionPlan(String conditionExpression, Expression expression, Method targetMethod,
+				@Nullable BeanFactory beanFactory) {
+
+			this.conditionExpression = conditionExpression;
+			this.expression = expression;
+			this.beanFactory = beanFactory;
+			if (beanFactory != null) {
+				this.sharedContext.setBeanResolver(new BeanFactoryResolver(beanFactory));
+			}
+			this.parameterIndexes = (refersToVariables(expression) ? resolveParameterIndexes(targetMethod) : null);
 		}
 
-		return (Boolean.TRUE.equals(getExpression(this.conditionCache, methodKey, conditionExpression).getValue(
-				evaluationContext, Boolean.class)));
+		private boolean refersToVariables(Expression expression) {
+			return (!(expression instanceof SpelExpression) || refersToVariables(((SpelExpression) expression).getAST()));
+		}
+
+		private boolean refersToVariables(SpelNode node) {
+			if (node instanceof FunctionReference) {
+				return true;
+			}
+			if (node instanceof VariableReference) {
+				String ast = node.toStringAST();
+				if (!"#root".equals(ast) && !"#this".equals(ast)) {
+					return true;
+				}
+			}
+			for (int i = 0; i < node.getChildCount(); i++) {
+				if (refersToVariables(node.getChild(i))) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private Map<String, Integer> resolveParameterIndexes(Method method) {
+			String[] paramNames = getParameterNameDiscoverer().getParameterNames(method);
+			Map<String, Integer> indexes = new HashMap<>();
+			for (int i = 0; i < method.getParameterCount(); i++) {
+				indexes.put("a" + i, i);
+				indexes.put("p" + i, i);
+				if (paramNames != null && paramNames[i] != null) {
+					indexes.put(paramNames[i], i);
+				}
+			}
+			return indexes;
+		}
+
+		public boolean isApplicable(String conditionExpression, @Nullable BeanFactory beanFactory) {
+			return (this.conditionExpression.equals(conditionExpression) && this.beanFactory == beanFactory);
+		}
+
+		public boolean matches(ApplicationEvent event, Object[] args) {
+			EventExpressionRootObject root = new EventExpressionRootObject(event, args);
+			EvaluationContext context = (this.parameterIndexes != null ?
+					new ConditionEvaluationContext(this.sharedContext, root, this.parameterIndexes, args) :
+					this.sharedContext);
+			return Boolean.TRUE.equals(this.expression.getValue(context, root, Boolean.class));
+		}
+	}
+
+
+	/**
+	 * {@link EvaluationContext} exposing the arguments of a listener method as
+	 * variables, delegating to a shared {@link StandardEvaluationContext} otherwise.
+	 */
+	private static class ConditionEvaluationContext implements EvaluationContext {
+
+		private final EvaluationContext delegate;
+
+		private final TypedValue rootObject;
+
+		private final Map<String, Integer> parameterIndexes;
+
+		private final Object[] args;
+
+		@Nullable
+		private Map<String, Object> variables;
+
+		public ConditionEvaluationContext(EvaluationContext delegate, Object rootObject,
+				Map<String, Integer> parameterIndexes, Object[] args) {
+
+			this.delegate = delegate;
+			this.rootObject = new TypedValue(rootObject);
+			this.parameterIndexes = parameterIndexes;
+			this.args = args;
+		}
+
+		@Override
+		public TypedValue getRootObject() {
+			return this.rootObject;
+		}
+
+		@Override
+		public List<PropertyAccessor> getPropertyAccessors() {
+			return this.delegate.getPropertyAccessors();
+		}
+
+		@Override
+		public List<ConstructorResolver> getConstructorResolvers() {
+			return this.delegate.getConstructorResolvers();
+		}
+
+		@Override
+		public List<MethodResolver> getMethodResolvers() {
+			return this.delegate.getMethodResolvers();
+		}
+
+		@Override
+		@Nullable
+		public BeanResolver getBeanResolver() {
+			return this.delegate.getBeanResolver();
+		}
+
+		@Override
+		public TypeLocator getTypeLocator() {
+			return this.delegate.getTypeLocator();
+		}
+
+		@Override
+		public TypeConverter getTypeConverter() {
+			return this.delegate.getTypeConverter();
+		}
+
+		@Override
+		public TypeComparator getTypeComparator() {
+			return this.delegate.getTypeComparator();
+		}
+
+		@Override
+		public OperatorOverloader getOperatorOverloader() {
+			return this.delegate.getOperatorOverloader();
+		}
+
+		@Override
+		public void setVariable(String name, @Nullable Object value) {
+			if (this.variables == null) {
+				this.variables = new HashMap<>();
+			}
+			this.variables.put(name, value);
+		}
+
+		@Override
+		@Nullable
+		public Object lookupVariable(String name) {
+			if (this.variables != null && this.variables.containsKey(name)) {
+				return this.variables.get(name);
+			}
+			Integer index = this.parameterIndexes.get(name);
+			if (index != null) {
+				return (index < this.args.length ? this.args[index] : null);
+			}
+			return this.delegate.lookupVariable(name);
+		}
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.context.event;
 
+import java.util.Map;
 import java.util.concurrent.Executor;
 
 import org.apache.commons.logging.Log;
@@ -25,7 +26,9 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.core.ResolvableType;
+import org.springframework.core.ResolvableTypeProvider;
 import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ErrorHandler;
 
 /**
@@ -38,6 +41,8 @@ public class SimpleApplicationEventMulticaster extends AbstractApplicationEventM
 	@Nullable
 	private Executor taskExecutor;
 
+	private final Map<Class<?>, ResolvableType> eventTypeCache = new ConcurrentReferenceHashMap<>();
+
 	@Nullable
 	private ErrorHandler errorHandler;
 
@@ -88,9 +93,18 @@ public class SimpleApplicationEventMulticaster extends AbstractApplicationEventM
 		}
 	}
 
-	// new ResolvableType(class);
-	private ResolvableType resolveDefaultEventType(ApplicationEvent event) {
-		return ResolvableType.forInstance(event);
+	// new ResolvableType(class), cached per event class unless provided by the event itself
+	ResolvableType resolveDefaultEventType(ApplicationEvent event) {
+		if (event instanceof ResolvableTypeProvider) {
+			return ResolvableType.forInstance(event);
+		}
+		Class<?> eventClass = event.getClass();
+		ResolvableType eventType = this.eventTypeCache.get(eventClass);
+		if (eventType == null) {
+			eventType = ResolvableType.forClass(eventClass);
+			this.eventTypeCache.put(eventClass, eventType);
+		}
+		return eventType;
 	}
 
 	protected void invokeListener(ApplicationListener<?> listener, ApplicationEvent event) {
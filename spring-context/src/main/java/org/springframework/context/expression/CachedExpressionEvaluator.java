@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -49,10 +49,13 @@ public abstract class CachedExpressionEvaluator {
 	}
 
 	/**
-	 * Create a new instance with a default {@link SpelExpressionParser}.
+	 * Create a new instance with a default {@link SpelExpressionParser}
+	 * which {@link SpelExpressionParser#setCacheExpressions caches} parsed
+	 * expressions, so that an expression declared on several elements is
+	 * only parsed (and compiled) once.
 	 */
 	protected CachedExpressionEvaluator() {
-		this(new SpelExpressionParser());
+		this(createCachingParser());
 	}
 
 
@@ -95,6 +98,12 @@ public abstract class CachedExpressionEvaluator {
 		return new ExpressionKey(elementKey, expression);
 	}
 
+	private static SpelExpressionParser createCachingParser() {
+		SpelExpressionParser parser = new SpelExpressionParser();
+		parser.setCacheExpressions(true);
+		return parser;
+	}
+
 
 	/**
 	 * An expression key.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -57,6 +57,7 @@ import org.springframework.context.MessageSourceResolvable;
 import org.springframework.context.NoSuchMessageException;
 import org.springframework.context.PayloadApplicationEvent;
 import org.springframework.context.ResourceLoaderAware;
+import org.springframework.context.event.AbstractApplicationEventMulticaster;
 import org.springframework.context.event.ApplicationEventMulticaster;
 import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
@@ -315,25 +316,31 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		Assert.notNull(event, "Event must not be null");
 
 		// 如果需要，将事件装饰为ApplicationEvent
-		ApplicationEvent applicationEvent;
+		ApplicationEvent applicationEvent = null;
 		if (event instanceof ApplicationEvent) {
 			applicationEvent = (ApplicationEvent) event;
 		}
-		else {
-			applicationEvent = new PayloadApplicationEvent<>(this, event);
-			if (eventType == null) {
-				eventType = ((PayloadApplicationEvent) applicationEvent).getResolvableType();
-			}
+		else if (eventType == null) {
+			eventType = PayloadApplicationEvent.resolvableTypeForPayload(event);
 		}
 
 		// Multicast right now if possible - or lazily once the multicaster is initialized
 		// 如果可能的话，现在就进行广播 —— 或者在初始化广播后进行延迟
 		if (this.earlyApplicationEvents != null) {
-			this.earlyApplicationEvents.add(applicationEvent);
+			this.earlyApplicationEvents.add(
+					applicationEvent != null ? applicationEvent : new PayloadApplicationEvent<>(this, event));
 		}
 		else {
 			//获取多通道, 进行多路广播
-			getApplicationEventMulticaster().multicastEvent(applicationEvent, eventType);
+			ApplicationEventMulticaster multicaster = getApplicationEventMulticaster();
+			if (applicationEvent != null) {
+				multicaster.multicastEvent(applicationEvent, eventType);
+			}
+			else if (!(multicaster instanceof AbstractApplicationEventMulticaster) ||
+					((AbstractApplicationEventMulticaster) multicaster).hasApplicationListeners(eventType, getClass())) {
+				// Payload events are only created if any listener is going to receive them
+				multicaster.multicastEvent(new PayloadApplicationEvent<>(this, event), eventType);
+			}
 		}
 
 		// Publish event via parent context as well...
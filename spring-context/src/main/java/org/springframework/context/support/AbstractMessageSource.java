@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -221,11 +221,9 @@ public abstract class AbstractMessageSource extends MessageSourceSupport impleme
 			// are defined in the child MessageSource.
 			argsToUse = resolveArguments(args, locale);
 
-			MessageFormat messageFormat = resolveCode(code, locale);
-			if (messageFormat != null) {
-				synchronized (messageFormat) {
-					return messageFormat.format(argsToUse);
-				}
+			String message = resolveCodeWithArguments(code, argsToUse, locale);
+			if (message != null) {
+				return message;
 			}
 		}
 
@@ -368,6 +366,33 @@ public abstract class AbstractMessageSource extends MessageSourceSupport impleme
 		return null;
 	}
 
+	/**
+	 * Subclasses can override this method to resolve a message with arguments
+	 * in an optimized fashion, i.e. without synchronizing on a shared MessageFormat.
+	 * <p>The default implementation delegates to the {@link #resolveCode} method,
+	 * formatting the returned MessageFormat while synchronizing on it, since
+	 * {@code java.text.MessageFormat} is not thread-safe. Subclasses are
+	 * encouraged to cache a {@link CompiledMessageFormat} per message instead.
+	 * @param code the code of the message to resolve
+	 * @param args the (already resolved) arguments for the message
+	 * @param locale the locale to resolve the code for
+	 * (subclasses are encouraged to support internationalization)
+	 * @return the formatted message String, or {@code null} if not found
+	 * @since 5.2
+	 * @see #resolveCode
+	 * @see CompiledMessageFormat
+	 */
+	@Nullable
+	protected String resolveCodeWithArguments(String code, Object[] args, Locale locale) {
+		MessageFormat messageFormat = resolveCode(code, locale);
+		if (messageFormat != null) {
+			synchronized (messageFormat) {
+				return messageFormat.format(args);
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Subclasses must implement this method to resolve a message.
 	 * <p>Returns a MessageFormat instance rather than a message String,
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import java.text.ChoiceFormat;
+import java.text.DateFormat;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Thread-safe representation of a {@link MessageFormat}, precompiled into
+ * its literal text segments and argument placeholders. Formatting does not
+ * require synchronization on a shared {@code MessageFormat} instance: number
+ * and date formats for specific arguments are kept in lock-free pools, with
+ * any concurrent formatting work falling back to a copy of the format.
+ *
+ * <p>Supports the {@code MessageFormat} syntax with indexed arguments and any
+ * number, date and time formats. Patterns with choice formats (which may
+ * contain nested message patterns) are formatted through the original
+ * {@code MessageFormat}, synchronized on it.
+ *
+ * @author agent
+ * @since 5.2
+ * @see AbstractMessageSource#resolveCodeWithArguments
+ */
+public final class CompiledMessageFormat {
+
+	private final MessageFormat messageFormat;
+
+	// The literal text before each argument, plus the trailing text (null if not compiled)
+	@Nullable
+	private final String[] literals;
+
+	private final int[] argumentIndexes;
+
+	// Pools for the specific formats per argument (null elements for default formatting)
+	private final FormatPool[] formats;
+
+	private final int estimatedLength;
+
+	@Nullable
+	private volatile FormatPool defaultNumberFormat;
+
+	@Nullable
+	private volatile FormatPool defaultDateFormat;
+
+
+	/**
+	 * Create a new {@code CompiledMessageFormat} for the given {@link MessageFormat}.
+	 * @param messageFormat the MessageFormat to compile (not to be modified afterwards)
+	 */
+	public CompiledMessageFormat(MessageFormat messageFormat) {
+		Assert.notNull(messageFormat, "MessageFormat must not be null");
+		this.messageFormat = messageFormat;
+
+		List<String> literals = new ArrayList<>();
+		List<Integer> argumentIndexes = new ArrayList<>();
+		Format[] formats = messageFormat.getFormats();
+		boolean compilable = (messageFormat.getLocale() != null &&
+				parsePattern(messageFormat.toPattern(), literals, argumentIndexes) &&
+				argumentIndexes.size() == formats.length);
+		for (Format format : formats) {
+			if (format instanceof ChoiceFormat) {
+				// Possibly nested message patterns: not supported in compiled form
+				compilable = false;
+			}
+		}
+
+		if (compilable) {
+			this.literals = literals.toArray(new String[0]);
+			this.argumentIndexes = new int[formats.length];
+			this.formats = new FormatPool[formats.length];
+			int estimatedLength = 16 * formats.length;
+			for (int i = 0; i < formats.length; i++) {
+				this.argumentIndexes[i] = argumentIndexes.get(i);
+				this.formats[i] = (formats[i] != null ? new FormatPool(formats[i]) : null);
+			}
+			for (String literal : this.literals) {
+				estimatedLength += literal.length();
+			}
+			this.estimatedLength = estimatedLength;
+		}
+		else {
+			this.literals = null;
+			this.argumentIndexes = new int[0];
+			this.formats = new FormatPool[0];
+			this.estimatedLength = 0;
+		}
+	}
+
+
+	/**
+	 * Return the original {@link MessageFormat} (not to be used for formatting
+	 * without synchronizing on it).
+	 */
+	public MessageFormat getMessageFormat() {
+		return this.messageFormat;
+	}
+
+	/**
+	 * Format the given arguments into a message, as
+	 * {@link MessageFormat#format(Object)} would do.
+	 * @param args the arguments to fill in (may be {@code null})
+	 * @return the formatted message
+	 */
+	public String format(@Nullable Object[] args) {
+		String[] literals = this.literals;
+		if (literals == null) {
+			synchronized (this.messageFormat) {
+				return this.messageFormat.format(args != null ? args : new Object[0]);
+			}
+		}
+
+		StringBuilder sb = new StringBuilder(this.estimatedLength);
+		for (int i = 0; i < this.argumentIndexes.length; i++) {
+			sb.append(literals[i]);
+			int argumentIndex = this.argumentIndexes[i];
+			if (args == null || argumentIndex >= args.length) {
+				sb.append('{').append(argumentIndex).append('}');
+				continue;
+			}
+			Object arg = args[argumentIndex];
+			if (arg == null) {
+				sb.append("null");
+			}
+			else if (this.formats[i] != null) {
+				sb.append(this.formats[i].format(arg));
+			}
+			else if (arg instanceof Number) {
+				sb.append(getDefaultNumberFormat().format(arg));
+			}
+			else if (arg instanceof Date) {
+				sb.append(getDefaultDateFormat().format(arg));
+			}
+			else {
+				sb.append(arg);
+			}
+		}
+		sb.append(literals[literals.length - 1]);
+		return sb.toString();
+	}
+
+	private FormatPool getDefaultNumberFormat() {
+		FormatPool format = this.defaultNumberFormat;
+		if (format == null) {
+			format = new FormatPool(NumberFormat.getInstance(this.messageFormat.getLocale()));
+			this.defaultNumberFormat = format;
+		}
+		return format;
+	}
+
+	private FormatPool getDefaultDateFormat() {
+		FormatPool format = this.defaultDateFormat;
+		if (format == null) {
+			format = new FormatPool(DateFormat.getDateTimeInstance(
+					DateFormat.SHORT, DateFormat.SHORT, this.messageFormat.getLocale()));
+			this.defaultDateFormat = format;
+		}
+		return format;
+	}
+
+	/**
+	 * Return whether the message format has been compiled, as opposed
+	 * to being formatted through the synchronized MessageFormat.
+	 */
+	boolean isCompiled() {
+		return (this.literals != null);
+	}
+
+	@Override
+	public String toString() {
+		return this.messageFormat.toPattern();
+	}
+
+
+	/**
+	 * Split the given pattern (in the normalized form returned by
+	 * {@link MessageFormat#toPattern()}) into literal text segments and
+	 * argument indexes, following the quoting rules of MessageFormat.
+	 * @return {@code true} if successfully parsed, {@code false} if not supported
+	 */
+	private static boolean parsePattern(String pattern, List<String> literals, List<Integer> argumentIndexes) {
+		StringBuilder literal = new StringBuilder();
+		boolean inQuote = false;
+		int i = 0;
+		while (i < pattern.length()) {
+			char ch = pattern.charAt(i);
+			if (ch == '\'') {
+				if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+					literal.append('\'');
+					i++;
+				}
+				else {
+					inQuote = !inQuote;
+				}
+			}
+			else if (ch == '{' && !inQuote) {
+				int end = findArgumentEnd(pattern, i + 1);
+				if (end == -1) {
+					return false;
+				}
+				String argument = pattern.substring(i + 1, end);
+				int separator = argument.indexOf(',');
+				try {
+					argumentIndexes.add(Integer.parseInt(separator != -1 ? argument.substring(0, separator) : argument));
+				}
+				catch (NumberFormatException ex) {
+					return false;
+				}
+				literals.add(literal.toString());
+				literal.setLength(0);
+				i = end;
+			}
+			else {
+				literal.append(ch);
+			}
+			i++;
+		}
+		literals.add(literal.toString());
+		return true;
+	}
+
+	/**
+	 * Find the closing brace for the argument starting at the given index,
+	 * skipping nested braces and quoted sections within the format style.
+	 */
+	private static int findArgumentEnd(String pattern, int start) {
+		boolean inQuote = false;
+		int braceDepth = 0;
+		for (int i = start; i < pattern.length(); i++) {
+			char ch = pattern.charAt(i);
+			if (inQuote) {
+				if (ch == '\'') {
+					inQuote = false;
+				}
+			}
+			else if (ch == '\'') {
+				inQuote = true;
+			}
+			else if (ch == '{') {
+				braceDepth++;
+			}
+			else if (ch == '}') {
+				if (braceDepth == 0) {
+					return i;
+				}
+				braceDepth--;
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Lock-free single-slot pool for a non-thread-safe {@link Format}:
+	 * an uncontended caller reuses the pooled instance, whereas concurrent
+	 * callers format with a copy of the original format.
+	 */
+	private static final class FormatPool {
+
+		private final Format prototype;
+
+		private final AtomicReference<Format> available;
+
+		public FormatPool(Format format) {
+			// Private copy, independent from the original MessageFormat
+			this.prototype = (Format) format.clone();
+			this.available = new AtomicReference<>((Format) format.clone());
+		}
+
+		public String format(Object arg) {
+			Format format = this.available.getAndSet(null);
+			if (format == null) {
+				format = (Format) this.prototype.clone();
+			}
+			try {
+				return format.format(arg);
+			}
+			finally {
+				this.available.lazySet(format);
+			}
+		}
+	}
+
+}
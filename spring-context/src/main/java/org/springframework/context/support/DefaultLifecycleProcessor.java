@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,8 +25,16 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -46,6 +54,11 @@ import org.springframework.util.Assert;
 /**
  * Default implementation of the {@link LifecycleProcessor} strategy.
  *
+ * <p>Beans within the same phase are started and stopped one after another
+ * by default. With a {@link #setTaskExecutor task executor}, all beans within
+ * a phase are started and stopped concurrently instead, with each phase
+ * still completing before the next phase begins.
+ *
  * @author Mark Fisher
  * @author Juergen Hoeller
  * @since 3.0
@@ -56,6 +69,11 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 
 	private volatile long timeoutPerShutdownPhase = 30000;
 
+	private volatile long timeoutPerBeanStartup = 30000;
+
+	@Nullable
+	private volatile Executor taskExecutor;
+
 	private volatile boolean running;
 
 	@Nullable
@@ -71,6 +89,36 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 		this.timeoutPerShutdownPhase = timeoutPerShutdownPhase;
 	}
 
+	/**
+	 * Specify the maximum time allotted in milliseconds for the startup of any
+	 * bean, measured from the invocation of its own start method. Only applies
+	 * to concurrent startup on a {@link #setTaskExecutor task executor}: a bean
+	 * that does not complete its start procedure in time fails the startup.
+	 * <p>Once the startup has failed, no further beans get started, and the
+	 * beans in the middle of their start procedure are awaited (up to their
+	 * timeout) before the failure gets propagated.
+	 * <p>The default value is 30 seconds.
+	 * @since 5.2
+	 */
+	public void setTimeoutPerBeanStartup(long timeoutPerBeanStartup) {
+		this.timeoutPerBeanStartup = timeoutPerBeanStartup;
+	}
+
+	/**
+	 * Set a task executor for starting and stopping all beans within a phase
+	 * concurrently, e.g. a {@link org.springframework.core.task.SimpleAsyncTaskExecutor}
+	 * or a thread pool.
+	 * <p>Default is {@code null}, starting and stopping the beans within a phase
+	 * one after another in the calling thread. Phases are processed in order
+	 * either way, and a bean declared as a dependency of another bean is always
+	 * started before (and stopped after) the dependent bean.
+	 * @since 5.2
+	 * @see #setTimeoutPerBeanStartup
+	 */
+	public void setTaskExecutor(@Nullable Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) {
 		if (!(beanFactory instanceof ConfigurableListableBeanFactory)) {
@@ -138,14 +186,16 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 	// Internal helpers
 
 	private void startBeans(boolean autoStartupOnly) {
-		Map<String, Lifecycle> lifecycleBeans = getLifecycleBeans();
+		ConcurrentInvocations invocations = createConcurrentInvocations();
+		Map<String, Lifecycle> lifecycleBeans = getLifecycleBeans(invocations != null);
 		Map<Integer, LifecycleGroup> phases = new HashMap<>();
 		lifecycleBeans.forEach((beanName, bean) -> {
 			if (!autoStartupOnly || (bean instanceof SmartLifecycle && ((SmartLifecycle) bean).isAutoStartup())) {
 				int phase = getPhase(bean);
 				LifecycleGroup group = phases.get(phase);
 				if (group == null) {
-					group = new LifecycleGroup(phase, this.timeoutPerShutdownPhase, lifecycleBeans, autoStartupOnly);
+					group = new LifecycleGroup(phase, this.timeoutPerShutdownPhase,
+							lifecycleBeans, autoStartupOnly, invocations);
 					phases.put(phase, group);
 				}
 				group.add(beanName, bean);
@@ -165,40 +215,80 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 	 * making sure that any beans that it depends on are started first.
 	 * @param lifecycleBeans a Map with bean name as key and Lifecycle instance as value
 	 * @param beanName the name of the bean to start
+	 * @param invocations the tracker for concurrent startup, if any
 	 */
-	private void doStart(Map<String, ? extends Lifecycle> lifecycleBeans, String beanName, boolean autoStartupOnly) {
-		Lifecycle bean = lifecycleBeans.remove(beanName);
-		if (bean != null && bean != this) {
-			String[] dependenciesForBean = getBeanFactory().getDependenciesForBean(beanName);
-			for (String dependency : dependenciesForBean) {
-				doStart(lifecycleBeans, dependency, autoStartupOnly);
-			}
-			if (!bean.isRunning() &&
-					(!autoStartupOnly || !(bean instanceof SmartLifecycle) || ((SmartLifecycle) bean).isAutoStartup())) {
-				if (logger.isTraceEnabled()) {
-					logger.trace("Starting bean '" + beanName + "' of type [" + bean.getClass().getName() + "]");
-				}
-				try {
-					bean.start();
-				}
-				catch (Throwable ex) {
-					throw new ApplicationContextException("Failed to start bean '" + beanName + "'", ex);
+	private void doStart(Map<String, ? extends Lifecycle> lifecycleBeans, String beanName, boolean autoStartupOnly,
+			@Nullable ConcurrentInvocations invocations) {
+
+		CompletableFuture<Void> future = null;
+		if (invocations != null) {
+			future = invocations.claim(beanName);
+			if (future == null) {
+				// Started by another thread already
+				return;
+			}
+		}
+		try {
+			Lifecycle bean = lifecycleBeans.remove(beanName);
+			if (bean != null && bean != this) {
+				String[] dependenciesForBean = getBeanFactory().getDependenciesForBean(beanName);
+				for (String dependency : dependenciesForBean) {
+					doStart(lifecycleBeans, dependency, autoStartupOnly, invocations);
 				}
-				if (logger.isDebugEnabled()) {
-					logger.debug("Successfully started bean '" + beanName + "'");
+				if (!bean.isRunning() && (invocations == null || invocations.failure == null) &&
+						(!autoStartupOnly || !(bean instanceof SmartLifecycle) || ((SmartLifecycle) bean).isAutoStartup())) {
+					if (logger.isTraceEnabled()) {
+						logger.trace("Starting bean '" + beanName + "' of type [" + bean.getClass().getName() + "]");
+					}
+					long startTime = System.currentTimeMillis();
+					if (invocations != null) {
+						invocations.startTimes.put(beanName, startTime);
+					}
+					try {
+						bean.start();
+					}
+					catch (Throwable ex) {
+						throw new ApplicationContextException("Failed to start bean '" + beanName + "'", ex);
+					}
+					finally {
+						if (invocations != null) {
+							invocations.startTimes.remove(beanName);
+						}
+					}
+					long duration = System.currentTimeMillis() - startTime;
+					if (invocations != null) {
+						invocations.durations.put(beanName, duration);
+					}
+					if (logger.isDebugEnabled()) {
+						logger.debug("Successfully started bean '" + beanName + "' in " + duration + " ms");
+					}
 				}
 			}
+			if (future != null) {
+				future.complete(null);
+			}
+		}
+		catch (RuntimeException ex) {
+			if (future != null) {
+				future.completeExceptionally(ex);
+			}
+			if (invocations != null) {
+				invocations.cancel(ex);
+			}
+			throw ex;
 		}
 	}
 
 	private void stopBeans() {
-		Map<String, Lifecycle> lifecycleBeans = getLifecycleBeans();
+		ConcurrentInvocations invocations = createConcurrentInvocations();
+		Map<String, Lifecycle> lifecycleBeans = getLifecycleBeans(invocations != null);
 		Map<Integer, LifecycleGroup> phases = new HashMap<>();
 		lifecycleBeans.forEach((beanName, bean) -> {
 			int shutdownPhase = getPhase(bean);
 			LifecycleGroup group = phases.get(shutdownPhase);
 			if (group == null) {
-				group = new LifecycleGroup(shutdownPhase, this.timeoutPerShutdownPhase, lifecycleBeans, false);
+				group = new LifecycleGroup(shutdownPhase, this.timeoutPerShutdownPhase,
+						lifecycleBeans, false, invocations);
 				phases.put(shutdownPhase, group);
 			}
 			group.add(beanName, bean);
@@ -217,52 +307,69 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 	 * making sure that any beans that depends on it are stopped first.
 	 * @param lifecycleBeans a Map with bean name as key and Lifecycle instance as value
 	 * @param beanName the name of the bean to stop
+	 * @param invocations the tracker for concurrent shutdown, if any
 	 */
 	private void doStop(Map<String, ? extends Lifecycle> lifecycleBeans, final String beanName,
-			final CountDownLatch latch, final Set<String> countDownBeanNames) {
-
-		Lifecycle bean = lifecycleBeans.remove(beanName);
-		if (bean != null) {
-			String[] dependentBeans = getBeanFactory().getDependentBeans(beanName);
-			for (String dependentBean : dependentBeans) {
-				doStop(lifecycleBeans, dependentBean, latch, countDownBeanNames);
+			final CountDownLatch latch, final Set<String> countDownBeanNames,
+			@Nullable ConcurrentInvocations invocations) {
+
+		CompletableFuture<Void> future = null;
+		if (invocations != null) {
+			future = invocations.claim(beanName);
+			if (future == null) {
+				// Stopped by another thread already
+				return;
 			}
-			try {
-				if (bean.isRunning()) {
-					if (bean instanceof SmartLifecycle) {
-						if (logger.isTraceEnabled()) {
-							logger.trace("Asking bean '" + beanName + "' of type [" +
-									bean.getClass().getName() + "] to stop");
+		}
+		try {
+			Lifecycle bean = lifecycleBeans.remove(beanName);
+			if (bean != null) {
+				String[] dependentBeans = getBeanFactory().getDependentBeans(beanName);
+				for (String dependentBean : dependentBeans) {
+					doStop(lifecycleBeans, dependentBean, latch, countDownBeanNames, invocations);
+				}
+				try {
+					if (bean.isRunning()) {
+						if (bean instanceof SmartLifecycle) {
+							if (logger.isTraceEnabled()) {
+								logger.trace("Asking bean '" + beanName + "' of type [" +
+										bean.getClass().getName() + "] to stop");
+							}
+							countDownBeanNames.add(beanName);
+							((SmartLifecycle) bean).stop(() -> {
+								latch.countDown();
+								countDownBeanNames.remove(beanName);
+								if (logger.isDebugEnabled()) {
+									logger.debug("Bean '" + beanName + "' completed its stop procedure");
+								}
+							});
 						}
-						countDownBeanNames.add(beanName);
-						((SmartLifecycle) bean).stop(() -> {
-							latch.countDown();
-							countDownBeanNames.remove(beanName);
+						else {
+							if (logger.isTraceEnabled()) {
+								logger.trace("Stopping bean '" + beanName + "' of type [" +
+										bean.getClass().getName() + "]");
+							}
+							bean.stop();
 							if (logger.isDebugEnabled()) {
-								logger.debug("Bean '" + beanName + "' completed its stop procedure");
+								logger.debug("Successfully stopped bean '" + beanName + "'");
 							}
-						});
-					}
-					else {
-						if (logger.isTraceEnabled()) {
-							logger.trace("Stopping bean '" + beanName + "' of type [" +
-									bean.getClass().getName() + "]");
-						}
-						bean.stop();
-						if (logger.isDebugEnabled()) {
-							logger.debug("Successfully stopped bean '" + beanName + "'");
 						}
 					}
+					else if (bean instanceof SmartLifecycle) {
+						// Don't wait for beans that aren't running...
+						latch.countDown();
+					}
 				}
-				else if (bean instanceof SmartLifecycle) {
-					// Don't wait for beans that aren't running...
-					latch.countDown();
+				catch (Throwable ex) {
+					if (logger.isWarnEnabled()) {
+						logger.warn("Failed to stop bean '" + beanName + "'", ex);
+					}
 				}
 			}
-			catch (Throwable ex) {
-				if (logger.isWarnEnabled()) {
-					logger.warn("Failed to stop bean '" + beanName + "'", ex);
-				}
+		}
+		finally {
+			if (future != null) {
+				future.complete(null);
 			}
 		}
 	}
@@ -295,6 +402,21 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 		return beans;
 	}
 
+	/**
+	 * Retrieve all applicable Lifecycle beans, in a thread-safe Map if the
+	 * beans are going to be started or stopped concurrently.
+	 */
+	private Map<String, Lifecycle> getLifecycleBeans(boolean concurrent) {
+		Map<String, Lifecycle> beans = getLifecycleBeans();
+		return (concurrent ? new ConcurrentHashMap<>(beans) : beans);
+	}
+
+	@Nullable
+	private ConcurrentInvocations createConcurrentInvocations() {
+		Executor taskExecutor = this.taskExecutor;
+		return (taskExecutor != null ? new ConcurrentInvocations(taskExecutor) : null);
+	}
+
 	private boolean matchesBeanType(Class<?> targetType, String beanName, BeanFactory beanFactory) {
 		Class<?> beanType = beanFactory.getType(beanName);
 		return (beanType != null && targetType.isAssignableFrom(beanType));
@@ -328,17 +450,21 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 
 		private final boolean autoStartupOnly;
 
+		@Nullable
+		private final ConcurrentInvocations invocations;
+
 		private final List<LifecycleGroupMember> members = new ArrayList<>();
 
 		private int smartMemberCount;
 
-		public LifecycleGroup(
-				int phase, long timeout, Map<String, ? extends Lifecycle> lifecycleBeans, boolean autoStartupOnly) {
+		public LifecycleGroup(int phase, long timeout, Map<String, ? extends Lifecycle> lifecycleBeans,
+				boolean autoStartupOnly, @Nullable ConcurrentInvocations invocations) {
 
 			this.phase = phase;
 			this.timeout = timeout;
 			this.lifecycleBeans = lifecycleBeans;
 			this.autoStartupOnly = autoStartupOnly;
+			this.invocations = invocations;
 		}
 
 		public void add(String name, Lifecycle bean) {
@@ -356,9 +482,94 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 				logger.debug("Starting beans in phase " + this.phase);
 			}
 			Collections.sort(this.members);
+			ConcurrentInvocations invocations = this.invocations;
+			if (invocations == null) {
+				for (LifecycleGroupMember member : this.members) {
+					doStart(this.lifecycleBeans, member.name, this.autoStartupOnly, null);
+				}
+				return;
+			}
+
+			long startTime = System.currentTimeMillis();
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
 			for (LifecycleGroupMember member : this.members) {
-				doStart(this.lifecycleBeans, member.name, this.autoStartupOnly);
+				futures.add(invocations.submit(() ->
+						doStart(this.lifecycleBeans, member.name, this.autoStartupOnly, invocations)));
+			}
+			CompletableFuture<Void> tasks = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+			try {
+				Set<String> overdueBeans = awaitStartup(tasks, invocations, true);
+				if (!overdueBeans.isEmpty()) {
+					invocations.cancel(new ApplicationContextException("Failed to start bean '" +
+							overdueBeans.iterator().next() + "' with phase value " + this.phase +
+							" within timeout of " + timeoutPerBeanStartup));
+				}
+				RuntimeException failure = invocations.failure;
+				if (failure != null) {
+					// Let the beans in the middle of their start procedure complete first
+					awaitStartup(tasks, invocations, false);
+					throw failure;
+				}
 			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				ApplicationContextException failure =
+						new ApplicationContextException("Interrupted while starting beans in phase " + this.phase, ex);
+				invocations.cancel(failure);
+				throw failure;
+			}
+			tasks.join();
+			if (logger.isDebugEnabled()) {
+				Map<String, String> durations = new LinkedHashMap<>();
+				for (LifecycleGroupMember member : this.members) {
+					Long duration = invocations.durations.get(member.name);
+					if (duration != null) {
+						durations.put(member.name, duration + " ms");
+					}
+				}
+				logger.debug("Started beans in phase " + this.phase + " concurrently within " +
+						(System.currentTimeMillis() - startTime) + " ms: " + durations);
+			}
+		}
+
+		/**
+		 * Wait for the given startup tasks to complete, allowing each bean the
+		 * configured timeout from the invocation of its own start method.
+		 * @param tasks the startup tasks for this phase
+		 * @param invocations the tracker for concurrent startup
+		 * @param failFast whether to return as soon as a bean has exceeded its
+		 * timeout, rather than awaiting all other beans in their start procedure
+		 * @return the names of the beans that exceeded their timeout (if any)
+		 */
+		private Set<String> awaitStartup(CompletableFuture<Void> tasks, ConcurrentInvocations invocations,
+				boolean failFast) throws InterruptedException {
+
+			Set<String> overdueBeans = new LinkedHashSet<>();
+			while (!tasks.isDone()) {
+				long now = System.currentTimeMillis();
+				long waitTime = timeoutPerBeanStartup;
+				boolean inProgress = false;
+				for (Map.Entry<String, Long> entry : invocations.startTimes.entrySet()) {
+					long remaining = entry.getValue() + timeoutPerBeanStartup - now;
+					if (remaining <= 0) {
+						overdueBeans.add(entry.getKey());
+					}
+					else {
+						waitTime = Math.min(waitTime, remaining);
+						inProgress = true;
+					}
+				}
+				if (!overdueBeans.isEmpty() && (failFast || !inProgress)) {
+					break;
+				}
+				try {
+					tasks.get(Math.max(waitTime, 1), TimeUnit.MILLISECONDS);
+				}
+				catch (ExecutionException | TimeoutException ex) {
+					// Failures are recorded by doStart, timeouts get checked again
+				}
+			}
+			return overdueBeans;
 		}
 
 		public void stop() {
@@ -372,9 +583,18 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 			CountDownLatch latch = new CountDownLatch(this.smartMemberCount);
 			Set<String> countDownBeanNames = Collections.synchronizedSet(new LinkedHashSet<>());
 			Set<String> lifecycleBeanNames = new HashSet<>(this.lifecycleBeans.keySet());
+			ConcurrentInvocations invocations = this.invocations;
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
+			long deadline = System.currentTimeMillis() + this.timeout;
 			for (LifecycleGroupMember member : this.members) {
 				if (lifecycleBeanNames.contains(member.name)) {
-					doStop(this.lifecycleBeans, member.name, latch, countDownBeanNames);
+					if (invocations != null) {
+						futures.add(invocations.submit(() ->
+								doStop(this.lifecycleBeans, member.name, latch, countDownBeanNames, invocations)));
+					}
+					else {
+						doStop(this.lifecycleBeans, member.name, latch, countDownBeanNames, null);
+					}
 				}
 				else if (member.bean instanceof SmartLifecycle) {
 					// Already removed: must have been a dependent bean from another phase
@@ -382,7 +602,16 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 				}
 			}
 			try {
-				latch.await(this.timeout, TimeUnit.MILLISECONDS);
+				if (!futures.isEmpty()) {
+					try {
+						CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(
+								Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+					}
+					catch (ExecutionException | TimeoutException ex) {
+						// Failures are logged by doStop, timeouts get reported below
+					}
+				}
+				latch.await(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
 				if (latch.getCount() > 0 && !countDownBeanNames.isEmpty() && logger.isInfoEnabled()) {
 					logger.info("Failed to shut down " + countDownBeanNames.size() + " bean" +
 							(countDownBeanNames.size() > 1 ? "s" : "") + " with phase value " +
@@ -396,6 +625,117 @@ public class DefaultLifecycleProcessor implements LifecycleProcessor, BeanFactor
 	}
 
 
+	/**
+	 * Tracks the beans getting started or stopped concurrently on the task
+	 * executor, so that each bean is processed by exactly one thread, with
+	 * any other threads waiting for it to complete (e.g. for a dependency
+	 * to be started before its dependent bean).
+	 */
+	private static class ConcurrentInvocations {
+
+		private final Executor executor;
+
+		private final ConcurrentMap<String, BeanFuture> futures = new ConcurrentHashMap<>();
+
+		// The BeanFuture that each waiting thread is waiting for, for deadlock detection
+		private final Map<Thread, BeanFuture> waitingThreads = new HashMap<>();
+
+		// Start durations per bean name
+		final Map<String, Long> durations = new ConcurrentHashMap<>();
+
+		// Start times per bean name, for beans in the middle of their start procedure
+		final Map<String, Long> startTimes = new ConcurrentHashMap<>();
+
+		// The first startup failure, preventing any further beans from getting started
+		@Nullable
+		volatile RuntimeException failure;
+
+		public ConcurrentInvocations(Executor executor) {
+			this.executor = executor;
+		}
+
+		public CompletableFuture<Void> submit(Runnable task) {
+			try {
+				return CompletableFuture.runAsync(task, this.executor);
+			}
+			catch (RejectedExecutionException ex) {
+				// Not accepted by the executor: process it in the calling thread
+				CompletableFuture<Void> future = new CompletableFuture<>();
+				try {
+					task.run();
+					future.complete(null);
+				}
+				catch (RuntimeException taskEx) {
+					future.completeExceptionally(taskEx);
+				}
+				return future;
+			}
+		}
+
+		/**
+		 * Record the given startup failure, unless another one has been recorded
+		 * already, so that no further beans get started.
+		 */
+		public synchronized void cancel(RuntimeException failure) {
+			if (this.failure == null) {
+				this.failure = failure;
+			}
+		}
+
+		/**
+		 * Claim the given bean for processing in the current thread.
+		 * @return the future to complete once the bean has been processed,
+		 * or {@code null} if already processed by another thread (or in the
+		 * process of getting processed by the current thread, for circular
+		 * dependencies)
+		 */
+		@Nullable
+		public CompletableFuture<Void> claim(String beanName) {
+			BeanFuture future = new BeanFuture();
+			BeanFuture existing = this.futures.putIfAbsent(beanName, future);
+			if (existing == null) {
+				return future;
+			}
+			Thread currentThread = Thread.currentThread();
+			synchronized (this.waitingThreads) {
+				BeanFuture waitFor = existing;
+				while (waitFor != null) {
+					if (waitFor.thread == currentThread) {
+						// Circular dependency: do not wait for ourselves
+						return null;
+					}
+					waitFor = this.waitingThreads.get(waitFor.thread);
+				}
+				this.waitingThreads.put(currentThread, existing);
+			}
+			try {
+				existing.join();
+			}
+			catch (CompletionException ex) {
+				if (ex.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) ex.getCause();
+				}
+				throw ex;
+			}
+			finally {
+				synchronized (this.waitingThreads) {
+					this.waitingThreads.remove(currentThread);
+				}
+			}
+			return null;
+		}
+	}
+
+
+	/**
+	 * Future for a bean processed by a specific thread.
+	 */
+	private static class BeanFuture extends CompletableFuture<Void> {
+
+		private final Thread thread = Thread.currentThread();
+	}
+
+
 	/**
 	 * Adapts the Comparable interface onto the lifecycle phase model.
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,16 +19,26 @@ package org.springframework.context.support;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
@@ -36,6 +46,7 @@ import org.springframework.core.io.ResourceLoader;
 import org.springframework.lang.Nullable;
 import org.springframework.util.DefaultPropertiesPersister;
 import org.springframework.util.PropertiesPersister;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -70,11 +81,16 @@ import org.springframework.util.StringUtils;
  * simply getting overridden with the ApplicationContext's resource loader
  * if running in a context. It does not have any other specific dependencies.
  *
+ * <p>As an alternative to timestamp polling via {@link #setCacheSeconds "cacheSeconds"},
+ * bundle files in the file system can be watched for changes through a
+ * {@link java.nio.file.WatchService}: see {@link #setWatchForChanges}.
+ *
  * <p>Thanks to Thomas Achleitner for providing the initial implementation of
  * this message source!
  *
  * @author Juergen Hoeller
  * @see #setCacheSeconds
+ * @see #setWatchForChanges
  * @see #setBasenames
  * @see #setDefaultEncoding
  * @see #setFileEncodings
@@ -86,7 +102,7 @@ import org.springframework.util.StringUtils;
  * @see java.util.ResourceBundle
  */
 public class ReloadableResourceBundleMessageSource extends AbstractResourceBasedMessageSource
-		implements ResourceLoaderAware {
+		implements ResourceLoaderAware, DisposableBean {
 
 	private static final String PROPERTIES_SUFFIX = ".properties";
 
@@ -98,6 +114,8 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 
 	private boolean concurrentRefresh = true;
 
+	private boolean watchForChanges = false;
+
 	private PropertiesPersister propertiesPersister = new DefaultPropertiesPersister();
 
 	private ResourceLoader resourceLoader = new DefaultResourceLoader();
@@ -111,6 +129,21 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 	// Cache to hold already loaded properties per filename
 	private final ConcurrentMap<Locale, PropertiesHolder> cachedMergedProperties = new ConcurrentHashMap<>();
 
+	// Watcher for bundle files in the file system (if watching for changes)
+	@Nullable
+	private BundleWatcher bundleWatcher;
+
+	private final Object bundleWatcherMonitor = new Object();
+
+	// Whether the WatchService could not be created, falling back to cacheSeconds
+	private volatile boolean watchServiceUnavailable = false;
+
+	// Whether messages with arguments may be formatted through the CompiledMessageFormat
+	// cache directly, i.e. unless resolveCode is overridden
+	private final boolean compiledFormatsApplicable =
+			!ReflectionUtils.isOverridden(getClass(), ReloadableResourceBundleMessageSource.class,
+					"resolveCode", String.class, Locale.class);
+
 
 	/**
 	 * Set per-file charsets to use for parsing properties files.
@@ -141,6 +174,36 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 		this.concurrentRefresh = concurrentRefresh;
 	}
 
+	/**
+	 * Specify whether to watch bundle files in the file system for changes,
+	 * reloading changed bundles in a background thread instead of checking
+	 * their last-modified timestamps on access.
+	 * <p>Default is "false". If switched to "true", bundle contents are cached
+	 * forever (as with a {@link #setCacheSeconds "cacheSeconds"} value of "-1",
+	 * overriding any other value), and a {@link java.nio.file.WatchService} is
+	 * used to detect changes in the directories of all loaded bundle files:
+	 * Only the affected bundles get reloaded and swapped into the cache,
+	 * so message lookups never access the file system or acquire a lock.
+	 * <p>Only applies to bundle files that can be resolved in the file system,
+	 * e.g. via a "file:" basename. Other resources (in particular in jar files)
+	 * are cached forever, as they cannot change at runtime. If no WatchService
+	 * can be created, the configured "cacheSeconds" value applies instead.
+	 * <p>The watcher thread will be stopped on {@link #destroy()}.
+	 * @since 5.2
+	 * @see #setCacheSeconds
+	 */
+	public void setWatchForChanges(boolean watchForChanges) {
+		this.watchForChanges = watchForChanges;
+	}
+
+	/**
+	 * Return whether to watch bundle files in the file system for changes.
+	 * @since 5.2
+	 */
+	public boolean isWatchForChanges() {
+		return this.watchForChanges;
+	}
+
 	/**
 	 * Set the PropertiesPersister to use for parsing properties files.
 	 * <p>The default is a DefaultPropertiesPersister.
@@ -172,7 +235,7 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 	 */
 	@Override
 	protected String resolveCodeWithoutArguments(String code, Locale locale) {
-		if (getCacheMillis() < 0) {
+		if (isCachingForever()) {
 			PropertiesHolder propHolder = getMergedProperties(locale);
 			String result = propHolder.getProperty(code);
 			if (result != null) {
@@ -194,6 +257,41 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 		return null;
 	}
 
+	/**
+	 * Resolves the given message code as key in the retrieved bundle files,
+	 * formatting it through a cached {@link CompiledMessageFormat} per message
+	 * code, without synchronizing on a shared MessageFormat instance.
+	 * <p>Falls back to {@link #resolveCode} if a subclass overrides it,
+	 * for such a customization to take effect.
+	 */
+	@Override
+	@Nullable
+	protected String resolveCodeWithArguments(String code, Object[] args, Locale locale) {
+		if (!this.compiledFormatsApplicable) {
+			return super.resolveCodeWithArguments(code, args, locale);
+		}
+		if (isCachingForever()) {
+			PropertiesHolder propHolder = getMergedProperties(locale);
+			CompiledMessageFormat result = propHolder.getCompiledMessageFormat(code, locale);
+			if (result != null) {
+				return result.format(args);
+			}
+		}
+		else {
+			for (String basename : getBasenameSet()) {
+				List<String> filenames = calculateAllFilenames(basename, locale);
+				for (String filename : filenames) {
+					PropertiesHolder propHolder = getProperties(filename);
+					CompiledMessageFormat result = propHolder.getCompiledMessageFormat(code, locale);
+					if (result != null) {
+						return result.format(args);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Resolves the given message code as key in the retrieved bundle files,
 	 * using a cached MessageFormat instance per message code.
@@ -201,7 +299,7 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 	@Override
 	@Nullable
 	protected MessageFormat resolveCode(String code, Locale locale) {
-		if (getCacheMillis() < 0) {
+		if (isCachingForever()) {
 			PropertiesHolder propHolder = getMergedProperties(locale);
 			MessageFormat result = propHolder.getMessageFormat(code, locale);
 			if (result != null) {
@@ -229,14 +327,27 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 	 * for a Locale, after merging all specified resource bundles.
 	 * Either fetches the holder from the cache or freshly loads it.
 	 * <p>Only used when caching resource bundle contents forever, i.e.
-	 * with cacheSeconds < 0. Therefore, merged properties are always
-	 * cached forever.
+	 * with cacheSeconds < 0 or when watching for changes. Therefore,
+	 * merged properties are always cached forever (or until replaced
+	 * after a watched bundle file has changed).
 	 */
 	protected PropertiesHolder getMergedProperties(Locale locale) {
 		PropertiesHolder mergedHolder = this.cachedMergedProperties.get(locale);
 		if (mergedHolder != null) {
 			return mergedHolder;
 		}
+		mergedHolder = mergeProperties(locale);
+		PropertiesHolder existing = this.cachedMergedProperties.putIfAbsent(locale, mergedHolder);
+		if (existing != null) {
+			mergedHolder = existing;
+		}
+		return mergedHolder;
+	}
+
+	/**
+	 * Merge the properties of all specified resource bundles for the given Locale.
+	 */
+	private PropertiesHolder mergeProperties(Locale locale) {
 		Properties mergedProps = newProperties();
 		long latestTimestamp = -1;
 		String[] basenames = StringUtils.toStringArray(getBasenameSet());
@@ -253,12 +364,7 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 				}
 			}
 		}
-		mergedHolder = new PropertiesHolder(mergedProps, latestTimestamp);
-		PropertiesHolder existing = this.cachedMergedProperties.putIfAbsent(locale, mergedHolder);
-		if (existing != null) {
-			mergedHolder = existing;
-		}
-		return mergedHolder;
+		return new PropertiesHolder(mergedProps, latestTimestamp);
 	}
 
 	/**
@@ -397,7 +503,8 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 	 * @param propHolder the current PropertiesHolder for the bundle
 	 */
 	protected PropertiesHolder refreshProperties(String filename, @Nullable PropertiesHolder propHolder) {
-		long refreshTimestamp = (getCacheMillis() < 0 ? -1 : System.currentTimeMillis());
+		boolean cachingForever = isCachingForever();
+		long refreshTimestamp = (cachingForever ? -1 : System.currentTimeMillis());
 
 		Resource resource = this.resourceLoader.getResource(filename + PROPERTIES_SUFFIX);
 		if (!resource.exists()) {
@@ -406,7 +513,7 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 
 		if (resource.exists()) {
 			long fileTimestamp = -1;
-			if (getCacheMillis() >= 0) {
+			if (!cachingForever) {
 				// Last-modified timestamp of file will just be read if caching with timeout.
 				try {
 					fileTimestamp = resource.lastModified();
@@ -450,9 +557,28 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 
 		propHolder.setRefreshTimestamp(refreshTimestamp);
 		this.cachedProperties.put(filename, propHolder);
+		if (isWatchingForChanges()) {
+			watchBundleFile(filename);
+		}
 		return propHolder;
 	}
 
+	/**
+	 * Return whether resource bundle contents are cached forever,
+	 * i.e. with cacheSeconds < 0 or when watching for changes.
+	 */
+	private boolean isCachingForever() {
+		return (isWatchingForChanges() || getCacheMillis() < 0);
+	}
+
+	/**
+	 * Return whether bundle files are watched for changes, i.e. whether
+	 * watching has been requested and a WatchService could be created.
+	 */
+	private boolean isWatchingForChanges() {
+		return (this.watchForChanges && !this.watchServiceUnavailable);
+	}
+
 	/**
 	 * Load the properties from the given resource.
 	 * @param resource the resource to load from
@@ -531,12 +657,168 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 	}
 
 
+	/**
+	 * Register the properties and XML files for the given bundle filename
+	 * with the bundle watcher, as far as resolvable in the file system.
+	 * @param filename the bundle filename (basename + Locale)
+	 */
+	private void watchBundleFile(String filename) {
+		BundleWatcher watcher;
+		synchronized (this.bundleWatcherMonitor) {
+			watcher = this.bundleWatcher;
+			if (watcher == null) {
+				try {
+					watcher = new BundleWatcher(FileSystems.getDefault().newWatchService());
+				}
+				catch (IOException | UnsupportedOperationException ex) {
+					logger.warn("Could not create WatchService - falling back to cacheSeconds behavior", ex);
+					this.watchServiceUnavailable = true;
+					// Drop the bundles which have been cached forever so far.
+					clearCache();
+					return;
+				}
+				this.bundleWatcher = watcher;
+				watcher.start();
+			}
+		}
+		for (String suffix : new String[] {PROPERTIES_SUFFIX, XML_SUFFIX}) {
+			try {
+				Path file = this.resourceLoader.getResource(filename + suffix).getFile().toPath();
+				watcher.register(file.toAbsolutePath().normalize(), filename);
+			}
+			catch (IOException | UnsupportedOperationException ex) {
+				// Not resolvable in the file system: cache it forever.
+				if (logger.isTraceEnabled()) {
+					logger.trace("Cannot watch [" + filename + suffix + "] for changes: " + ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reload the given bundle files after a change has been detected,
+	 * swapping the new PropertiesHolders into the cache and replacing
+	 * any merged properties which are currently cached.
+	 * @param filenames the bundle filenames (basename + Locale)
+	 */
+	private void reloadBundleFiles(Set<String> filenames) {
+		for (String filename : filenames) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Reloading properties for filename [" + filename + "] - file has been modified");
+			}
+			refreshProperties(filename, null);
+		}
+		for (Locale locale : this.cachedMergedProperties.keySet()) {
+			this.cachedMergedProperties.put(locale, mergeProperties(locale));
+		}
+	}
+
+	/**
+	 * Stop watching bundle files for changes, if applicable.
+	 * @since 5.2
+	 * @see #setWatchForChanges
+	 */
+	@Override
+	public void destroy() throws IOException {
+		BundleWatcher watcher;
+		synchronized (this.bundleWatcherMonitor) {
+			watcher = this.bundleWatcher;
+			this.bundleWatcher = null;
+		}
+		if (watcher != null) {
+			watcher.close();
+		}
+	}
+
+
 	@Override
 	public String toString() {
 		return getClass().getName() + ": basenames=" + getBasenameSet();
 	}
 
 
+	/**
+	 * Background watcher for the directories of loaded bundle files,
+	 * reloading the bundles for any files that have been changed.
+	 */
+	private class BundleWatcher implements Runnable {
+
+		private final WatchService watchService;
+
+		// Bundle filenames per watched file in the file system
+		private final Map<Path, String> watchedFiles = new ConcurrentHashMap<>();
+
+		// Watched directories, each registered once
+		private final Map<Path, WatchKey> watchedDirectories = new ConcurrentHashMap<>();
+
+		public BundleWatcher(WatchService watchService) {
+			this.watchService = watchService;
+		}
+
+		public void start() {
+			Thread thread = new Thread(this, "MessageSourceWatcher-" + getBasenameSet());
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		public void register(Path file, String filename) throws IOException {
+			if (this.watchedFiles.putIfAbsent(file, filename) != null) {
+				return;
+			}
+			Path directory = file.getParent();
+			if (directory != null && !this.watchedDirectories.containsKey(directory)) {
+				synchronized (this.watchedDirectories) {
+					if (!this.watchedDirectories.containsKey(directory)) {
+						WatchKey key = directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+								StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+						this.watchedDirectories.put(directory, key);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					WatchKey key = this.watchService.take();
+					Path directory = (Path) key.watchable();
+					Set<String> changedFilenames = new LinkedHashSet<>();
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							changedFilenames.addAll(this.watchedFiles.values());
+						}
+						else {
+							String filename = this.watchedFiles.get(directory.resolve((Path) event.context()));
+							if (filename != null) {
+								changedFilenames.add(filename);
+							}
+						}
+					}
+					if (!changedFilenames.isEmpty()) {
+						try {
+							reloadBundleFiles(changedFilenames);
+						}
+						catch (RuntimeException ex) {
+							logger.warn("Failed to reload bundle files " + changedFilenames, ex);
+						}
+					}
+					if (!key.reset()) {
+						this.watchedDirectories.remove(directory);
+					}
+				}
+			}
+			catch (InterruptedException | ClosedWatchServiceException ex) {
+				// Watcher closed: stop watching.
+			}
+		}
+
+		public void close() throws IOException {
+			this.watchService.close();
+		}
+	}
+
+
 	/**
 	 * PropertiesHolder for caching.
 	 * Stores the last-modified timestamp of the source file for efficient
@@ -555,7 +837,7 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 		private final ReentrantLock refreshLock = new ReentrantLock();
 
 		/** Cache to hold already generated MessageFormats per message code. */
-		private final ConcurrentMap<String, Map<Locale, MessageFormat>> cachedMessageFormats =
+		private final ConcurrentMap<String, Map<Locale, CompiledMessageFormat>> cachedMessageFormats =
 				new ConcurrentHashMap<>();
 
 		public PropertiesHolder() {
@@ -595,12 +877,23 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 
 		@Nullable
 		public MessageFormat getMessageFormat(String code, Locale locale) {
+			CompiledMessageFormat result = getCompiledMessageFormat(code, locale);
+			return (result != null ? result.getMessageFormat() : null);
+		}
+
+		/**
+		 * Return a thread-safe {@link CompiledMessageFormat} for the given code,
+		 * sharing its cache with {@link #getMessageFormat}.
+		 * @since 5.2
+		 */
+		@Nullable
+		public CompiledMessageFormat getCompiledMessageFormat(String code, Locale locale) {
 			if (this.properties == null) {
 				return null;
 			}
-			Map<Locale, MessageFormat> localeMap = this.cachedMessageFormats.get(code);
+			Map<Locale, CompiledMessageFormat> localeMap = this.cachedMessageFormats.get(code);
 			if (localeMap != null) {
-				MessageFormat result = localeMap.get(locale);
+				CompiledMessageFormat result = localeMap.get(locale);
 				if (result != null) {
 					return result;
 				}
@@ -609,12 +902,12 @@ public class ReloadableResourceBundleMessageSource extends AbstractResourceBased
 			if (msg != null) {
 				if (localeMap == null) {
 					localeMap = new ConcurrentHashMap<>();
-					Map<Locale, MessageFormat> existing = this.cachedMessageFormats.putIfAbsent(code, localeMap);
+					Map<Locale, CompiledMessageFormat> existing = this.cachedMessageFormats.putIfAbsent(code, localeMap);
 					if (existing != null) {
 						localeMap = existing;
 					}
 				}
-				MessageFormat result = createMessageFormat(msg, locale);
+				CompiledMessageFormat result = new CompiledMessageFormat(createMessageFormat(msg, locale));
 				localeMap.put(locale, result);
 				return result;
 			}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -38,6 +38,7 @@ import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * {@link org.springframework.context.MessageSource} implementation that
@@ -98,16 +99,24 @@ public class ResourceBundleMessageSource extends AbstractResourceBasedMessageSou
 	 * Cache to hold already generated MessageFormats.
 	 * This Map is keyed with the ResourceBundle, which holds a Map that is
 	 * keyed with the message code, which in turn holds a Map that is keyed
-	 * with the Locale and holds the MessageFormat values. This allows for
+	 * with the Locale and holds the CompiledMessageFormat values. This allows for
 	 * very efficient hash lookups without concatenated keys.
 	 * @see #getMessageFormat
 	 */
-	private final Map<ResourceBundle, Map<String, Map<Locale, MessageFormat>>> cachedBundleMessageFormats =
+	private final Map<ResourceBundle, Map<String, Map<Locale, CompiledMessageFormat>>> cachedBundleMessageFormats =
 			new ConcurrentHashMap<>();
 
 	@Nullable
 	private volatile MessageSourceControl control = new MessageSourceControl();
 
+	// Whether messages with arguments may be formatted through the CompiledMessageFormat
+	// cache directly, i.e. unless resolveCode or getMessageFormat are overridden
+	private final boolean compiledFormatsApplicable =
+			!ReflectionUtils.isOverridden(getClass(), ResourceBundleMessageSource.class,
+					"resolveCode", String.class, Locale.class) &&
+			!ReflectionUtils.isOverridden(getClass(), ResourceBundleMessageSource.class,
+					"getMessageFormat", ResourceBundle.class, String.class, Locale.class);
+
 
 	public ResourceBundleMessageSource() {
 		setDefaultEncoding("ISO-8859-1");
@@ -161,6 +170,32 @@ public class ResourceBundleMessageSource extends AbstractResourceBasedMessageSou
 		return null;
 	}
 
+	/**
+	 * Resolves the given message code as key in the registered resource bundles,
+	 * formatting it through a cached {@link CompiledMessageFormat} per message
+	 * code, without synchronizing on a shared MessageFormat instance.
+	 * <p>Falls back to {@link #resolveCode} if a subclass overrides it or
+	 * {@link #getMessageFormat}, for such customizations to take effect.
+	 */
+	@Override
+	@Nullable
+	protected String resolveCodeWithArguments(String code, Object[] args, Locale locale) {
+		if (!this.compiledFormatsApplicable) {
+			return super.resolveCodeWithArguments(code, args, locale);
+		}
+		Set<String> basenames = getBasenameSet();
+		for (String basename : basenames) {
+			ResourceBundle bundle = getResourceBundle(basename, locale);
+			if (bundle != null) {
+				CompiledMessageFormat messageFormat = getCompiledMessageFormat(bundle, code, locale);
+				if (messageFormat != null) {
+					return messageFormat.format(args);
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Resolves the given message code as key in the registered resource bundles,
 	 * using a cached MessageFormat instance per message code.
@@ -320,12 +355,32 @@ public class ResourceBundleMessageSource extends AbstractResourceBasedMessageSou
 	protected MessageFormat getMessageFormat(ResourceBundle bundle, String code, Locale locale)
 			throws MissingResourceException {
 
-		Map<String, Map<Locale, MessageFormat>> codeMap = this.cachedBundleMessageFormats.get(bundle);
-		Map<Locale, MessageFormat> localeMap = null;
+		CompiledMessageFormat result = getCompiledMessageFormat(bundle, code, locale);
+		return (result != null ? result.getMessageFormat() : null);
+	}
+
+	/**
+	 * Return a thread-safe {@link CompiledMessageFormat} for the given bundle and
+	 * code, fetching already generated formats from the cache (which is shared
+	 * with {@link #getMessageFormat}).
+	 * @param bundle the ResourceBundle to work on
+	 * @param code the message code to retrieve
+	 * @param locale the Locale to use to build the MessageFormat
+	 * @return the resulting CompiledMessageFormat, or {@code null} if no message
+	 * defined for the given code
+	 * @throws MissingResourceException if thrown by the ResourceBundle
+	 * @since 5.2
+	 */
+	@Nullable
+	protected CompiledMessageFormat getCompiledMessageFormat(ResourceBundle bundle, String code, Locale locale)
+			throws MissingResourceException {
+
+		Map<String, Map<Locale, CompiledMessageFormat>> codeMap = this.cachedBundleMessageFormats.get(bundle);
+		Map<Locale, CompiledMessageFormat> localeMap = null;
 		if (codeMap != null) {
 			localeMap = codeMap.get(code);
 			if (localeMap != null) {
-				MessageFormat result = localeMap.get(locale);
+				CompiledMessageFormat result = localeMap.get(locale);
 				if (result != null) {
 					return result;
 				}
@@ -336,7 +391,7 @@ public class ResourceBundleMessageSource extends AbstractResourceBasedMessageSou
 		if (msg != null) {
 			if (codeMap == null) {
 				codeMap = new ConcurrentHashMap<>();
-				Map<String, Map<Locale, MessageFormat>> existing =
+				Map<String, Map<Locale, CompiledMessageFormat>> existing =
 						this.cachedBundleMessageFormats.putIfAbsent(bundle, codeMap);
 				if (existing != null) {
 					codeMap = existing;
@@ -344,12 +399,12 @@ public class ResourceBundleMessageSource extends AbstractResourceBasedMessageSou
 			}
 			if (localeMap == null) {
 				localeMap = new ConcurrentHashMap<>();
-				Map<Locale, MessageFormat> existing = codeMap.putIfAbsent(code, localeMap);
+				Map<Locale, CompiledMessageFormat> existing = codeMap.putIfAbsent(code, localeMap);
 				if (existing != null) {
 					localeMap = existing;
 				}
 			}
-			MessageFormat result = createMessageFormat(msg, locale);
+			CompiledMessageFormat result = new CompiledMessageFormat(createMessageFormat(msg, locale));
 			localeMap.put(locale, result);
 			return result;
 		}
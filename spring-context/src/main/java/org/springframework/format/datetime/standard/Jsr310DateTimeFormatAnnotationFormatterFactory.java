@@ -26,13 +26,16 @@ import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAccessor;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.context.support.EmbeddedValueResolutionSupport;
 import org.springframework.format.AnnotationFormatterFactory;
 import org.springframework.format.Parser;
 import org.springframework.format.Printer;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.util.StringUtils;
 
 /**
@@ -61,6 +64,8 @@ public class Jsr310DateTimeFormatAnnotationFormatterFactory extends EmbeddedValu
 	}
 
 
+	private final Map<FormatterKey, DateTimeFormatter> formatterCache = new ConcurrentHashMap<>(64);
+
 	@Override
 	public final Set<Class<?>> getFieldTypes() {
 		return FIELD_TYPES;
@@ -68,7 +73,7 @@ public class Jsr310DateTimeFormatAnnotationFormatterFactory extends EmbeddedValu
 
 	@Override
 	public Printer<?> getPrinter(DateTimeFormat annotation, Class<?> fieldType) {
-		DateTimeFormatter formatter = getFormatter(annotation, fieldType);
+		DateTimeFormatter formatter = getCachedFormatter(annotation, fieldType);
 
 		// Efficient ISO_LOCAL_* variants for printing since they are twice as fast...
 		if (formatter == DateTimeFormatter.ISO_DATE) {
@@ -93,10 +98,28 @@ public class Jsr310DateTimeFormatAnnotationFormatterFactory extends EmbeddedValu
 	@Override
 	@SuppressWarnings("unchecked")
 	public Parser<?> getParser(DateTimeFormat annotation, Class<?> fieldType) {
-		DateTimeFormatter formatter = getFormatter(annotation, fieldType);
+		DateTimeFormatter formatter = getCachedFormatter(annotation, fieldType);
 		return new TemporalAccessorParser((Class<? extends TemporalAccessor>) fieldType, formatter);
 	}
 
+	/**
+	 * Obtain the {@link DateTimeFormatter} for the given annotation and field type,
+	 * building it through {@link #getFormatter} on first access only: The immutable
+	 * formatter is shared by the printer and the parser for equivalent declarations.
+	 */
+	private DateTimeFormatter getCachedFormatter(DateTimeFormat annotation, Class<?> fieldType) {
+		FormatterKey key = new FormatterKey(annotation, fieldType);
+		DateTimeFormatter formatter = this.formatterCache.get(key);
+		if (formatter == null) {
+			formatter = getFormatter(annotation, fieldType);
+			DateTimeFormatter existing = this.formatterCache.putIfAbsent(key, formatter);
+			if (existing != null) {
+				formatter = existing;
+			}
+		}
+		return formatter;
+	}
+
 	/**
 	 * Factory method used to create a {@link DateTimeFormatter}.
 	 * @param annotation the format annotation for the field
@@ -121,4 +144,49 @@ public class Jsr310DateTimeFormatAnnotationFormatterFactory extends EmbeddedValu
 		return fieldType.getSimpleName().startsWith("Local");
 	}
 
+
+	/**
+	 * Cache key for the formatters built per annotation and field type, based on
+	 * the attribute values of the annotation: This avoids the reflective
+	 * {@code equals}/{@code hashCode} implementations of annotation proxies,
+	 * and lets equivalent declarations (including annotation instances that
+	 * get synthesized per lookup) share a single cache entry.
+	 */
+	private static final class FormatterKey {
+
+		private final String style;
+
+		private final ISO iso;
+
+		private final String pattern;
+
+		private final Class<?> fieldType;
+
+		public FormatterKey(DateTimeFormat annotation, Class<?> fieldType) {
+			this.style = annotation.style();
+			this.iso = annotation.iso();
+			this.pattern = annotation.pattern();
+			this.fieldType = fieldType;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof FormatterKey)) {
+				return false;
+			}
+			FormatterKey otherKey = (FormatterKey) other;
+			return (this.fieldType == otherKey.fieldType && this.iso == otherKey.iso &&
+					this.style.equals(otherKey.style) && this.pattern.equals(otherKey.pattern));
+		}
+
+		@Override
+		public int hashCode() {
+			return ((this.fieldType.hashCode() * 29 + this.iso.hashCode()) * 29 +
+					this.style.hashCode()) * 29 + this.pattern.hashCode();
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import java.util.function.Supplier;
 import org.aopalliance.aop.Advice;
 
 import org.springframework.aop.Pointcut;
+import org.springframework.aop.interceptor.AsyncExecutionInterceptor;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.support.AbstractPointcutAdvisor;
 import org.springframework.aop.support.ComposablePointcut;
@@ -125,6 +126,20 @@ public class AsyncAnnotationAdvisor extends AbstractPointcutAdvisor implements B
 		this.pointcut = buildPointcut(asyncAnnotationTypes);
 	}
 
+	/**
+	 * Specify whether the local default executor, built if no executor has been
+	 * specified and none could be found in the context, should run each
+	 * asynchronous method on a new virtual thread. Default is "false".
+	 * <p>Applies to an advice built as an {@link AsyncExecutionInterceptor}.
+	 * @since 5.2
+	 * @see AsyncExecutionInterceptor#setVirtualThreads
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		if (this.advice instanceof AsyncExecutionInterceptor) {
+			((AsyncExecutionInterceptor) this.advice).setVirtualThreads(virtualThreads);
+		}
+	}
+
 	/**
 	 * Set the {@code BeanFactory} to be used when looking up executors by qualifier.
 	 */
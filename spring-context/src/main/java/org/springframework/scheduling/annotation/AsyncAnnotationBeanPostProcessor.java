@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -86,6 +86,8 @@ public class AsyncAnnotationBeanPostProcessor extends AbstractBeanFactoryAwareAd
 	@Nullable
 	private Class<? extends Annotation> asyncAnnotationType;
 
+	private boolean virtualThreads = false;
+
 
 
 	public AsyncAnnotationBeanPostProcessor() {
@@ -142,6 +144,18 @@ public class AsyncAnnotationBeanPostProcessor extends AbstractBeanFactoryAwareAd
 	}
 
 
+	/**
+	 * Specify whether the local default executor, built if no executor has been
+	 * specified and none could be found in the context, should run each
+	 * asynchronous method on a new virtual thread. Default is "false".
+	 * @since 5.2
+	 * @see AsyncAnnotationAdvisor#setVirtualThreads
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) {
 		super.setBeanFactory(beanFactory);
@@ -150,6 +164,7 @@ public class AsyncAnnotationBeanPostProcessor extends AbstractBeanFactoryAwareAd
 		if (this.asyncAnnotationType != null) {
 			advisor.setAsyncAnnotationType(this.asyncAnnotationType);
 		}
+		advisor.setVirtualThreads(this.virtualThreads);
 		advisor.setBeanFactory(beanFactory);
 		this.advisor = advisor;
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -208,4 +208,18 @@ public @interface EnableAsync {
 	 */
 	int order() default Ordered.LOWEST_PRECEDENCE;
 
+	/**
+	 * Indicate whether the local default executor, built if neither an
+	 * {@link AsyncConfigurer} nor a {@code TaskExecutor} bean provides an executor,
+	 * should run each asynchronous method on a new virtual thread rather than
+	 * on a new platform thread.
+	 * <p>Virtual threads are used on runtimes that support them (JDK 21+),
+	 * through a {@link org.springframework.core.task.VirtualThreadTaskExecutor};
+	 * other runtimes fall back to platform threads.
+	 * <p><strong>Applicable only if the {@link #mode} is set to {@link AdviceMode#PROXY}</strong>.
+	 * <p>The default is {@code false}.
+	 * @since 5.2
+	 */
+	boolean virtualThreads() default false;
+
 }
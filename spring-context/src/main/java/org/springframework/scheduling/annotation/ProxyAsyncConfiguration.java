@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -52,6 +52,7 @@ public class ProxyAsyncConfiguration extends AbstractAsyncConfiguration {
 			bpp.setAsyncAnnotationType(customAsyncAnnotation);
 		}
 		bpp.setProxyTargetClass(this.enableAsync.getBoolean("proxyTargetClass"));
+		bpp.setVirtualThreads(this.enableAsync.getBoolean("virtualThreads"));
 		bpp.setOrder(this.enableAsync.<Integer>getNumber("order"));
 		return bpp;
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -61,6 +61,9 @@ public abstract class ExecutorConfigurationSupport extends CustomizableThreadFac
 
 	private int awaitTerminationSeconds = 0;
 
+	@Nullable
+	private ExecutorMetrics metrics;
+
 	@Nullable
 	private String beanName;
 
@@ -148,6 +151,30 @@ public abstract class ExecutorConfigurationSupport extends CustomizableThreadFac
 		this.awaitTerminationSeconds = awaitTerminationSeconds;
 	}
 
+	/**
+	 * Set whether to record task metrics such as queue wait time, execution time,
+	 * queue depth and rejections, exposed through {@link #getMetrics()}.
+	 * <p>Default is "false", executing tasks without any instrumentation.
+	 * Supported by {@link ThreadPoolTaskExecutor} and {@link ThreadPoolTaskScheduler};
+	 * to be specified before initialization of the executor.
+	 * @since 5.2
+	 * @see ExecutorMetrics
+	 */
+	public void setMetricsEnabled(boolean metricsEnabled) {
+		this.metrics = (metricsEnabled ? new ExecutorMetrics() : null);
+	}
+
+	/**
+	 * Return the task metrics recorded by this executor,
+	 * or {@code null} if not enabled.
+	 * @since 5.2
+	 * @see #setMetricsEnabled
+	 */
+	@Nullable
+	public ExecutorMetrics getMetrics() {
+		return this.metrics;
+	}
+
 	@Override
 	public void setBeanName(String name) {
 		this.beanName = name;
@@ -173,7 +200,11 @@ public abstract class ExecutorConfigurationSupport extends CustomizableThreadFac
 		if (!this.threadNamePrefixSet && this.beanName != null) {
 			setThreadNamePrefix(this.beanName + "-");
 		}
-		this.executor = initializeExecutor(this.threadFactory, this.rejectedExecutionHandler);
+		RejectedExecutionHandler rejectedExecutionHandler = this.rejectedExecutionHandler;
+		if (this.metrics != null) {
+			rejectedExecutionHandler = this.metrics.instrument(rejectedExecutionHandler);
+		}
+		this.executor = initializeExecutor(this.threadFactory, rejectedExecutionHandler);
 	}
 
 	/**
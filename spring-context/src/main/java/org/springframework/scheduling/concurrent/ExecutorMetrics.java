@@ -0,0 +1,386 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.io.Serializable;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Task metrics recorded by a {@link ThreadPoolTaskExecutor} or
+ * {@link ThreadPoolTaskScheduler} with {@link ExecutorConfigurationSupport#setMetricsEnabled
+ * metrics enabled}: time spent waiting in the queue, execution time, queue depth
+ * on submission, number of concurrently active tasks, and rejections.
+ *
+ * <p>Values are recorded into lock-free histograms with logarithmic buckets
+ * (four per power of two, i.e. a relative error of at most 25%) and exposed
+ * as {@link Histogram} snapshots. All getters follow JavaBean conventions,
+ * so that a metrics instance can be exported through
+ * {@link org.springframework.jmx.export.MBeanExporter}, e.g. via
+ * {@code exporter.setBeans(Collections.singletonMap("executors:name=taskExecutor", executor.getMetrics()))}.
+ *
+ * @author agent
+ * @since 5.2
+ * @see ExecutorConfigurationSupport#setMetricsEnabled
+ * @see ExecutorConfigurationSupport#getMetrics
+ */
+public class ExecutorMetrics {
+
+	private final Recorder queueWaitTime = new Recorder();
+
+	private final Recorder executionTime = new Recorder();
+
+	private final Recorder queueDepth = new Recorder();
+
+	private final Recorder activeTasks = new Recorder();
+
+	private final LongAdder rejectedTaskCount = new LongAdder();
+
+	private final AtomicInteger activeTaskCount = new AtomicInteger();
+
+
+	/**
+	 * Return the time that tasks waited in the queue before their execution
+	 * started, in nanoseconds. For scheduled tasks, this is the delay between
+	 * the scheduled and the actual start of execution.
+	 */
+	public Histogram getQueueWaitTime() {
+		return this.queueWaitTime.snapshot();
+	}
+
+	/**
+	 * Return the execution time of tasks, in nanoseconds.
+	 */
+	public Histogram getExecutionTime() {
+		return this.executionTime.snapshot();
+	}
+
+	/**
+	 * Return the number of tasks waiting in the queue, sampled on every task submission.
+	 */
+	public Histogram getQueueDepth() {
+		return this.queueDepth.snapshot();
+	}
+
+	/**
+	 * Return the number of concurrently active tasks, sampled on every start of execution.
+	 */
+	public Histogram getActiveTasks() {
+		return this.activeTasks.snapshot();
+	}
+
+	/**
+	 * Return the number of tasks submitted so far.
+	 */
+	public long getSubmittedTaskCount() {
+		return this.queueDepth.count();
+	}
+
+	/**
+	 * Return the number of tasks completed so far, successfully or not.
+	 */
+	public long getCompletedTaskCount() {
+		return this.executionTime.count();
+	}
+
+	/**
+	 * Return the number of tasks rejected so far.
+	 */
+	public long getRejectedTaskCount() {
+		return this.rejectedTaskCount.sum();
+	}
+
+	/**
+	 * Return the number of tasks currently executing.
+	 */
+	public int getActiveTaskCount() {
+		return this.activeTaskCount.get();
+	}
+
+	/**
+	 * Reset all recorded values, e.g. at the start of a measurement period.
+	 * <p>Values recorded concurrently may or may not be retained.
+	 */
+	public void reset() {
+		this.queueWaitTime.reset();
+		this.executionTime.reset();
+		this.queueDepth.reset();
+		this.activeTasks.reset();
+		this.rejectedTaskCount.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "ExecutorMetrics: queue wait time " + getQueueWaitTime() + ", execution time " +
+				getExecutionTime() + ", queue depth " + getQueueDepth() + ", rejected " + getRejectedTaskCount();
+	}
+
+
+	// Recording, as triggered by the instrumented executors
+
+	/**
+	 * Record the submission of a task, wrapping it for measuring its
+	 * queue wait and execution time.
+	 */
+	Runnable instrument(Runnable task, int queueDepth) {
+		taskSubmitted(queueDepth);
+		return new InstrumentedRunnable(task, System.nanoTime());
+	}
+
+	/**
+	 * Wrap the given handler for counting rejected tasks.
+	 */
+	RejectedExecutionHandler instrument(RejectedExecutionHandler handler) {
+		return (task, executor) -> {
+			this.rejectedTaskCount.increment();
+			handler.rejectedExecution(task, executor);
+		};
+	}
+
+	void taskSubmitted(int queueDepth) {
+		this.queueDepth.record(queueDepth);
+	}
+
+	/**
+	 * Record the start of a task's execution.
+	 * @return the start time to pass into {@link #taskCompleted}
+	 */
+	long taskStarted(long queueWaitNanos) {
+		recordStart(queueWaitNanos);
+		return System.nanoTime();
+	}
+
+	private void recordStart(long queueWaitNanos) {
+		this.queueWaitTime.record(queueWaitNanos);
+		this.activeTasks.record(this.activeTaskCount.incrementAndGet());
+	}
+
+	void taskCompleted(long startNanos) {
+		this.activeTaskCount.decrementAndGet();
+		this.executionTime.record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Return the task wrapped by {@link #instrument(Runnable, int)}, if any.
+	 */
+	static Runnable getTargetTask(Runnable task) {
+		return (task instanceof InstrumentedRunnable ? ((InstrumentedRunnable) task).task : task);
+	}
+
+
+	/**
+	 * Immutable snapshot of recorded values.
+	 */
+	@SuppressWarnings("serial")
+	public static final class Histogram implements Serializable {
+
+		private final long[] bucketCounts;
+
+		private final long count;
+
+		private final long sum;
+
+		private final long max;
+
+		Histogram(long[] bucketCounts, long count, long sum, long max) {
+			this.bucketCounts = bucketCounts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		/**
+		 * Return the number of recorded values.
+		 */
+		public long getCount() {
+			return this.count;
+		}
+
+		/**
+		 * Return the sum of all recorded values.
+		 */
+		public long getSum() {
+			return this.sum;
+		}
+
+		/**
+		 * Return the mean of all recorded values, or 0 if none.
+		 */
+		public double getMean() {
+			return (this.count > 0 ? (double) this.sum / this.count : 0);
+		}
+
+		/**
+		 * Return the largest recorded value, or 0 if none.
+		 */
+		public long getMax() {
+			return this.max;
+		}
+
+		/**
+		 * Return the median of the recorded values.
+		 * @see #getValueAtPercentile
+		 */
+		public long getMedian() {
+			return getValueAtPercentile(50);
+		}
+
+		/**
+		 * Return the 99th percentile of the recorded values.
+		 * @see #getValueAtPercentile
+		 */
+		public long get99thPercentile() {
+			return getValueAtPercentile(99);
+		}
+
+		/**
+		 * Return an upper bound for the given percentile of the recorded values,
+		 * within the precision of the histogram buckets, or 0 if none.
+		 * @param percentile the percentile between 0 and 100
+		 */
+		public long getValueAtPercentile(double percentile) {
+			long total = 0;
+			for (long bucketCount : this.bucketCounts) {
+				total += bucketCount;
+			}
+			long threshold = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100);
+			long seen = 0;
+			for (int i = 0; i < this.bucketCounts.length; i++) {
+				seen += this.bucketCounts[i];
+				if (seen > 0 && seen >= threshold) {
+					return Math.min(upperBound(i), this.max);
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			return "[count=" + this.count + ", mean=" + (long) getMean() + ", median=" + getMedian() +
+					", p99=" + get99thPercentile() + ", max=" + this.max + "]";
+		}
+	}
+
+
+	/**
+	 * Lock-free recorder of non-negative values into logarithmic buckets.
+	 */
+	private static class Recorder {
+
+		// Four buckets per power of two, up to 2^63
+		private static final int BUCKET_COUNT = 248;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+		private final LongAdder sum = new LongAdder();
+
+		private final AtomicLong max = new AtomicLong();
+
+		public void record(long value) {
+			long valueToUse = Math.max(value, 0);
+			this.buckets.incrementAndGet(bucketIndex(valueToUse));
+			this.sum.add(valueToUse);
+			long currentMax;
+			while (valueToUse > (currentMax = this.max.get()) && !this.max.compareAndSet(currentMax, valueToUse)) {
+				// retry
+			}
+		}
+
+		public Histogram snapshot() {
+			long[] bucketCounts = new long[BUCKET_COUNT];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				bucketCounts[i] = this.buckets.get(i);
+			}
+			long count = 0;
+			for (long bucketCount : bucketCounts) {
+				count += bucketCount;
+			}
+			return new Histogram(bucketCounts, count, this.sum.sum(), this.max.get());
+		}
+
+		public long count() {
+			long count = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				count += this.buckets.get(i);
+			}
+			return count;
+		}
+
+		public void reset() {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				this.buckets.set(i, 0);
+			}
+			this.sum.reset();
+			this.max.set(0);
+		}
+	}
+
+	private static int bucketIndex(long value) {
+		if (value < 4) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return 4 * (exponent - 1) + (int) ((value >>> (exponent - 2)) & 3);
+	}
+
+	private static long upperBound(int bucketIndex) {
+		if (bucketIndex < 4) {
+			return bucketIndex;
+		}
+		int exponent = bucketIndex / 4 + 1;
+		long lowerBound = (long) (4 + bucketIndex % 4) << (exponent - 2);
+		return lowerBound + (1L << (exponent - 2)) - 1;
+	}
+
+
+	/**
+	 * Runnable measuring its queue wait and execution time.
+	 */
+	private class InstrumentedRunnable implements Runnable {
+
+		private final Runnable task;
+
+		private final long submitTime;
+
+		public InstrumentedRunnable(Runnable task, long submitTime) {
+			this.task = task;
+			this.submitTime = submitTime;
+		}
+
+		@Override
+		public void run() {
+			// A single clock read for both the end of queue wait and the start of execution
+			long startTime = System.nanoTime();
+			recordStart(startTime - this.submitTime);
+			try {
+				this.task.run();
+			}
+			finally {
+				taskCompleted(startTime);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return this.task.toString();
+		}
+	}
+
+}
@@ -0,0 +1,554 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.Date;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+import org.springframework.scheduling.support.TaskUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * Implementation of Spring's {@link TaskScheduler} interface, keeping scheduled
+ * tasks in a hierarchical timing wheel rather than in the priority queue of a
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor}.
+ *
+ * <p>Scheduling and cancelling a task are constant-time operations, which makes
+ * this scheduler a fit for very large numbers of short-lived timers, such as
+ * session expiry checks, heartbeats or retry back-offs that are usually cancelled
+ * before they fire. A single wheel thread advances the wheel once per
+ * {@link #setTickDuration tick} and hands all tasks expiring within that tick
+ * off to a pool of {@link #setPoolSize worker threads}; execution times are
+ * therefore accurate to the tick duration only.
+ *
+ * <p>The returned {@link ScheduledFuture} is the scheduled task itself, for
+ * one-time as well as for repeating and {@link Trigger}-based tasks, including
+ * {@link org.springframework.scheduling.support.CronTrigger}. Remaining timers
+ * are cancelled on {@link #shutdown()}.
+ *
+ * @author agent
+ * @since 5.2
+ * @see #setTickDuration
+ * @see #setWheelSize
+ * @see #setPoolSize
+ * @see ThreadPoolTaskScheduler
+ */
+@SuppressWarnings("serial")
+public class HashedWheelTaskScheduler extends ExecutorConfigurationSupport implements TaskScheduler {
+
+	private long tickDuration = 10;
+
+	private int wheelSize = 512;
+
+	private int poolSize = 1;
+
+	@Nullable
+	private volatile ErrorHandler errorHandler;
+
+	// Stack of tasks to be inserted into the wheel by the wheel thread
+	private final AtomicReference<WheelTask> pendingTasks = new AtomicReference<>();
+
+	// Stack of cancelled tasks to be removed from the wheel by the wheel thread
+	private final AtomicReference<WheelTask> cancelledTasks = new AtomicReference<>();
+
+	@Nullable
+	private ExecutorService workerExecutor;
+
+	@Nullable
+	private Thread wheelThread;
+
+	private volatile boolean running;
+
+	// Wheel state, only accessed by the wheel thread
+
+	private WheelTask[][] wheel = new WheelTask[0][];
+
+	private int tickBits;
+
+	private long tickNanos;
+
+	private long startNanos;
+
+
+	/**
+	 * Set the duration of a single tick of the wheel, in milliseconds.
+	 * Default is 10.
+	 * <p>This is the accuracy of the execution times: tasks are handed off
+	 * to the worker threads at the end of the tick they expire in.
+	 */
+	public void setTickDuration(long tickDuration) {
+		Assert.isTrue(tickDuration > 0, "'tickDuration' must be 1 or higher");
+		this.tickDuration = tickDuration;
+	}
+
+	/**
+	 * Set the number of ticks per level of the wheel, rounded up to the next
+	 * power of two. Default is 512.
+	 * <p>Tasks due within this number of ticks are kept in the innermost level
+	 * of the wheel; later tasks are kept in coarser levels and move inwards as
+	 * their execution time approaches.
+	 */
+	public void setWheelSize(int wheelSize) {
+		Assert.isTrue(wheelSize > 1 && wheelSize <= (1 << 30), "'wheelSize' must be between 2 and 2^30");
+		this.wheelSize = wheelSize;
+	}
+
+	/**
+	 * Set the number of worker threads executing expired tasks.
+	 * Default is 1.
+	 */
+	public void setPoolSize(int poolSize) {
+		Assert.isTrue(poolSize > 0, "'poolSize' must be 1 or higher");
+		this.poolSize = poolSize;
+	}
+
+	/**
+	 * Set a custom {@link ErrorHandler} strategy.
+	 */
+	public void setErrorHandler(ErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+
+	@Override
+	protected ExecutorService initializeExecutor(
+			ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+
+		this.tickBits = 32 - Integer.numberOfLeadingZeros(this.wheelSize - 1);
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(this.tickDuration);
+		this.wheel = new WheelTask[(Long.SIZE - 2) / this.tickBits + 1][];
+		this.workerExecutor = new ThreadPoolExecutor(this.poolSize, this.poolSize, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), threadFactory, rejectedExecutionHandler);
+		this.startNanos = System.nanoTime();
+		this.running = true;
+		this.wheelThread = threadFactory.newThread(this::runWheel);
+		this.wheelThread.start();
+		return this.workerExecutor;
+	}
+
+	/**
+	 * Stop the wheel thread, cancelling all remaining timers, and shut down
+	 * the worker threads.
+	 */
+	@Override
+	public void shutdown() {
+		this.running = false;
+		if (this.wheelThread != null) {
+			this.wheelThread.interrupt();
+		}
+		super.shutdown();
+	}
+
+
+	// TaskScheduler implementation
+
+	@Override
+	@Nullable
+	public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+		WheelTask wheelTask = new WheelTask(errorHandlingTask(task, true), trigger);
+		Date startTime = wheelTask.nextExecutionTime();
+		if (startTime == null) {
+			return null;
+		}
+		return submit(wheelTask, startTime.getTime() - System.currentTimeMillis(), task);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable task, Date startTime) {
+		long initialDelay = startTime.getTime() - System.currentTimeMillis();
+		return submit(new WheelTask(errorHandlingTask(task, false), 0), initialDelay, task);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Date startTime, long period) {
+		Assert.isTrue(period > 0, "'period' must be positive");
+		long initialDelay = startTime.getTime() - System.currentTimeMillis();
+		return submit(new WheelTask(errorHandlingTask(task, true), TimeUnit.MILLISECONDS.toNanos(period)),
+				initialDelay, task);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+		Assert.isTrue(period > 0, "'period' must be positive");
+		return submit(new WheelTask(errorHandlingTask(task, true), TimeUnit.MILLISECONDS.toNanos(period)), 0, task);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Date startTime, long delay) {
+		Assert.isTrue(delay > 0, "'delay' must be positive");
+		long initialDelay = startTime.getTime() - System.currentTimeMillis();
+		return submit(new WheelTask(errorHandlingTask(task, true), -TimeUnit.MILLISECONDS.toNanos(delay)),
+				initialDelay, task);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay) {
+		Assert.isTrue(delay > 0, "'delay' must be positive");
+		return submit(new WheelTask(errorHandlingTask(task, true), -TimeUnit.MILLISECONDS.toNanos(delay)), 0, task);
+	}
+
+
+	private Runnable errorHandlingTask(Runnable task, boolean isRepeatingTask) {
+		return TaskUtils.decorateTaskWithErrorHandler(task, this.errorHandler, isRepeatingTask);
+	}
+
+	private ScheduledFuture<?> submit(WheelTask wheelTask, long delay, Runnable task) {
+		Assert.state(this.wheelThread != null, "HashedWheelTaskScheduler not initialized");
+		if (!this.running) {
+			throw new TaskRejectedException("HashedWheelTaskScheduler has been shut down - did not accept task: " + task);
+		}
+		wheelTask.setDelay(delay);
+		enqueue(wheelTask);
+		return wheelTask;
+	}
+
+	private void enqueue(WheelTask wheelTask) {
+		WheelTask head;
+		do {
+			head = this.pendingTasks.get();
+			wheelTask.nextPending = head;
+		}
+		while (!this.pendingTasks.compareAndSet(head, wheelTask));
+		if (!this.running) {
+			// Shut down in the meantime: the wheel thread may not pick up the task anymore.
+			wheelTask.cancel(false);
+		}
+	}
+
+
+	// Wheel thread
+
+	private void runWheel() {
+		long tick = 0;
+		while (this.running) {
+			long sleepNanos = this.startNanos + tick * this.tickNanos - System.nanoTime();
+			if (sleepNanos > 0) {
+				try {
+					Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepNanos + 999999));
+				}
+				catch (InterruptedException ex) {
+					// Shutdown signal: re-check running flag.
+				}
+				continue;
+			}
+			removeCancelledTasks();
+			insertPendingTasks(tick);
+			cascade(tick);
+			expire(tick);
+			tick++;
+		}
+		cancelRemainingTasks();
+	}
+
+	private void removeCancelledTasks() {
+		WheelTask wheelTask = this.cancelledTasks.getAndSet(null);
+		while (wheelTask != null) {
+			WheelTask next = wheelTask.nextCancelled;
+			wheelTask.nextCancelled = null;
+			if (wheelTask.linked) {
+				unlink(wheelTask);
+			}
+			wheelTask = next;
+		}
+	}
+
+	private void insertPendingTasks(long tick) {
+		WheelTask wheelTask = this.pendingTasks.getAndSet(null);
+		while (wheelTask != null) {
+			WheelTask next = wheelTask.nextPending;
+			wheelTask.nextPending = null;
+			if (!wheelTask.isCancelled()) {
+				long deadline = wheelTask.deadlineNanos - this.startNanos;
+				wheelTask.deadlineTick = Math.max((deadline + this.tickNanos - 1) / this.tickNanos, tick);
+				link(wheelTask, tick);
+			}
+			wheelTask = next;
+		}
+	}
+
+	/**
+	 * Move the tasks of each outer level slot that starts with the given tick
+	 * to inner levels, outermost level first.
+	 */
+	private void cascade(long tick) {
+		int level = 0;
+		while (level + 1 < this.wheel.length && (tick & ((1L << (this.tickBits * (level + 1))) - 1)) == 0) {
+			level++;
+		}
+		for (; level > 0; level--) {
+			WheelTask wheelTask = detach(level, slotIndex(tick, level));
+			while (wheelTask != null) {
+				WheelTask next = wheelTask.next;
+				wheelTask.next = null;
+				link(wheelTask, tick);
+				wheelTask = next;
+			}
+		}
+	}
+
+	private void expire(long tick) {
+		WheelTask wheelTask = detach(0, slotIndex(tick, 0));
+		while (wheelTask != null) {
+			WheelTask next = wheelTask.next;
+			wheelTask.next = null;
+			if (!wheelTask.isCancelled()) {
+				try {
+					this.workerExecutor.execute(wheelTask);
+				}
+				catch (RejectedExecutionException ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Worker threads did not accept task: " + wheelTask, ex);
+					}
+					wheelTask.cancel(false);
+				}
+			}
+			wheelTask = next;
+		}
+	}
+
+	private void cancelRemainingTasks() {
+		for (int level = 0; level < this.wheel.length; level++) {
+			WheelTask[] slots = this.wheel[level];
+			if (slots != null) {
+				for (int index = 0; index < slots.length; index++) {
+					WheelTask wheelTask = detach(level, index);
+					while (wheelTask != null) {
+						wheelTask.cancel(false);
+						wheelTask = wheelTask.next;
+					}
+				}
+			}
+		}
+		WheelTask wheelTask = this.pendingTasks.getAndSet(null);
+		while (wheelTask != null) {
+			wheelTask.cancel(false);
+			wheelTask = wheelTask.nextPending;
+		}
+		this.cancelledTasks.set(null);
+	}
+
+	private void link(WheelTask wheelTask, long tick) {
+		long delta = wheelTask.deadlineTick - tick;
+		int level = (delta >>> this.tickBits == 0 ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / this.tickBits);
+		int index = slotIndex(wheelTask.deadlineTick, level);
+		WheelTask[] slots = this.wheel[level];
+		if (slots == null) {
+			slots = new WheelTask[1 << this.tickBits];
+			this.wheel[level] = slots;
+		}
+		WheelTask head = slots[index];
+		wheelTask.level = level;
+		wheelTask.index = index;
+		wheelTask.prev = null;
+		wheelTask.next = head;
+		if (head != null) {
+			head.prev = wheelTask;
+		}
+		slots[index] = wheelTask;
+		wheelTask.linked = true;
+	}
+
+	private void unlink(WheelTask wheelTask) {
+		if (wheelTask.prev != null) {
+			wheelTask.prev.next = wheelTask.next;
+		}
+		else {
+			this.wheel[wheelTask.level][wheelTask.index] = wheelTask.next;
+		}
+		if (wheelTask.next != null) {
+			wheelTask.next.prev = wheelTask.prev;
+		}
+		wheelTask.prev = null;
+		wheelTask.next = null;
+		wheelTask.linked = false;
+	}
+
+	/**
+	 * Remove all tasks from the given slot, returning the first task
+	 * of the singly linked remainder.
+	 */
+	@Nullable
+	private WheelTask detach(int level, int index) {
+		WheelTask[] slots = this.wheel[level];
+		if (slots == null) {
+			return null;
+		}
+		WheelTask head = slots[index];
+		slots[index] = null;
+		for (WheelTask wheelTask = head; wheelTask != null; wheelTask = wheelTask.next) {
+			wheelTask.prev = null;
+			wheelTask.linked = false;
+		}
+		return head;
+	}
+
+	private int slotIndex(long tick, int level) {
+		return (int) ((tick >>> (this.tickBits * level)) & ((1 << this.tickBits) - 1));
+	}
+
+
+	/**
+	 * A task in the wheel, serving as its own {@link ScheduledFuture} handle
+	 * across repeated executions.
+	 */
+	private class WheelTask extends FutureTask<Object> implements ScheduledFuture<Object> {
+
+		// Positive for fixed rate, negative for fixed delay, 0 for one-time or trigger
+		private final long period;
+
+		@Nullable
+		private final Trigger trigger;
+
+		@Nullable
+		private final SimpleTriggerContext triggerContext;
+
+		@Nullable
+		private Date scheduledExecutionTime;
+
+		private volatile long deadlineNanos;
+
+		@Nullable
+		private WheelTask nextPending;
+
+		@Nullable
+		private WheelTask nextCancelled;
+
+		// Wheel state, only accessed by the wheel thread
+
+		private long deadlineTick;
+
+		private int level;
+
+		private int index;
+
+		private boolean linked;
+
+		@Nullable
+		private WheelTask prev;
+
+		@Nullable
+		private WheelTask next;
+
+		public WheelTask(Runnable task, long period) {
+			super(task, null);
+			this.period = period;
+			this.trigger = null;
+			this.triggerContext = null;
+		}
+
+		public WheelTask(Runnable task, Trigger trigger) {
+			super(task, null);
+			this.period = 0;
+			this.trigger = trigger;
+			this.triggerContext = new SimpleTriggerContext();
+		}
+
+		@Nullable
+		public Date nextExecutionTime() {
+			Assert.state(this.trigger != null && this.triggerContext != null, "No Trigger");
+			this.scheduledExecutionTime = this.trigger.nextExecutionTime(this.triggerContext);
+			return this.scheduledExecutionTime;
+		}
+
+		public void setDelay(long delay) {
+			long delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0));
+			this.deadlineNanos = System.nanoTime() + Math.min(delayNanos, Long.MAX_VALUE >> 1);
+		}
+
+		@Override
+		public void run() {
+			if (this.trigger != null) {
+				runTriggerTask();
+			}
+			else if (this.period == 0) {
+				super.run();
+			}
+			else if (runAndReset()) {
+				if (this.period > 0) {
+					this.deadlineNanos += this.period;
+				}
+				else {
+					this.deadlineNanos = System.nanoTime() - this.period;
+				}
+				enqueue(this);
+			}
+		}
+
+		private void runTriggerTask() {
+			Assert.state(this.triggerContext != null && this.scheduledExecutionTime != null, "No Trigger");
+			Date actualExecutionTime = new Date();
+			if (!runAndReset()) {
+				return;
+			}
+			Date completionTime = new Date();
+			this.triggerContext.update(this.scheduledExecutionTime, actualExecutionTime, completionTime);
+			Date nextExecutionTime = nextExecutionTime();
+			if (nextExecutionTime == null) {
+				set(null);
+			}
+			else {
+				setDelay(nextExecutionTime.getTime() - System.currentTimeMillis());
+				enqueue(this);
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled && running) {
+				WheelTask head;
+				do {
+					head = cancelledTasks.get();
+					this.nextCancelled = head;
+				}
+				while (!cancelledTasks.compareAndSet(head, this));
+			}
+			return cancelled;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(this.deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (this == other) {
+				return 0;
+			}
+			long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+			return (diff == 0 ? 0 : (diff < 0 ? -1 : 1));
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -225,15 +225,22 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 		BlockingQueue<Runnable> queue = createQueue(this.queueCapacity);
 
 		ThreadPoolExecutor executor;
-		if (this.taskDecorator != null) {
+		ExecutorMetrics metrics = getMetrics();
+		if (this.taskDecorator != null || metrics != null) {
 			executor = new ThreadPoolExecutor(
 					this.corePoolSize, this.maxPoolSize, this.keepAliveSeconds, TimeUnit.SECONDS,
 					queue, threadFactory, rejectedExecutionHandler) {
 				@Override
 				public void execute(Runnable command) {
-					Runnable decorated = taskDecorator.decorate(command);
-					if (decorated != command) {
-						decoratedTaskMap.put(decorated, command);
+					Runnable decorated = command;
+					if (taskDecorator != null) {
+						decorated = taskDecorator.decorate(command);
+						if (decorated != command) {
+							decoratedTaskMap.put(decorated, command);
+						}
+					}
+					if (metrics != null) {
+						decorated = metrics.instrument(decorated, getQueue().size());
 					}
 					super.execute(decorated);
 				}
@@ -373,9 +380,10 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 
 	@Override
 	protected void cancelRemainingTask(Runnable task) {
-		super.cancelRemainingTask(task);
+		Runnable taskToCancel = ExecutorMetrics.getTargetTask(task);
+		super.cancelRemainingTask(taskToCancel);
 		// Cancel associated user-level Future handle as well
-		Object original = this.decoratedTaskMap.get(task);
+		Object original = this.decoratedTaskMap.get(taskToCancel);
 		if (original instanceof Future) {
 			((Future<?>) original).cancel(true);
 		}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,11 +19,13 @@ package org.springframework.scheduling.concurrent;
 import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -32,6 +34,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.springframework.core.task.AsyncListenableTaskExecutor;
 import org.springframework.core.task.TaskRejectedException;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.lang.Nullable;
 import org.springframework.scheduling.SchedulingTaskExecutor;
 import org.springframework.scheduling.TaskScheduler;
@@ -63,6 +66,8 @@ public class ThreadPoolTaskScheduler extends ExecutorConfigurationSupport
 
 	private volatile boolean removeOnCancelPolicy = false;
 
+	private boolean virtualThreads = false;
+
 	@Nullable
 	private volatile ErrorHandler errorHandler;
 
@@ -110,12 +115,31 @@ public class ThreadPoolTaskScheduler extends ExecutorConfigurationSupport
 		this.errorHandler = errorHandler;
 	}
 
+	/**
+	 * Specify whether the ScheduledExecutorService's threads should be virtual
+	 * threads rather than platform threads, on runtimes that support them
+	 * (JDK 21+). Default is "false".
+	 * <p>The pool size still determines the number of tasks executed
+	 * concurrently, while blocking within a task does not tie up a platform
+	 * thread. The thread name prefix applies to virtual threads as well;
+	 * a {@link #setThreadFactory ThreadFactory} is ignored in this case.
+	 * @since 5.2
+	 * @see VirtualThreadTaskExecutor#createThread
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
 
 	@Override
 	protected ExecutorService initializeExecutor(
 			ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
 
-		this.scheduledExecutor = createExecutor(this.poolSize, threadFactory, rejectedExecutionHandler);
+		ThreadFactory threadFactoryToUse = threadFactory;
+		if (this.virtualThreads) {
+			threadFactoryToUse = new VirtualThreadTaskExecutor(getThreadNamePrefix())::createThread;
+		}
+		this.scheduledExecutor = createExecutor(this.poolSize, threadFactoryToUse, rejectedExecutionHandler);
 
 		if (this.removeOnCancelPolicy) {
 			if (this.scheduledExecutor instanceof ScheduledThreadPoolExecutor) {
@@ -133,6 +157,8 @@ public class ThreadPoolTaskScheduler extends ExecutorConfigurationSupport
 	 * Create a new {@link ScheduledExecutorService} instance.
 	 * <p>The default implementation creates a {@link ScheduledThreadPoolExecutor}.
 	 * Can be overridden in subclasses to provide custom {@link ScheduledExecutorService} instances.
+	 * <p>If {@link #setMetricsEnabled metrics} are enabled, the default executor records
+	 * them through its {@code beforeExecute}/{@code afterExecute} callbacks.
 	 * @param poolSize the specified pool size
 	 * @param threadFactory the ThreadFactory to use
 	 * @param rejectedExecutionHandler the RejectedExecutionHandler to use
@@ -143,6 +169,10 @@ public class ThreadPoolTaskScheduler extends ExecutorConfigurationSupport
 	protected ScheduledExecutorService createExecutor(
 			int poolSize, ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
 
+		ExecutorMetrics metrics = getMetrics();
+		if (metrics != null) {
+			return new InstrumentedScheduledThreadPoolExecutor(poolSize, threadFactory, rejectedExecutionHandler, metrics);
+		}
 		return new ScheduledThreadPoolExecutor(poolSize, threadFactory, rejectedExecutionHandler);
 	}
 
@@ -405,4 +435,46 @@ public class ThreadPoolTaskScheduler extends ExecutorConfigurationSupport
 		}
 	}
 
+
+	/**
+	 * ScheduledThreadPoolExecutor recording {@link ExecutorMetrics} without wrapping
+	 * its tasks: the queue wait time of a task is its delay beyond the scheduled time.
+	 */
+	private static class InstrumentedScheduledThreadPoolExecutor extends ScheduledThreadPoolExecutor {
+
+		private final ExecutorMetrics metrics;
+
+		private final ThreadLocal<long[]> startTime = ThreadLocal.withInitial(() -> new long[1]);
+
+		public InstrumentedScheduledThreadPoolExecutor(int poolSize, ThreadFactory threadFactory,
+				RejectedExecutionHandler rejectedExecutionHandler, ExecutorMetrics metrics) {
+
+			super(poolSize, threadFactory, rejectedExecutionHandler);
+			this.metrics = metrics;
+		}
+
+		@Override
+		protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task) {
+			this.metrics.taskSubmitted(getQueue().size());
+			return task;
+		}
+
+		@Override
+		protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
+			this.metrics.taskSubmitted(getQueue().size());
+			return task;
+		}
+
+		@Override
+		protected void beforeExecute(Thread thread, Runnable task) {
+			long queueWaitTime = (task instanceof Delayed ? -((Delayed) task).getDelay(TimeUnit.NANOSECONDS) : 0);
+			this.startTime.get()[0] = this.metrics.taskStarted(queueWaitTime);
+		}
+
+		@Override
+		protected void afterExecute(Runnable task, @Nullable Throwable ex) {
+			this.metrics.taskCompleted(this.startTime.get()[0]);
+		}
+	}
+
 }
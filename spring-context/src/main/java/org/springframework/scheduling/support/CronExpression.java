@@ -0,0 +1,376 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.support;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Evaluator for a <a href="http://www.manpagez.com/man/5/crontab/">Crontab pattern</a>
+ * based on {@code java.time}, accepting the same six-field patterns as
+ * {@link CronSequenceGenerator}.
+ *
+ * <p>Local times that do not exist due to a daylight saving transition are
+ * skipped; local times that exist twice match only once, since the search
+ * only ever moves forward in local time.
+ *
+ * <p>Each field is precomputed into a bit mask of its allowed values, so that the
+ * next valid value of a field is a single lookup. {@link #next(long)} calculates
+ * on primitive local date-time fields, only touching the fields that need to roll
+ * over, without any {@code Calendar} or intermediate objects. Time zone offsets
+ * are cached until the next offset transition of the time zone.
+ *
+ * @author agent
+ * @since 5.2
+ * @see CronTrigger
+ */
+public class CronExpression {
+
+	private static final int SECONDS_PER_DAY = 86400;
+
+	// Days from 0000-03-01 to 1970-01-01 in the proleptic Gregorian calendar
+	private static final long DAYS_0000_TO_1970 = 719468;
+
+	// Maximum number of years to search for a match
+	private static final int MAX_YEARS = 4;
+
+
+	private final String expression;
+
+	private final ZoneRules rules;
+
+	private final long seconds;
+
+	private final long minutes;
+
+	private final long hours;
+
+	// Bits 1 to 31
+	private final long daysOfMonth;
+
+	// Bits 1 to 12
+	private final long months;
+
+	// Bits 0 (Sunday) to 6
+	private final long daysOfWeek;
+
+	@Nullable
+	private volatile OffsetWindow offsetWindow;
+
+
+	/**
+	 * Construct a {@link CronExpression} from the pattern provided,
+	 * using the default time zone.
+	 * @param expression a space-separated list of time fields
+	 * @throws IllegalArgumentException if the pattern cannot be parsed
+	 */
+	public CronExpression(String expression) {
+		this(expression, ZoneId.systemDefault());
+	}
+
+	/**
+	 * Construct a {@link CronExpression} from the pattern provided,
+	 * using the specified time zone.
+	 * @param expression a space-separated list of time fields
+	 * @param zoneId the time zone to use for generated trigger times
+	 * @throws IllegalArgumentException if the pattern cannot be parsed
+	 */
+	public CronExpression(String expression, ZoneId zoneId) {
+		Assert.notNull(zoneId, "ZoneId must not be null");
+		this.expression = expression;
+		this.rules = zoneId.getRules();
+		long[] masks = new CronSequenceGenerator(expression, TimeZone.getTimeZone(zoneId)).getFieldMasks();
+		this.seconds = masks[0];
+		this.minutes = masks[1];
+		this.hours = masks[2];
+		this.daysOfMonth = masks[3];
+		this.months = masks[4] << 1;
+		this.daysOfWeek = masks[5];
+	}
+
+
+	/**
+	 * Return the cron pattern that this expression has been built for.
+	 */
+	public String getExpression() {
+		return this.expression;
+	}
+
+	/**
+	 * Get the next {@link Date} matching the cron pattern after the date provided.
+	 * The return value will have a whole number of seconds.
+	 * @param date a seed value
+	 * @return the next value matching the pattern
+	 * @throws IllegalArgumentException if no match can be found within four years
+	 * @see #next(long)
+	 */
+	public Date next(Date date) {
+		return new Date(next(date.getTime()));
+	}
+
+	/**
+	 * Get the next point in time matching the cron pattern after the given
+	 * timestamp, in milliseconds since the epoch. The return value will
+	 * have a whole number of seconds.
+	 * @param timestamp a seed value in milliseconds since the epoch
+	 * @return the next value matching the pattern, in milliseconds since the epoch
+	 * @throws IllegalArgumentException if no match can be found within four years
+	 */
+	public long next(long timestamp) {
+		long seedSecond = Math.floorDiv(timestamp, 1000);
+		int offset = getOffset(seedSecond);
+		long localSecond = seedSecond + offset + 1;
+		while (true) {
+			long match = nextLocal(localSecond);
+			long candidate = match - offset;
+			int candidateOffset = getOffset(candidate);
+			if (candidateOffset == offset) {
+				return candidate * 1000;
+			}
+			// Offset transition between seed and match: resolve the local match
+			LocalDateTime dateTime = LocalDateTime.ofEpochSecond(match, 0, ZoneOffset.UTC);
+			ZoneOffsetTransition transition = this.rules.getTransition(dateTime);
+			if (transition == null) {
+				return (match - this.rules.getOffset(dateTime).getTotalSeconds()) * 1000;
+			}
+			if (transition.isGap()) {
+				// Local time does not exist: continue from the end of the gap
+				localSecond = transition.getDateTimeAfter().toEpochSecond(ZoneOffset.UTC);
+				offset = transition.getOffsetAfter().getTotalSeconds();
+				continue;
+			}
+			// Local time exists twice: take the earliest after the seed
+			for (ZoneOffset validOffset : this.rules.getValidOffsets(dateTime)) {
+				candidate = match - validOffset.getTotalSeconds();
+				if (candidate > seedSecond) {
+					return candidate * 1000;
+				}
+			}
+			localSecond = match + 1;
+		}
+	}
+
+	/**
+	 * Find the first local date-time matching the pattern at or after the given one.
+	 * @param localSecond the local date-time as seconds since 1970-01-01T00:00
+	 * @return the matching local date-time as seconds since 1970-01-01T00:00
+	 */
+	private long nextLocal(long localSecond) {
+		long epochDay = Math.floorDiv(localSecond, SECONDS_PER_DAY);
+		int secondOfDay = (int) Math.floorMod(localSecond, SECONDS_PER_DAY);
+		int second = secondOfDay % 60;
+		int minute = secondOfDay / 60 % 60;
+		int hour = secondOfDay / 3600;
+
+		// Civil date from epoch day (Hinnant's algorithm)
+		long dayOfEra = epochDay + DAYS_0000_TO_1970;
+		long era = Math.floorDiv(dayOfEra, 146097);
+		long dayOfEraRemainder = dayOfEra - era * 146097;
+		long yearOfEra = (dayOfEraRemainder - dayOfEraRemainder / 1460 +
+				dayOfEraRemainder / 36524 - dayOfEraRemainder / 146096) / 365;
+		long dayOfYear = dayOfEraRemainder - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long monthIndex = (5 * dayOfYear + 2) / 153;
+		int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+		int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+		int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+		int startYear = year;
+
+		while (true) {
+			// Roll over exhausted fields
+			if (second > 59) {
+				second = 0;
+				minute++;
+			}
+			if (minute > 59) {
+				minute = 0;
+				hour++;
+			}
+			if (hour > 23) {
+				hour = 0;
+				day++;
+			}
+			if (day > lengthOfMonth(year, month)) {
+				day = 1;
+				month++;
+			}
+			if (month > 12) {
+				month = 1;
+				year++;
+				if (year - startYear > MAX_YEARS) {
+					throw new IllegalArgumentException("Invalid cron expression \"" + this.expression +
+							"\" led to runaway search for next trigger");
+				}
+			}
+
+			int nextMonth = nextValue(this.months, month);
+			if (nextMonth != month) {
+				month = (nextMonth < 0 ? 13 : nextMonth);
+				day = 1;
+				hour = minute = second = 0;
+				continue;
+			}
+			int nextDay = nextDay(year, month, day);
+			if (nextDay != day) {
+				day = nextDay;
+				hour = minute = second = 0;
+				continue;
+			}
+			int nextHour = nextValue(this.hours, hour);
+			if (nextHour != hour) {
+				hour = (nextHour < 0 ? 24 : nextHour);
+				minute = second = 0;
+				continue;
+			}
+			int nextMinute = nextValue(this.minutes, minute);
+			if (nextMinute != minute) {
+				minute = (nextMinute < 0 ? 60 : nextMinute);
+				second = 0;
+				continue;
+			}
+			int nextSecond = nextValue(this.seconds, second);
+			if (nextSecond != second) {
+				second = (nextSecond < 0 ? 60 : nextSecond);
+				continue;
+			}
+			return toEpochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+		}
+	}
+
+	/**
+	 * Find the first day matching both the day-of-month and the day-of-week field,
+	 * at or after the given day, or a day beyond the end of the month if none.
+	 */
+	private int nextDay(int year, int month, int day) {
+		int length = lengthOfMonth(year, month);
+		int dayOfWeek = (int) Math.floorMod(toEpochDay(year, month, day) + 4, 7);
+		for (; day <= length; day++) {
+			if ((this.daysOfMonth & (1L << day)) != 0 && (this.daysOfWeek & (1L << dayOfWeek)) != 0) {
+				return day;
+			}
+			dayOfWeek = (dayOfWeek == 6 ? 0 : dayOfWeek + 1);
+		}
+		return length + 1;
+	}
+
+	/**
+	 * Return the first value in the given mask at or after the given value,
+	 * or -1 if none.
+	 */
+	private static int nextValue(long mask, int value) {
+		long remaining = mask & (-1L << value);
+		return (remaining != 0 ? Long.numberOfTrailingZeros(remaining) : -1);
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+			case 2:
+				return ((year & 3) == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28);
+			case 4:
+			case 6:
+			case 9:
+			case 11:
+				return 30;
+			default:
+				return 31;
+		}
+	}
+
+	/**
+	 * Days since 1970-01-01 for the given civil date (Hinnant's algorithm).
+	 */
+	private static long toEpochDay(int year, int month, int day) {
+		long y = (month <= 2 ? year - 1 : year);
+		long era = Math.floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - DAYS_0000_TO_1970;
+	}
+
+	/**
+	 * Return the time zone offset in seconds at the given epoch second,
+	 * cached until the next offset transition.
+	 */
+	private int getOffset(long epochSecond) {
+		OffsetWindow window = this.offsetWindow;
+		if (window != null && epochSecond >= window.start && epochSecond < window.end) {
+			return window.offset;
+		}
+		Instant instant = Instant.ofEpochSecond(epochSecond);
+		int offset = this.rules.getOffset(instant).getTotalSeconds();
+		ZoneOffsetTransition transition = this.rules.nextTransition(instant);
+		long end = (transition != null ? transition.toEpochSecond() : Long.MAX_VALUE);
+		this.offsetWindow = new OffsetWindow(epochSecond, end, offset);
+		return offset;
+	}
+
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CronExpression)) {
+			return false;
+		}
+		CronExpression otherCron = (CronExpression) other;
+		return (this.months == otherCron.months && this.daysOfMonth == otherCron.daysOfMonth &&
+				this.daysOfWeek == otherCron.daysOfWeek && this.hours == otherCron.hours &&
+				this.minutes == otherCron.minutes && this.seconds == otherCron.seconds);
+	}
+
+	@Override
+	public int hashCode() {
+		return (17 * Long.hashCode(this.months) + 29 * Long.hashCode(this.daysOfMonth) +
+				37 * Long.hashCode(this.daysOfWeek) + 41 * Long.hashCode(this.hours) +
+				53 * Long.hashCode(this.minutes) + 61 * Long.hashCode(this.seconds));
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": " + this.expression;
+	}
+
+
+	/**
+	 * Range of epoch seconds with a constant time zone offset.
+	 */
+	private static final class OffsetWindow {
+
+		final long start;
+
+		final long end;
+
+		final int offset;
+
+		OffsetWindow(long start, long end, int offset) {
+			this.start = start;
+			this.end = end;
+			this.offset = offset;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -112,6 +112,22 @@ public class CronSequenceGenerator {
 		return this.expression;
 	}
 
+	/**
+	 * Return the allowed values of each field as a bit mask, in the order
+	 * seconds, minutes, hours, days of month, months (0-based), days of week.
+	 * @since 5.2
+	 * @see CronExpression
+	 */
+	long[] getFieldMasks() {
+		return new long[] {toMask(this.seconds), toMask(this.minutes), toMask(this.hours),
+				toMask(this.daysOfMonth), toMask(this.months), toMask(this.daysOfWeek)};
+	}
+
+	private static long toMask(BitSet bits) {
+		long[] words = bits.toLongArray();
+		return (words.length > 0 ? words[0] : 0);
+	}
+
 
 	/**
 	 * Get the next {@link Date} in the sequence matching the Cron pattern and
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.validation;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.ConfigurablePropertyAccessor;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.PropertyAccessorUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.PatternMatchUtils;
+
+/**
+ * Precomputed binding decisions for a specific target class and binder
+ * configuration, shared across all {@link DataBinder} instances with the
+ * same target class, property accessor type and allowed/disallowed fields
+ * (e.g. the binders created per request for a specific handler method).
+ *
+ * <p>Caches the canonical name of each bound field, whether it is allowed
+ * for binding, and whether it is a writable top-level property of the
+ * target class (avoiding the property access exception for unknown fields
+ * that are going to be ignored anyway). Each cache is limited in size, since
+ * field names usually come from external input: Beyond that limit, decisions
+ * are computed on every binding attempt, just like without a binding plan.
+ *
+ * <p>Plans for target classes loaded by Spring's own ClassLoader (or a parent
+ * of it) are cached strongly. Plans for any other classes, e.g. application
+ * classes in a shared server installation, are only softly held, in order to
+ * not pin their ClassLoader after an application has been undeployed.
+ *
+ * @author agent
+ * @since 5.2
+ * @see DataBinder#doBind
+ */
+final class BindingPlan {
+
+	private static final int MAX_CACHED_FIELDS = 256;
+
+	/** Plans for cache-safe classes, i.e. loaded by Spring's ClassLoader or a parent of it. */
+	static final Map<Key, BindingPlan> strongPlanCache = new ConcurrentHashMap<>(64);
+
+	/** Plans for classes from other ClassLoaders, softly held. */
+	static final Map<Key, BindingPlan> softPlanCache = new ConcurrentReferenceHashMap<>(64);
+
+
+	@Nullable
+	private final String[] allowedFields;
+
+	@Nullable
+	private final String[] disallowedFields;
+
+	private final boolean writablePropertiesCacheable;
+
+	private final Map<String, String> canonicalNames = new ConcurrentHashMap<>(64);
+
+	private final Map<String, Boolean> allowedDecisions = new ConcurrentHashMap<>(64);
+
+	private final Map<String, Boolean> writableProperties = new ConcurrentHashMap<>(64);
+
+
+	private BindingPlan(Key key) {
+		this.allowedFields = key.allowedFields;
+		this.disallowedFields = key.disallowedFields;
+		// Writability of top-level properties is only determined by the target class
+		// for the standard accessors, not necessarily for custom accessor subclasses
+		this.writablePropertiesCacheable = (key.targetClass != null &&
+				(key.accessorClass == BeanWrapperImpl.class || key.accessorClass == DirectFieldAccessor.class));
+	}
+
+
+	/**
+	 * Return the canonical name for the given property path.
+	 * @see PropertyAccessorUtils#canonicalPropertyName
+	 */
+	public String getCanonicalName(String propertyName) {
+		String canonicalName = this.canonicalNames.get(propertyName);
+		if (canonicalName == null) {
+			canonicalName = PropertyAccessorUtils.canonicalPropertyName(propertyName);
+			if (this.canonicalNames.size() < MAX_CACHED_FIELDS) {
+				this.canonicalNames.put(propertyName, canonicalName);
+			}
+		}
+		return canonicalName;
+	}
+
+	/**
+	 * Determine whether the given field is allowed according to the allowed
+	 * and disallowed field patterns of this plan.
+	 * @param field the canonical field name
+	 * @see DataBinder#isAllowed
+	 */
+	public boolean isAllowed(String field) {
+		Boolean allowed = this.allowedDecisions.get(field);
+		if (allowed == null) {
+			allowed = ((ObjectUtils.isEmpty(this.allowedFields) ||
+					PatternMatchUtils.simpleMatch(this.allowedFields, field)) &&
+					(ObjectUtils.isEmpty(this.disallowedFields) ||
+							!PatternMatchUtils.simpleMatch(this.disallowedFields, field)));
+			if (this.allowedDecisions.size() < MAX_CACHED_FIELDS) {
+				this.allowedDecisions.put(field, allowed);
+			}
+		}
+		return allowed;
+	}
+
+	/**
+	 * Determine whether the given property is known to be not writable on the
+	 * target class, i.e. whether it would be rejected as an unknown field.
+	 * @param propertyName the property path
+	 * @param accessor the property accessor for the current target
+	 * @return {@code true} if the property is a top-level property which is known
+	 * to be not writable, {@code false} if writable or to be determined by the accessor
+	 */
+	public boolean isNotWritable(String propertyName, ConfigurablePropertyAccessor accessor) {
+		if (!this.writablePropertiesCacheable || PropertyAccessorUtils.isNestedOrIndexedProperty(propertyName)) {
+			return false;
+		}
+		Boolean writable = this.writableProperties.get(propertyName);
+		if (writable == null) {
+			writable = accessor.isWritableProperty(propertyName);
+			if (this.writableProperties.size() < MAX_CACHED_FIELDS) {
+				this.writableProperties.put(propertyName, writable);
+			}
+		}
+		return !writable;
+	}
+
+
+	/**
+	 * Obtain a shared binding plan for the given target class and binder configuration.
+	 * @param targetClass the class of the binding target
+	 * @param accessorClass the type of property accessor used for binding
+	 * @param allowedFields the allowed field patterns (if any)
+	 * @param disallowedFields the disallowed field patterns (if any)
+	 */
+	public static BindingPlan forConfiguration(@Nullable Class<?> targetClass, Class<?> accessorClass,
+			@Nullable String[] allowedFields, @Nullable String[] disallowedFields) {
+
+		Map<Key, BindingPlan> planCache = (isCacheSafe(targetClass) && isCacheSafe(accessorClass) ?
+				strongPlanCache : softPlanCache);
+		Key key = new Key(targetClass, accessorClass, allowedFields, disallowedFields);
+		BindingPlan plan = planCache.get(key);
+		if (plan == null) {
+			// Independent copy of the field patterns for the shared plan
+			key = new Key(targetClass, accessorClass, (allowedFields != null ? allowedFields.clone() : null),
+					(disallowedFields != null ? disallowedFields.clone() : null));
+			plan = new BindingPlan(key);
+			BindingPlan existing = planCache.putIfAbsent(key, plan);
+			if (existing != null) {
+				plan = existing;
+			}
+		}
+		return plan;
+	}
+
+	private static boolean isCacheSafe(@Nullable Class<?> clazz) {
+		return (clazz == null || ClassUtils.isCacheSafe(clazz, BindingPlan.class.getClassLoader()));
+	}
+
+
+	/**
+	 * Cache key for binding plans.
+	 */
+	private static final class Key {
+
+		@Nullable
+		private final Class<?> targetClass;
+
+		private final Class<?> accessorClass;
+
+		@Nullable
+		private final String[] allowedFields;
+
+		@Nullable
+		private final String[] disallowedFields;
+
+		public Key(@Nullable Class<?> targetClass, Class<?> accessorClass,
+				@Nullable String[] allowedFields, @Nullable String[] disallowedFields) {
+
+			this.targetClass = targetClass;
+			this.accessorClass = accessorClass;
+			this.allowedFields = allowedFields;
+			this.disallowedFields = disallowedFields;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key otherKey = (Key) other;
+			return (this.targetClass == otherKey.targetClass && this.accessorClass == otherKey.accessorClass &&
+					Arrays.equals(this.allowedFields, otherKey.allowedFields) &&
+					Arrays.equals(this.disallowedFields, otherKey.disallowedFields));
+		}
+
+		@Override
+		public int hashCode() {
+			return (ObjectUtils.nullSafeHashCode(this.targetClass) * 29 + this.accessorClass.hashCode()) * 29 +
+					Arrays.hashCode(this.allowedFields) * 29 + Arrays.hashCode(this.disallowedFields);
+		}
+	}
+
+}
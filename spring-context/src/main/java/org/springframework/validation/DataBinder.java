@@ -47,7 +47,6 @@ import org.springframework.format.support.FormatterPropertyEditorAdapter;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
-import org.springframework.util.PatternMatchUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -159,6 +158,9 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 
 	private final List<Validator> validators = new ArrayList<>();
 
+	@Nullable
+	private BindingPlan bindingPlan;
+
 
 	/**
 	 * Create a new DataBinder instance, with default object name.
@@ -732,6 +734,10 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 	/**
 	 * Actual implementation of the binding process, working with the
 	 * passed-in MutablePropertyValues instance.
+	 * <p>Field permission checks and the detection of unknown fields are
+	 * precomputed in a binding plan per target class and field configuration,
+	 * shared across all binders with the same configuration. The plan is
+	 * resolved once per binding process, for all of the steps below.
 	 * @param mpvs the property values to bind,
 	 * as MutablePropertyValues instance
 	 * @see #checkAllowedFields
@@ -739,9 +745,16 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 	 * @see #applyPropertyValues
 	 */
 	protected void doBind(MutablePropertyValues mpvs) {
-		checkAllowedFields(mpvs);
-		checkRequiredFields(mpvs);
-		applyPropertyValues(mpvs);
+		BindingPlan previousPlan = this.bindingPlan;
+		this.bindingPlan = resolveBindingPlan();
+		try {
+			checkAllowedFields(mpvs);
+			checkRequiredFields(mpvs);
+			applyPropertyValues(mpvs);
+		}
+		finally {
+			this.bindingPlan = previousPlan;
+		}
 	}
 
 	/**
@@ -752,9 +765,10 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 	 * @see #isAllowed(String)
 	 */
 	protected void checkAllowedFields(MutablePropertyValues mpvs) {
+		BindingPlan bindingPlan = getBindingPlan();
 		PropertyValue[] pvs = mpvs.getPropertyValues();
 		for (PropertyValue pv : pvs) {
-			String field = PropertyAccessorUtils.canonicalPropertyName(pv.getName());
+			String field = bindingPlan.getCanonicalName(pv.getName());
 			if (!isAllowed(field)) {
 				mpvs.removePropertyValue(pv);
 				getBindingResult().recordSuppressedField(field);
@@ -781,10 +795,7 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 	 * @see org.springframework.util.PatternMatchUtils#simpleMatch(String, String)
 	 */
 	protected boolean isAllowed(String field) {
-		String[] allowed = getAllowedFields();
-		String[] disallowed = getDisallowedFields();
-		return ((ObjectUtils.isEmpty(allowed) || PatternMatchUtils.simpleMatch(allowed, field)) &&
-				(ObjectUtils.isEmpty(disallowed) || !PatternMatchUtils.simpleMatch(disallowed, field)));
+		return getBindingPlan().isAllowed(field);
 	}
 
 	/**
@@ -798,10 +809,11 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 	protected void checkRequiredFields(MutablePropertyValues mpvs) {
 		String[] requiredFields = getRequiredFields();
 		if (!ObjectUtils.isEmpty(requiredFields)) {
+			BindingPlan bindingPlan = getBindingPlan();
 			Map<String, PropertyValue> propertyValues = new HashMap<>();
 			PropertyValue[] pvs = mpvs.getPropertyValues();
 			for (PropertyValue pv : pvs) {
-				String canonicalName = PropertyAccessorUtils.canonicalPropertyName(pv.getName());
+				String canonicalName = bindingPlan.getCanonicalName(pv.getName());
 				propertyValues.put(canonicalName, pv);
 			}
 			for (String field : requiredFields) {
@@ -843,9 +855,23 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 	 * @see BindingErrorProcessor#processPropertyAccessException
 	 */
 	protected void applyPropertyValues(MutablePropertyValues mpvs) {
+		ConfigurablePropertyAccessor accessor = getPropertyAccessor();
+		MutablePropertyValues pvsToApply = mpvs;
+		if (isIgnoreUnknownFields()) {
+			// Skip fields known to be unknown, instead of ignoring an exception for each.
+			BindingPlan bindingPlan = getBindingPlan();
+			for (PropertyValue pv : mpvs.getPropertyValueList()) {
+				if (bindingPlan.isNotWritable(pv.getName(), accessor)) {
+					if (pvsToApply == mpvs) {
+						pvsToApply = new MutablePropertyValues(mpvs);
+					}
+					pvsToApply.removePropertyValue(pv.getName());
+				}
+			}
+		}
 		try {
 			// Bind request parameters onto target object.
-			getPropertyAccessor().setPropertyValues(mpvs, isIgnoreUnknownFields(), isIgnoreInvalidFields());
+			accessor.setPropertyValues(pvsToApply, isIgnoreUnknownFields(), isIgnoreInvalidFields());
 		}
 		catch (PropertyBatchUpdateException ex) {
 			// Use bind error processor to create FieldErrors.
@@ -855,6 +881,24 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 		}
 	}
 
+	/**
+	 * Return the binding plan of the current binding process,
+	 * or resolve it if called outside of {@link #doBind}.
+	 */
+	private BindingPlan getBindingPlan() {
+		return (this.bindingPlan != null ? this.bindingPlan : resolveBindingPlan());
+	}
+
+	/**
+	 * Obtain the shared binding plan for the current target class
+	 * and allowed/disallowed fields.
+	 */
+	private BindingPlan resolveBindingPlan() {
+		Object target = getTarget();
+		return BindingPlan.forConfiguration((target != null ? target.getClass() : null),
+				getPropertyAccessor().getClass(), getAllowedFields(), getDisallowedFields());
+	}
+
 
 	/**
 	 * Invoke the specified Validators, if any.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,13 +17,17 @@
 package org.springframework.validation.beanvalidation;
 
 import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 import javax.validation.executable.ExecutableValidator;
+import javax.validation.metadata.MethodDescriptor;
+import javax.validation.metadata.ParameterDescriptor;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
@@ -31,7 +35,9 @@ import org.aopalliance.intercept.MethodInvocation;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.SmartFactoryBean;
 import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.MethodClassKey;
 import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.lang.Nullable;
 import org.springframework.util.ClassUtils;
 import org.springframework.validation.annotation.Validated;
 
@@ -49,6 +55,11 @@ import org.springframework.validation.annotation.Validated;
  * at the type level of the containing target class, applying to all public service methods
  * of that class. By default, JSR-303 will validate against its default group only.
  *
+ * <p>The constraint metadata of each method is determined once, through the
+ * {@link Validator#getConstraintsForClass Bean Validation metadata API}, along with
+ * its validation groups: Methods without parameter or return value constraints
+ * are invoked without any validator involvement.
+ *
  * <p>As of Spring 5.0, this functionality requires a Bean Validation 1.1 provider.
  *
  * @author Juergen Hoeller
@@ -58,8 +69,13 @@ import org.springframework.validation.annotation.Validated;
  */
 public class MethodValidationInterceptor implements MethodInterceptor {
 
+	private static final Class<?>[] NO_GROUPS = new Class<?>[0];
+
+
 	private final Validator validator;
 
+	private final Map<MethodClassKey, MethodValidationMetadata> metadataCache = new ConcurrentHashMap<>(256);
+
 
 	/**
 	 * Create a new MethodValidationInterceptor using a default JSR-303 validator underneath.
@@ -93,6 +109,12 @@ public class MethodValidationInterceptor implements MethodInterceptor {
 			return invocation.proceed();
 		}
 
+		// Avoid Validator invocation on methods without any constraints
+		MethodValidationMetadata metadata = getMethodValidationMetadata(invocation.getMethod(), getTargetClass(invocation));
+		if (!metadata.validateParameters && !metadata.validateReturnValue) {
+			return invocation.proceed();
+		}
+
 		Class<?>[] groups = determineValidationGroups(invocation);
 
 		// Standard Bean Validation 1.1 API
@@ -100,32 +122,109 @@ public class MethodValidationInterceptor implements MethodInterceptor {
 		Method methodToValidate = invocation.getMethod();
 		Set<ConstraintViolation<Object>> result;
 
-		try {
-			result = execVal.validateParameters(
-					invocation.getThis(), methodToValidate, invocation.getArguments(), groups);
-		}
-		catch (IllegalArgumentException ex) {
-			// Probably a generic type mismatch between interface and impl as reported in SPR-12237 / HV-1011
-			// Let's try to find the bridged method on the implementation class...
-			methodToValidate = BridgeMethodResolver.findBridgedMethod(
-					ClassUtils.getMostSpecificMethod(invocation.getMethod(), invocation.getThis().getClass()));
-			result = execVal.validateParameters(
-					invocation.getThis(), methodToValidate, invocation.getArguments(), groups);
-		}
-		if (!result.isEmpty()) {
-			throw new ConstraintViolationException(result);
+		if (metadata.validateParameters) {
+			try {
+				result = execVal.validateParameters(
+						invocation.getThis(), methodToValidate, invocation.getArguments(), groups);
+			}
+			catch (IllegalArgumentException ex) {
+				// Probably a generic type mismatch between interface and impl as reported in SPR-12237 / HV-1011
+				// Let's try to find the bridged method on the implementation class...
+				methodToValidate = BridgeMethodResolver.findBridgedMethod(
+						ClassUtils.getMostSpecificMethod(invocation.getMethod(), invocation.getThis().getClass()));
+				result = execVal.validateParameters(
+						invocation.getThis(), methodToValidate, invocation.getArguments(), groups);
+			}
+			if (!result.isEmpty()) {
+				throw new ConstraintViolationException(result);
+			}
 		}
 
 		Object returnValue = invocation.proceed();
 
-		result = execVal.validateReturnValue(invocation.getThis(), methodToValidate, returnValue, groups);
-		if (!result.isEmpty()) {
-			throw new ConstraintViolationException(result);
+		if (metadata.validateReturnValue) {
+			result = execVal.validateReturnValue(invocation.getThis(), methodToValidate, returnValue, groups);
+			if (!result.isEmpty()) {
+				throw new ConstraintViolationException(result);
+			}
 		}
 
 		return returnValue;
 	}
 
+	@Nullable
+	private Class<?> getTargetClass(MethodInvocation invocation) {
+		Object target = invocation.getThis();
+		return (target != null ? target.getClass() : null);
+	}
+
+	/**
+	 * Determine whether the given method on the given target class needs to be
+	 * validated, i.e. whether it has any parameter or return value constraints.
+	 * <p>The default implementation checks the constraint metadata of the method
+	 * through the Bean Validation metadata API, caching the result per method.
+	 * Can be overridden for custom validation arrangements.
+	 * @param method the method to check
+	 * @param targetClass the target class (may be {@code null})
+	 * @return {@code true} if the method needs to be intercepted for validation
+	 * purposes, {@code false} if it can be invoked without the Validator
+	 * @since 5.2
+	 * @see MethodValidationPostProcessor#setAdviseConstrainedMethodsOnly
+	 */
+	protected boolean isValidationRequired(Method method, @Nullable Class<?> targetClass) {
+		if (isFactoryBeanMetadataMethod(method)) {
+			return false;
+		}
+		MethodValidationMetadata metadata = getMethodValidationMetadata(method, targetClass);
+		return (metadata.validateParameters || metadata.validateReturnValue);
+	}
+
+	private MethodValidationMetadata getMethodValidationMetadata(Method method, @Nullable Class<?> targetClass) {
+		MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+		MethodValidationMetadata metadata = this.metadataCache.get(cacheKey);
+		if (metadata == null) {
+			metadata = buildMethodValidationMetadata(method, targetClass);
+			this.metadataCache.put(cacheKey, metadata);
+		}
+		return metadata;
+	}
+
+	private MethodValidationMetadata buildMethodValidationMetadata(Method method, @Nullable Class<?> targetClass) {
+		Class<?>[] groups = resolveValidationGroups(method, targetClass);
+		if (targetClass == null) {
+			return new MethodValidationMetadata(groups, true, true);
+		}
+		try {
+			Method specificMethod = BridgeMethodResolver.findBridgedMethod(
+					ClassUtils.getMostSpecificMethod(method, targetClass));
+			MethodDescriptor descriptor = this.validator.getConstraintsForClass(targetClass)
+					.getConstraintsForMethod(specificMethod.getName(), specificMethod.getParameterTypes());
+			if (descriptor == null && specificMethod != method) {
+				descriptor = this.validator.getConstraintsForClass(method.getDeclaringClass())
+						.getConstraintsForMethod(method.getName(), method.getParameterTypes());
+			}
+			if (descriptor == null) {
+				// Method not constrained at all
+				return new MethodValidationMetadata(groups, false, false);
+			}
+			boolean validateParameters = descriptor.hasConstrainedParameters();
+			if (!validateParameters) {
+				for (ParameterDescriptor parameter : descriptor.getParameterDescriptors()) {
+					if (parameter.isCascaded()) {
+						validateParameters = true;
+						break;
+					}
+				}
+			}
+			return new MethodValidationMetadata(groups, validateParameters, descriptor.hasConstrainedReturnValue());
+		}
+		catch (RuntimeException ex) {
+			// Metadata not accessible - e.g. invalid constraint declarations, to be
+			// reported by the Validator itself: let's validate on every invocation.
+			return new MethodValidationMetadata(groups, true, true);
+		}
+	}
+
 	private boolean isFactoryBeanMetadataMethod(Method method) {
 		Class<?> clazz = method.getDeclaringClass();
 
@@ -155,11 +254,34 @@ public class MethodValidationInterceptor implements MethodInterceptor {
 	 * @return the applicable validation groups as a Class array
 	 */
 	protected Class<?>[] determineValidationGroups(MethodInvocation invocation) {
-		Validated validatedAnn = AnnotationUtils.findAnnotation(invocation.getMethod(), Validated.class);
-		if (validatedAnn == null) {
-			validatedAnn = AnnotationUtils.findAnnotation(invocation.getThis().getClass(), Validated.class);
+		return getMethodValidationMetadata(invocation.getMethod(), getTargetClass(invocation)).groups;
+	}
+
+	private Class<?>[] resolveValidationGroups(Method method, @Nullable Class<?> targetClass) {
+		Validated validatedAnn = AnnotationUtils.findAnnotation(method, Validated.class);
+		if (validatedAnn == null && targetClass != null) {
+			validatedAnn = AnnotationUtils.findAnnotation(targetClass, Validated.class);
+		}
+		return (validatedAnn != null ? validatedAnn.value() : NO_GROUPS);
+	}
+
+
+	/**
+	 * Precomputed validation metadata for a specific method on a target class.
+	 */
+	private static class MethodValidationMetadata {
+
+		private final Class<?>[] groups;
+
+		private final boolean validateParameters;
+
+		private final boolean validateReturnValue;
+
+		public MethodValidationMetadata(Class<?>[] groups, boolean validateParameters, boolean validateReturnValue) {
+			this.groups = groups;
+			this.validateParameters = validateParameters;
+			this.validateReturnValue = validateReturnValue;
 		}
-		return (validatedAnn != null ? validatedAnn.value() : new Class<?>[0]);
 	}
 
 }
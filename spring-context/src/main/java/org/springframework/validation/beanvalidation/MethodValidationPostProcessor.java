@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.validation.beanvalidation;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 
@@ -24,7 +25,9 @@ import org.aopalliance.aop.Advice;
 
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.ComposablePointcut;
 import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcher;
 import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.config.BeanPostProcessor;
@@ -65,6 +68,8 @@ public class MethodValidationPostProcessor extends AbstractBeanFactoryAwareAdvis
 	@Nullable
 	private Validator validator;
 
+	private boolean adviseConstrainedMethodsOnly = false;
+
 
 	/**
 	 * Set the 'validated' annotation type.
@@ -106,11 +111,36 @@ public class MethodValidationPostProcessor extends AbstractBeanFactoryAwareAdvis
 		this.validator = validatorFactory.getValidator();
 	}
 
+	/**
+	 * Specify whether to narrow the validation pointcut to methods with parameter
+	 * or return value constraints at proxy creation time, not applying method
+	 * validation advice to any other methods (and not creating a proxy at all
+	 * for 'validated' classes without any constrained methods).
+	 * <p>Default is "false", applying the advice to all methods of 'validated'
+	 * classes, with unconstrained methods getting invoked without Validator
+	 * involvement at runtime. Switch this to "true" for avoiding the interceptor
+	 * overhead for such methods completely. Note that this queries the constraint
+	 * metadata of the Validator when creating proxies, i.e. it will initialize a
+	 * lazy Validator at that point already.
+	 * <p>Only applies to a {@link MethodValidationInterceptor} (or subclass thereof)
+	 * returned from {@link #createMethodValidationAdvice}.
+	 * @since 5.2
+	 * @see MethodValidationInterceptor#isValidationRequired
+	 */
+	public void setAdviseConstrainedMethodsOnly(boolean adviseConstrainedMethodsOnly) {
+		this.adviseConstrainedMethodsOnly = adviseConstrainedMethodsOnly;
+	}
+
 
 	@Override
 	public void afterPropertiesSet() {
 		Pointcut pointcut = new AnnotationMatchingPointcut(this.validatedAnnotationType, true);
-		this.advisor = new DefaultPointcutAdvisor(pointcut, createMethodValidationAdvice(this.validator));
+		Advice advice = createMethodValidationAdvice(this.validator);
+		if (this.adviseConstrainedMethodsOnly && advice instanceof MethodValidationInterceptor) {
+			pointcut = new ComposablePointcut(pointcut.getClassFilter(),
+					new ConstrainedMethodMatcher((MethodValidationInterceptor) advice));
+		}
+		this.advisor = new DefaultPointcutAdvisor(pointcut, advice);
 	}
 
 	/**
@@ -125,4 +155,23 @@ public class MethodValidationPostProcessor extends AbstractBeanFactoryAwareAdvis
 		return (validator != null ? new MethodValidationInterceptor(validator) : new MethodValidationInterceptor());
 	}
 
+
+	/**
+	 * MethodMatcher for methods that need to be intercepted for validation purposes,
+	 * as determined by the MethodValidationInterceptor.
+	 */
+	private static class ConstrainedMethodMatcher extends StaticMethodMatcher {
+
+		private final MethodValidationInterceptor interceptor;
+
+		public ConstrainedMethodMatcher(MethodValidationInterceptor interceptor) {
+			this.interceptor = interceptor;
+		}
+
+		@Override
+		public boolean matches(Method method, Class<?> targetClass) {
+			return this.interceptor.isValidationRequired(method, targetClass);
+		}
+	}
+
 }
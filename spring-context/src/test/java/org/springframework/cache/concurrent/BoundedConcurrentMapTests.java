@@ -0,0 +1,266 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.cache.Cache;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link BoundedConcurrentMap}.
+ *
+ * @author agent
+ */
+public class BoundedConcurrentMapTests {
+
+	@Test
+	public void mapOperations() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(100);
+		assertNull(map.put("a", "1"));
+		assertEquals("1", map.put("a", "2"));
+		assertEquals("2", map.putIfAbsent("a", "3"));
+		assertNull(map.putIfAbsent("b", "3"));
+		assertFalse(map.replace("a", "1", "4"));
+		assertTrue(map.replace("a", "2", "4"));
+		assertEquals("4", map.replace("a", "5"));
+		assertNull(map.replace("c", "5"));
+		assertFalse(map.remove("a", "4"));
+		assertTrue(map.remove("a", "5"));
+		assertEquals("6", map.computeIfAbsent("a", key -> "6"));
+		assertEquals("6", map.computeIfAbsent("a", key -> "7"));
+		assertNull(map.computeIfAbsent("c", key -> null));
+		assertTrue(map.containsKey("a"));
+		assertFalse(map.containsKey("c"));
+		assertEquals(2, map.size());
+
+		Map<String, String> expected = new HashMap<>();
+		expected.put("a", "6");
+		expected.put("b", "3");
+		assertEquals(expected, map);
+		Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+		it.next();
+		it.remove();
+		assertEquals(1, map.size());
+
+		assertEquals("3", map.remove("b"));
+		assertNull(map.remove("b"));
+		map.put("c", "8");
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get("c"));
+	}
+
+	@Test
+	public void statistics() {
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(100);
+		map.put("a", "1");
+		map.get("a");
+		map.get("a");
+		map.get("b");
+		map.computeIfAbsent("a", key -> "2");
+		map.computeIfAbsent("c", key -> "3");
+		assertEquals(3, map.getHitCount());
+		assertEquals(2, map.getMissCount());
+		assertEquals(0, map.getEvictionCount());
+	}
+
+	@Test
+	public void maximumSize() {
+		BoundedConcurrentMap<Integer, Integer> map = new BoundedConcurrentMap<>(50);
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, i);
+			assertTrue(map.size() <= 50);
+		}
+		assertEquals(50, map.size());
+		assertEquals(950, map.getEvictionCount());
+		// The most recently added entry is retained in the admission window
+		assertEquals(Integer.valueOf(999), map.get(999));
+	}
+
+	@Test
+	public void singleEntry() {
+		BoundedConcurrentMap<Integer, Integer> map = new BoundedConcurrentMap<>(1);
+		for (int i = 0; i < 10; i++) {
+			map.put(i, i);
+			assertEquals(1, map.size());
+			assertEquals(Integer.valueOf(i), map.get(i));
+		}
+	}
+
+	@Test
+	public void frequentlyUsedEntriesSurviveScan() {
+		BoundedConcurrentMap<Integer, Integer> map = new BoundedConcurrentMap<>(100);
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 50; i++) {
+				map.computeIfAbsent(i, key -> key);
+			}
+		}
+		for (int i = 1000; i < 11000; i++) {
+			map.computeIfAbsent(i, key -> key);
+		}
+		int retained = 0;
+		for (int i = 0; i < 50; i++) {
+			if (map.containsKey(i)) {
+				retained++;
+			}
+		}
+		// A pure LRU policy would have retained none of them
+		assertTrue("Only " + retained + " retained", retained >= 45);
+		assertEquals(100, map.size());
+	}
+
+	@Test
+	public void expireAfterWrite() throws Exception {
+		ConcurrentMapCacheSettings settings = new ConcurrentMapCacheSettings();
+		settings.setExpireAfterWrite(Duration.ofMillis(50));
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(settings);
+		assertEquals(-1, map.getMaximumSize());
+		map.put("a", "1");
+		map.put("b", "2");
+		assertEquals("1", map.get("a"));
+		Thread.sleep(100);
+		assertNull(map.get("a"));
+		assertFalse(map.containsKey("b"));
+		assertNull(map.putIfAbsent("b", "3"));
+		assertEquals("3", map.get("b"));
+		assertEquals(2, map.getExpirationCount());
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void expireAfterAccess() throws Exception {
+		ConcurrentMapCacheSettings settings = new ConcurrentMapCacheSettings(10);
+		settings.setExpireAfterAccess(Duration.ofMillis(200));
+		BoundedConcurrentMap<String, String> map = new BoundedConcurrentMap<>(settings);
+		map.put("a", "1");
+		map.put("b", "2");
+		for (int i = 0; i < 5; i++) {
+			Thread.sleep(50);
+			assertEquals("1", map.get("a"));
+		}
+		assertFalse(map.containsKey("b"));
+		Thread.sleep(250);
+		map.cleanUp();
+		assertTrue(map.isEmpty());
+		assertEquals(2, map.getExpirationCount());
+	}
+
+	@Test
+	public void cacheWithBoundedStore() {
+		BoundedConcurrentMap<Object, Object> store = new BoundedConcurrentMap<>(2);
+		ConcurrentMapCache cache = new ConcurrentMapCache("test", store, true);
+		assertEquals("a", cache.get("a", () -> "a"));
+		assertEquals("a", cache.get("a", () -> "b"));
+		cache.put("b", null);
+		cache.put("c", "c");
+		cache.put("d", "d");
+		assertEquals(2, store.size());
+		Cache.ValueWrapper wrapper = cache.get("d");
+		assertNotNull(wrapper);
+		assertEquals("d", wrapper.get());
+		assertEquals(2, store.getEvictionCount());
+	}
+
+	@Test
+	public void concurrentAccess() throws Exception {
+		BoundedConcurrentMap<Integer, Integer> map = new BoundedConcurrentMap<>(500);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch done = new CountDownLatch(8);
+		AtomicInteger failures = new AtomicInteger();
+		for (int t = 0; t < 8; t++) {
+			int seed = t;
+			executor.execute(() -> {
+				Random random = new Random(seed);
+				try {
+					for (int i = 0; i < 50000; i++) {
+						int key = random.nextInt(2000);
+						switch (random.nextInt(4)) {
+							case 0:
+								map.put(key, key);
+								break;
+							case 1:
+								map.remove(key);
+								break;
+							default:
+								Integer value = map.computeIfAbsent(key, k -> k);
+								if (value != key) {
+									failures.incrementAndGet();
+								}
+						}
+					}
+				}
+				finally {
+					done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertEquals(0, failures.get());
+		map.cleanUp();
+		assertTrue(map.size() <= 500);
+	}
+
+	@Test
+	public void hitRateAboveLru() {
+		// Zipf-like workload with 10000 keys, interleaved with scans of one-off keys
+		int[] keys = new int[500000];
+		Random random = new Random(42);
+		int scanKey = 100000;
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = (i % 10 == 0 ? scanKey++ : (int) Math.pow(10000, random.nextDouble()));
+		}
+		Map<Integer, Integer> lru = new LinkedHashMap<Integer, Integer>(1000, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+				return size() > 1000;
+			}
+		};
+		int lruHits = 0;
+		for (int key : keys) {
+			if (lru.get(key) != null) {
+				lruHits++;
+			}
+			else {
+				lru.put(key, key);
+			}
+		}
+		BoundedConcurrentMap<Integer, Integer> bounded = new BoundedConcurrentMap<>(1000);
+		for (int key : keys) {
+			bounded.computeIfAbsent(key, k -> k);
+		}
+		assertEquals(keys.length, bounded.getHitCount() + bounded.getMissCount());
+		double lruHitRate = (double) lruHits / keys.length;
+		double hitRate = (double) bounded.getHitCount() / keys.length;
+		assertTrue("Hit rate " + hitRate + " vs " + lruHitRate + " for LRU", hitRate > lruHitRate);
+	}
+
+}
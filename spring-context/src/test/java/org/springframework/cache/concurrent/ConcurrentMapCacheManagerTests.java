@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.cache.concurrent;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.junit.Test;
 
 import org.springframework.cache.Cache;
@@ -131,4 +135,35 @@ public class ConcurrentMapCacheManagerTests {
 		assertNull(cache1x.get("key"));
 	}
 
+	@Test
+	public void testCacheSettings() {
+		ConcurrentMapCacheManager cm = new ConcurrentMapCacheManager("c1", "c2", "c3");
+		assertTrue(((ConcurrentMapCache) cm.getCache("c1")).getNativeCache() instanceof ConcurrentHashMap);
+
+		ConcurrentMapCacheSettings defaultSettings = new ConcurrentMapCacheSettings(100);
+		defaultSettings.setExpireAfterWrite(Duration.ofMinutes(10));
+		cm.setDefaultCacheSettings(defaultSettings);
+		cm.setCacheSettings(Collections.singletonMap("c2", new ConcurrentMapCacheSettings(10)));
+
+		Cache cache1 = cm.getCache("c1");
+		assertTrue(((ConcurrentMapCache) cache1).getNativeCache() instanceof BoundedConcurrentMap);
+		assertEquals(100, ((BoundedConcurrentMap<?, ?>) ((ConcurrentMapCache) cache1).getNativeCache()).getMaximumSize());
+		Cache cache2 = cm.getCache("c2");
+		BoundedConcurrentMap<?, ?> store2 = (BoundedConcurrentMap<?, ?>) ((ConcurrentMapCache) cache2).getNativeCache();
+		assertEquals(10, store2.getMaximumSize());
+
+		for (int i = 0; i < 100; i++) {
+			cache2.put("key" + i, i);
+		}
+		assertEquals(10, store2.size());
+		assertEquals(90, store2.getEvictionCount());
+		cache2.put("key", null);
+		assertNotNull(cache2.get("key"));
+		assertNull(cache2.get("key").get());
+
+		cm.setDefaultCacheSettings(null);
+		assertTrue(((ConcurrentMapCache) cm.getCache("c1")).getNativeCache() instanceof ConcurrentHashMap);
+		assertTrue(((ConcurrentMapCache) cm.getCache("c2")).getNativeCache() instanceof BoundedConcurrentMap);
+	}
+
 }
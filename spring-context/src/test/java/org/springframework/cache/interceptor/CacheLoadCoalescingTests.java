@@ -0,0 +1,356 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CacheAspectSupport#setLoadCoalescing load coalescing}.
+ *
+ * @author agent
+ */
+public class CacheLoadCoalescingTests {
+
+	private final AtomicInteger failingCacheLookups = new AtomicInteger();
+
+	private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager() {
+		@Override
+		protected Cache createConcurrentMapCache(String name) {
+			return ("failing".equals(name) ? new FailingCache(name) : super.createConcurrentMapCache(name));
+		}
+	};
+
+	private final CacheInterceptor interceptor = new CacheInterceptor();
+
+	private SimpleService service;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private final CountDownLatch failingCacheStarted = new CountDownLatch(1);
+
+	private final AtomicInteger invocations = new AtomicInteger();
+
+
+	@Before
+	public void setup() {
+		this.interceptor.setCacheOperationSource(new AnnotationCacheOperationSource());
+		this.interceptor.setCacheManager(this.cacheManager);
+		this.interceptor.setLoadCoalescing(true);
+		this.interceptor.afterPropertiesSet();
+		this.interceptor.afterSingletonsInstantiated();
+
+		ProxyFactory proxyFactory = new ProxyFactory(new SimpleService());
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAdvice(this.interceptor);
+		this.service = (SimpleService) proxyFactory.getProxy();
+	}
+
+	@After
+	public void shutdown() {
+		this.release.countDown();
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void concurrentMissesInvokeOnce() throws Exception {
+		List<Future<Object>> results = submit(8, () -> this.service.get("key", () -> {
+			awaitRelease();
+			return "value" + this.invocations.incrementAndGet();
+		}));
+		Thread.sleep(100);
+		this.release.countDown();
+		for (Future<Object> result : results) {
+			assertEquals("value1", result.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, this.invocations.get());
+		assertEquals("value1", this.cacheManager.getCache("test").get("key").get());
+		assertEquals("value1", this.service.get("key", () -> "other"));
+	}
+
+	@Test
+	public void concurrentMissesInMultipleCachesInvokeOnce() throws Exception {
+		List<Future<Object>> results = submit(8, () -> this.service.getFromMultipleCaches("key", () -> {
+			awaitRelease();
+			return "value" + this.invocations.incrementAndGet();
+		}));
+		Thread.sleep(100);
+		this.release.countDown();
+		for (Future<Object> result : results) {
+			assertEquals("value1", result.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, this.invocations.get());
+		assertEquals("value1", this.cacheManager.getCache("test").get("key").get());
+		assertEquals("value1", this.cacheManager.getCache("other").get("key").get());
+	}
+
+	@Test
+	public void differentKeysInvokeSeparately() throws Exception {
+		CountDownLatch started = new CountDownLatch(2);
+		List<Future<Object>> results = new ArrayList<>();
+		for (String key : new String[] {"key1", "key2"}) {
+			results.add(this.executor.submit(() -> this.service.get(key, () -> {
+				started.countDown();
+				awaitRelease();
+				return this.invocations.incrementAndGet();
+			})));
+		}
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		this.release.countDown();
+		for (Future<Object> result : results) {
+			result.get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(2, this.invocations.get());
+	}
+
+	@Test
+	public void failureIsShared() throws Exception {
+		IllegalStateException failure = new IllegalStateException("Expected exception");
+		List<Future<Object>> results = submit(4, () -> this.service.get("key", () -> {
+			this.invocations.incrementAndGet();
+			awaitRelease();
+			throw failure;
+		}));
+		Thread.sleep(100);
+		this.release.countDown();
+		List<Throwable> exceptions = new ArrayList<>();
+		for (Future<Object> result : results) {
+			try {
+				result.get(5, TimeUnit.SECONDS);
+				fail("Should have thrown ExecutionException");
+			}
+			catch (ExecutionException ex) {
+				exceptions.add(ex.getCause());
+			}
+		}
+		assertEquals(1, this.invocations.get());
+		int shared = 0;
+		for (Throwable ex : exceptions) {
+			if (ex != failure) {
+				// Waiting invocations get an exception of their own
+				assertTrue(ex instanceof IllegalStateException);
+				assertSame(failure, ex.getCause());
+				assertEquals(1, exceptions.stream().filter(other -> other == ex).count());
+				shared++;
+			}
+		}
+		assertEquals(3, shared);
+		assertNull(this.cacheManager.getCache("test").get("key"));
+		assertEquals("value", this.service.get("key", () -> "value"));
+	}
+
+	@Test
+	public void cacheFailureReleasesWaitingInvocations() throws Exception {
+		// The leader's second lookup, after registering the in-flight invocation, fails
+		Future<Object> leader = this.executor.submit(() -> this.service.getFromFailingCache("key", () -> "value"));
+		assertTrue(this.failingCacheStarted.await(5, TimeUnit.SECONDS));
+		Future<Object> follower = this.executor.submit(() -> this.service.getFromFailingCache("key", () -> "other"));
+		Thread.sleep(100);
+		this.release.countDown();
+		try {
+			leader.get(5, TimeUnit.SECONDS);
+			fail("Should have thrown ExecutionException");
+		}
+		catch (ExecutionException ex) {
+			assertEquals("Cache failure", ex.getCause().getMessage());
+		}
+		try {
+			follower.get(5, TimeUnit.SECONDS);
+			fail("Should have thrown ExecutionException");
+		}
+		catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+			assertEquals("Cache failure", ex.getCause().getCause().getMessage());
+		}
+		// No in-flight invocation left behind
+		assertEquals("next", this.service.getFromFailingCache("key", () -> "next"));
+	}
+
+	@Test
+	public void timeoutWithDefaultErrorHandler() throws Exception {
+		this.interceptor.setLoadCoalescingTimeout(Duration.ofMillis(50));
+		CountDownLatch started = new CountDownLatch(1);
+		Future<Object> leader = this.executor.submit(() -> this.service.get("key", () -> {
+			started.countDown();
+			awaitRelease();
+			return "value";
+		}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		try {
+			this.service.get("key", () -> "other");
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(ex.getCause() instanceof TimeoutException);
+		}
+		this.release.countDown();
+		assertEquals("value", leader.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void timeoutIgnoredByErrorHandler() throws Exception {
+		List<RuntimeException> errors = new ArrayList<>();
+		this.interceptor.setErrorHandler(new SimpleCacheErrorHandler() {
+			@Override
+			public void handleCacheGetError(RuntimeException exception, Cache cache, Object key) {
+				errors.add(exception);
+			}
+		});
+		this.interceptor.setLoadCoalescingTimeout(Duration.ofMillis(50));
+		CountDownLatch started = new CountDownLatch(1);
+		Future<Object> leader = this.executor.submit(() -> this.service.get("key", () -> {
+			started.countDown();
+			awaitRelease();
+			return "value";
+		}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertEquals("other", this.service.get("key", () -> "other"));
+		assertEquals(1, errors.size());
+		this.release.countDown();
+		assertEquals("value", leader.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void reentrantMissDoesNotWaitForItself() throws Exception {
+		Future<Object> result = this.executor.submit(() -> this.service.get("key", () ->
+				"outer-" + this.service.get("key", () -> "inner")));
+		assertEquals("outer-inner", result.get(5, TimeUnit.SECONDS));
+		assertEquals("outer-inner", this.cacheManager.getCache("test").get("key").get());
+	}
+
+	@Test
+	public void coalescingWithEviction() throws Exception {
+		this.cacheManager.getCache("other").put("key", "stale");
+		List<Future<Object>> results = submit(4, () -> this.service.getAndEvict("key", () -> {
+			awaitRelease();
+			return "value" + this.invocations.incrementAndGet();
+		}));
+		Thread.sleep(100);
+		this.release.countDown();
+		for (Future<Object> result : results) {
+			assertEquals("value1", result.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, this.invocations.get());
+		assertNull(this.cacheManager.getCache("other").get("key"));
+	}
+
+	@Test
+	public void disabledByDefault() throws Exception {
+		this.interceptor.setLoadCoalescing(false);
+		CountDownLatch started = new CountDownLatch(4);
+		List<Future<Object>> results = submit(4, () -> this.service.get("key", () -> {
+			started.countDown();
+			awaitRelease();
+			return "value" + this.invocations.incrementAndGet();
+		}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		this.release.countDown();
+		for (Future<Object> result : results) {
+			result.get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(4, this.invocations.get());
+	}
+
+
+	private List<Future<Object>> submit(int count, Callable<Object> invocation) {
+		List<Future<Object>> results = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			results.add(this.executor.submit(invocation));
+		}
+		return results;
+	}
+
+	private void awaitRelease() {
+		try {
+			this.release.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	private class FailingCache extends ConcurrentMapCache {
+
+		public FailingCache(String name) {
+			super(name);
+		}
+
+		@Override
+		protected Object lookup(Object key) {
+			if (failingCacheLookups.incrementAndGet() == 2) {
+				failingCacheStarted.countDown();
+				awaitRelease();
+				throw new IllegalStateException("Cache failure");
+			}
+			return super.lookup(key);
+		}
+	}
+
+
+	public static class SimpleService {
+
+		@Cacheable(cacheNames = "test", key = "#p0")
+		public Object get(String key, Callable<Object> loader) throws Exception {
+			return loader.call();
+		}
+
+		@Cacheable(cacheNames = {"test", "other"}, key = "#p0")
+		public Object getFromMultipleCaches(String key, Callable<Object> loader) throws Exception {
+			return loader.call();
+		}
+
+		@Cacheable(cacheNames = "failing", key = "#p0")
+		public Object getFromFailingCache(String key, Callable<Object> loader) throws Exception {
+			return loader.call();
+		}
+
+		@Cacheable(cacheNames = "test", key = "#p0")
+		@CacheEvict(cacheNames = "other", key = "#p0")
+		public Object getAndEvict(String key, Callable<Object> loader) throws Exception {
+			return loader.call();
+		}
+	}
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for caching methods with {@link CompletableFuture} return types
+ * through a {@link CacheInterceptor} proxy.
+ *
+ * @author agent
+ */
+public class CompletableFutureCachingTests {
+
+	private final AtomicInteger retrievals = new AtomicInteger();
+
+	private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager() {
+		@Override
+		protected Cache createConcurrentMapCache(String name) {
+			return new ConcurrentMapCache(name) {
+				@Override
+				public CompletableFuture<ValueWrapper> retrieve(Object key) {
+					retrievals.incrementAndGet();
+					return super.retrieve(key);
+				}
+			};
+		}
+	};
+
+	private final CacheInterceptor interceptor = new CacheInterceptor();
+
+	private SimpleService service;
+
+	private final AtomicInteger invocations = new AtomicInteger();
+
+
+	@Before
+	public void setup() {
+		this.interceptor.setCacheOperationSource(new AnnotationCacheOperationSource());
+		this.interceptor.setCacheManager(this.cacheManager);
+		this.interceptor.setAsyncValueCaching(true);
+		this.interceptor.afterPropertiesSet();
+		this.interceptor.afterSingletonsInstantiated();
+
+		ProxyFactory proxyFactory = new ProxyFactory(new SimpleService());
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAdvice(this.interceptor);
+		this.service = (SimpleService) proxyFactory.getProxy();
+	}
+
+
+	@Test
+	public void futureCachedAsIsByDefault() throws Exception {
+		this.interceptor.setAsyncValueCaching(false);
+		CompletableFuture<Object> pending = new CompletableFuture<>();
+		assertSame(pending, this.service.get("key", () -> pending));
+		assertSame(pending, getCache("test").get("key").get());
+		assertSame(pending, this.service.get("key", () -> completed("other")));
+		assertEquals(0, this.retrievals.get());
+	}
+
+	@Test
+	public void invocationExceptionThrownByDefault() {
+		this.interceptor.setAsyncValueCaching(false);
+		IllegalStateException failure = new IllegalStateException("Expected exception");
+		try {
+			this.service.get("key", () -> {
+				throw failure;
+			});
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertSame(failure, ex);
+		}
+	}
+
+	@Test
+	public void cacheableCachesEventualValue() throws Exception {
+		CompletableFuture<?> first = this.service.get("key", () -> completed("value" + this.invocations.incrementAndGet()));
+		assertEquals("value1", first.get());
+		assertEquals("value1", getCache("test").get("key").get());
+
+		CompletableFuture<?> second = this.service.get("key", () -> completed("value" + this.invocations.incrementAndGet()));
+		assertEquals("value1", second.get());
+		assertEquals(1, this.invocations.get());
+		assertEquals(2, this.retrievals.get());
+	}
+
+	@Test
+	public void cacheableWithCompletionStage() throws Exception {
+		assertEquals("value", this.service.getStage("key", () -> completed("value")).toCompletableFuture().get());
+		assertEquals("value", getCache("test").get("key").get());
+		assertEquals("value", this.service.getStage("key", () -> completed("other")).toCompletableFuture().get());
+	}
+
+	@Test
+	public void putOnCompletion() throws Exception {
+		CompletableFuture<Object> pending = new CompletableFuture<>();
+		CompletableFuture<?> result = this.service.get("key", () -> pending);
+		assertFalse(result.isDone());
+		assertNull(getCache("test").get("key"));
+
+		pending.complete("value");
+		assertEquals("value", result.get());
+		assertEquals("value", getCache("test").get("key").get());
+	}
+
+	@Test
+	public void failedFutureNotCached() throws Exception {
+		IllegalStateException failure = new IllegalStateException("Expected exception");
+		CompletableFuture<Object> failed = new CompletableFuture<>();
+		failed.completeExceptionally(failure);
+		assertFailure(failure, this.service.get("key", () -> failed));
+		assertNull(getCache("test").get("key"));
+		assertEquals("value", this.service.get("key", () -> completed("value")).get());
+	}
+
+	@Test
+	public void invocationExceptionPropagatedThroughFuture() throws Exception {
+		IllegalStateException failure = new IllegalStateException("Expected exception");
+		assertFailure(failure, this.service.get("key", () -> {
+			throw failure;
+		}));
+		assertNull(getCache("test").get("key"));
+	}
+
+	@Test
+	public void cachedNullValue() throws Exception {
+		assertNull(this.service.get("key", () -> completed(null)).get());
+		assertNull(getCache("test").get("key").get());
+		assertNull(this.service.get("key", () -> completed("value")).get());
+	}
+
+	@Test
+	public void synchronizedCacheable() throws Exception {
+		assertEquals("value", this.service.getSync("key", () -> completed("value")).get());
+		assertEquals("value", getCache("test").get("key").get());
+		assertEquals("value", this.service.getSync("key", () -> completed("other")).get());
+	}
+
+	@Test
+	public void cachePutWithUnlessCondition() throws Exception {
+		assertEquals("value", this.service.put("key", () -> completed("value")).get());
+		assertEquals("value", getCache("test").get("key").get());
+		assertEquals("", this.service.put("key", () -> completed("")).get());
+		assertEquals("value", getCache("test").get("key").get());
+	}
+
+	@Test
+	public void evictOnCompletion() throws Exception {
+		getCache("test").put("key", "value");
+		CompletableFuture<Object> pending = new CompletableFuture<>();
+		CompletableFuture<?> result = this.service.evict("key", () -> pending);
+		assertNotNull(getCache("test").get("key"));
+
+		pending.complete(null);
+		result.get();
+		assertNull(getCache("test").get("key"));
+	}
+
+	@Test
+	public void cacheHitFromAsynchronousRetrieval() throws Exception {
+		CompletableFuture<Cache.ValueWrapper> lookup = new CompletableFuture<>();
+		Cache cache = new ConcurrentMapCache("test") {
+			@Override
+			public CompletableFuture<ValueWrapper> retrieve(Object key) {
+				return lookup;
+			}
+		};
+		this.interceptor.setCacheResolver(context -> Collections.singleton(cache));
+		CompletableFuture<?> result = this.service.get("key", () -> completed("value" + this.invocations.incrementAndGet()));
+		assertFalse(result.isDone());
+
+		lookup.complete(() -> "cached");
+		assertEquals("cached", result.get());
+		assertEquals(0, this.invocations.get());
+	}
+
+
+	private Cache getCache(String name) {
+		return this.cacheManager.getCache(name);
+	}
+
+	private static CompletableFuture<Object> completed(Object value) {
+		return CompletableFuture.completedFuture(value);
+	}
+
+	private static void assertFailure(Throwable expected, CompletableFuture<?> result) throws Exception {
+		try {
+			result.get();
+			fail("Should have thrown ExecutionException");
+		}
+		catch (ExecutionException ex) {
+			assertSame(expected, ex.getCause());
+		}
+	}
+
+
+	public static class SimpleService {
+
+		@Cacheable(cacheNames = "test", key = "#p0")
+		public CompletableFuture<Object> get(String key, Supplier<CompletableFuture<Object>> loader) {
+			return loader.get();
+		}
+
+		@Cacheable(cacheNames = "test", key = "#p0")
+		public CompletionStage<Object> getStage(String key, Supplier<CompletionStage<Object>> loader) {
+			return loader.get();
+		}
+
+		@Cacheable(cacheNames = "test", key = "#p0", sync = true)
+		public CompletableFuture<Object> getSync(String key, Supplier<CompletableFuture<Object>> loader) {
+			return loader.get();
+		}
+
+		@CachePut(cacheNames = "test", key = "#p0", unless = "#result.isEmpty()")
+		public CompletableFuture<Object> put(String key, Supplier<CompletableFuture<Object>> loader) {
+			return loader.get();
+		}
+
+		@CacheEvict(cacheNames = "test", key = "#p0")
+		public CompletableFuture<Object> evict(String key, Supplier<CompletableFuture<Object>> loader) {
+			return loader.get();
+		}
+	}
+
+}
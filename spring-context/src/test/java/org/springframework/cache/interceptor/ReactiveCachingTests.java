@@ -0,0 +1,198 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for caching methods with Reactor {@link Mono} and {@link Flux}
+ * return types through a {@link CacheInterceptor} proxy.
+ *
+ * @author agent
+ */
+public class ReactiveCachingTests {
+
+	private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+
+	private final CacheInterceptor interceptor = new CacheInterceptor();
+
+	private SimpleService service;
+
+	private final AtomicInteger invocations = new AtomicInteger();
+
+	private final AtomicInteger subscriptions = new AtomicInteger();
+
+
+	@Before
+	public void setup() {
+		this.interceptor.setCacheOperationSource(new AnnotationCacheOperationSource());
+		this.interceptor.setCacheManager(this.cacheManager);
+		this.interceptor.setAsyncValueCaching(true);
+		this.interceptor.afterPropertiesSet();
+		this.interceptor.afterSingletonsInstantiated();
+
+		ProxyFactory proxyFactory = new ProxyFactory(new SimpleService());
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAdvice(this.interceptor);
+		this.service = (SimpleService) proxyFactory.getProxy();
+	}
+
+
+	@Test
+	public void monoCachedAsIsByDefault() {
+		this.interceptor.setAsyncValueCaching(false);
+		Mono<Object> mono = Mono.just("value");
+		assertSame(mono, this.service.getMono("key", () -> mono));
+		assertSame(mono, getCache("test").get("key").get());
+	}
+
+	@Test
+	public void monoCachesEventualValue() {
+		Mono<?> first = this.service.getMono("key", () -> mono("value" + this.invocations.incrementAndGet()));
+		assertEquals(0, this.invocations.get());
+		assertNull(getCache("test").get("key"));
+
+		assertEquals("value1", first.block());
+		assertEquals("value1", getCache("test").get("key").get());
+		assertEquals(1, this.subscriptions.get());
+
+		Mono<?> second = this.service.getMono("key", () -> mono("value" + this.invocations.incrementAndGet()));
+		assertEquals("value1", second.block());
+		assertEquals(1, this.invocations.get());
+		assertEquals(1, this.subscriptions.get());
+	}
+
+	@Test
+	public void emptyMonoCachedAsNull() {
+		assertNull(this.service.getMono("key", Mono::empty).block());
+		assertNull(getCache("test").get("key").get());
+		assertNull(this.service.getMono("key", () -> mono("value")).block());
+	}
+
+	@Test
+	public void failedMonoNotCached() {
+		IllegalStateException failure = new IllegalStateException("Expected exception");
+		try {
+			this.service.getMono("key", () -> Mono.error(failure)).block();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertSame(failure, ex);
+		}
+		assertNull(getCache("test").get("key"));
+		assertEquals("value", this.service.getMono("key", () -> mono("value")).block());
+	}
+
+	@Test
+	public void invocationExceptionPropagatedThroughMono() {
+		IllegalStateException failure = new IllegalStateException("Expected exception");
+		Mono<?> result = this.service.getMono("key", () -> {
+			throw failure;
+		});
+		try {
+			result.block();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertSame(failure, ex);
+		}
+		assertNull(getCache("test").get("key"));
+	}
+
+	@Test
+	public void fluxCachesElementsAsList() {
+		Flux<?> first = this.service.getFlux("key", () -> flux("a", "b", "c"));
+		assertEquals(Arrays.asList("a", "b", "c"), first.collectList().block());
+		assertEquals(Arrays.asList("a", "b", "c"), getCache("test").get("key").get());
+
+		Flux<?> second = this.service.getFlux("key", () -> flux("d"));
+		assertEquals(Arrays.asList("a", "b", "c"), second.collectList().block());
+		assertEquals(1, this.subscriptions.get());
+	}
+
+	@Test
+	public void synchronizedMono() {
+		assertEquals("value", this.service.getMonoSync("key", () -> mono("value")).block());
+		assertEquals("value", getCache("test").get("key").get());
+		assertEquals("value", this.service.getMonoSync("key", () -> mono("other")).block());
+		assertEquals(1, this.subscriptions.get());
+	}
+
+	@Test
+	public void evictOnMonoCompletion() {
+		getCache("test").put("key", "value");
+		Mono<?> result = this.service.evictMono("key", () -> mono("done"));
+		assertNotNull(getCache("test").get("key"));
+
+		assertEquals("done", result.block());
+		assertNull(getCache("test").get("key"));
+	}
+
+
+	private Cache getCache(String name) {
+		return this.cacheManager.getCache(name);
+	}
+
+	private Mono<Object> mono(Object value) {
+		return Mono.just(value).doOnSubscribe(subscription -> this.subscriptions.incrementAndGet());
+	}
+
+	private Flux<Object> flux(Object... values) {
+		return Flux.just(values).doOnSubscribe(subscription -> this.subscriptions.incrementAndGet());
+	}
+
+
+	public static class SimpleService {
+
+		@Cacheable(cacheNames = "test", key = "#p0")
+		public Mono<Object> getMono(String key, Supplier<Mono<Object>> loader) {
+			return loader.get();
+		}
+
+		@Cacheable(cacheNames = "test", key = "#p0", sync = true)
+		public Mono<Object> getMonoSync(String key, Supplier<Mono<Object>> loader) {
+			return loader.get();
+		}
+
+		@Cacheable(cacheNames = "test", key = "#p0")
+		public Flux<Object> getFlux(String key, Supplier<Flux<Object>> loader) {
+			return loader.get();
+		}
+
+		@CacheEvict(cacheNames = "test", key = "#p0")
+		public Mono<Object> evictMono(String key, Supplier<Mono<Object>> loader) {
+			return loader.get();
+		}
+	}
+
+}
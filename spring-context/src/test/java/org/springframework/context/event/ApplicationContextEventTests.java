@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,11 +16,17 @@
 
 package org.springframework.context.event;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.aopalliance.intercept.MethodInvocation;
 import org.junit.Test;
@@ -44,9 +50,13 @@ import org.springframework.context.support.StaticMessageSource;
 import org.springframework.core.Ordered;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.Order;
+import org.springframework.lang.Nullable;
 import org.springframework.scheduling.support.TaskUtils;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
 import org.springframework.tests.sample.beans.TestBean;
 import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StopWatch;
 
 import static org.junit.Assert.*;
 import static org.mockito.BDDMockito.*;
@@ -295,8 +305,10 @@ public class ApplicationContextEventTests extends AbstractApplicationEventListen
 		assertTrue(listener1.seenEvents.contains(event3));
 		assertTrue(listener1.seenEvents.contains(event4));
 
+		// ContextRefreshedEvent entry retained on lazy registration of a MyEvent listener
 		AbstractApplicationEventMulticaster multicaster = context.getBean(AbstractApplicationEventMulticaster.class);
-		assertEquals(2, multicaster.retrieverCache.size());
+		assertEquals(3, getCachedRetrieverCount(multicaster));
+		assertEquals(1, multicaster.retrieverCache.get(ResolvableType.forClass(ContextRefreshedEvent.class)).size());
 
 		context.close();
 	}
@@ -318,7 +330,7 @@ public class ApplicationContextEventTests extends AbstractApplicationEventListen
 		assertTrue(listener.seenPayloads.contains("event4"));
 
 		AbstractApplicationEventMulticaster multicaster = context.getBean(AbstractApplicationEventMulticaster.class);
-		assertEquals(2, multicaster.retrieverCache.size());
+		assertEquals(2, getCachedRetrieverCount(multicaster));
 
 		context.close();
 	}
@@ -513,6 +525,219 @@ public class ApplicationContextEventTests extends AbstractApplicationEventListen
 		context.close();
 	}
 
+	@Test
+	public void cachedListenersAreReused() {
+		SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+		multicaster.addApplicationListener(new MyEventListener());
+		multicaster.addApplicationListener(new MyOrderedListener1());
+		MyEvent event = new MyEvent(this);
+		ResolvableType eventType = ResolvableType.forClass(MyEvent.class);
+
+		Collection<ApplicationListener<?>> listeners = multicaster.getApplicationListeners(event, eventType);
+		assertEquals(2, listeners.size());
+		assertSame(listeners, multicaster.getApplicationListeners(event, eventType));
+		assertSame(listeners, multicaster.getApplicationListeners(new MyEvent(this), eventType));
+	}
+
+	@Test
+	public void listenerRegistrationEvictsMatchingEventTypesOnly() {
+		SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+		MyEventListener myEventListener = new MyEventListener();
+		MyOtherEventListener myOtherEventListener = new MyOtherEventListener();
+		multicaster.addApplicationListener(myEventListener);
+		multicaster.addApplicationListener(myOtherEventListener);
+		multicaster.multicastEvent(new MyEvent(this));
+		multicaster.multicastEvent(new MyOtherEvent(this));
+		assertEquals(2, getCachedRetrieverCount(multicaster));
+
+		MyOtherEventListener anotherListener = new MyOtherEventListener();
+		multicaster.addApplicationListener(anotherListener);
+		assertEquals(1, getCachedRetrieverCount(multicaster));
+		multicaster.multicastEvent(new MyEvent(this));
+		multicaster.multicastEvent(new MyOtherEvent(this));
+		assertEquals(2, getCachedRetrieverCount(multicaster));
+		assertEquals(2, myEventListener.seenEvents.size());
+		assertEquals(2, myOtherEventListener.seenEvents.size());
+		assertEquals(1, anotherListener.seenEvents.size());
+
+		multicaster.removeApplicationListener(myOtherEventListener);
+		assertEquals(1, getCachedRetrieverCount(multicaster));
+		multicaster.multicastEvent(new MyOtherEvent(this));
+		assertEquals(2, myOtherEventListener.seenEvents.size());
+		assertEquals(2, anotherListener.seenEvents.size());
+
+		multicaster.addApplicationListener(new MyOrderedListener1());
+		assertEquals(0, getCachedRetrieverCount(multicaster));
+	}
+
+	@Test
+	public void listenerRegistrationDuringConcurrentPublication() throws Exception {
+		SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+		multicaster.addApplicationListener(new MyEventListener());
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread publisher = new Thread(() -> {
+			while (running.get()) {
+				multicaster.multicastEvent(new MyEvent(this));
+			}
+		});
+		publisher.start();
+		try {
+			for (int i = 0; i < 100; i++) {
+				MyEventListener listener = new MyEventListener();
+				multicaster.addApplicationListener(listener);
+				Thread.yield();
+				multicaster.removeApplicationListener(listener);
+			}
+		}
+		finally {
+			running.set(false);
+			publisher.join();
+		}
+		MyEventListener listener = new MyEventListener();
+		multicaster.addApplicationListener(listener);
+		multicaster.multicastEvent(new MyEvent(this));
+		assertEquals(1, listener.seenEvents.size());
+		assertEquals(2, multicaster.getApplicationListeners(new MyEvent(this), ResolvableType.forClass(MyEvent.class)).size());
+	}
+
+	@Test
+	public void payloadEventTypeIsCached() {
+		ResolvableType eventType = new PayloadApplicationEvent<>(this, "event1").getResolvableType();
+		assertSame(eventType, new PayloadApplicationEvent<>(this, "event2").getResolvableType());
+		assertEquals(ResolvableType.forClassWithGenerics(PayloadApplicationEvent.class, String.class), eventType);
+		assertNotEquals(eventType, new PayloadApplicationEvent<>(this, 1).getResolvableType());
+	}
+
+	@Test
+	public void listenersAreIndexedByDeclaredEventType() throws Exception {
+		SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+		MyEventListener myEventListener = new MyEventListener();
+		MyOtherEventListener myOtherEventListener = new MyOtherEventListener();
+		MyOrderedListener1 applicationEventListener = new MyOrderedListener1();
+		MyOtherEventSmartListener smartListener = new MyOtherEventSmartListener();
+		ApplicationListenerMethodAdapter methodListener = new ApplicationListenerMethodAdapter("methodListener",
+				CharSequenceEventListener.class, CharSequenceEventListener.class.getMethod("handle", CharSequence.class));
+		multicaster.addApplicationListener(myEventListener);
+		multicaster.addApplicationListener(myOtherEventListener);
+		multicaster.addApplicationListener(applicationEventListener);
+		multicaster.addApplicationListener(smartListener);
+		multicaster.addApplicationListener(methodListener);
+
+		assertListeners(multicaster, new MyEvent(this), myEventListener, applicationEventListener);
+		assertListeners(multicaster, new MyOtherEvent(this), myOtherEventListener, applicationEventListener, smartListener);
+		assertListeners(multicaster, new PayloadApplicationEvent<>(this, "payload"), applicationEventListener, methodListener);
+		assertListeners(multicaster, new PayloadApplicationEvent<>(this, 1), applicationEventListener);
+
+		multicaster.removeApplicationListener(myEventListener);
+		multicaster.removeApplicationListener(methodListener);
+		assertListeners(multicaster, new MyEvent(this), applicationEventListener);
+		assertListeners(multicaster, new PayloadApplicationEvent<>(this, "payload"), applicationEventListener);
+	}
+
+	@Test
+	public void payloadEventCreatedForMatchingListenersOnly() {
+		StaticApplicationContext context = new StaticApplicationContext();
+		MyStringPayloadListener listener = new MyStringPayloadListener();
+		context.addApplicationListener(listener);
+		context.refresh();
+		SimpleApplicationEventMulticaster multicaster = context.getBean(
+				AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME, SimpleApplicationEventMulticaster.class);
+
+		assertFalse(multicaster.hasApplicationListeners(
+				PayloadApplicationEvent.resolvableTypeForPayload(1), StaticApplicationContext.class));
+		assertTrue(multicaster.hasApplicationListeners(
+				PayloadApplicationEvent.resolvableTypeForPayload("event"), StaticApplicationContext.class));
+		context.publishEvent(1);
+		context.publishEvent("event");
+		assertEquals(Collections.singletonList("event"), listener.seenPayloads);
+		context.close();
+	}
+
+	@Test
+	public void payloadEventCreatedForOverriddenMulticastEvent() {
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.registerBeanDefinition(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME,
+				new RootBeanDefinition(RecordingApplicationEventMulticaster.class));
+		MyStringPayloadListener listener = new MyStringPayloadListener();
+		context.addApplicationListener(listener);
+		context.refresh();
+		RecordingApplicationEventMulticaster multicaster = context.getBean(RecordingApplicationEventMulticaster.class);
+		multicaster.multicastEvents.clear();
+
+		context.publishEvent(1);
+		context.publishEvent("event");
+		assertEquals(2, multicaster.multicastEvents.size());
+		assertEquals(1, ((PayloadApplicationEvent<?>) multicaster.multicastEvents.get(0)).getPayload());
+		assertEquals("event", ((PayloadApplicationEvent<?>) multicaster.multicastEvents.get(1)).getPayload());
+		assertEquals(Collections.singletonList("event"), listener.seenPayloads);
+		assertFalse(new AsyncApplicationEventMulticaster().hasApplicationListeners(
+				PayloadApplicationEvent.resolvableTypeForPayload(1), StaticApplicationContext.class));
+		context.close();
+	}
+
+	@Test
+	public void listenerRetrievalPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+		SimpleApplicationEventMulticaster indexedMulticaster = new SimpleApplicationEventMulticaster();
+		SimpleApplicationEventMulticaster unindexedMulticaster = new SimpleApplicationEventMulticaster() {
+			@Override
+			protected boolean supportsEvent(
+					ApplicationListener<?> listener, ResolvableType eventType, @Nullable Class<?> sourceType) {
+				return super.supportsEvent(listener, eventType, sourceType);
+			}
+		};
+		for (int i = 0; i < 2000; i++) {
+			MyOtherEventListener listener = new MyOtherEventListener();
+			indexedMulticaster.addApplicationListener(listener);
+			unindexedMulticaster.addApplicationListener(listener);
+		}
+
+		long indexedMillis = 0;
+		long unindexedMillis = 0;
+		for (int round = 0; round < 3; round++) {
+			StopWatch watch = new StopWatch("listenerRetrievalPerformance");
+			watch.start("unindexed");
+			publishWithListenerRegistration(unindexedMulticaster, 2000);
+			watch.stop();
+			unindexedMillis = watch.getLastTaskTimeMillis();
+			watch.start("indexed");
+			publishWithListenerRegistration(indexedMulticaster, 2000);
+			watch.stop();
+			indexedMillis = watch.getLastTaskTimeMillis();
+		}
+		// Compare the last, warmed-up round: every publication is a cache miss
+		assertTrue("Indexed retrieval took " + indexedMillis + " ms vs " + unindexedMillis +
+				" ms without index", indexedMillis < unindexedMillis);
+	}
+
+	private static void assertListeners(
+			AbstractApplicationEventMulticaster multicaster, ApplicationEvent event, ApplicationListener<?>... expected) {
+
+		ResolvableType eventType = (event instanceof PayloadApplicationEvent ?
+				((PayloadApplicationEvent<?>) event).getResolvableType() : ResolvableType.forInstance(event));
+		assertEquals(new HashSet<>(Arrays.asList(expected)),
+				new HashSet<>(multicaster.getApplicationListeners(event, eventType)));
+	}
+
+	private static void publishWithListenerRegistration(ApplicationEventMulticaster multicaster, int count) {
+		MyEvent event = new MyEvent(multicaster);
+		for (int i = 0; i < count; i++) {
+			MyEventListener listener = new MyEventListener();
+			multicaster.addApplicationListener(listener);
+			multicaster.multicastEvent(event);
+			multicaster.removeApplicationListener(listener);
+			assertEquals(1, listener.seenEvents.size());
+		}
+	}
+
+	private static int getCachedRetrieverCount(AbstractApplicationEventMulticaster multicaster) {
+		int count = 0;
+		for (Map<?, ?> retrievers : multicaster.retrieverCache.values()) {
+			count += retrievers.size();
+		}
+		return count;
+	}
+
 
 	@SuppressWarnings("serial")
 	public static class MyEvent extends ApplicationEvent {
@@ -532,6 +757,28 @@ public class ApplicationContextEventTests extends AbstractApplicationEventListen
 	}
 
 
+	public static class MyEventListener implements ApplicationListener<MyEvent> {
+
+		public final List<MyEvent> seenEvents = new ArrayList<>();
+
+		@Override
+		public void onApplicationEvent(MyEvent event) {
+			this.seenEvents.add(event);
+		}
+	}
+
+
+	public static class MyOtherEventListener implements ApplicationListener<MyOtherEvent> {
+
+		public final List<MyOtherEvent> seenEvents = new ArrayList<>();
+
+		@Override
+		public void onApplicationEvent(MyOtherEvent event) {
+			this.seenEvents.add(event);
+		}
+	}
+
+
 	public static class MyOrderedListener1 implements ApplicationListener<ApplicationEvent>, Ordered {
 
 		public final List<ApplicationEvent> seenEvents = new LinkedList<>();
@@ -587,6 +834,50 @@ public class ApplicationContextEventTests extends AbstractApplicationEventListen
 	}
 
 
+	public static class MyStringPayloadListener implements ApplicationListener<PayloadApplicationEvent<String>> {
+
+		public final List<String> seenPayloads = new ArrayList<>();
+
+		@Override
+		public void onApplicationEvent(PayloadApplicationEvent<String> event) {
+			this.seenPayloads.add(event.getPayload());
+		}
+	}
+
+
+	public static class MyOtherEventSmartListener implements SmartApplicationListener {
+
+		@Override
+		public boolean supportsEventType(Class<? extends ApplicationEvent> eventType) {
+			return MyOtherEvent.class.isAssignableFrom(eventType);
+		}
+
+		@Override
+		public void onApplicationEvent(ApplicationEvent event) {
+		}
+	}
+
+
+	public static class CharSequenceEventListener {
+
+		@EventListener
+		public void handle(CharSequence payload) {
+		}
+	}
+
+
+	public static class RecordingApplicationEventMulticaster extends SimpleApplicationEventMulticaster {
+
+		public final List<ApplicationEvent> multicastEvents = new ArrayList<>();
+
+		@Override
+		public void multicastEvent(ApplicationEvent event, @Nullable ResolvableType eventType) {
+			this.multicastEvents.add(event);
+			super.multicastEvent(event, eventType);
+		}
+	}
+
+
 	public static class MyNonSingletonListener implements ApplicationListener<ApplicationEvent> {
 
 		public static final Set<ApplicationEvent> seenEvents = new HashSet<>();
@@ -0,0 +1,452 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.task.TaskRejectedException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link AsyncApplicationEventMulticaster}.
+ *
+ * @author agent
+ */
+public class AsyncApplicationEventMulticasterTests {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	private final AsyncApplicationEventMulticaster multicaster = new AsyncApplicationEventMulticaster();
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+
+	@After
+	public void shutdownExecutor() {
+		this.release.countDown();
+		this.executor.shutdownNow();
+		this.multicaster.setAwaitTerminationMillis(0);
+		this.multicaster.destroy();
+	}
+
+
+	@Test
+	public void deliverInOrderPerListener() throws Exception {
+		this.multicaster.setTaskExecutor(this.executor);
+		RecordingListener listener1 = new RecordingListener(10000);
+		RecordingListener listener2 = new RecordingListener(10000);
+		this.multicaster.addApplicationListener(listener1);
+		this.multicaster.addApplicationListener(listener2);
+		for (int i = 0; i < 10000; i++) {
+			this.multicaster.multicastEvent(new TestEvent(this, i));
+		}
+		listener1.await();
+		listener2.await();
+		assertInOrder(listener1.events, 10000);
+		assertInOrder(listener2.events, 10000);
+	}
+
+	@Test
+	public void slowListenerDoesNotBlockOtherListeners() throws Exception {
+		this.multicaster.setTaskExecutor(this.executor);
+		BlockingListener slowListener = new BlockingListener(this.release);
+		RecordingListener fastListener = new RecordingListener(100);
+		this.multicaster.addApplicationListener(slowListener);
+		this.multicaster.addApplicationListener(fastListener);
+		for (int i = 0; i < 100; i++) {
+			this.multicaster.multicastEvent(new TestEvent(this, i));
+		}
+		fastListener.await();
+		assertTrue(slowListener.events.size() <= 1);
+		this.release.countDown();
+		slowListener.await(100);
+		assertInOrder(slowListener.events, 100);
+	}
+
+	@Test
+	public void dropOnOverflow() throws Exception {
+		this.multicaster.setTaskExecutor(this.executor);
+		this.multicaster.setQueueCapacity(2);
+		this.multicaster.setOverflowPolicy(AsyncApplicationEventMulticaster.OverflowPolicy.DROP);
+		BlockingListener listener = new BlockingListener(this.release);
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.multicastEvent(new TestEvent(this, 0));
+		listener.awaitStarted();
+		for (int i = 1; i < 10; i++) {
+			this.multicaster.multicastEvent(new TestEvent(this, i));
+		}
+		assertEquals(7, this.multicaster.getDroppedEventCount());
+		this.release.countDown();
+		listener.await(3);
+		assertEquals(3, listener.events.size());
+		assertEquals(2, listener.events.get(2).getValue());
+	}
+
+	@Test
+	public void callerRunsOnOverflow() throws Exception {
+		this.multicaster.setTaskExecutor(this.executor);
+		this.multicaster.setQueueCapacity(1);
+		this.multicaster.setOverflowPolicy(AsyncApplicationEventMulticaster.OverflowPolicy.CALLER_RUNS);
+		List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch started = new CountDownLatch(1);
+		this.multicaster.addApplicationListener((ApplicationListener<TestEvent>) event -> {
+			threadNames.add(Thread.currentThread().getName());
+			if (event.getValue() == 0) {
+				started.countDown();
+				awaitQuietly(this.release);
+			}
+		});
+		this.multicaster.multicastEvent(new TestEvent(this, 0));
+		assertTrue(started.await(1000, TimeUnit.MILLISECONDS));
+		this.multicaster.multicastEvent(new TestEvent(this, 1));
+		this.multicaster.multicastEvent(new TestEvent(this, 2));
+		assertEquals(2, threadNames.size());
+		assertEquals(Thread.currentThread().getName(), threadNames.get(1));
+	}
+
+	@Test
+	public void blockOnOverflow() throws Exception {
+		this.multicaster.setTaskExecutor(this.executor);
+		this.multicaster.setQueueCapacity(1);
+		BlockingListener listener = new BlockingListener(this.release);
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.multicastEvent(new TestEvent(this, 0));
+		listener.awaitStarted();
+		this.multicaster.multicastEvent(new TestEvent(this, 1));
+		Thread publisher = new Thread(() -> this.multicaster.multicastEvent(new TestEvent(this, 2)));
+		publisher.start();
+		publisher.join(100);
+		assertTrue(publisher.isAlive());
+		this.release.countDown();
+		publisher.join(1000);
+		assertFalse(publisher.isAlive());
+		listener.await(3);
+		assertInOrder(listener.events, 3);
+		assertEquals(0, this.multicaster.getDroppedEventCount());
+	}
+
+	@Test
+	public void blockOnOverflowRejectsEventOnInterrupt() throws Exception {
+		this.multicaster.setTaskExecutor(this.executor);
+		this.multicaster.setQueueCapacity(1);
+		BlockingListener listener = new BlockingListener(this.release);
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.multicastEvent(new TestEvent(this, 0));
+		listener.awaitStarted();
+		this.multicaster.multicastEvent(new TestEvent(this, 1));
+		Thread.currentThread().interrupt();
+		try {
+			this.multicaster.multicastEvent(new TestEvent(this, 2));
+			fail("Should have thrown TaskRejectedException");
+		}
+		catch (TaskRejectedException ex) {
+			assertTrue(Thread.interrupted());
+		}
+		this.release.countDown();
+		listener.await(2);
+		assertInOrder(listener.events, 2);
+	}
+
+	@Test
+	public void deliverBatches() throws Exception {
+		this.multicaster.setTaskExecutor(this.executor);
+		this.multicaster.setMaxBatchSize(10);
+		BatchListener listener = new BatchListener(this.release);
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.multicastEvent(new TestEvent(this, 0));
+		listener.awaitStarted();
+		for (int i = 1; i < 50; i++) {
+			this.multicaster.multicastEvent(new TestEvent(this, i));
+		}
+		this.release.countDown();
+		listener.await(50);
+		assertInOrder(listener.events, 50);
+		assertEquals(6, listener.batchSizes.size());
+		assertEquals(Integer.valueOf(1), listener.batchSizes.get(0));
+		assertEquals(Integer.valueOf(10), listener.batchSizes.get(1));
+	}
+
+	@Test
+	public void failingListenerContinues() throws Exception {
+		this.multicaster.setTaskExecutor(this.executor);
+		List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		this.multicaster.setErrorHandler(errors::add);
+		RecordingListener listener = new RecordingListener(10) {
+			@Override
+			public void onApplicationEvent(TestEvent event) {
+				super.onApplicationEvent(event);
+				throw new IllegalStateException("Expected exception");
+			}
+		};
+		this.multicaster.addApplicationListener(listener);
+		for (int i = 0; i < 10; i++) {
+			this.multicaster.multicastEvent(new TestEvent(this, i));
+		}
+		listener.await();
+		assertInOrder(listener.events, 10);
+		long start = System.currentTimeMillis();
+		while (errors.size() < 10 && System.currentTimeMillis() - start < 1000) {
+			Thread.sleep(1);
+		}
+		assertEquals(10, errors.size());
+	}
+
+	@Test
+	public void deliverWithDefaultExecutorInApplicationContext() throws Exception {
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.getBeanFactory().registerSingleton(
+				AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME, this.multicaster);
+		RecordingListener listener = new RecordingListener(100);
+		context.addApplicationListener(listener);
+		context.refresh();
+		for (int i = 0; i < 100; i++) {
+			context.publishEvent(new TestEvent(context, i));
+		}
+		listener.await();
+		assertInOrder(listener.events, 100);
+		assertTrue(listener.threadName.startsWith("event-multicaster-"));
+		context.close();
+	}
+
+
+	@Test
+	public void defaultExecutorReusesThreadAcrossBursts() throws Exception {
+		Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+		this.multicaster.addApplicationListener((ApplicationListener<TestEvent>) event -> threads.add(Thread.currentThread()));
+		for (int i = 1; i <= 5; i++) {
+			this.multicaster.multicastEvent(new TestEvent(this, i));
+			// Let the listener queue retire and its thread return to the pool
+			long start = System.currentTimeMillis();
+			while (threads.size() < 1 && System.currentTimeMillis() - start < 1000) {
+				Thread.sleep(1);
+			}
+			Thread.sleep(50);
+		}
+		assertEquals(1, threads.size());
+		assertTrue(threads.iterator().next().getName().startsWith("event-multicaster-"));
+	}
+
+	@Test
+	public void stopDrainsPendingEvents() throws Exception {
+		this.multicaster.setTaskExecutor(this.executor);
+		RecordingListener listener = new RecordingListener(101) {
+			@Override
+			public void onApplicationEvent(TestEvent event) {
+				awaitQuietly(release, 1);
+				super.onApplicationEvent(event);
+			}
+		};
+		this.multicaster.addApplicationListener(listener);
+		for (int i = 0; i < 100; i++) {
+			this.multicaster.multicastEvent(new TestEvent(this, i));
+		}
+		this.multicaster.stop();
+		assertFalse(this.multicaster.isRunning());
+		assertInOrder(listener.events, 100);
+
+		this.multicaster.multicastEvent(new TestEvent(this, 100));
+		assertEquals(101, listener.events.size());
+		assertEquals(Thread.currentThread().getName(), listener.threadName);
+		this.multicaster.start();
+		assertTrue(this.multicaster.isRunning());
+	}
+
+	@Test
+	public void stopWaitsForPendingEventsWithinTimeout() throws Exception {
+		this.multicaster.setTaskExecutor(this.executor);
+		this.multicaster.setAwaitTerminationMillis(100);
+		BlockingListener listener = new BlockingListener(this.release);
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.multicastEvent(new TestEvent(this, 0));
+		this.multicaster.multicastEvent(new TestEvent(this, 1));
+		listener.awaitStarted();
+		long start = System.currentTimeMillis();
+		this.multicaster.stop();
+		long duration = System.currentTimeMillis() - start;
+		assertTrue("Stop took " + duration + " ms", duration >= 90 && duration < 1000);
+		assertEquals(1, listener.events.size());
+		this.release.countDown();
+		listener.await(2);
+	}
+
+	@Test
+	public void closeDrainsPendingEventsInApplicationContext() throws Exception {
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.getBeanFactory().registerSingleton(
+				AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME, this.multicaster);
+		List<ApplicationEvent> events = Collections.synchronizedList(new ArrayList<>());
+		context.addApplicationListener(event -> {
+			awaitQuietly(this.release, 1);
+			events.add(event);
+		});
+		context.refresh();
+		for (int i = 0; i < 100; i++) {
+			context.publishEvent(new TestEvent(context, i));
+		}
+		context.close();
+		assertEquals(102, events.size());
+		assertTrue(events.get(101) instanceof ContextClosedEvent);
+	}
+
+	private static void assertInOrder(List<TestEvent> events, int count) {
+		assertEquals(count, events.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(i, events.get(i).getValue());
+		}
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		awaitQuietly(latch, 1000);
+	}
+
+	private static void awaitQuietly(CountDownLatch latch, long timeoutMillis) {
+		try {
+			latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	static class TestEvent extends ApplicationEvent {
+
+		private final int value;
+
+		public TestEvent(Object source, int value) {
+			super(source);
+			this.value = value;
+		}
+
+		public int getValue() {
+			return this.value;
+		}
+	}
+
+
+	static class RecordingListener implements ApplicationListener<TestEvent> {
+
+		final List<TestEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+		private final CountDownLatch latch;
+
+		volatile String threadName;
+
+		RecordingListener(int expectedEvents) {
+			this.latch = new CountDownLatch(expectedEvents);
+		}
+
+		@Override
+		public void onApplicationEvent(TestEvent event) {
+			this.threadName = Thread.currentThread().getName();
+			this.events.add(event);
+			this.latch.countDown();
+		}
+
+		void await() throws InterruptedException {
+			assertTrue(this.latch.await(5000, TimeUnit.MILLISECONDS));
+		}
+	}
+
+
+	static class BlockingListener implements ApplicationListener<TestEvent> {
+
+		final List<TestEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch release;
+
+		BlockingListener(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void onApplicationEvent(TestEvent event) {
+			this.events.add(event);
+			this.started.countDown();
+			awaitQuietly(this.release);
+		}
+
+		void awaitStarted() throws InterruptedException {
+			assertTrue(this.started.await(1000, TimeUnit.MILLISECONDS));
+		}
+
+		void await(int expectedEvents) throws InterruptedException {
+			long start = System.currentTimeMillis();
+			while (this.events.size() < expectedEvents && System.currentTimeMillis() - start < 5000) {
+				Thread.sleep(1);
+			}
+			Thread.sleep(10);
+			assertEquals(expectedEvents, this.events.size());
+		}
+	}
+
+
+	static class BatchListener implements BatchApplicationListener<TestEvent> {
+
+		final List<TestEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch release;
+
+		BatchListener(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void onApplicationEvents(List<TestEvent> events) {
+			this.batchSizes.add(events.size());
+			this.events.addAll(events);
+			this.started.countDown();
+			awaitQuietly(this.release);
+		}
+
+		void awaitStarted() throws InterruptedException {
+			assertTrue(this.started.await(1000, TimeUnit.MILLISECONDS));
+		}
+
+		void await(int expectedEvents) throws InterruptedException {
+			long start = System.currentTimeMillis();
+			while (this.events.size() < expectedEvents && System.currentTimeMillis() - start < 5000) {
+				Thread.sleep(1);
+			}
+			assertEquals(expectedEvents, this.events.size());
+		}
+	}
+
+}
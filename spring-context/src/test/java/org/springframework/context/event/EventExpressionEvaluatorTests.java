@@ -0,0 +1,171 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.expression.AnnotatedElementKey;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link EventExpressionEvaluator}.
+ *
+ * @author agent
+ */
+public class EventExpressionEvaluatorTests {
+
+	private final EventExpressionEvaluator evaluator = new EventExpressionEvaluator();
+
+	private final Method method = ReflectionUtils.findMethod(TestListener.class, "handle", TestEvent.class);
+
+	private final AnnotatedElementKey methodKey = new AnnotatedElementKey(this.method, TestListener.class);
+
+
+	@Test
+	public void rootObjectCondition() {
+		// Beyond the threshold for compilation in mixed mode
+		for (int i = 0; i < 300; i++) {
+			assertEquals(i % 2 == 0, condition("event.even", new TestEvent(this, i)));
+			assertEquals(i % 2 == 0, condition("#root.args[0].even", new TestEvent(this, i)));
+		}
+	}
+
+	@Test
+	public void argumentCondition() {
+		for (int i = 0; i < 300; i++) {
+			assertEquals(i > 100, condition("#p0.value > 100", new TestEvent(this, i)));
+			assertEquals(i > 100, condition("#a0.value > 100 and #root.event.value > 100", new TestEvent(this, i)));
+		}
+	}
+
+	@Test
+	public void unknownVariable() {
+		assertFalse(condition("#foo != null", new TestEvent(this, 1)));
+	}
+
+	@Test
+	public void beanReferenceCondition() {
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.registerSingleton("filter", TestFilter.class);
+		context.refresh();
+		TestEvent event = new TestEvent(this, 5);
+		for (int i = 0; i < 300; i++) {
+			assertTrue(this.evaluator.condition("@filter.accept(event)",
+					event, this.method, this.methodKey, new Object[] {event}, context));
+			assertTrue(this.evaluator.condition("@filter.accept(#p0)",
+					event, this.method, this.methodKey, new Object[] {event}, context));
+		}
+		context.close();
+	}
+
+	@Test
+	public void changedCondition() {
+		TestEvent event = new TestEvent(this, 2);
+		assertTrue(condition("event.even", event));
+		assertFalse(condition("!event.even", event));
+		assertTrue(condition("event.even", event));
+	}
+
+	@Test
+	public void conditionPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+		TestEvent event = new TestEvent(this, 2);
+		Object[] args = new Object[] {event};
+		ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+		for (String expression : new String[] {"event.even", "#p0.even"}) {
+			// Previous approach: cached expression, new method-based context per evaluation
+			Expression parsedExpression = new SpelExpressionParser().parseExpression(expression);
+			long plainMillis = 0;
+			long evaluatorMillis = 0;
+			for (int round = 0; round < 3; round++) {
+				StopWatch watch = new StopWatch("condition evaluation");
+				watch.start("plain " + expression);
+				for (int i = 0; i < 1000000; i++) {
+					MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(
+							new EventExpressionRootObject(event, args), this.method, args, parameterNameDiscoverer);
+					assertTrue(Boolean.TRUE.equals(parsedExpression.getValue(context, Boolean.class)));
+				}
+				watch.stop();
+				plainMillis = watch.getLastTaskTimeMillis();
+				watch.start("evaluator " + expression);
+				for (int i = 0; i < 1000000; i++) {
+					assertTrue(this.evaluator.condition(expression, event, this.method, this.methodKey, args, null));
+				}
+				watch.stop();
+				evaluatorMillis = watch.getLastTaskTimeMillis();
+			}
+			// Compare the last, warmed-up round
+			assertTrue("Evaluator took " + evaluatorMillis + " ms vs " + plainMillis + " ms for plain evaluation of '" +
+					expression + "'", evaluatorMillis < plainMillis);
+		}
+	}
+
+
+	private boolean condition(String expression, TestEvent event) {
+		return this.evaluator.condition(expression, event, this.method, this.methodKey, new Object[] {event}, null);
+	}
+
+
+	@SuppressWarnings("serial")
+	public static class TestEvent extends ApplicationEvent {
+
+		private final int value;
+
+		public TestEvent(Object source, int value) {
+			super(source);
+			this.value = value;
+		}
+
+		public int getValue() {
+			return this.value;
+		}
+
+		public boolean isEven() {
+			return (this.value % 2 == 0);
+		}
+	}
+
+
+	public static class TestListener {
+
+		public void handle(TestEvent event) {
+		}
+	}
+
+
+	public static class TestFilter {
+
+		public boolean accept(TestEvent event) {
+			return (event.getValue() == 5);
+		}
+	}
+
+}
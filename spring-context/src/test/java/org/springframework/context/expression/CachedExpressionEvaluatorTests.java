@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -64,6 +64,16 @@ public class CachedExpressionEvaluatorTests {
 		assertEquals("Cached expression should be based on type", 2, expressionEvaluator.testCache.size());
 	}
 
+	@Test
+	public void defaultParserSharesExpressionAcrossElements() {
+		CachedExpressionEvaluator evaluator = new CachedExpressionEvaluator() {};
+		Map<CachedExpressionEvaluator.ExpressionKey, Expression> cache = new ConcurrentHashMap<>();
+		Method method = ReflectionUtils.findMethod(getClass(), "toString");
+		Expression expression = evaluator.getExpression(cache, new AnnotatedElementKey(method, getClass()), "true");
+		assertSame(expression, evaluator.getExpression(cache, new AnnotatedElementKey(method, Object.class), "true"));
+		assertEquals("Cached expression should be based on type", 2, cache.size());
+	}
+
 	private void hasParsedExpression(String expression) {
 		verify(expressionEvaluator.getParser(), times(1)).parseExpression(expression);
 	}
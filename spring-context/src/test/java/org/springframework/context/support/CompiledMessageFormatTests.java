@@ -0,0 +1,202 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link CompiledMessageFormat}, comparing its output
+ * against {@link MessageFormat}.
+ *
+ * @author agent
+ */
+public class CompiledMessageFormatTests {
+
+	private static final Object[] ARGS = {"text", 1234567.891, new Date(1546300800000L), null, new BigDecimal("0.25")};
+
+
+	@Test
+	public void plainArguments() {
+		assertFormat("{0}, {1} and {2} are {3}");
+		assertFormat("Leading {0}");
+		assertFormat("{1}{0}{1}");
+		assertFormat("No arguments at all");
+		assertFormat("");
+	}
+
+	@Test
+	public void quoting() {
+		assertFormat("It''s {0}");
+		assertFormat("'{0}' is quoted, {0} is not");
+		assertFormat("'It''s {0} in quotes'");
+		assertFormat("Brace '{' and '}' literals with {0}");
+	}
+
+	@Test
+	public void numberFormats() {
+		assertFormat("{1,number}");
+		assertFormat("{1,number,integer} and {4,number,percent}");
+		assertFormat("{1,number,currency}");
+		assertFormat("{1,number,#,##0.0} and {1,number,'#'0}");
+	}
+
+	@Test
+	public void dateFormats() {
+		assertFormat("{2,date} at {2,time}");
+		assertFormat("{2,date,short} {2,date,long} {2,time,full}");
+		assertFormat("{2,date,yyyy-MM-dd'T'HH} and {2,date,'{'yyyy'}'}");
+	}
+
+	@Test
+	public void missingArguments() {
+		assertFormat("{0} and {7}");
+		CompiledMessageFormat format = new CompiledMessageFormat(new MessageFormat("{0} and {1}", Locale.US));
+		assertEquals("{0} and {1}", format.format(null));
+		assertEquals("a and {1}", format.format(new Object[] {"a"}));
+	}
+
+	@Test
+	public void choiceFormatNotCompiled() {
+		MessageFormat messageFormat = new MessageFormat(
+				"{1,choice,0#no files|1#one file|1<{1,number,integer} files}", Locale.US);
+		CompiledMessageFormat format = new CompiledMessageFormat(messageFormat);
+		assertFalse(format.isCompiled());
+		assertEquals(messageFormat.format(ARGS), format.format(ARGS));
+	}
+
+	@Test
+	public void invalidArgumentType() {
+		CompiledMessageFormat format = new CompiledMessageFormat(new MessageFormat("{0,number}", Locale.US));
+		try {
+			format.format(new Object[] {"text"});
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void concurrentFormatting() throws Exception {
+		MessageFormat messageFormat = new MessageFormat("{0,number,#,##0.00} on {1,date,yyyy-MM-dd}", Locale.US);
+		CompiledMessageFormat format = new CompiledMessageFormat(messageFormat);
+		Object[][] args = new Object[20][];
+		String[] expected = new String[args.length];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = new Object[] {i * 1000.5, new Date(1546300800000L + i * 86400000L)};
+			expected[i] = messageFormat.format(args[i]);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> {
+					for (int j = 0; j < 10000; j++) {
+						if (!expected[j % args.length].equals(format.format(args[j % args.length]))) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void contentionPerformance() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+		MessageFormat messageFormat = new MessageFormat("Hello {0}, you have {1,number,integer} messages", Locale.US);
+		CompiledMessageFormat compiledFormat = new CompiledMessageFormat(messageFormat);
+		Object[] args = {"Sam", 42};
+		long synchronizedMillis = 0;
+		long compiledMillis = 0;
+		for (int round = 0; round < 3; round++) {
+			StopWatch watch = new StopWatch("Message formatting with 8 threads");
+			watch.start("synchronized MessageFormat");
+			runConcurrently(() -> {
+				synchronized (messageFormat) {
+					return messageFormat.format(args);
+				}
+			});
+			watch.stop();
+			synchronizedMillis = watch.getLastTaskTimeMillis();
+			watch.start("CompiledMessageFormat");
+			runConcurrently(() -> compiledFormat.format(args));
+			watch.stop();
+			compiledMillis = watch.getLastTaskTimeMillis();
+		}
+		// Compare the last, warmed-up round
+		assertTrue("CompiledMessageFormat took " + compiledMillis + " ms vs " + synchronizedMillis +
+				" ms for synchronized MessageFormat", compiledMillis < synchronizedMillis);
+	}
+
+
+	private static void assertFormat(String pattern) {
+		for (Locale locale : new Locale[] {Locale.US, Locale.GERMANY, Locale.FRANCE}) {
+			MessageFormat messageFormat = new MessageFormat(pattern, locale);
+			CompiledMessageFormat format = new CompiledMessageFormat(messageFormat);
+			assertTrue(pattern, format.isCompiled());
+			assertEquals(pattern, messageFormat.format(ARGS), format.format(ARGS));
+		}
+	}
+
+	private static void runConcurrently(Callable<String> task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> {
+					for (int j = 0; j < 200000; j++) {
+						task.call();
+					}
+					return null;
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
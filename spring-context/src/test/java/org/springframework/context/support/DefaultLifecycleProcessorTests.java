@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,11 @@
 package org.springframework.context.support;
 
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -24,9 +29,11 @@ import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ApplicationContextException;
 import org.springframework.context.Lifecycle;
 import org.springframework.context.LifecycleProcessor;
 import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.tests.Assume;
 import org.springframework.tests.TestGroup;
 
@@ -568,6 +575,158 @@ public class DefaultLifecycleProcessorTests {
 		assertEquals(Integer.MIN_VALUE, getPhase(stoppedBeans.get(4)));
 	}
 
+	@Test
+	public void concurrentStartupWithinPhase() throws Exception {
+		CopyOnWriteArrayList<Lifecycle> startedBeans = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(3);
+		StaticApplicationContext context = createContextWithConcurrentLifecycle(10000);
+		context.getBeanFactory().registerSingleton("bean1a", new ConcurrentStartupBean(1, latch, startedBeans));
+		context.getBeanFactory().registerSingleton("bean2", TestSmartLifecycleBean.forStartupTests(2, startedBeans));
+		context.getBeanFactory().registerSingleton("bean1b", new ConcurrentStartupBean(1, latch, startedBeans));
+		context.getBeanFactory().registerSingleton("bean1c", new ConcurrentStartupBean(1, latch, startedBeans));
+		context.getBeanFactory().registerSingleton("beanMin", TestSmartLifecycleBean.forStartupTests(Integer.MIN_VALUE, startedBeans));
+		// Each bean in phase 1 waits for the others to be starting
+		context.refresh();
+		assertEquals(5, startedBeans.size());
+		assertEquals(Integer.MIN_VALUE, getPhase(startedBeans.get(0)));
+		assertEquals(1, getPhase(startedBeans.get(1)));
+		assertEquals(1, getPhase(startedBeans.get(2)));
+		assertEquals(1, getPhase(startedBeans.get(3)));
+		assertEquals(2, getPhase(startedBeans.get(4)));
+		for (Lifecycle bean : startedBeans) {
+			assertTrue(bean.isRunning());
+		}
+		context.stop();
+		for (Lifecycle bean : startedBeans) {
+			assertFalse(bean.isRunning());
+		}
+		context.close();
+	}
+
+	@Test
+	public void concurrentStartupWithDependencyInSamePhase() throws Exception {
+		CopyOnWriteArrayList<Lifecycle> startedBeans = new CopyOnWriteArrayList<>();
+		TestSmartLifecycleBean bean = TestSmartLifecycleBean.forStartupTests(1, startedBeans);
+		ConcurrentStartupBean dependency = new ConcurrentStartupBean(1, new CountDownLatch(0), startedBeans);
+		dependency.startupDelay = 200;
+		StaticApplicationContext context = createContextWithConcurrentLifecycle(10000);
+		context.getBeanFactory().registerSingleton("bean", bean);
+		context.getBeanFactory().registerSingleton("dependency", dependency);
+		context.getBeanFactory().registerDependentBean("dependency", "bean");
+		context.refresh();
+		assertEquals(2, startedBeans.size());
+		assertSame(dependency, startedBeans.get(0));
+		assertSame(bean, startedBeans.get(1));
+		context.close();
+	}
+
+	@Test
+	public void concurrentStartupWithTimeout() throws Exception {
+		CopyOnWriteArrayList<Lifecycle> startedBeans = new CopyOnWriteArrayList<>();
+		ConcurrentStartupBean slowBean = new ConcurrentStartupBean(1, new CountDownLatch(0), startedBeans);
+		slowBean.startupDelay = 2000;
+		TestSmartLifecycleBean bean2 = TestSmartLifecycleBean.forStartupTests(2, startedBeans);
+		StaticApplicationContext context = createContextWithConcurrentLifecycle(100);
+		context.getBeanFactory().registerSingleton("slowBean", slowBean);
+		context.getBeanFactory().registerSingleton("bean2", bean2);
+		try {
+			context.refresh();
+			fail("Should have thrown ApplicationContextException");
+		}
+		catch (ApplicationContextException ex) {
+			assertTrue(ex.getMessage().contains("'slowBean'"));
+		}
+		assertFalse(bean2.isRunning());
+	}
+
+	@Test
+	public void concurrentStartupWithTimeoutPerBean() throws Exception {
+		CopyOnWriteArrayList<Lifecycle> startedBeans = new CopyOnWriteArrayList<>();
+		ConcurrentStartupBean bean = new ConcurrentStartupBean(1, new CountDownLatch(0), startedBeans);
+		bean.startupDelay = 300;
+		ConcurrentStartupBean dependency = new ConcurrentStartupBean(1, new CountDownLatch(0), startedBeans);
+		dependency.startupDelay = 300;
+		StaticApplicationContext context = createContextWithConcurrentLifecycle(500);
+		context.getBeanFactory().registerSingleton("bean", bean);
+		context.getBeanFactory().registerSingleton("dependency", dependency);
+		context.getBeanFactory().registerDependentBean("dependency", "bean");
+		// Exceeding the timeout for the phase as a whole but not for either bean
+		context.refresh();
+		assertEquals(2, startedBeans.size());
+		assertSame(dependency, startedBeans.get(0));
+		assertSame(bean, startedBeans.get(1));
+		context.close();
+	}
+
+	@Test
+	public void concurrentStartupFailureStartsNoFurtherBeans() throws Exception {
+		CopyOnWriteArrayList<Lifecycle> startedBeans = new CopyOnWriteArrayList<>();
+		ConcurrentStartupBean failingBean = new ConcurrentStartupBean(1, new CountDownLatch(0), startedBeans) {
+			@Override
+			public void start() {
+				throw new IllegalStateException("Expected exception");
+			}
+		};
+		TestSmartLifecycleBean bean = TestSmartLifecycleBean.forStartupTests(1, startedBeans);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		StaticApplicationContext context = createContextWithConcurrentLifecycle(executor, 10000);
+		context.getBeanFactory().registerSingleton("failingBean", failingBean);
+		context.getBeanFactory().registerSingleton("bean", bean);
+		try {
+			context.refresh();
+			fail("Should have thrown ApplicationContextException");
+		}
+		catch (ApplicationContextException ex) {
+			assertTrue(ex.getMessage().contains("'failingBean'"));
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertFalse(bean.isRunning());
+		assertTrue(startedBeans.isEmpty());
+	}
+
+	@Test
+	public void concurrentShutdownWithinPhase() throws Exception {
+		CopyOnWriteArrayList<Lifecycle> stoppedBeans = new CopyOnWriteArrayList<>();
+		TestSmartLifecycleBean beanMin = TestSmartLifecycleBean.forShutdownTests(Integer.MIN_VALUE, 100, stoppedBeans);
+		TestSmartLifecycleBean bean1a = TestSmartLifecycleBean.forShutdownTests(1, 200, stoppedBeans);
+		TestSmartLifecycleBean bean1b = TestSmartLifecycleBean.forShutdownTests(1, 200, stoppedBeans);
+		TestLifecycleBean simpleBean = TestLifecycleBean.forShutdownTests(stoppedBeans);
+		TestSmartLifecycleBean bean2 = TestSmartLifecycleBean.forShutdownTests(2, 50, stoppedBeans);
+		StaticApplicationContext context = createContextWithConcurrentLifecycle(10000);
+		context.getBeanFactory().registerSingleton("beanMin", beanMin);
+		context.getBeanFactory().registerSingleton("bean1a", bean1a);
+		context.getBeanFactory().registerSingleton("bean1b", bean1b);
+		context.getBeanFactory().registerSingleton("simpleBean", simpleBean);
+		context.getBeanFactory().registerSingleton("bean2", bean2);
+		context.refresh();
+		simpleBean.start();
+		context.stop();
+		assertEquals(5, stoppedBeans.size());
+		assertSame(bean2, stoppedBeans.get(0));
+		assertEquals(1, getPhase(stoppedBeans.get(1)));
+		assertEquals(1, getPhase(stoppedBeans.get(2)));
+		assertSame(simpleBean, stoppedBeans.get(3));
+		assertSame(beanMin, stoppedBeans.get(4));
+		context.close();
+	}
+
+
+	private static StaticApplicationContext createContextWithConcurrentLifecycle(long timeoutPerBeanStartup) {
+		return createContextWithConcurrentLifecycle(new SimpleAsyncTaskExecutor(), timeoutPerBeanStartup);
+	}
+
+	private static StaticApplicationContext createContextWithConcurrentLifecycle(
+			Executor taskExecutor, long timeoutPerBeanStartup) {
+
+		StaticApplicationContext context = new StaticApplicationContext();
+		DefaultLifecycleProcessor lifecycleProcessor = new DefaultLifecycleProcessor();
+		lifecycleProcessor.setBeanFactory(context.getBeanFactory());
+		lifecycleProcessor.setTaskExecutor(taskExecutor);
+		lifecycleProcessor.setTimeoutPerBeanStartup(timeoutPerBeanStartup);
+		context.getBeanFactory().registerSingleton("lifecycleProcessor", lifecycleProcessor);
+		return context;
+	}
 
 	private static int getPhase(Lifecycle lifecycle) {
 		return (lifecycle instanceof SmartLifecycle) ?
@@ -680,6 +839,32 @@ public class DefaultLifecycleProcessorTests {
 	}
 
 
+	private static class ConcurrentStartupBean extends TestSmartLifecycleBean {
+
+		private final CountDownLatch latch;
+
+		private volatile int startupDelay;
+
+		ConcurrentStartupBean(int phase, CountDownLatch latch, CopyOnWriteArrayList<Lifecycle> startedBeans) {
+			super(phase, 0, startedBeans, null);
+			this.latch = latch;
+		}
+
+		@Override
+		public void start() {
+			this.latch.countDown();
+			try {
+				assertTrue("Not started concurrently", this.latch.await(5, TimeUnit.SECONDS));
+				Thread.sleep(this.startupDelay);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			super.start();
+		}
+	}
+
+
 	public static class DummySmartLifecycleBean implements SmartLifecycle {
 
 		public boolean running = false;
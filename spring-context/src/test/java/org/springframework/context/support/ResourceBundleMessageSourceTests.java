@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.context.support;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
 import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
@@ -28,6 +32,7 @@ import org.springframework.beans.MutablePropertyValues;
 import org.springframework.context.MessageSourceResolvable;
 import org.springframework.context.NoSuchMessageException;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.util.FileSystemUtils;
 
 import static org.junit.Assert.*;
 
@@ -284,6 +289,32 @@ public class ResourceBundleMessageSourceTests {
 		}
 	}
 
+	@Test
+	public void testResourceBundleMessageSourceWithCustomResolveCode() {
+		ResourceBundleMessageSource ms = new ResourceBundleMessageSource() {
+			@Override
+			protected MessageFormat resolveCode(String code, Locale locale) {
+				return ("hello".equals(code) ? new MessageFormat("Custom {0}", locale) : super.resolveCode(code, locale));
+			}
+		};
+		ms.setBasename("org/springframework/context/support/messages");
+		assertEquals("Custom a", ms.getMessage("hello", new Object[] {"a", "b"}, Locale.ENGLISH));
+		assertEquals("message2", ms.getMessage("code2", new Object[] {"a"}, Locale.ENGLISH));
+	}
+
+	@Test
+	public void testResourceBundleMessageSourceWithCustomMessageFormat() {
+		ResourceBundleMessageSource ms = new ResourceBundleMessageSource() {
+			@Override
+			protected MessageFormat getMessageFormat(ResourceBundle bundle, String code, Locale locale) {
+				MessageFormat messageFormat = super.getMessageFormat(bundle, code, locale);
+				return (messageFormat != null ? new MessageFormat("[" + messageFormat.toPattern() + "]", locale) : null);
+			}
+		};
+		ms.setBasename("org/springframework/context/support/messages");
+		assertEquals("[a, b]", ms.getMessage("hello", new Object[] {"a", "b"}, Locale.ENGLISH));
+	}
+
 	@Test
 	public void testReloadableResourceBundleMessageSourceStandalone() {
 		ReloadableResourceBundleMessageSource ms = new ReloadableResourceBundleMessageSource();
@@ -292,6 +323,19 @@ public class ResourceBundleMessageSourceTests {
 		assertEquals("nachricht2", ms.getMessage("code2", null, Locale.GERMAN));
 	}
 
+	@Test
+	public void testReloadableResourceBundleMessageSourceWithCustomResolveCode() {
+		ReloadableResourceBundleMessageSource ms = new ReloadableResourceBundleMessageSource() {
+			@Override
+			protected MessageFormat resolveCode(String code, Locale locale) {
+				return ("hello".equals(code) ? new MessageFormat("Custom {0}", locale) : super.resolveCode(code, locale));
+			}
+		};
+		ms.setBasename("org/springframework/context/support/messages");
+		assertEquals("Custom a", ms.getMessage("hello", new Object[] {"a", "b"}, Locale.ENGLISH));
+		assertEquals("message2", ms.getMessage("code2", new Object[] {"a"}, Locale.ENGLISH));
+	}
+
 	@Test
 	public void testReloadableResourceBundleMessageSourceWithCacheSeconds() throws InterruptedException {
 		ReloadableResourceBundleMessageSource ms = new ReloadableResourceBundleMessageSource();
@@ -321,6 +365,34 @@ public class ResourceBundleMessageSourceTests {
 		assertEquals("nachricht2", ms.getMessage("code2", null, Locale.GERMAN));
 	}
 
+	@Test
+	public void testReloadableResourceBundleMessageSourceWithWatchForChanges() throws Exception {
+		Path directory = Files.createTempDirectory("messages");
+		Path file = directory.resolve("messages_en.properties");
+		Files.write(file, "code1=message1\ncode2={0} message2".getBytes(StandardCharsets.ISO_8859_1));
+		ReloadableResourceBundleMessageSource ms = new ReloadableResourceBundleMessageSource();
+		ms.setBasename(directory.resolve("messages").toUri().toString());
+		ms.setWatchForChanges(true);
+		try {
+			assertEquals("message1", ms.getMessage("code1", null, Locale.ENGLISH));
+			assertEquals("my message2", ms.getMessage("code2", new Object[] {"my"}, Locale.ENGLISH));
+			assertEquals("fallback", ms.getMessage("code3", null, "fallback", Locale.ENGLISH));
+
+			Files.write(file, "code1=changed1\ncode2={0} changed2".getBytes(StandardCharsets.ISO_8859_1));
+			assertEventuallyEquals("changed1", ms, "code1", Locale.ENGLISH);
+			assertEquals("my changed2", ms.getMessage("code2", new Object[] {"my"}, Locale.ENGLISH));
+
+			// Bundle file for the default locale, not existing on first access
+			Files.write(directory.resolve("messages.properties"), "code3=message3".getBytes(StandardCharsets.ISO_8859_1));
+			assertEventuallyEquals("message3", ms, "code3", Locale.ENGLISH);
+			assertEquals("changed1", ms.getMessage("code1", null, Locale.ENGLISH));
+		}
+		finally {
+			ms.destroy();
+			FileSystemUtils.deleteRecursively(directory);
+		}
+	}
+
 	@Test
 	public void testReloadableResourceBundleMessageSourceWithCommonMessages() {
 		ReloadableResourceBundleMessageSource ms = new ReloadableResourceBundleMessageSource();
@@ -444,6 +516,16 @@ public class ResourceBundleMessageSourceTests {
 	}
 
 
+	private static void assertEventuallyEquals(String expected, ReloadableResourceBundleMessageSource ms,
+			String code, Locale locale) throws InterruptedException {
+
+		for (int i = 0; i < 300 && !expected.equals(ms.getMessage(code, null, null, locale)); i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(expected, ms.getMessage(code, null, locale));
+	}
+
+
 	@After
 	public void tearDown() {
 		ResourceBundle.clearCache();
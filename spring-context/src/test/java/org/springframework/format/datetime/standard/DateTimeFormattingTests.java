@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.format.datetime.standard;
 
+import java.lang.reflect.Field;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -29,12 +30,14 @@ import java.time.YearMonth;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
@@ -42,10 +45,14 @@ import org.junit.Test;
 
 import org.springframework.beans.MutablePropertyValues;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.format.support.FormattingConversionService;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
 import org.springframework.validation.DataBinder;
 
 import static org.junit.Assert.*;
@@ -437,6 +444,92 @@ public class DateTimeFormattingTests {
 		assertTrue(binder.getBindingResult().getFieldValue("monthDay").toString().equals("--12-03"));
 	}
 
+	@Test
+	public void testFormatterSharedForAnnotatedField() throws Exception {
+		AtomicInteger formatterCount = new AtomicInteger();
+		Jsr310DateTimeFormatAnnotationFormatterFactory factory = new Jsr310DateTimeFormatAnnotationFormatterFactory() {
+			@Override
+			protected DateTimeFormatter getFormatter(DateTimeFormat annotation, Class<?> fieldType) {
+				formatterCount.incrementAndGet();
+				return super.getFormatter(annotation, fieldType);
+			}
+		};
+		DateTimeFormat annotation = DateTimeBean.class.getDeclaredField("isoDate").getAnnotation(DateTimeFormat.class);
+		for (int i = 0; i < 3; i++) {
+			factory.getPrinter(annotation, LocalDate.class);
+			factory.getParser(annotation, LocalDate.class);
+		}
+		assertEquals(1, formatterCount.get());
+		// Equivalent annotation instance, e.g. synthesized from a composed annotation
+		DateTimeFormat synthesized = AnnotationUtils.synthesizeAnnotation(
+				AnnotationUtils.getAnnotationAttributes(annotation), DateTimeFormat.class, null);
+		assertNotSame(annotation, synthesized);
+		factory.getParser(synthesized, LocalDate.class);
+		assertEquals(1, formatterCount.get());
+		factory.getPrinter(annotation, LocalDateTime.class);
+		assertEquals(2, formatterCount.get());
+	}
+
+	@Test
+	public void testBindAnnotatedFieldsRepeatedly() {
+		for (int i = 0; i < 3; i++) {
+			((DateTimeBean) binder.getTarget()).getChildren().add(new DateTimeBean());
+		}
+		MutablePropertyValues propertyValues = new MutablePropertyValues();
+		for (int i = 0; i < 4; i++) {
+			propertyValues.add("children[" + i + "].isoDate", "2009-10-" + (28 + i));
+			propertyValues.add("children[" + i + "].dateTimeAnnotatedPattern", "10/" + (28 + i) + "/09 12:00 PM");
+		}
+		binder.bind(propertyValues);
+		assertEquals(0, binder.getBindingResult().getErrorCount());
+		for (int i = 0; i < 4; i++) {
+			assertEquals("2009-10-" + (28 + i), binder.getBindingResult().getFieldValue("children[" + i + "].isoDate"));
+			assertEquals("10/" + (28 + i) + "/09 12:00 PM",
+					binder.getBindingResult().getFieldValue("children[" + i + "].dateTimeAnnotatedPattern"));
+		}
+	}
+
+	@Test
+	public void testAnnotatedFormFormatterLookupPerformance() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+		Jsr310DateTimeFormatAnnotationFormatterFactory factory = new Jsr310DateTimeFormatAnnotationFormatterFactory();
+		// A form with 50 annotated fields: 5 per child bean
+		List<Field> fields = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			for (String name : new String[] {"localDateAnnotated", "localTimeAnnotated",
+					"dateTimeAnnotatedPattern", "isoDate", "isoTime"}) {
+				fields.add(DateTimeBean.class.getDeclaredField(name));
+			}
+		}
+		long cachedMillis = 0;
+		long buildingMillis = 0;
+		for (int round = 0; round < 5; round++) {
+			StopWatch watch = new StopWatch("Formatter lookup for a form with 50 annotated fields");
+			watch.start("cached");
+			for (int i = 0; i < 20000; i++) {
+				for (Field field : fields) {
+					DateTimeFormat annotation = field.getAnnotation(DateTimeFormat.class);
+					assertNotNull(factory.getParser(annotation, field.getType()));
+				}
+			}
+			watch.stop();
+			cachedMillis = watch.getLastTaskTimeMillis();
+			watch.start("building");
+			for (int i = 0; i < 20000; i++) {
+				for (Field field : fields) {
+					DateTimeFormat annotation = field.getAnnotation(DateTimeFormat.class);
+					assertNotNull(new TemporalAccessorParser(field.getType().asSubclass(TemporalAccessor.class),
+							factory.getFormatter(annotation, field.getType())));
+				}
+			}
+			watch.stop();
+			buildingMillis = watch.getLastTaskTimeMillis();
+		}
+		// Compare the last, warmed-up round
+		assertTrue("Formatter cache took " + cachedMillis + " ms vs " + buildingMillis + " ms for building",
+				cachedMillis < buildingMillis);
+	}
+
 
 	public static class DateTimeBean {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -216,6 +216,24 @@ public class EnableAsyncTests {
 		ctx.close();
 	}
 
+	@Test
+	public void virtualThreadsForDefaultExecutor() {
+		// Arrange
+		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+		ctx.register(VirtualThreadsAsyncConfig.class);
+		ctx.refresh();
+		AsyncBean asyncBean = ctx.getBean(AsyncBean.class);
+		// Act
+		asyncBean.work();
+		// Assert
+		Awaitility.await()
+					.atMost(500, TimeUnit.MILLISECONDS)
+					.pollInterval(10, TimeUnit.MILLISECONDS)
+					.until(() -> asyncBean.getThreadOfExecution() != null);
+		assertThat(asyncBean.getThreadOfExecution().getName(), startsWith("VirtualThreadTaskExecutor-"));
+		ctx.close();
+	}
+
 	@Test
 	public void customExecutorConfig() {
 		// Arrange
@@ -496,6 +514,17 @@ public class EnableAsyncTests {
 	}
 
 
+	@Configuration
+	@EnableAsync(virtualThreads = true)
+	static class VirtualThreadsAsyncConfig {
+
+		@Bean
+		public AsyncBean asyncBean() {
+			return new AsyncBean();
+		}
+	}
+
+
 	@Configuration
 	@EnableAsync
 	static class CustomExecutorConfig implements AsyncConfigurer {
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ExecutorMetrics} as recorded by
+ * {@link ThreadPoolTaskExecutor} and {@link ThreadPoolTaskScheduler}.
+ *
+ * @author agent
+ */
+public class ExecutorMetricsTests {
+
+	@Test
+	public void histogramPercentiles() {
+		ExecutorMetrics metrics = new ExecutorMetrics();
+		for (int i = 1; i <= 100; i++) {
+			metrics.taskSubmitted(i);
+		}
+		ExecutorMetrics.Histogram histogram = metrics.getQueueDepth();
+		assertEquals(100, histogram.getCount());
+		assertEquals(5050, histogram.getSum());
+		assertEquals(50.5, histogram.getMean(), 0.001);
+		assertEquals(100, histogram.getMax());
+		assertEquals(1, histogram.getValueAtPercentile(0));
+		assertTrue(histogram.getMedian() >= 50 && histogram.getMedian() < 64);
+		assertTrue(histogram.get99thPercentile() >= 99 && histogram.get99thPercentile() <= 100);
+		assertEquals(100, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void histogramBucketsForLargeValues() {
+		ExecutorMetrics metrics = new ExecutorMetrics();
+		metrics.taskSubmitted(Integer.MAX_VALUE);
+		assertEquals(Integer.MAX_VALUE, metrics.getQueueDepth().getMedian());
+		metrics.reset();
+		assertEquals(0, metrics.getQueueDepth().getCount());
+		assertEquals(0, metrics.getQueueDepth().getMedian());
+	}
+
+	@Test
+	public void metricsDisabledByDefault() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.afterPropertiesSet();
+		try {
+			assertNull(executor.getMetrics());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void executorRecordsTasks() throws Exception {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setMetricsEnabled(true);
+		executor.setCorePoolSize(1);
+		executor.afterPropertiesSet();
+		try {
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			executor.execute(() -> {
+				started.countDown();
+				awaitQuietly(release);
+			});
+			assertTrue(started.await(1000, TimeUnit.MILLISECONDS));
+			executor.execute(() -> {});
+			Future<?> future = executor.submit(() -> {});
+			Thread.sleep(20);
+			assertEquals(1, executor.getMetrics().getActiveTaskCount());
+			release.countDown();
+			future.get(1000, TimeUnit.MILLISECONDS);
+
+			ExecutorMetrics metrics = executor.getMetrics();
+			assertEquals(3, metrics.getSubmittedTaskCount());
+			assertEquals(1, metrics.getQueueDepth().getMax());
+			assertTrue(metrics.getQueueWaitTime().getMax() >= TimeUnit.MILLISECONDS.toNanos(20));
+			assertTrue(metrics.getExecutionTime().getMax() >= TimeUnit.MILLISECONDS.toNanos(20));
+			awaitCompletedTasks(metrics, 3);
+			assertEquals(0, metrics.getActiveTaskCount());
+			assertEquals(0, metrics.getRejectedTaskCount());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void executorRecordsRejections() throws Exception {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setMetricsEnabled(true);
+		executor.setCorePoolSize(1);
+		executor.setMaxPoolSize(1);
+		executor.setQueueCapacity(0);
+		executor.afterPropertiesSet();
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			executor.execute(() -> awaitQuietly(release));
+			try {
+				executor.execute(() -> {});
+				fail("Should have thrown TaskRejectedException");
+			}
+			catch (TaskRejectedException ex) {
+				// expected
+			}
+			assertEquals(1, executor.getMetrics().getRejectedTaskCount());
+		}
+		finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void shutdownCancelsInstrumentedTasks() throws Exception {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setMetricsEnabled(true);
+		executor.setCorePoolSize(1);
+		executor.afterPropertiesSet();
+		CountDownLatch release = new CountDownLatch(1);
+		executor.execute(() -> awaitQuietly(release));
+		Future<?> future = executor.submit(() -> {});
+		executor.shutdown();
+		release.countDown();
+		assertTrue(future.isCancelled());
+	}
+
+	@Test
+	public void schedulerRecordsTasks() throws Exception {
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setMetricsEnabled(true);
+		scheduler.afterPropertiesSet();
+		try {
+			CountDownLatch latch = new CountDownLatch(3);
+			ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(latch::countDown, new Date(), 10);
+			scheduler.schedule(() -> {}, new Date(System.currentTimeMillis() + 20)).get(1000, TimeUnit.MILLISECONDS);
+			assertTrue(latch.await(1000, TimeUnit.MILLISECONDS));
+			future.cancel(false);
+
+			ExecutorMetrics metrics = scheduler.getMetrics();
+			assertEquals(2, metrics.getSubmittedTaskCount());
+			awaitCompletedTasks(metrics, 4);
+			assertEquals(0, metrics.getRejectedTaskCount());
+			assertTrue(metrics.getQueueWaitTime().getMax() < TimeUnit.SECONDS.toNanos(1));
+		}
+		finally {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void exportThroughMBeanExporter() throws Exception {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setMetricsEnabled(true);
+		executor.afterPropertiesSet();
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		MBeanExporter exporter = new MBeanExporter();
+		exporter.setServer(server);
+		exporter.setBeans(Collections.singletonMap("executors:name=taskExecutor", executor.getMetrics()));
+		exporter.afterPropertiesSet();
+		exporter.afterSingletonsInstantiated();
+		try {
+			executor.submit(() -> {}).get(1000, TimeUnit.MILLISECONDS);
+			ObjectName name = ObjectName.getInstance("executors:name=taskExecutor");
+			assertEquals(1L, server.getAttribute(name, "SubmittedTaskCount"));
+			ExecutorMetrics.Histogram histogram = (ExecutorMetrics.Histogram) server.getAttribute(name, "QueueDepth");
+			assertEquals(1, histogram.getCount());
+			server.invoke(name, "reset", new Object[0], new String[0]);
+			assertEquals(0L, server.getAttribute(name, "SubmittedTaskCount"));
+		}
+		finally {
+			exporter.destroy();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void instrumentationOverhead() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+		ThreadPoolTaskExecutor plainExecutor = new ThreadPoolTaskExecutor();
+		plainExecutor.setCorePoolSize(4);
+		plainExecutor.afterPropertiesSet();
+		ThreadPoolTaskExecutor instrumentedExecutor = new ThreadPoolTaskExecutor();
+		instrumentedExecutor.setCorePoolSize(4);
+		instrumentedExecutor.setMetricsEnabled(true);
+		instrumentedExecutor.afterPropertiesSet();
+		long plainMillis = 0;
+		long instrumentedMillis = 0;
+		try {
+			for (int round = 0; round < 3; round++) {
+				StopWatch watch = new StopWatch("instrumentationOverhead");
+				watch.start("plain");
+				executeTasks(plainExecutor, 500000);
+				watch.stop();
+				plainMillis = watch.getLastTaskTimeMillis();
+				watch.start("instrumented");
+				executeTasks(instrumentedExecutor, 500000);
+				watch.stop();
+				instrumentedMillis = watch.getLastTaskTimeMillis();
+			}
+		}
+		finally {
+			plainExecutor.shutdown();
+			instrumentedExecutor.shutdown();
+		}
+		assertEquals(1500000, instrumentedExecutor.getMetrics().getSubmittedTaskCount());
+		// Compare the last, warmed-up round: no-op tasks expose the fixed recording cost,
+		// which has to stay below a microsecond per task
+		long overheadNanosPerTask = (instrumentedMillis - plainMillis) * 1000000 / 500000;
+		assertTrue("Instrumented executor took " + instrumentedMillis + " ms vs " + plainMillis +
+				" ms for plain executor", overheadNanosPerTask < 1000);
+	}
+
+
+	private static void executeTasks(ThreadPoolTaskExecutor executor, int taskCount) throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(taskCount);
+		for (int i = 0; i < taskCount; i++) {
+			executor.execute(latch::countDown);
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+	}
+
+	private static void awaitCompletedTasks(ExecutorMetrics metrics, int taskCount) throws InterruptedException {
+		// Completion is recorded after the task's Future has been released
+		long start = System.currentTimeMillis();
+		while (metrics.getCompletedTaskCount() < taskCount && System.currentTimeMillis() - start < 1000) {
+			Thread.sleep(1);
+		}
+		assertTrue(metrics.getCompletedTaskCount() >= taskCount);
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(1000, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.PeriodicTrigger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link HashedWheelTaskScheduler}.
+ *
+ * @author agent
+ */
+public class HashedWheelTaskSchedulerTests {
+
+	private static final String THREAD_NAME_PREFIX = "wheel-test-";
+
+	private final HashedWheelTaskScheduler scheduler = new HashedWheelTaskScheduler();
+
+
+	@Before
+	public void initScheduler() {
+		this.scheduler.setThreadNamePrefix(THREAD_NAME_PREFIX);
+		this.scheduler.setTickDuration(5);
+		this.scheduler.setWheelSize(8);
+		this.scheduler.setPoolSize(2);
+		this.scheduler.afterPropertiesSet();
+	}
+
+	@After
+	public void shutdownScheduler() {
+		this.scheduler.shutdown();
+	}
+
+
+	@Test
+	public void scheduleOneTimeTask() throws Exception {
+		List<String> threadNames = new ArrayList<>();
+		ScheduledFuture<?> future = this.scheduler.schedule(
+				() -> threadNames.add(Thread.currentThread().getName()), new Date());
+		assertNull(future.get(1000, TimeUnit.MILLISECONDS));
+		assertTrue(future.isDone());
+		assertTrue(threadNames.get(0).startsWith(THREAD_NAME_PREFIX));
+	}
+
+	@Test
+	public void scheduleDelayedTasksBeyondInnermostLevel() throws Exception {
+		long start = System.currentTimeMillis();
+		List<ScheduledFuture<?>> futures = new ArrayList<>();
+		AtomicInteger counter = new AtomicInteger();
+		for (int delay : new int[] {1, 30, 45, 170, 400}) {
+			futures.add(this.scheduler.schedule(counter::incrementAndGet, new Date(start + delay)));
+		}
+		for (ScheduledFuture<?> future : futures) {
+			future.get(2000, TimeUnit.MILLISECONDS);
+		}
+		assertEquals(5, counter.get());
+		assertTrue(System.currentTimeMillis() - start >= 400);
+	}
+
+	@Test
+	public void scheduledTaskDoesNotRunEarly() throws Exception {
+		long start = System.nanoTime();
+		AtomicInteger counter = new AtomicInteger();
+		ScheduledFuture<?> future = this.scheduler.schedule(counter::incrementAndGet,
+				new Date(System.currentTimeMillis() + 100));
+		assertTrue(future.getDelay(TimeUnit.MILLISECONDS) > 0);
+		future.get(1000, TimeUnit.MILLISECONDS);
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 99);
+		assertEquals(1, counter.get());
+	}
+
+	@Test(expected = ExecutionException.class)
+	public void scheduleOneTimeFailingTaskWithoutErrorHandler() throws Exception {
+		ScheduledFuture<?> future = this.scheduler.schedule(() -> {
+			throw new IllegalStateException("Expected exception");
+		}, new Date());
+		future.get(1000, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void scheduleOneTimeFailingTaskWithErrorHandler() throws Exception {
+		List<Throwable> errors = new ArrayList<>();
+		this.scheduler.setErrorHandler(errors::add);
+		ScheduledFuture<?> future = this.scheduler.schedule(() -> {
+			throw new IllegalStateException("Expected exception");
+		}, new Date());
+		assertNull(future.get(1000, TimeUnit.MILLISECONDS));
+		assertEquals(1, errors.size());
+	}
+
+	@Test
+	public void cancelledTaskDoesNotRun() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		List<ScheduledFuture<?>> futures = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			futures.add(this.scheduler.schedule(counter::incrementAndGet, new Date(System.currentTimeMillis() + 300 + i % 100)));
+		}
+		for (ScheduledFuture<?> future : futures) {
+			assertTrue(future.cancel(false));
+			assertTrue(future.isCancelled());
+		}
+		ScheduledFuture<?> marker = this.scheduler.schedule(() -> {}, new Date(System.currentTimeMillis() + 500));
+		marker.get(1000, TimeUnit.MILLISECONDS);
+		assertEquals(0, counter.get());
+	}
+
+	@Test
+	public void scheduleAtFixedRate() throws Exception {
+		CountDownLatch latch = new CountDownLatch(5);
+		ScheduledFuture<?> future = this.scheduler.scheduleAtFixedRate(latch::countDown, 10);
+		assertTrue(latch.await(1000, TimeUnit.MILLISECONDS));
+		assertFalse(future.isDone());
+		assertTrue(future.cancel(false));
+		assertTrue(future.isDone());
+	}
+
+	@Test
+	public void scheduleWithFixedDelay() throws Exception {
+		CountDownLatch latch = new CountDownLatch(5);
+		ScheduledFuture<?> future = this.scheduler.scheduleWithFixedDelay(latch::countDown, new Date(), 10);
+		assertTrue(latch.await(1000, TimeUnit.MILLISECONDS));
+		assertTrue(future.cancel(false));
+	}
+
+	@Test
+	public void repeatingFailingTaskContinues() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = this.scheduler.scheduleWithFixedDelay(() -> {
+			latch.countDown();
+			throw new IllegalStateException("Expected exception");
+		}, 10);
+		assertTrue(latch.await(1000, TimeUnit.MILLISECONDS));
+		assertTrue(future.cancel(false));
+	}
+
+	@Test
+	public void scheduleWithPeriodicTrigger() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = this.scheduler.schedule(latch::countDown, new PeriodicTrigger(10));
+		assertTrue(latch.await(1000, TimeUnit.MILLISECONDS));
+		assertTrue(future.cancel(false));
+	}
+
+	@Test
+	public void scheduleWithCronTrigger() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		ScheduledFuture<?> future = this.scheduler.schedule(latch::countDown, new CronTrigger("* * * * * *"));
+		assertTrue(latch.await(2000, TimeUnit.MILLISECONDS));
+		assertTrue(future.cancel(false));
+	}
+
+	@Test
+	public void scheduleWithFiniteTrigger() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		ScheduledFuture<?> future = this.scheduler.schedule(counter::incrementAndGet, triggerContext ->
+				(counter.get() < 3 ? new Date(System.currentTimeMillis() + 5) : null));
+		assertNull(future.get(1000, TimeUnit.MILLISECONDS));
+		assertEquals(3, counter.get());
+	}
+
+	@Test
+	public void scheduleWithExhaustedTrigger() {
+		assertNull(this.scheduler.schedule(() -> {}, triggerContext -> null));
+	}
+
+	@Test
+	public void shutdownCancelsRemainingTasks() {
+		ScheduledFuture<?> future = this.scheduler.schedule(() -> {}, new Date(System.currentTimeMillis() + 60000));
+		this.scheduler.shutdown();
+		long start = System.currentTimeMillis();
+		while (!future.isCancelled() && System.currentTimeMillis() - start < 1000) {
+			Thread.yield();
+		}
+		assertTrue(future.isCancelled());
+	}
+
+	@Test(expected = TaskRejectedException.class)
+	public void scheduleAfterShutdown() {
+		this.scheduler.shutdown();
+		this.scheduler.schedule(() -> {}, new Date());
+	}
+
+}
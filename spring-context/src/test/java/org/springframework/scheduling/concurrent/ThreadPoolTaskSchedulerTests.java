@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.scheduling.concurrent;
 
+import java.lang.reflect.Method;
 import java.util.Date;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
@@ -27,9 +28,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 
 import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.Trigger;
 import org.springframework.scheduling.TriggerContext;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ErrorHandler;
+import org.springframework.util.ReflectionUtils;
 
 import static org.junit.Assert.*;
 
@@ -120,6 +124,22 @@ public class ThreadPoolTaskSchedulerTests extends AbstractSchedulingTaskExecutor
 		assertNotNull(errorHandler.lastError);
 	}
 
+	@Test
+	public void submitWithVirtualThreads() throws Exception {
+		ThreadPoolTaskScheduler virtualScheduler = new ThreadPoolTaskScheduler();
+		virtualScheduler.setThreadNamePrefix("virtual-");
+		virtualScheduler.setVirtualThreads(true);
+		virtualScheduler.afterPropertiesSet();
+		try {
+			Thread thread = virtualScheduler.submit(Thread::currentThread).get(1000, TimeUnit.MILLISECONDS);
+			assertTrue(thread.getName().startsWith("virtual-"));
+			assertEquals(VirtualThreadTaskExecutor.isVirtualThreadSupported(), isVirtual(thread));
+		}
+		finally {
+			virtualScheduler.destroy();
+		}
+	}
+
 	@Test
 	public void scheduleTriggerTask() throws Exception {
 		TestTask task = new TestTask(3);
@@ -142,6 +162,11 @@ public class ThreadPoolTaskSchedulerTests extends AbstractSchedulingTaskExecutor
 		assertEquals(THREAD_NAME_PREFIX, task.lastThread.getName().substring(0, THREAD_NAME_PREFIX.length()));
 	}
 
+	private static boolean isVirtual(Thread thread) {
+		Method isVirtual = ClassUtils.getMethodIfAvailable(Thread.class, "isVirtual");
+		return (isVirtual != null && Boolean.TRUE.equals(ReflectionUtils.invokeMethod(isVirtual, thread)));
+	}
+
 	private void await(TestTask task) {
 		await(task.latch);
 	}
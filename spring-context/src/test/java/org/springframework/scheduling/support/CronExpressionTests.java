@@ -0,0 +1,202 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.support;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link CronExpression}.
+ *
+ * @author agent
+ */
+public class CronExpressionTests {
+
+	private static final String[] EXPRESSIONS = {
+			"* * * * * *", "0 * 1-4 * * *", "0 */2 1-4 * * *", "0 0 * * * *", "0 0 8-10 * * *",
+			"0 0/30 8-10 * * *", "0 0 9-17 * * MON-FRI", "0 0 0 25 12 ?", "0 0 0 29 2 *", "0 0 0 31 * *",
+			"0 10 2 * * *", "30 30 1 * * *", "0 0 0 1 */3 *", "0 0 12 * * SUN", "59 59 23 * * *"
+	};
+
+	private static final String[] ZONES = {"UTC", "CET", "America/Los_Angeles", "Australia/Lord_Howe"};
+
+
+	@Test
+	public void nextSecond() {
+		CronExpression expression = new CronExpression("* * * * * *", ZoneOffset.UTC);
+		assertEquals(utc(2019, 1, 1, 10, 0, 1), expression.next(utc(2019, 1, 1, 10, 0, 0)));
+		assertEquals(utc(2019, 1, 1, 10, 0, 1), expression.next(utc(2019, 1, 1, 10, 0, 0) + 999));
+	}
+
+	@Test
+	public void rollOverAllFields() {
+		CronExpression expression = new CronExpression("0 0 0 1 1 *", ZoneOffset.UTC);
+		assertEquals(utc(2020, 1, 1, 0, 0, 0), expression.next(utc(2019, 12, 31, 23, 59, 59)));
+	}
+
+	@Test
+	public void dayOfWeekAndDayOfMonth() {
+		// Friday the 13th
+		CronExpression expression = new CronExpression("0 0 0 13 * FRI", ZoneOffset.UTC);
+		assertEquals(utc(2019, 9, 13, 0, 0, 0), expression.next(utc(2019, 1, 1, 0, 0, 0)));
+		assertEquals(utc(2019, 12, 13, 0, 0, 0), expression.next(utc(2019, 9, 13, 0, 0, 0)));
+	}
+
+	@Test
+	public void leapYear() {
+		CronExpression expression = new CronExpression("0 0 0 29 2 *", ZoneOffset.UTC);
+		assertEquals(utc(2020, 2, 29, 0, 0, 0), expression.next(utc(2019, 3, 1, 0, 0, 0)));
+		assertEquals(utc(2024, 2, 29, 0, 0, 0), expression.next(utc(2020, 2, 29, 0, 0, 0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nonExistentDate() {
+		new CronExpression("0 0 0 30 2 *", ZoneOffset.UTC).next(utc(2019, 1, 1, 0, 0, 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidExpression() {
+		new CronExpression("0 0 0 * *");
+	}
+
+	@Test
+	public void daylightSavingGapIsSkipped() {
+		ZoneId zone = ZoneId.of("Europe/Paris");
+		CronExpression expression = new CronExpression("0 30 2 * * *", zone);
+		// 2019-03-31 02:30 does not exist in Paris
+		long seed = ZonedDateTime.of(2019, 3, 31, 1, 0, 0, 0, zone).toInstant().toEpochMilli();
+		long expected = ZonedDateTime.of(2019, 4, 1, 2, 30, 0, 0, zone).toInstant().toEpochMilli();
+		assertEquals(expected, expression.next(seed));
+	}
+
+	@Test
+	public void daylightSavingGapContinuesAfterGap() {
+		ZoneId zone = ZoneId.of("Europe/Paris");
+		CronExpression expression = new CronExpression("0 */20 * * * *", zone);
+		long seed = ZonedDateTime.of(2019, 3, 31, 1, 50, 0, 0, zone).toInstant().toEpochMilli();
+		long expected = ZonedDateTime.of(2019, 3, 31, 3, 0, 0, 0, zone).toInstant().toEpochMilli();
+		assertEquals(expected, expression.next(seed));
+	}
+
+	@Test
+	public void daylightSavingOverlapKeepsOffset() {
+		ZoneId zone = ZoneId.of("Europe/Paris");
+		CronExpression expression = new CronExpression("0 */20 * * * *", zone);
+		// 2019-10-27 02:00-03:00 exists twice in Paris
+		ZonedDateTime earlier = ZonedDateTime.of(2019, 10, 27, 2, 10, 0, 0, zone).withEarlierOffsetAtOverlap();
+		assertEquals(earlier.plusMinutes(10).toInstant().toEpochMilli(),
+				expression.next(earlier.toInstant().toEpochMilli()));
+		ZonedDateTime later = earlier.withLaterOffsetAtOverlap();
+		assertEquals(later.plusMinutes(10).toInstant().toEpochMilli(),
+				expression.next(later.toInstant().toEpochMilli()));
+		// Local time moves forward only: 3:00 follows on 2:50 in the earlier offset
+		ZonedDateTime end = ZonedDateTime.of(2019, 10, 27, 2, 50, 0, 0, zone).withEarlierOffsetAtOverlap();
+		assertEquals(ZonedDateTime.of(2019, 10, 27, 3, 0, 0, 0, zone).toInstant().toEpochMilli(),
+				expression.next(end.toInstant().toEpochMilli()));
+	}
+
+	@Test
+	public void resetLowerFieldsOnRollover() {
+		CronExpression expression = new CronExpression("*/15 * 1-4 * * *", ZoneOffset.UTC);
+		assertEquals(utc(2020, 12, 25, 1, 0, 0), expression.next(utc(2020, 12, 24, 19, 45, 35)));
+	}
+
+	@Test
+	public void sameResultsAsCronSequenceGenerator() {
+		Random random = new Random(42);
+		long start = utc(2019, 1, 1, 0, 0, 0);
+		for (String zone : ZONES) {
+			TimeZone timeZone = TimeZone.getTimeZone(zone);
+			for (String pattern : EXPRESSIONS) {
+				CronSequenceGenerator generator = new CronSequenceGenerator(pattern, timeZone);
+				CronExpression expression = new CronExpression(pattern, timeZone.toZoneId());
+				ZoneRules rules = timeZone.toZoneId().getRules();
+				for (int i = 0; i < 200; i++) {
+					Date date = new Date(start + (long) (random.nextDouble() * 4 * 365 * 24 * 3600 * 1000));
+					Date expected = generator.next(date);
+					// Deliberate differences around daylight saving transitions covered above
+					ZoneOffsetTransition transition = rules.nextTransition(date.toInstant().minus(1, ChronoUnit.DAYS));
+					if (transition == null || transition.getInstant().isAfter(expected.toInstant().plus(1, ChronoUnit.DAYS))) {
+						assertEquals(pattern + " in " + zone + " after " + date, expected, expression.next(date));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void equalsAndHashCode() {
+		CronExpression expression1 = new CronExpression("0 0 * * * SUN");
+		CronExpression expression2 = new CronExpression("0 0 * * * 0,7");
+		assertEquals(expression1, expression2);
+		assertEquals(expression1.hashCode(), expression2.hashCode());
+		assertNotEquals(expression1, new CronExpression("0 0 * * * MON"));
+	}
+
+	@Test
+	public void nextPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+		TimeZone timeZone = TimeZone.getTimeZone("Europe/Paris");
+		CronSequenceGenerator generator = new CronSequenceGenerator("0 0/30 8-10 * * MON-FRI", timeZone);
+		CronExpression expression = new CronExpression("0 0/30 8-10 * * MON-FRI", timeZone.toZoneId());
+		long generatorTime = 0;
+		long expressionTime = 0;
+		for (int round = 0; round < 3; round++) {
+			StopWatch watch = new StopWatch("nextPerformance");
+			Date date = new Date(utc(2019, 1, 1, 0, 0, 0));
+			watch.start("CronSequenceGenerator");
+			for (int i = 0; i < 200000; i++) {
+				date = generator.next(date);
+			}
+			watch.stop();
+			generatorTime = watch.getLastTaskTimeMillis();
+			long timestamp = utc(2019, 1, 1, 0, 0, 0);
+			watch.start("CronExpression");
+			for (int i = 0; i < 200000; i++) {
+				timestamp = expression.next(timestamp);
+			}
+			watch.stop();
+			expressionTime = watch.getLastTaskTimeMillis();
+			assertEquals(date.getTime(), timestamp);
+		}
+		// Compare the last, warmed-up round
+		assertTrue("CronExpression took " + expressionTime + " ms vs " + generatorTime +
+				" ms for CronSequenceGenerator", expressionTime < generatorTime);
+	}
+
+
+	private static long utc(int year, int month, int day, int hour, int minute, int second) {
+		return LocalDateTime.of(year, month, day, hour, minute, second).toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import java.io.ObjectOutputStream;
 import java.text.ParseException;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -35,12 +36,14 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.InvalidPropertyException;
 import org.springframework.beans.MethodInvocationException;
 import org.springframework.beans.MutablePropertyValues;
@@ -53,6 +56,7 @@ import org.springframework.beans.propertyeditors.StringTrimmerEditor;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.context.support.ResourceBundleMessageSource;
 import org.springframework.context.support.StaticMessageSource;
+import org.springframework.core.OverridingClassLoader;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.format.Formatter;
@@ -76,6 +80,7 @@ import static org.junit.Assert.*;
  * @author Juergen Hoeller
  * @author Rob Harrop
  * @author Kazuki Shimizu
+ * @author agent
  */
 public class DataBinderTests {
 
@@ -730,6 +735,114 @@ public class DataBinderTests {
 		assertEquals("age", disallowedFields[0]);
 	}
 
+	@Test
+	public void testBindingWithSharedBindingPlan() throws BindException {
+		for (int i = 0; i < 3; i++) {
+			TestBean rod = new TestBean();
+			rod.setSpouse(new TestBean());
+			DataBinder binder = new DataBinder(rod);
+			binder.setAllowedFields("name", "spouse.*");
+			binder.setDisallowedFields("spouse.age");
+			MutablePropertyValues pvs = new MutablePropertyValues();
+			pvs.add("name", "Rod" + i);
+			pvs.add("age", "32");
+			pvs.add("spouse.name", "Kerry" + i);
+			pvs.add("spouse.age", "34");
+
+			binder.bind(pvs);
+			binder.close();
+			assertEquals("Rod" + i, rod.getName());
+			assertEquals(0, rod.getAge());
+			assertEquals("Kerry" + i, rod.getSpouse().getName());
+			assertEquals(0, rod.getSpouse().getAge());
+			String[] suppressedFields = binder.getBindingResult().getSuppressedFields();
+			Arrays.sort(suppressedFields);
+			assertArrayEquals(new String[] {"age", "spouse.age"}, suppressedFields);
+		}
+
+		// Same target class with a different configuration
+		TestBean rod = new TestBean();
+		DataBinder binder = new DataBinder(rod);
+		binder.setAllowedFields("age");
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		pvs.add("name", "Rod");
+		pvs.add("age", "32");
+		binder.bind(pvs);
+		binder.close();
+		assertNull(rod.getName());
+		assertEquals(32, rod.getAge());
+	}
+
+	@Test
+	public void testBindingWithUnknownFieldsAndSharedBindingPlan() throws BindException {
+		for (int i = 0; i < 3; i++) {
+			TestBean rod = new TestBean();
+			DataBinder binder = new DataBinder(rod);
+			MutablePropertyValues pvs = new MutablePropertyValues();
+			pvs.add("name", "Rod");
+			pvs.add("nonExisting", "someValue");
+			pvs.add("touchy", "valid");
+			binder.bind(pvs);
+			binder.close();
+			assertEquals("Rod", rod.getName());
+			assertEquals("valid", rod.getTouchy());
+			// Property values left untouched
+			assertTrue(pvs.contains("nonExisting"));
+		}
+
+		DataBinder binder = new DataBinder(new TestBean());
+		binder.setIgnoreUnknownFields(false);
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		pvs.add("nonExisting", "someValue");
+		try {
+			binder.bind(pvs);
+			fail("Should have thrown NotWritablePropertyException");
+		}
+		catch (NotWritablePropertyException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testBindingPlanResolvedOncePerBind() throws BindException {
+		TestBean rod = new TestBean();
+		AtomicInteger allowedFieldsLookups = new AtomicInteger();
+		DataBinder binder = new DataBinder(rod) {
+			@Override
+			public String[] getAllowedFields() {
+				allowedFieldsLookups.incrementAndGet();
+				return super.getAllowedFields();
+			}
+		};
+		binder.setAllowedFields("name", "age", "touchy");
+		binder.setRequiredFields("name");
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		pvs.add("name", "Rod");
+		pvs.add("age", "32");
+		pvs.add("touchy", "valid");
+		pvs.add("spouse", null);
+		binder.bind(pvs);
+		binder.close();
+		assertEquals("Rod", rod.getName());
+		assertEquals(32, rod.getAge());
+		assertEquals("valid", rod.getTouchy());
+		assertEquals(1, allowedFieldsLookups.get());
+	}
+
+	@Test
+	public void testBindingPlanNotStronglyCachedForOtherClassLoader() throws Exception {
+		BindingPlan plan = BindingPlan.forConfiguration(TestBean.class, BeanWrapperImpl.class, null, null);
+		assertSame(plan, BindingPlan.forConfiguration(TestBean.class, BeanWrapperImpl.class, null, null));
+		assertTrue(BindingPlan.strongPlanCache.containsValue(plan));
+
+		int strongPlans = BindingPlan.strongPlanCache.size();
+		ClassLoader child = new OverridingClassLoader(getClass().getClassLoader());
+		Class<?> tbClass = child.loadClass("org.springframework.tests.sample.beans.TestBean");
+		plan = BindingPlan.forConfiguration(tbClass, BeanWrapperImpl.class, null, null);
+		assertFalse(BindingPlan.strongPlanCache.containsValue(plan));
+		assertEquals(strongPlans, BindingPlan.strongPlanCache.size());
+	}
+
 	@Test
 	public void testBindingWithAllowedAndDisallowedFields() throws BindException {
 		TestBean rod = new TestBean();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,9 @@ package org.springframework.validation.beanvalidation;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Valid;
 import javax.validation.Validator;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.NotNull;
@@ -26,6 +29,7 @@ import javax.validation.groups.Default;
 import org.junit.Test;
 
 import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.MutablePropertyValues;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
@@ -36,12 +40,14 @@ import org.springframework.context.support.StaticApplicationContext;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncAnnotationAdvisor;
 import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.util.ClassUtils;
 import org.springframework.validation.annotation.Validated;
 
 import static org.junit.Assert.*;
 
 /**
  * @author Juergen Hoeller
+ * @author agent
  */
 public class MethodValidationTests {
 
@@ -67,6 +73,43 @@ public class MethodValidationTests {
 		ac.close();
 	}
 
+	@Test
+	public void testMethodValidationPostProcessorWithConstrainedMethodsOnly() {
+		StaticApplicationContext ac = new StaticApplicationContext();
+		ac.registerSingleton("mvpp", MethodValidationPostProcessor.class,
+				new MutablePropertyValues().add("adviseConstrainedMethodsOnly", true));
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		pvs.add("beforeExistingAdvisors", false);
+		ac.registerSingleton("aapp", AsyncAnnotationBeanPostProcessor.class, pvs);
+		ac.registerSingleton("bean", MyValidBean.class);
+		ac.registerSingleton("unconstrainedBean", MyUnconstrainedBean.class);
+		ac.refresh();
+		doTestProxyValidation(ac.getBean("bean", MyValidInterface.class));
+		MyUnconstrainedBean unconstrainedBean = ac.getBean("unconstrainedBean", MyUnconstrainedBean.class);
+		assertFalse(AopUtils.isAopProxy(unconstrainedBean));
+		assertNull(unconstrainedBean.myMethod(null));
+		ac.close();
+	}
+
+	@Test
+	public void testUnconstrainedMethodsNotValidated() {
+		MethodValidationInterceptor interceptor = new MethodValidationInterceptor();
+		assertTrue(interceptor.isValidationRequired(
+				ClassUtils.getMethod(MyValidInterface.class, "myValidMethod", String.class, int.class), MyValidBean.class));
+		assertTrue(interceptor.isValidationRequired(
+				ClassUtils.getMethod(MyValidInterface.class, "myGenericMethod", Object.class), MyValidBean.class));
+		assertFalse(interceptor.isValidationRequired(
+				ClassUtils.getMethod(MyUnconstrainedBean.class, "myMethod", String.class), MyUnconstrainedBean.class));
+		assertFalse(interceptor.isValidationRequired(
+				ClassUtils.getMethod(Object.class, "toString"), MyUnconstrainedBean.class));
+
+		ProxyFactory proxyFactory = new ProxyFactory(new MyUnconstrainedBean());
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAdvice(interceptor);
+		MyUnconstrainedBean proxy = (MyUnconstrainedBean) proxyFactory.getProxy();
+		assertNull(proxy.myMethod(null));
+	}
+
 	private void doTestProxyValidation(MyValidInterface proxy) {
 		assertNotNull(proxy.myValidMethod("value", 5));
 		try {
@@ -117,6 +160,80 @@ public class MethodValidationTests {
 		}
 	}
 
+	@Test
+	public void testConstraintsDeclaredOnInterfaceOnly() {
+		MethodValidationInterceptor interceptor = new MethodValidationInterceptor();
+		assertTrue(interceptor.isValidationRequired(
+				ClassUtils.getMethod(MyPersonService.class, "createPerson", String.class), MyPersonServiceImpl.class));
+		assertTrue(interceptor.isValidationRequired(
+				ClassUtils.getMethod(MyPersonServiceImpl.class, "createPerson", String.class), MyPersonServiceImpl.class));
+		assertTrue(interceptor.isValidationRequired(
+				ClassUtils.getMethod(MyPersonServiceImpl.class, "savePerson", Person.class), MyPersonServiceImpl.class));
+		assertFalse(interceptor.isValidationRequired(
+				ClassUtils.getMethod(MyPersonServiceImpl.class, "getServiceName"), MyPersonServiceImpl.class));
+
+		ProxyFactory proxyFactory = new ProxyFactory(new MyPersonServiceImpl());
+		proxyFactory.addAdvice(interceptor);
+		MyPersonService proxy = (MyPersonService) proxyFactory.getProxy();
+		assertEquals("name", proxy.createPerson("name").name);
+		assertViolation(() -> proxy.createPerson(null), "createPerson.name");
+	}
+
+	@Test
+	public void testCascadedValidation() {
+		ProxyFactory proxyFactory = new ProxyFactory(new MyPersonServiceImpl());
+		proxyFactory.addAdvice(new MethodValidationInterceptor());
+		doTestCascadedValidation((MyPersonService) proxyFactory.getProxy());
+	}
+
+	@Test
+	public void testCascadedValidationWithProxyTargetClass() {
+		ProxyFactory proxyFactory = new ProxyFactory(new MyPersonServiceImpl());
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAdvice(new MethodValidationInterceptor());
+		doTestCascadedValidation((MyPersonService) proxyFactory.getProxy());
+	}
+
+	@Test
+	public void testCascadedValidationWithConstrainedMethodsOnly() {
+		StaticApplicationContext ac = new StaticApplicationContext();
+		ac.registerSingleton("mvpp", MethodValidationPostProcessor.class,
+				new MutablePropertyValues().add("adviseConstrainedMethodsOnly", true));
+		ac.registerSingleton("bean", MyPersonServiceImpl.class);
+		ac.refresh();
+		doTestCascadedValidation(ac.getBean("bean", MyPersonService.class));
+		ac.close();
+	}
+
+	private void doTestCascadedValidation(MyPersonService proxy) {
+		assertEquals("service", proxy.getServiceName());
+
+		// Cascaded return value
+		assertEquals("name", proxy.createPerson("name").name);
+		assertViolation(() -> proxy.createPerson(""), "createPerson.<return value>.name");
+
+		// Cascaded parameter, validated against the default group
+		proxy.savePerson(new Person("name", null));
+		assertViolation(() -> proxy.savePerson(new Person(null, "email")), "savePerson.person.name");
+		assertViolation(() -> proxy.savePerson(null), "savePerson.person");
+
+		// Cascaded parameter, validated against a method-specific group
+		proxy.registerPerson(new Person(null, "email"));
+		assertViolation(() -> proxy.registerPerson(new Person("name", null)), "registerPerson.person.email");
+	}
+
+	private void assertViolation(Runnable invocation, String propertyPath) {
+		try {
+			invocation.run();
+			fail("Should have thrown ConstraintViolationException");
+		}
+		catch (ConstraintViolationException ex) {
+			assertEquals(1, ex.getConstraintViolations().size());
+			ConstraintViolation<?> violation = ex.getConstraintViolations().iterator().next();
+			assertEquals(propertyPath, violation.getPropertyPath().toString());
+		}
+	}
+
 	@Test
 	public void testLazyValidatorForMethodValidation() {
 		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext(
@@ -153,6 +270,15 @@ public class MethodValidationTests {
 	}
 
 
+	@MyStereotype
+	public static class MyUnconstrainedBean {
+
+		public String myMethod(String value) {
+			return value;
+		}
+	}
+
+
 	@MyStereotype
 	public static class MyValidFactoryBean implements FactoryBean<String>, MyValidInterface<String> {
 
@@ -193,6 +319,57 @@ public class MethodValidationTests {
 	}
 
 
+	public interface MyPersonService {
+
+		@Valid Person createPerson(@NotNull String name);
+
+		void savePerson(@NotNull @Valid Person person);
+
+		@Validated(MyGroup.class)
+		void registerPerson(@Valid Person person);
+
+		String getServiceName();
+	}
+
+
+	@Validated
+	public static class MyPersonServiceImpl implements MyPersonService {
+
+		@Override
+		public Person createPerson(String name) {
+			return new Person(name.isEmpty() ? null : name, null);
+		}
+
+		@Override
+		public void savePerson(Person person) {
+		}
+
+		@Override
+		public void registerPerson(Person person) {
+		}
+
+		@Override
+		public String getServiceName() {
+			return "service";
+		}
+	}
+
+
+	public static class Person {
+
+		@NotNull
+		private final String name;
+
+		@NotNull(groups = MyGroup.class)
+		private final String email;
+
+		public Person(String name, String email) {
+			this.name = name;
+			this.email = email;
+		}
+	}
+
+
 	public interface MyGroup {
 	}
 
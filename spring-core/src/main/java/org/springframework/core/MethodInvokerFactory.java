@@ -0,0 +1,496 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Factory for {@link Invoker Invokers} that call a given {@link Method} without
+ * going through {@link Method#invoke}, for call sites that invoke the same
+ * method over and over again, such as handler methods, event listener methods
+ * and scheduled methods.
+ *
+ * <p>Public instance methods with up to six parameters, declared by a public
+ * class that is visible to this factory's class loader, are called through a
+ * class generated by the {@link LambdaMetafactory}.
+ * Other methods are called through a {@link MethodHandle}, except for methods
+ * declared by JDK classes and for native images, which are left to
+ * {@code Method#invoke}.
+ *
+ * <p>Invokers are cached per {@code Method}, and follow the contract of
+ * {@link Method#invoke}: an exception thrown by the method itself is wrapped
+ * in an {@link InvocationTargetException}, and a target or arguments that do
+ * not match the method's signature lead to an {@link IllegalArgumentException}
+ * (or a {@link NullPointerException} for a {@code null} target of an instance
+ * method). Such mismatches are delegated to {@code Method#invoke} as-is.
+ *
+ * <p>A non-public method needs to be
+ * {@linkplain org.springframework.util.ReflectionUtils#makeAccessible(Method) made accessible}
+ * before an invoker is requested for it, just like before calling
+ * {@code Method#invoke}.
+ *
+ * @author agent
+ * @since 5.2
+ * @see #getInvoker(Method)
+ */
+public abstract class MethodInvokerFactory {
+
+	private static final int MAX_LAMBDA_PARAMETER_COUNT = 6;
+
+	private static final Class<?>[] FUNCTION_TYPES = {Function0.class, Function1.class,
+			Function2.class, Function3.class, Function4.class, Function5.class, Function6.class};
+
+	private static final Class<?>[] CONSUMER_TYPES = {Consumer0.class, Consumer1.class,
+			Consumer2.class, Consumer3.class, Consumer4.class, Consumer5.class, Consumer6.class};
+
+	private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+	private static final Map<Method, Invoker> invokerCache = new ConcurrentReferenceHashMap<>(256);
+
+
+	/**
+	 * Obtain an {@link Invoker} for the given method.
+	 * @param method the method to invoke
+	 * @return a (potentially cached) invoker for the method
+	 */
+	public static Invoker getInvoker(Method method) {
+		Assert.notNull(method, "Method must not be null");
+		if (!isAccessible(method) || GraalDetector.inImageCode() ||
+				method.getDeclaringClass().getClassLoader() == null) {
+			// Let Method#invoke perform its access check, and handle
+			// potentially caller-sensitive JDK methods as well
+			return method::invoke;
+		}
+		Invoker invoker = invokerCache.get(method);
+		if (invoker == null) {
+			invoker = createInvoker(method);
+			if (invoker == null) {
+				return method::invoke;
+			}
+			Invoker existing = invokerCache.putIfAbsent(method, invoker);
+			if (existing != null) {
+				invoker = existing;
+			}
+		}
+		return invoker;
+	}
+
+	/**
+	 * Clear the internal invoker cache.
+	 */
+	public static void clearCache() {
+		invokerCache.clear();
+	}
+
+	@SuppressWarnings("deprecation")  // on JDK 9
+	private static boolean isAccessible(Method method) {
+		return ((Modifier.isPublic(method.getModifiers()) &&
+				Modifier.isPublic(method.getDeclaringClass().getModifiers())) || method.isAccessible());
+	}
+
+	@Nullable
+	private static Invoker createInvoker(Method method) {
+		MethodHandle methodHandle;
+		try {
+			methodHandle = lookup.unreflect(method);
+		}
+		catch (IllegalAccessException ex) {
+			return null;
+		}
+		if (isLambdaCandidate(method)) {
+			try {
+				return new LambdaInvoker(method, createLambda(method, methodHandle));
+			}
+			catch (Throwable ex) {
+				// Fall back to method handle invocation
+			}
+		}
+		int parameterCount = method.getParameterCount();
+		methodHandle = methodHandle.asFixedArity();
+		if (Modifier.isStatic(method.getModifiers())) {
+			methodHandle = MethodHandles.dropArguments(methodHandle, 0, Object.class);
+		}
+		methodHandle = methodHandle.asType(MethodType.genericMethodType(parameterCount + 1))
+				.asSpreader(Object[].class, parameterCount);
+		return new MethodHandleInvoker(method, methodHandle);
+	}
+
+	/**
+	 * Determine whether the given method can be called from a class generated
+	 * for this factory: a public instance method of a public class, with all
+	 * types in its signature visible to this factory's class loader.
+	 */
+	private static boolean isLambdaCandidate(Method method) {
+		if (Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(method.getModifiers()) ||
+				!Modifier.isPublic(method.getDeclaringClass().getModifiers()) ||
+				method.getParameterCount() > MAX_LAMBDA_PARAMETER_COUNT) {
+			return false;
+		}
+		ClassLoader classLoader = MethodInvokerFactory.class.getClassLoader();
+		if (!isVisible(method.getDeclaringClass(), classLoader) ||
+				!isVisible(method.getReturnType(), classLoader)) {
+			return false;
+		}
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			if (!isVisible(parameterType, classLoader)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isVisible(Class<?> type, @Nullable ClassLoader classLoader) {
+		return (type.isPrimitive() || ClassUtils.isVisible(type, classLoader));
+	}
+
+	private static Lambda createLambda(Method method, MethodHandle methodHandle) throws Throwable {
+		int parameterCount = method.getParameterCount();
+		boolean isVoid = (method.getReturnType() == void.class);
+		MethodType samType = MethodType.genericMethodType(parameterCount + 1);
+		MethodType instantiatedType = methodHandle.type().wrap();
+		if (isVoid) {
+			samType = samType.changeReturnType(void.class);
+			instantiatedType = instantiatedType.changeReturnType(void.class);
+		}
+		Class<?> lambdaType = (isVoid ? CONSUMER_TYPES : FUNCTION_TYPES)[parameterCount];
+		CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply",
+				MethodType.methodType(lambdaType), samType, methodHandle, instantiatedType);
+		return (Lambda) callSite.getTarget().invoke();
+	}
+
+
+	/**
+	 * Strategy for invoking a particular method.
+	 */
+	@FunctionalInterface
+	public interface Invoker {
+
+		/**
+		 * Invoke the method on the given target with the given arguments.
+		 * @param target the target instance, or {@code null} for a static method
+		 * @param args the arguments to pass to the method
+		 * @return the return value of the method, or {@code null} for a
+		 * {@code void} method
+		 * @throws IllegalAccessException if the method could not be accessed
+		 * @throws InvocationTargetException if the method threw an exception
+		 * @see Method#invoke
+		 */
+		@Nullable
+		Object invoke(@Nullable Object target, @Nullable Object... args)
+				throws IllegalAccessException, InvocationTargetException;
+	}
+
+
+	/**
+	 * Base class for invokers, falling back to {@link Method#invoke} for
+	 * a target or arguments that do not match the method's signature, in
+	 * order to retain its exact error semantics.
+	 */
+	private abstract static class AbstractInvoker implements Invoker {
+
+		private static final Object[] EMPTY_ARGS = new Object[0];
+
+		private final Method method;
+
+		@Nullable
+		private final Class<?> targetType;
+
+		private final Class<?>[] parameterTypes;
+
+		private final boolean[] primitive;
+
+		AbstractInvoker(Method method) {
+			this.method = method;
+			this.targetType = (Modifier.isStatic(method.getModifiers()) ? null : method.getDeclaringClass());
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			this.primitive = new boolean[parameterTypes.length];
+			for (int i = 0; i < parameterTypes.length; i++) {
+				this.primitive[i] = parameterTypes[i].isPrimitive();
+				parameterTypes[i] = ClassUtils.resolvePrimitiveIfNecessary(parameterTypes[i]);
+			}
+			this.parameterTypes = parameterTypes;
+		}
+
+		@Override
+		@Nullable
+		public Object invoke(@Nullable Object target, @Nullable Object... args)
+				throws IllegalAccessException, InvocationTargetException {
+
+			Object[] argsToUse = (args != null ? args : EMPTY_ARGS);
+			if (argsToUse.length != this.parameterTypes.length) {
+				return this.method.invoke(target, args);
+			}
+			try {
+				return doInvoke(target, argsToUse);
+			}
+			catch (ClassCastException | NullPointerException ex) {
+				if (!matches(target, argsToUse)) {
+					// Thrown while adapting target and arguments, before actually
+					// invoking the method: let Method#invoke report the mismatch
+					return this.method.invoke(target, args);
+				}
+				throw new InvocationTargetException(ex);
+			}
+			catch (Throwable ex) {
+				throw new InvocationTargetException(ex);
+			}
+		}
+
+		private boolean matches(@Nullable Object target, Object[] args) {
+			if (this.targetType != null && !this.targetType.isInstance(target)) {
+				return false;
+			}
+			for (int i = 0; i < args.length; i++) {
+				Object arg = args[i];
+				if (arg != null ? !this.parameterTypes[i].isInstance(arg) : this.primitive[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Invoke the method, throwing a {@link ClassCastException} or
+		 * {@link NullPointerException} before the actual invocation if the
+		 * target or arguments do not match its signature.
+		 */
+		@Nullable
+		protected abstract Object doInvoke(@Nullable Object target, Object[] args) throws Throwable;
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + " for " + this.method;
+		}
+	}
+
+
+	/**
+	 * {@link Invoker} that calls a spread {@code (Object, Object[])Object}
+	 * method handle.
+	 */
+	private static final class MethodHandleInvoker extends AbstractInvoker {
+
+		private final MethodHandle methodHandle;
+
+		MethodHandleInvoker(Method method, MethodHandle methodHandle) {
+			super(method);
+			this.methodHandle = methodHandle;
+		}
+
+		@Override
+		@Nullable
+		protected Object doInvoke(@Nullable Object target, Object[] args) throws Throwable {
+			return (Object) this.methodHandle.invokeExact(target, args);
+		}
+	}
+
+
+	/**
+	 * {@link Invoker} that calls a {@link LambdaMetafactory}-generated
+	 * {@link Lambda} which in turn calls the method directly.
+	 */
+	private static final class LambdaInvoker extends AbstractInvoker {
+
+		private final Lambda lambda;
+
+		LambdaInvoker(Method method, Lambda lambda) {
+			super(method);
+			this.lambda = lambda;
+		}
+
+		@Override
+		@Nullable
+		protected Object doInvoke(@Nullable Object target, Object[] args) throws Throwable {
+			return this.lambda.invoke(target, args);
+		}
+	}
+
+
+	/**
+	 * Common interface for the functional types implemented through the
+	 * {@link LambdaMetafactory}, one per parameter count and per void or
+	 * non-void return type.
+	 */
+	private interface Lambda {
+
+		@Nullable
+		Object invoke(Object target, Object[] args) throws Throwable;
+	}
+
+	private interface Function0 extends Lambda {
+
+		Object apply(Object target) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return apply(target);
+		}
+	}
+
+	private interface Function1 extends Lambda {
+
+		Object apply(Object target, Object a0) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return apply(target, args[0]);
+		}
+	}
+
+	private interface Function2 extends Lambda {
+
+		Object apply(Object target, Object a0, Object a1) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return apply(target, args[0], args[1]);
+		}
+	}
+
+	private interface Function3 extends Lambda {
+
+		Object apply(Object target, Object a0, Object a1, Object a2) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return apply(target, args[0], args[1], args[2]);
+		}
+	}
+
+	private interface Function4 extends Lambda {
+
+		Object apply(Object target, Object a0, Object a1, Object a2, Object a3) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return apply(target, args[0], args[1], args[2], args[3]);
+		}
+	}
+
+	private interface Function5 extends Lambda {
+
+		Object apply(Object target, Object a0, Object a1, Object a2, Object a3, Object a4) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return apply(target, args[0], args[1], args[2], args[3], args[4]);
+		}
+	}
+
+	private interface Function6 extends Lambda {
+
+		Object apply(Object target, Object a0, Object a1, Object a2, Object a3, Object a4, Object a5)
+				throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return apply(target, args[0], args[1], args[2], args[3], args[4], args[5]);
+		}
+	}
+
+	private interface Consumer0 extends Lambda {
+
+		void apply(Object target) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			apply(target);
+			return null;
+		}
+	}
+
+	private interface Consumer1 extends Lambda {
+
+		void apply(Object target, Object a0) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			apply(target, args[0]);
+			return null;
+		}
+	}
+
+	private interface Consumer2 extends Lambda {
+
+		void apply(Object target, Object a0, Object a1) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			apply(target, args[0], args[1]);
+			return null;
+		}
+	}
+
+	private interface Consumer3 extends Lambda {
+
+		void apply(Object target, Object a0, Object a1, Object a2) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			apply(target, args[0], args[1], args[2]);
+			return null;
+		}
+	}
+
+	private interface Consumer4 extends Lambda {
+
+		void apply(Object target, Object a0, Object a1, Object a2, Object a3) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			apply(target, args[0], args[1], args[2], args[3]);
+			return null;
+		}
+	}
+
+	private interface Consumer5 extends Lambda {
+
+		void apply(Object target, Object a0, Object a1, Object a2, Object a3, Object a4) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			apply(target, args[0], args[1], args[2], args[3], args[4]);
+			return null;
+		}
+	}
+
+	private interface Consumer6 extends Lambda {
+
+		void apply(Object target, Object a0, Object a1, Object a2, Object a3, Object a4, Object a5)
+				throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			apply(target, args[0], args[1], args[2], args[3], args[4], args[5]);
+			return null;
+		}
+	}
+
+}
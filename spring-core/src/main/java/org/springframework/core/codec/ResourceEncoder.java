@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -46,6 +46,8 @@ public class ResourceEncoder extends AbstractSingleValueEncoder<Resource> {
 
 	private final int bufferSize;
 
+	private boolean memoryMapped = false;
+
 
 	public ResourceEncoder() {
 		this(DEFAULT_BUFFER_SIZE);
@@ -58,6 +60,27 @@ public class ResourceEncoder extends AbstractSingleValueEncoder<Resource> {
 	}
 
 
+	/**
+	 * Whether to memory-map file-based resources rather than reading them
+	 * into buffers, avoiding to copy their contents onto the heap.
+	 * <p>By default this is set to {@code false}. Memory-mapping pays off for
+	 * large files and large buffer sizes.
+	 * @since 5.2
+	 * @see DataBufferUtils#read(Resource, long, DataBufferFactory, int, boolean)
+	 */
+	public void setMemoryMapped(boolean memoryMapped) {
+		this.memoryMapped = memoryMapped;
+	}
+
+	/**
+	 * Return whether file-based resources are memory-mapped.
+	 * @since 5.2
+	 */
+	public boolean isMemoryMapped() {
+		return this.memoryMapped;
+	}
+
+
 	@Override
 	public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
 		Class<?> clazz = elementType.toClass();
@@ -73,7 +96,7 @@ public class ResourceEncoder extends AbstractSingleValueEncoder<Resource> {
 			logger.debug(logPrefix + "Writing [" + resource + "]");
 		}
 
-		return DataBufferUtils.read(resource, dataBufferFactory, this.bufferSize);
+		return DataBufferUtils.read(resource, 0, dataBufferFactory, this.bufferSize, this.memoryMapped);
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -59,6 +59,8 @@ public class ResourceRegionEncoder extends AbstractEncoder<ResourceRegion> {
 
 	private final int bufferSize;
 
+	private boolean memoryMapped = false;
+
 
 	public ResourceRegionEncoder() {
 		this(DEFAULT_BUFFER_SIZE);
@@ -70,6 +72,27 @@ public class ResourceRegionEncoder extends AbstractEncoder<ResourceRegion> {
 		this.bufferSize = bufferSize;
 	}
 
+
+	/**
+	 * Whether to memory-map file-based resources rather than reading them
+	 * into buffers, avoiding to copy their contents onto the heap.
+	 * <p>By default this is set to {@code false}. Memory-mapping pays off for
+	 * large files and large buffer sizes.
+	 * @since 5.2
+	 * @see DataBufferUtils#read(Resource, long, DataBufferFactory, int, boolean)
+	 */
+	public void setMemoryMapped(boolean memoryMapped) {
+		this.memoryMapped = memoryMapped;
+	}
+
+	/**
+	 * Return whether file-based resources are memory-mapped.
+	 * @since 5.2
+	 */
+	public boolean isMemoryMapped() {
+		return this.memoryMapped;
+	}
+
 	@Override
 	public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
 		return super.canEncode(elementType, mimeType)
@@ -140,7 +163,8 @@ public class ResourceRegionEncoder extends AbstractEncoder<ResourceRegion> {
 					"Writing region " + position + "-" + (position + count) + " of [" + resource + "]");
 		}
 
-		Flux<DataBuffer> in = DataBufferUtils.read(resource, position, bufferFactory, this.bufferSize);
+		Flux<DataBuffer> in = DataBufferUtils.read(
+				resource, position, bufferFactory, this.bufferSize, this.memoryMapped);
 		return DataBufferUtils.takeUntilByteCount(in, count);
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.core.codec;
 
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -25,15 +26,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Collectors;
 
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.core.io.buffer.PooledDataBuffer;
 import org.springframework.core.log.LogFormatUtils;
 import org.springframework.lang.Nullable;
@@ -47,6 +47,12 @@ import org.springframework.util.MimeTypeUtils;
  * This is to make sure that multibyte characters are decoded properly, and do not cross buffer
  * boundaries. The default delimiters ({@code \n}, {@code \r\n})can be customized.
  *
+ * <p>Incoming buffers are scanned for delimiters in a single pass, with the
+ * encoded delimiters cached per charset. Lines that span several buffers are
+ * kept as slices of those buffers until the line is complete, including
+ * delimiters that are split across buffers, and then
+ * {@linkplain org.springframework.core.io.buffer.DataBufferFactory#join joined}.
+ *
  * <p>Partially inspired by Netty's {@code DelimiterBasedFrameDecoder}.
  *
  * @author Sebastien Deleuze
@@ -58,8 +64,6 @@ import org.springframework.util.MimeTypeUtils;
  */
 public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
-	private static final DataBuffer END_FRAME = new DefaultDataBufferFactory().wrap(new byte[0]);
-
 	/** The default charset to use, i.e. "UTF-8". */
 	public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
 
@@ -71,12 +75,13 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
 	private final boolean stripDelimiter;
 
-	private final ConcurrentMap<Charset, List<byte[]>> delimitersCache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Charset, EncodedDelimiters> delimitersCache = new ConcurrentHashMap<>();
 
 
 	private StringDecoder(List<String> delimiters, boolean stripDelimiter, MimeType... mimeTypes) {
 		super(mimeTypes);
 		Assert.notEmpty(delimiters, "'delimiters' must not be empty");
+		Assert.isTrue(!delimiters.contains(""), "'delimiters' must not contain an empty String");
 		this.delimiters = new ArrayList<>(delimiters);
 		this.stripDelimiter = stripDelimiter;
 	}
@@ -91,112 +96,24 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 	public Flux<String> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		List<byte[]> delimiterBytes = getDelimiterBytes(mimeType);
+		EncodedDelimiters delimiters = getDelimiters(mimeType);
 
-		Flux<DataBuffer> inputFlux = Flux.from(inputStream)
-				.flatMapIterable(dataBuffer -> splitOnDelimiter(dataBuffer, delimiterBytes))
-				.bufferUntil(StringDecoder::isEndFrame)
-				.map(StringDecoder::joinUntilEndFrame)
-				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+		Flux<DataBuffer> inputFlux = Flux.defer(() -> {
+			LineSplitter splitter = new LineSplitter(delimiters, this.stripDelimiter);
+			return Flux.from(inputStream)
+					.concatMapIterable(splitter::split)
+					.concatWith(Mono.fromSupplier(splitter::complete))
+					.doFinally(signalType -> splitter.discard());
+		}).doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 
 		return super.decode(inputFlux, elementType, mimeType, hints);
 	}
 
-	private List<byte[]> getDelimiterBytes(@Nullable MimeType mimeType) {
+	private EncodedDelimiters getDelimiters(@Nullable MimeType mimeType) {
 		return this.delimitersCache.computeIfAbsent(getCharset(mimeType),
-				charset -> this.delimiters.stream()
+				charset -> new EncodedDelimiters(this.delimiters.stream()
 						.map(s -> s.getBytes(charset))
-						.collect(Collectors.toList()));
-	}
-
-	/**
-	 * Split the given data buffer on delimiter boundaries.
-	 * The returned Flux contains an {@link #END_FRAME} buffer after each delimiter.
-	 */
-	private List<DataBuffer> splitOnDelimiter(DataBuffer dataBuffer, List<byte[]> delimiterBytes) {
-		List<DataBuffer> frames = new ArrayList<>();
-		do {
-			int length = Integer.MAX_VALUE;
-			byte[] matchingDelimiter = null;
-			for (byte[] delimiter : delimiterBytes) {
-				int index = indexOf(dataBuffer, delimiter);
-				if (index >= 0 && index < length) {
-					length = index;
-					matchingDelimiter = delimiter;
-				}
-			}
-			DataBuffer frame;
-			int readPosition = dataBuffer.readPosition();
-			if (matchingDelimiter != null) {
-				if (this.stripDelimiter) {
-					frame = dataBuffer.slice(readPosition, length);
-				}
-				else {
-					frame = dataBuffer.slice(readPosition, length + matchingDelimiter.length);
-				}
-				dataBuffer.readPosition(readPosition + length + matchingDelimiter.length);
-
-				frames.add(DataBufferUtils.retain(frame));
-				frames.add(END_FRAME);
-			}
-			else {
-				frame = dataBuffer.slice(readPosition, dataBuffer.readableByteCount());
-				dataBuffer.readPosition(readPosition + dataBuffer.readableByteCount());
-				frames.add(DataBufferUtils.retain(frame));
-			}
-		}
-		while (dataBuffer.readableByteCount() > 0);
-
-		DataBufferUtils.release(dataBuffer);
-		return frames;
-	}
-
-	/**
-	 * Find the given delimiter in the given data buffer.
-	 * @return the index of the delimiter, or -1 if not found.
-	 */
-	private static int indexOf(DataBuffer dataBuffer, byte[] delimiter) {
-		for (int i = dataBuffer.readPosition(); i < dataBuffer.writePosition(); i++) {
-			int dataBufferPos = i;
-			int delimiterPos = 0;
-			while (delimiterPos < delimiter.length) {
-				if (dataBuffer.getByte(dataBufferPos) != delimiter[delimiterPos]) {
-					break;
-				}
-				else {
-					dataBufferPos++;
-					if (dataBufferPos == dataBuffer.writePosition() &&
-							delimiterPos != delimiter.length - 1) {
-						return -1;
-					}
-				}
-				delimiterPos++;
-			}
-			if (delimiterPos == delimiter.length) {
-				return i - dataBuffer.readPosition();
-			}
-		}
-		return -1;
-	}
-
-	/**
-	 * Check whether the given buffer is {@link #END_FRAME}.
-	 */
-	private static boolean isEndFrame(DataBuffer dataBuffer) {
-		return dataBuffer == END_FRAME;
-	}
-
-	/**
-	 * Join the given list of buffers into a single buffer.
-	 */
-	private static DataBuffer joinUntilEndFrame(List<DataBuffer> dataBuffers) {
-		if (!dataBuffers.isEmpty()) {
-			int lastIdx = dataBuffers.size() - 1;
-			if (isEndFrame(dataBuffers.get(lastIdx))) {
-				dataBuffers.remove(lastIdx);
-			}
-		}
-		return dataBuffers.get(0).factory().join(dataBuffers);
+						.toArray(byte[][]::new)));
 	}
 
 	@Override
@@ -281,4 +198,244 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 				new MimeType("text", "plain", DEFAULT_CHARSET), MimeTypeUtils.ALL);
 	}
 
+
+	/**
+	 * Delimiters encoded with a specific charset.
+	 */
+	private static final class EncodedDelimiters {
+
+		/** The delimiters in declaration order, which decides between matches at the same index. */
+		final byte[][] delimiters;
+
+		/** The delimiters, longest first. */
+		final byte[][] longestFirst;
+
+		final int maxLength;
+
+		/**
+		 * The last byte shared by all delimiters and occurring nowhere else
+		 * within them (e.g. {@code '\n'} for the defaults), or -1 if none.
+		 * A match ending at the first occurrence of that byte then always
+		 * starts before any other match, and the longest such match wins.
+		 */
+		final int anchor;
+
+		EncodedDelimiters(byte[][] delimiters) {
+			this.delimiters = delimiters;
+			this.longestFirst = delimiters.clone();
+			Arrays.sort(this.longestFirst, (d1, d2) -> d2.length - d1.length);
+			this.maxLength = this.longestFirst[0].length;
+			this.anchor = determineAnchor(delimiters);
+		}
+
+		private static int determineAnchor(byte[][] delimiters) {
+			if (delimiters[0].length == 0) {
+				return -1;
+			}
+			byte anchor = delimiters[0][delimiters[0].length - 1];
+			for (byte[] delimiter : delimiters) {
+				if (delimiter.length == 0 || delimiter[delimiter.length - 1] != anchor) {
+					return -1;
+				}
+				for (int i = 0; i < delimiter.length - 1; i++) {
+					if (delimiter[i] == anchor) {
+						return -1;
+					}
+				}
+			}
+			return anchor;
+		}
+	}
+
+
+	/**
+	 * Splits the buffers of a single input stream into one buffer per line.
+	 *
+	 * <p>The bytes of the current, incomplete line are kept as retained slices
+	 * of the buffers they came from. The trailing bytes of the incomplete line,
+	 * up to the length of the longest delimiter minus one, are also kept in a
+	 * fixed-size array so that a delimiter split across buffers is recognized.
+	 * Positions in the search space refer to those trailing bytes followed by
+	 * the unread bytes of the current buffer.
+	 */
+	private static final class LineSplitter {
+
+		private final EncodedDelimiters delimiters;
+
+		private final boolean stripDelimiter;
+
+		private final List<DataBuffer> pending = new ArrayList<>();
+
+		private final byte[] tail;
+
+		private int tailLength;
+
+		@Nullable
+		private byte[] matchedDelimiter;
+
+		LineSplitter(EncodedDelimiters delimiters, boolean stripDelimiter) {
+			this.delimiters = delimiters;
+			this.stripDelimiter = stripDelimiter;
+			this.tail = new byte[Math.max(delimiters.maxLength - 1, 0)];
+		}
+
+		/**
+		 * Return the lines completed by the given buffer, releasing the buffer.
+		 */
+		public List<DataBuffer> split(DataBuffer dataBuffer) {
+			List<DataBuffer> lines = new ArrayList<>();
+			try {
+				ByteBuffer bytes = dataBuffer.asByteBuffer();
+				int readPosition = dataBuffer.readPosition();
+				int from = 0;
+				int end = bytes.remaining();
+				while (from < end) {
+					int start = find(bytes, from, end);
+					if (start < 0) {
+						break;
+					}
+					byte[] delimiter = this.matchedDelimiter;
+					Assert.state(delimiter != null, "No matched delimiter");
+					int delimiterEnd = start + delimiter.length - this.tailLength;
+					int lineEnd = (this.stripDelimiter ? start - this.tailLength : delimiterEnd);
+					if (lineEnd < 0) {
+						// Delimiter started within bytes of a previous buffer
+						truncatePending(-lineEnd);
+					}
+					else if (lineEnd > 0 || this.pending.isEmpty()) {
+						this.pending.add(DataBufferUtils.retain(dataBuffer.slice(readPosition + from, lineEnd)));
+					}
+					lines.add(takePending());
+					from += delimiterEnd;
+				}
+				if (end == 0 || from < end) {
+					this.pending.add(DataBufferUtils.retain(dataBuffer.slice(readPosition + from, end - from)));
+					updateTail(bytes, from, end);
+				}
+				return lines;
+			}
+			catch (Throwable ex) {
+				lines.forEach(DataBufferUtils::release);
+				throw ex;
+			}
+			finally {
+				DataBufferUtils.release(dataBuffer);
+			}
+		}
+
+		/**
+		 * Return the final, undelimited line at the end of the input, if any.
+		 */
+		@Nullable
+		public DataBuffer complete() {
+			return (!this.pending.isEmpty() ? takePending() : null);
+		}
+
+		/**
+		 * Release the bytes of an incomplete line after an error or cancellation.
+		 */
+		public void discard() {
+			this.pending.forEach(DataBufferUtils::release);
+			this.pending.clear();
+			this.tailLength = 0;
+		}
+
+		/**
+		 * Find the earliest delimiter match that ends within the given range of the
+		 * current buffer, which is preceded by the trailing bytes of the pending line.
+		 * @return the start of the match in the search space, or -1 if none
+		 */
+		private int find(ByteBuffer bytes, int from, int end) {
+			int tailLength = this.tailLength;
+			int anchor = this.delimiters.anchor;
+			if (anchor != -1) {
+				for (int i = from; i < end; i++) {
+					if (bytes.get(i) == anchor) {
+						int index = tailLength + i - from;
+						for (byte[] delimiter : this.delimiters.longestFirst) {
+							int start = index - delimiter.length + 1;
+							if (start >= 0 && matches(delimiter, start, bytes, from)) {
+								this.matchedDelimiter = delimiter;
+								return start;
+							}
+						}
+					}
+				}
+				return -1;
+			}
+			int length = tailLength + end - from;
+			int result = -1;
+			for (byte[] delimiter : this.delimiters.delimiters) {
+				int start = Math.max(tailLength - delimiter.length + 1, 0);
+				for (; start + delimiter.length <= length && (result == -1 || start < result); start++) {
+					if (matches(delimiter, start, bytes, from)) {
+						result = start;
+						this.matchedDelimiter = delimiter;
+						break;
+					}
+				}
+			}
+			return result;
+		}
+
+		private boolean matches(byte[] delimiter, int start, ByteBuffer bytes, int from) {
+			int tailLength = this.tailLength;
+			for (int i = 0; i < delimiter.length; i++) {
+				int index = start + i;
+				byte b = (index < tailLength ? this.tail[index] : bytes.get(from + index - tailLength));
+				if (b != delimiter[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private DataBuffer takePending() {
+			DataBuffer line;
+			if (this.pending.size() == 1) {
+				line = this.pending.get(0);
+			}
+			else {
+				line = this.pending.get(0).factory().join(new ArrayList<>(this.pending));
+			}
+			this.pending.clear();
+			this.tailLength = 0;
+			return line;
+		}
+
+		private void truncatePending(int count) {
+			while (count > 0) {
+				int last = this.pending.size() - 1;
+				DataBuffer buffer = this.pending.get(last);
+				int length = buffer.readableByteCount();
+				if (length > count || last == 0) {
+					buffer.writePosition(buffer.writePosition() - Math.min(count, length));
+					return;
+				}
+				this.pending.remove(last);
+				DataBufferUtils.release(buffer);
+				count -= length;
+			}
+		}
+
+		private void updateTail(ByteBuffer bytes, int from, int end) {
+			int capacity = this.tail.length;
+			int count = end - from;
+			if (count >= capacity) {
+				for (int i = 0; i < capacity; i++) {
+					this.tail[i] = bytes.get(end - capacity + i);
+				}
+				this.tailLength = capacity;
+			}
+			else {
+				int keep = Math.min(this.tailLength, capacity - count);
+				System.arraycopy(this.tail, this.tailLength - keep, this.tail, 0, keep);
+				for (int i = 0; i < count; i++) {
+					this.tail[keep + i] = bytes.get(from + i);
+				}
+				this.tailLength = keep + count;
+			}
+		}
+	}
+
 }
@@ -0,0 +1,624 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.IntPredicate;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * {@link DataBuffer} that presents a sequence of component buffers as a single
+ * buffer, without copying their contents. Similar to Netty's
+ * {@link io.netty.buffer.CompositeByteBuf}, but for use with any kind of
+ * {@code DataBuffer}, most notably {@link DefaultDataBuffer}.
+ *
+ * <p>The readable bytes of the component buffers become the content of the
+ * composite, in the order given. Data is shared between the composite and
+ * its components; the read and write positions of the components are not
+ * affected by those of the composite. Growing the composite appends another
+ * buffer, {@linkplain DataBufferFactory#allocateBuffer(int) allocated} from
+ * the {@linkplain #factory() factory} of the composite.
+ *
+ * <p>{@link #asInputStream()} reads across the component boundaries without
+ * copying. {@link #asByteBuffer(int, int)} and {@link #slice(int, int)} share
+ * data if the requested range falls within a single component; the former has
+ * to copy the range into a new {@code ByteBuffer} otherwise.
+ *
+ * <p>The component buffers are {@linkplain DataBufferUtils#release released}
+ * along with the composite, or as soon as they are no longer part of it after
+ * {@linkplain #capacity(int) decreasing the capacity}.
+ *
+ * @author agent
+ * @since 5.2
+ * @see DefaultDataBufferFactory#compose(List)
+ */
+public class CompositeDataBuffer implements PooledDataBuffer {
+
+	private static final AtomicIntegerFieldUpdater<CompositeDataBuffer> REF_COUNT_UPDATER =
+			AtomicIntegerFieldUpdater.newUpdater(CompositeDataBuffer.class, "refCount");
+
+
+	private final DataBufferFactory dataBufferFactory;
+
+	private final List<DataBuffer> components;
+
+	@Nullable
+	private final CompositeDataBuffer parent;
+
+	private ByteBuffer[] views;
+
+	@Nullable
+	private DataBuffer[] owners;
+
+	private int[] offsets;
+
+	private int viewCount;
+
+	private int lastViewIndex;
+
+	private int capacity;
+
+	private int readPosition;
+
+	private int writePosition;
+
+	private volatile int refCount = 1;
+
+
+	/**
+	 * Create a new {@code CompositeDataBuffer} for the readable bytes of the
+	 * given buffers, which are released along with the composite.
+	 * @param dataBufferFactory the factory to allocate additional capacity with
+	 * @param dataBuffers the component buffers
+	 */
+	public CompositeDataBuffer(DataBufferFactory dataBufferFactory, List<? extends DataBuffer> dataBuffers) {
+		Assert.notNull(dataBufferFactory, "DataBufferFactory must not be null");
+		Assert.notNull(dataBuffers, "DataBuffer List must not be null");
+		this.dataBufferFactory = dataBufferFactory;
+		this.components = new ArrayList<>(dataBuffers);
+		this.parent = null;
+		this.views = new ByteBuffer[Math.max(dataBuffers.size(), 1)];
+		this.owners = new DataBuffer[this.views.length];
+		this.offsets = new int[this.views.length];
+		for (DataBuffer dataBuffer : dataBuffers) {
+			addView(dataBuffer.asByteBuffer(), dataBuffer);
+		}
+		this.writePosition = this.capacity;
+	}
+
+	private CompositeDataBuffer(CompositeDataBuffer parent, ByteBuffer[] views) {
+		this.dataBufferFactory = parent.dataBufferFactory;
+		this.components = new ArrayList<>(0);
+		this.parent = (parent.parent != null ? parent.parent : parent);
+		this.views = new ByteBuffer[Math.max(views.length, 1)];
+		this.offsets = new int[this.views.length];
+		for (ByteBuffer view : views) {
+			addView(view, null);
+		}
+		this.writePosition = this.capacity;
+	}
+
+
+	/**
+	 * Return the number of buffers this composite consists of.
+	 */
+	public int getComponentCount() {
+		return this.viewCount;
+	}
+
+	@Override
+	public DataBufferFactory factory() {
+		return this.dataBufferFactory;
+	}
+
+	@Override
+	public int indexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		if (fromIndex < 0) {
+			fromIndex = 0;
+		}
+		else if (fromIndex >= this.writePosition) {
+			return -1;
+		}
+		for (int i = viewIndex(fromIndex); i < this.viewCount; i++) {
+			ByteBuffer view = this.views[i];
+			int offset = this.offsets[i];
+			int end = Math.min(view.capacity(), this.writePosition - offset);
+			for (int j = Math.max(fromIndex - offset, 0); j < end; j++) {
+				if (predicate.test(view.get(j))) {
+					return offset + j;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		int index = Math.min(fromIndex, this.writePosition - 1);
+		if (index < 0) {
+			return -1;
+		}
+		for (int i = viewIndex(index); i >= 0; i--) {
+			ByteBuffer view = this.views[i];
+			int offset = this.offsets[i];
+			for (int j = Math.min(index - offset, view.capacity() - 1); j >= 0; j--) {
+				if (predicate.test(view.get(j))) {
+					return offset + j;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int readableByteCount() {
+		return this.writePosition - this.readPosition;
+	}
+
+	@Override
+	public int writableByteCount() {
+		return this.capacity - this.writePosition;
+	}
+
+	@Override
+	public int capacity() {
+		return this.capacity;
+	}
+
+	@Override
+	public CompositeDataBuffer capacity(int newCapacity) {
+		if (newCapacity <= 0) {
+			throw new IllegalArgumentException(String.format("'newCapacity' %d must be higher than 0", newCapacity));
+		}
+		if (this.parent != null) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+		if (newCapacity > this.capacity) {
+			DataBuffer component = this.dataBufferFactory.allocateBuffer(newCapacity - this.capacity);
+			this.components.add(component);
+			addView(component.asByteBuffer(0, newCapacity - this.capacity), component);
+		}
+		else if (newCapacity < this.capacity) {
+			int index = viewIndex(newCapacity - 1);
+			ByteBuffer view = this.views[index].duplicate();
+			((Buffer) view).limit(newCapacity - this.offsets[index]);
+			this.views[index] = view.slice();
+			releaseOwners(index + 1);
+			Arrays.fill(this.views, index + 1, this.viewCount, null);
+			this.viewCount = index + 1;
+			this.lastViewIndex = 0;
+			this.capacity = newCapacity;
+			if (this.readPosition > newCapacity) {
+				this.readPosition = newCapacity;
+			}
+			if (this.writePosition > newCapacity) {
+				this.writePosition = newCapacity;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer ensureCapacity(int length) {
+		int writable = writableByteCount();
+		if (length > writable) {
+			capacity(this.capacity + Math.max(length - writable, DefaultDataBufferFactory.DEFAULT_INITIAL_CAPACITY));
+		}
+		return this;
+	}
+
+	@Override
+	public int readPosition() {
+		return this.readPosition;
+	}
+
+	@Override
+	public CompositeDataBuffer readPosition(int readPosition) {
+		assertIndex(readPosition >= 0, "'readPosition' %d must be >= 0", readPosition);
+		assertIndex(readPosition <= this.writePosition, "'readPosition' %d must be <= %d",
+				readPosition, this.writePosition);
+		this.readPosition = readPosition;
+		return this;
+	}
+
+	@Override
+	public int writePosition() {
+		return this.writePosition;
+	}
+
+	@Override
+	public CompositeDataBuffer writePosition(int writePosition) {
+		assertIndex(writePosition >= this.readPosition, "'writePosition' %d must be >= %d",
+				writePosition, this.readPosition);
+		assertIndex(writePosition <= this.capacity, "'writePosition' %d must be <= %d",
+				writePosition, this.capacity);
+		this.writePosition = writePosition;
+		return this;
+	}
+
+	@Override
+	public byte getByte(int index) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(index <= this.writePosition - 1, "index %d must be <= %d", index, this.writePosition - 1);
+		int i = viewIndex(index);
+		return this.views[i].get(index - this.offsets[i]);
+	}
+
+	@Override
+	public byte read() {
+		assertIndex(this.readPosition <= this.writePosition - 1, "readPosition %d must be <= %d",
+				this.readPosition, this.writePosition - 1);
+		int pos = this.readPosition;
+		int i = viewIndex(pos);
+		byte b = this.views[i].get(pos - this.offsets[i]);
+		this.readPosition = pos + 1;
+		return b;
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination) {
+		Assert.notNull(destination, "Byte array must not be null");
+		return read(destination, 0, destination.length);
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination, int offset, int length) {
+		Assert.notNull(destination, "Byte array must not be null");
+		assertIndex(this.readPosition <= this.writePosition - length,
+				"readPosition %d and length %d should be smaller than writePosition %d",
+				this.readPosition, length, this.writePosition);
+		int index = this.readPosition;
+		int remaining = length;
+		while (remaining > 0) {
+			int i = viewIndex(index);
+			ByteBuffer view = this.views[i].duplicate();
+			int position = index - this.offsets[i];
+			int count = Math.min(remaining, view.capacity() - position);
+			((Buffer) view).position(position);
+			view.get(destination, offset, count);
+			index += count;
+			offset += count;
+			remaining -= count;
+		}
+		this.readPosition = index;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte b) {
+		ensureCapacity(1);
+		int pos = this.writePosition;
+		int i = viewIndex(pos);
+		this.views[i].put(pos - this.offsets[i], b);
+		this.writePosition = pos + 1;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte[] source) {
+		Assert.notNull(source, "Byte array must not be null");
+		return write(source, 0, source.length);
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte[] source, int offset, int length) {
+		Assert.notNull(source, "Byte array must not be null");
+		return write(ByteBuffer.wrap(source, offset, length));
+	}
+
+	@Override
+	public CompositeDataBuffer write(DataBuffer... buffers) {
+		if (!ObjectUtils.isEmpty(buffers)) {
+			write(Arrays.stream(buffers).map(DataBuffer::asByteBuffer).toArray(ByteBuffer[]::new));
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(ByteBuffer... buffers) {
+		if (!ObjectUtils.isEmpty(buffers)) {
+			int capacity = Arrays.stream(buffers).mapToInt(ByteBuffer::remaining).sum();
+			ensureCapacity(capacity);
+			for (ByteBuffer source : buffers) {
+				write(source);
+			}
+		}
+		return this;
+	}
+
+	private CompositeDataBuffer write(ByteBuffer source) {
+		ensureCapacity(source.remaining());
+		int index = this.writePosition;
+		while (source.hasRemaining()) {
+			int i = viewIndex(index);
+			ByteBuffer view = this.views[i].duplicate();
+			int position = index - this.offsets[i];
+			int count = Math.min(source.remaining(), view.capacity() - position);
+			ByteBuffer chunk = source.duplicate();
+			((Buffer) chunk).limit(chunk.position() + count);
+			((Buffer) view).position(position);
+			view.put(chunk);
+			((Buffer) source).position(source.position() + count);
+			index += count;
+		}
+		this.writePosition = index;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer slice(int index, int length) {
+		checkIndex(index, length);
+		return new CompositeDataBuffer(this, views(index, length));
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer() {
+		return asByteBuffer(this.readPosition, readableByteCount());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Note that the returned buffer only shares data with this composite if
+	 * the given range falls within a single component. A range that spans
+	 * several components is copied into a new {@code ByteBuffer}, so changes
+	 * to either are not reflected in the other.
+	 */
+	@Override
+	public ByteBuffer asByteBuffer(int index, int length) {
+		checkIndex(index, length);
+		ByteBuffer[] views = views(index, length);
+		if (views.length == 1) {
+			return views[0];
+		}
+		ByteBuffer result = ByteBuffer.allocate(length);
+		for (ByteBuffer view : views) {
+			result.put(view);
+		}
+		((Buffer) result).flip();
+		return result;
+	}
+
+	@Override
+	public InputStream asInputStream() {
+		return new CompositeDataBufferInputStream();
+	}
+
+	@Override
+	public InputStream asInputStream(boolean releaseOnClose) {
+		InputStream inputStream = new CompositeDataBufferInputStream();
+		if (!releaseOnClose) {
+			return inputStream;
+		}
+		return new FilterInputStream(inputStream) {
+			private boolean closed;
+			@Override
+			public void close() throws IOException {
+				if (!this.closed) {
+					this.closed = true;
+					DataBufferUtils.release(CompositeDataBuffer.this);
+				}
+			}
+		};
+	}
+
+	@Override
+	public OutputStream asOutputStream() {
+		return new CompositeDataBufferOutputStream();
+	}
+
+	@Override
+	public boolean isAllocated() {
+		return (this.parent != null ? this.parent.isAllocated() : this.refCount > 0);
+	}
+
+	@Override
+	public CompositeDataBuffer retain() {
+		if (this.parent != null) {
+			this.parent.retain();
+			return this;
+		}
+		int count;
+		do {
+			count = this.refCount;
+			if (count <= 0) {
+				throw new IllegalStateException("DataBuffer has already been released");
+			}
+		}
+		while (!REF_COUNT_UPDATER.compareAndSet(this, count, count + 1));
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		if (this.parent != null) {
+			return this.parent.release();
+		}
+		int count;
+		do {
+			count = this.refCount;
+			if (count <= 0) {
+				throw new IllegalStateException("DataBuffer has already been released");
+			}
+		}
+		while (!REF_COUNT_UPDATER.compareAndSet(this, count, count - 1));
+		if (count == 1) {
+			this.components.forEach(DataBufferUtils::release);
+			return true;
+		}
+		return false;
+	}
+
+
+	private void addView(ByteBuffer view, @Nullable DataBuffer owner) {
+		if (!view.hasRemaining()) {
+			return;
+		}
+		if (this.viewCount == this.views.length) {
+			this.views = Arrays.copyOf(this.views, this.viewCount * 2);
+			this.offsets = Arrays.copyOf(this.offsets, this.viewCount * 2);
+			if (this.owners != null) {
+				this.owners = Arrays.copyOf(this.owners, this.viewCount * 2);
+			}
+		}
+		if (this.owners != null) {
+			this.owners[this.viewCount] = owner;
+		}
+		this.views[this.viewCount] = view.slice();
+		this.offsets[this.viewCount] = this.capacity;
+		this.viewCount++;
+		this.capacity += view.remaining();
+	}
+
+	/**
+	 * Release the components backing the views from the given index onwards,
+	 * as these are no longer part of this composite.
+	 */
+	private void releaseOwners(int fromIndex) {
+		if (this.owners == null) {
+			return;
+		}
+		for (int i = fromIndex; i < this.viewCount; i++) {
+			DataBuffer owner = this.owners[i];
+			if (owner != null) {
+				this.owners[i] = null;
+				this.components.removeIf(component -> component == owner);
+				DataBufferUtils.release(owner);
+			}
+		}
+	}
+
+	/**
+	 * Return the index of the view that contains the given index,
+	 * checking the most recently used view first.
+	 */
+	private int viewIndex(int index) {
+		int last = this.lastViewIndex;
+		if (index >= this.offsets[last] && index < this.offsets[last] + this.views[last].capacity()) {
+			return last;
+		}
+		int low = 0;
+		int high = this.viewCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (this.offsets[mid] <= index) {
+				low = mid;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		this.lastViewIndex = low;
+		return low;
+	}
+
+	/**
+	 * Return shared views on the given range, one per component involved.
+	 */
+	private ByteBuffer[] views(int index, int length) {
+		if (length == 0) {
+			return new ByteBuffer[] {ByteBuffer.allocate(0)};
+		}
+		int first = viewIndex(index);
+		int last = viewIndex(index + length - 1);
+		ByteBuffer[] result = new ByteBuffer[last - first + 1];
+		for (int i = first; i <= last; i++) {
+			ByteBuffer view = this.views[i].duplicate();
+			int start = Math.max(index - this.offsets[i], 0);
+			int end = Math.min(index + length - this.offsets[i], view.capacity());
+			((Buffer) view).position(start).limit(end);
+			result[i - first] = view.slice();
+		}
+		return result;
+	}
+
+	private void checkIndex(int index, int length) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(length >= 0, "length %d must be >= 0", length);
+		assertIndex(index + length <= this.capacity, "index %d + length %d must be <= %d",
+				index, length, this.capacity);
+	}
+
+	private void assertIndex(boolean expression, String format, Object... args) {
+		if (!expression) {
+			String message = String.format(format, args);
+			throw new IndexOutOfBoundsException(message);
+		}
+	}
+
+
+	@Override
+	public String toString() {
+		return String.format("CompositeDataBuffer (r: %d, w: %d, c: %d, components: %d)",
+				this.readPosition, this.writePosition, this.capacity, this.viewCount);
+	}
+
+
+	private class CompositeDataBufferInputStream extends InputStream {
+
+		@Override
+		public int available() {
+			return readableByteCount();
+		}
+
+		@Override
+		public int read() {
+			return available() > 0 ? CompositeDataBuffer.this.read() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) throws IOException {
+			int available = available();
+			if (available > 0) {
+				len = Math.min(len, available);
+				CompositeDataBuffer.this.read(bytes, off, len);
+				return len;
+			}
+			else {
+				return -1;
+			}
+		}
+	}
+
+
+	private class CompositeDataBufferOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			CompositeDataBuffer.this.write((byte) b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) throws IOException {
+			CompositeDataBuffer.this.write(bytes, off, len);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,14 +20,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
 import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -57,6 +60,12 @@ public abstract class DataBufferUtils {
 
 	private static final Consumer<DataBuffer> RELEASE_CONSUMER = DataBufferUtils::release;
 
+	/**
+	 * The size of the file regions mapped at once by
+	 * {@link #readMappedFileChannel(Callable, long, DataBufferFactory, int)}.
+	 */
+	private static final int MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
 
 	//---------------------------------------------------------------------
 	// Reading
@@ -152,6 +161,45 @@ public abstract class DataBufferUtils {
 		return result.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 	}
 
+	/**
+	 * Obtain a {@link FileChannel} from the given supplier, and map it into a
+	 * {@code Flux} of {@code DataBuffer}s, starting at the given position.
+	 * <p>The file is mapped read-only in large regions, each of which is
+	 * {@linkplain DataBufferFactory#wrap(ByteBuffer) wrapped} into data buffers
+	 * of at most {@code bufferSize} bytes, so that file contents are not copied
+	 * onto the heap. A region is unmapped as soon as all of its data buffers,
+	 * including retained slices, have been {@linkplain #release(DataBuffer) released}
+	 * and the flux has moved past it, where supported by the JVM; otherwise once
+	 * it is garbage collected. Byte buffers obtained from the data buffers through
+	 * {@link DataBuffer#asByteBuffer()} must therefore not be used after release.
+	 * Closes the channel when the flux is terminated.
+	 * @param channelSupplier the supplier for the channel to map
+	 * @param position the position to start mapping from
+	 * @param dataBufferFactory the factory to wrap the mapped regions with
+	 * @param bufferSize the maximum size of the data buffers
+	 * @return a flux of data buffers mapped from the given channel
+	 * @since 5.2
+	 */
+	public static Flux<DataBuffer> readMappedFileChannel(Callable<FileChannel> channelSupplier,
+			long position, DataBufferFactory dataBufferFactory, int bufferSize) {
+
+		Assert.notNull(channelSupplier, "'channelSupplier' must not be null");
+		Assert.notNull(dataBufferFactory, "'dataBufferFactory' must not be null");
+		Assert.isTrue(position >= 0, "'position' must be >= 0");
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be > 0");
+
+		return Flux.using(channelSupplier,
+				channel -> Flux.<DataBuffer, MappedFileChannelGenerator>generate(
+						() -> new MappedFileChannelGenerator(channel, position, dataBufferFactory, bufferSize),
+						(generator, sink) -> {
+							generator.accept(sink);
+							return generator;
+						},
+						MappedFileChannelGenerator::dispose),
+				DataBufferUtils::closeChannel)
+				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+	}
+
 	/**
 	 * Read the given {@code Resource} into a {@code Flux} of {@code DataBuffer}s.
 	 * <p>If the resource is a file, it is read into an
@@ -187,9 +235,40 @@ public abstract class DataBufferUtils {
 	public static Flux<DataBuffer> read(
 			Resource resource, long position, DataBufferFactory dataBufferFactory, int bufferSize) {
 
+		return read(resource, position, dataBufferFactory, bufferSize, false);
+	}
+
+	/**
+	 * Read the given {@code Resource} into a {@code Flux} of {@code DataBuffer}s
+	 * starting at the given position, optionally memory-mapping it.
+	 * <p>If the resource is a file and {@code memoryMapped} is {@code true}, it
+	 * is mapped via {@link #readMappedFileChannel(Callable, long, DataBufferFactory, int)};
+	 * if it is a file otherwise, it is read via
+	 * {@link #readAsynchronousFileChannel(Callable, long, DataBufferFactory, int)};
+	 * or else it falls back on {@link #readByteChannel(Callable, DataBufferFactory, int)}.
+	 * Closes the channel when the flux is terminated.
+	 * <p>Memory-mapping avoids copying file contents onto the heap, and pays off
+	 * for large files served with large buffer sizes; for small files, the cost
+	 * of setting up the mapping tends to outweigh the benefit.
+	 * @param resource the resource to read from
+	 * @param position the position to start reading from
+	 * @param dataBufferFactory the factory to create data buffers with
+	 * @param bufferSize the maximum size of the data buffers
+	 * @param memoryMapped whether to memory-map the resource if it is a file
+	 * @return a flux of data buffers read from the given channel
+	 * @since 5.2
+	 */
+	public static Flux<DataBuffer> read(Resource resource, long position,
+			DataBufferFactory dataBufferFactory, int bufferSize, boolean memoryMapped) {
+
 		try {
 			if (resource.isFile()) {
 				File file = resource.getFile();
+				if (memoryMapped) {
+					return readMappedFileChannel(
+							() -> FileChannel.open(file.toPath(), StandardOpenOption.READ),
+							position, dataBufferFactory, bufferSize);
+				}
 				return readAsynchronousFileChannel(
 						() -> AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ),
 						position, dataBufferFactory, bufferSize);
@@ -421,7 +500,11 @@ public abstract class DataBufferUtils {
 	 * {@code dataBuffers} elements. Depending on the {@link DataBuffer} type,
 	 * the returned buffer may be a single buffer containing all data of the
 	 * provided buffers, or it may be a zero-copy, composite with references to
-	 * the given buffers.
+	 * the given buffers: Netty buffers are joined into a composite
+	 * {@code ByteBuf}, and {@link DefaultDataBuffer DefaultDataBuffers} from a
+	 * {@link DefaultDataBufferFactory} into a {@link CompositeDataBuffer}
+	 * (with a single buffer returned as-is). Other buffers are joined through
+	 * {@link DataBufferFactory#join}.
 	 * <p>If {@code dataBuffers} produces an error or if there is a cancel
 	 * signal, then all accumulated buffers will be
 	 * {@linkplain #release(DataBuffer) released}.
@@ -437,11 +520,22 @@ public abstract class DataBufferUtils {
 		return Flux.from(dataBuffers)
 				.collectList()
 				.filter(list -> !list.isEmpty())
-				.map(list -> list.get(0).factory().join(list))
+				.map(DataBufferUtils::joinBuffers)
 				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 
 	}
 
+	private static DataBuffer joinBuffers(List<DataBuffer> dataBuffers) {
+		DataBufferFactory factory = dataBuffers.get(0).factory();
+		if (factory instanceof DefaultDataBufferFactory &&
+				dataBuffers.stream().allMatch(dataBuffer -> dataBuffer instanceof DefaultDataBuffer)) {
+			// Share the memory of the given buffers instead of copying them into a new one
+			return (dataBuffers.size() == 1 ? dataBuffers.get(0) :
+					((DefaultDataBufferFactory) factory).compose(dataBuffers));
+		}
+		return factory.join(dataBuffers);
+	}
+
 
 	private static class ReadableByteChannelGenerator implements Consumer<SynchronousSink<DataBuffer>> {
 
@@ -487,6 +581,83 @@ public abstract class DataBufferUtils {
 	}
 
 
+	private static class MappedFileChannelGenerator implements Consumer<SynchronousSink<DataBuffer>> {
+
+		private final FileChannel channel;
+
+		private final DataBufferFactory dataBufferFactory;
+
+		private final int bufferSize;
+
+		private final int regionSize;
+
+		private long position;
+
+		@Nullable
+		private MappedDataBuffer.Region region;
+
+		@Nullable
+		private ByteBuffer remaining;
+
+		public MappedFileChannelGenerator(
+				FileChannel channel, long position, DataBufferFactory dataBufferFactory, int bufferSize) {
+
+			this.channel = channel;
+			this.position = position;
+			this.dataBufferFactory = dataBufferFactory;
+			this.bufferSize = bufferSize;
+			// Map whole multiples of the buffer size, so that only the last buffer is short
+			this.regionSize = Math.max(MAPPED_REGION_SIZE / bufferSize, 1) * bufferSize;
+		}
+
+		@Override
+		public void accept(SynchronousSink<DataBuffer> sink) {
+			try {
+				MappedDataBuffer.Region region = this.region;
+				ByteBuffer remaining = this.remaining;
+				if (region == null || remaining == null) {
+					long size = this.channel.size() - this.position;
+					if (size <= 0) {
+						sink.complete();
+						return;
+					}
+					int length = (int) Math.min(size, this.regionSize);
+					region = new MappedDataBuffer.Region(
+							this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length));
+					remaining = region.getByteBuffer();
+					this.position += length;
+					this.region = region;
+					this.remaining = remaining;
+				}
+				int length = Math.min(remaining.remaining(), this.bufferSize);
+				ByteBuffer chunk = remaining.duplicate();
+				((Buffer) chunk).limit(chunk.position() + length);
+				((Buffer) remaining).position(remaining.position() + length);
+				DataBuffer dataBuffer = new MappedDataBuffer(this.dataBufferFactory.wrap(chunk.slice()), region);
+				if (!remaining.hasRemaining()) {
+					dispose();
+				}
+				sink.next(dataBuffer);
+			}
+			catch (IOException ex) {
+				sink.error(ex);
+			}
+		}
+
+		/**
+		 * Give up the current region, which is unmapped once its data buffers are released.
+		 */
+		public void dispose() {
+			MappedDataBuffer.Region region = this.region;
+			if (region != null) {
+				this.region = null;
+				this.remaining = null;
+				region.release();
+			}
+		}
+	}
+
+
 	private static class AsynchronousFileChannelReadCompletionHandler
 			implements CompletionHandler<Integer, DataBuffer> {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -104,6 +104,7 @@ public class DefaultDataBufferFactory implements DataBufferFactory {
 	 * {@inheritDoc}
 	 * <p>This implementation creates a single {@link DefaultDataBuffer}
 	 * to contain the data in {@code dataBuffers}.
+	 * @see #compose(List)
 	 */
 	@Override
 	public DefaultDataBuffer join(List<? extends DataBuffer> dataBuffers) {
@@ -115,6 +116,22 @@ public class DefaultDataBufferFactory implements DataBufferFactory {
 		return result;
 	}
 
+	/**
+	 * Return a {@link CompositeDataBuffer} that presents the readable bytes of
+	 * the given buffers as a single buffer, without copying their contents.
+	 * <p>As opposed to {@link #join(List)}, the given buffers are not released
+	 * but owned by the returned composite from then on: they are released
+	 * along with it.
+	 * @param dataBuffers the data buffers to compose
+	 * @return the composite buffer
+	 * @since 5.2
+	 * @see DataBufferUtils#join(org.reactivestreams.Publisher)
+	 */
+	public CompositeDataBuffer compose(List<? extends DataBuffer> dataBuffers) {
+		Assert.notEmpty(dataBuffers, "DataBuffer List must not be empty");
+		return new CompositeDataBuffer(this, dataBuffers);
+	}
+
 
 	@Override
 	public String toString() {
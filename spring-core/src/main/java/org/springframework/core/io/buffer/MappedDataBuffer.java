@@ -0,0 +1,441 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * {@link PooledDataBuffer} for a part of a memory-mapped region of a file, as
+ * obtained through {@link DataBufferUtils#readMappedFileChannel}. Delegates to
+ * the buffer that {@linkplain DataBufferFactory#wrap(ByteBuffer) wraps} that
+ * part of the region. The region is unmapped as soon as all of its data buffers
+ * have been released, rather than waiting for the garbage collector.
+ *
+ * <p>Slices share the reference count of the buffer they were created from, so
+ * a retained slice keeps the region mapped. Accessing the contents of a buffer
+ * or slice after it has been released results in an {@link IllegalStateException}.
+ * Byte buffers obtained through {@link #asByteBuffer()} must not be used after
+ * the data buffer has been released.
+ *
+ * @author agent
+ * @since 5.2
+ */
+class MappedDataBuffer implements PooledDataBuffer {
+
+	private static final AtomicIntegerFieldUpdater<MappedDataBuffer> REF_COUNT_UPDATER =
+			AtomicIntegerFieldUpdater.newUpdater(MappedDataBuffer.class, "refCount");
+
+	@Nullable
+	private static final Consumer<ByteBuffer> unmapper = createUnmapper();
+
+
+	private final DataBuffer delegate;
+
+	private final Region region;
+
+	@Nullable
+	private final MappedDataBuffer parent;
+
+	private volatile int refCount = 1;
+
+
+	/**
+	 * Create a new {@code MappedDataBuffer} for a part of the given region,
+	 * retaining the region until this buffer is released.
+	 */
+	MappedDataBuffer(DataBuffer delegate, Region region) {
+		region.retain();
+		this.delegate = delegate;
+		this.region = region;
+		this.parent = null;
+	}
+
+	private MappedDataBuffer(DataBuffer delegate, MappedDataBuffer parent) {
+		this.delegate = delegate;
+		this.region = parent.region;
+		this.parent = (parent.parent != null ? parent.parent : parent);
+	}
+
+
+	@Override
+	public DataBufferFactory factory() {
+		return this.delegate.factory();
+	}
+
+	@Override
+	public int indexOf(IntPredicate predicate, int fromIndex) {
+		checkAllocated();
+		return this.delegate.indexOf(predicate, fromIndex);
+	}
+
+	@Override
+	public int lastIndexOf(IntPredicate predicate, int fromIndex) {
+		checkAllocated();
+		return this.delegate.lastIndexOf(predicate, fromIndex);
+	}
+
+	@Override
+	public int readableByteCount() {
+		return this.delegate.readableByteCount();
+	}
+
+	@Override
+	public int writableByteCount() {
+		return this.delegate.writableByteCount();
+	}
+
+	@Override
+	public int capacity() {
+		return this.delegate.capacity();
+	}
+
+	@Override
+	public DataBuffer capacity(int capacity) {
+		throw new UnsupportedOperationException("Changing the capacity of a memory-mapped buffer is not supported");
+	}
+
+	@Override
+	public DataBuffer ensureCapacity(int capacity) {
+		if (capacity > writableByteCount()) {
+			throw new UnsupportedOperationException("Changing the capacity of a memory-mapped buffer is not supported");
+		}
+		return this;
+	}
+
+	@Override
+	public int readPosition() {
+		return this.delegate.readPosition();
+	}
+
+	@Override
+	public DataBuffer readPosition(int readPosition) {
+		this.delegate.readPosition(readPosition);
+		return this;
+	}
+
+	@Override
+	public int writePosition() {
+		return this.delegate.writePosition();
+	}
+
+	@Override
+	public DataBuffer writePosition(int writePosition) {
+		this.delegate.writePosition(writePosition);
+		return this;
+	}
+
+	@Override
+	public byte getByte(int index) {
+		checkAllocated();
+		return this.delegate.getByte(index);
+	}
+
+	@Override
+	public byte read() {
+		checkAllocated();
+		return this.delegate.read();
+	}
+
+	@Override
+	public DataBuffer read(byte[] destination) {
+		checkAllocated();
+		this.delegate.read(destination);
+		return this;
+	}
+
+	@Override
+	public DataBuffer read(byte[] destination, int offset, int length) {
+		checkAllocated();
+		this.delegate.read(destination, offset, length);
+		return this;
+	}
+
+	@Override
+	public DataBuffer write(byte b) {
+		checkAllocated();
+		this.delegate.write(b);
+		return this;
+	}
+
+	@Override
+	public DataBuffer write(byte[] source) {
+		checkAllocated();
+		this.delegate.write(source);
+		return this;
+	}
+
+	@Override
+	public DataBuffer write(byte[] source, int offset, int length) {
+		checkAllocated();
+		this.delegate.write(source, offset, length);
+		return this;
+	}
+
+	@Override
+	public DataBuffer write(DataBuffer... buffers) {
+		checkAllocated();
+		this.delegate.write(buffers);
+		return this;
+	}
+
+	@Override
+	public DataBuffer write(ByteBuffer... buffers) {
+		checkAllocated();
+		this.delegate.write(buffers);
+		return this;
+	}
+
+	@Override
+	public DataBuffer write(CharSequence charSequence, Charset charset) {
+		checkAllocated();
+		this.delegate.write(charSequence, charset);
+		return this;
+	}
+
+	@Override
+	public DataBuffer slice(int index, int length) {
+		checkAllocated();
+		return new MappedDataBuffer(this.delegate.slice(index, length), this);
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer() {
+		checkAllocated();
+		return this.delegate.asByteBuffer();
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer(int index, int length) {
+		checkAllocated();
+		return this.delegate.asByteBuffer(index, length);
+	}
+
+	@Override
+	public InputStream asInputStream() {
+		checkAllocated();
+		return this.delegate.asInputStream();
+	}
+
+	@Override
+	public InputStream asInputStream(boolean releaseOnClose) {
+		checkAllocated();
+		InputStream inputStream = this.delegate.asInputStream();
+		if (!releaseOnClose) {
+			return inputStream;
+		}
+		return new FilterInputStream(inputStream) {
+			private boolean closed;
+			@Override
+			public void close() throws IOException {
+				if (!this.closed) {
+					this.closed = true;
+					DataBufferUtils.release(MappedDataBuffer.this);
+				}
+			}
+		};
+	}
+
+	@Override
+	public OutputStream asOutputStream() {
+		checkAllocated();
+		return this.delegate.asOutputStream();
+	}
+
+	@Override
+	public boolean isAllocated() {
+		return (this.parent != null ? this.parent.isAllocated() : this.refCount > 0);
+	}
+
+	@Override
+	public PooledDataBuffer retain() {
+		if (this.parent != null) {
+			this.parent.retain();
+			return this;
+		}
+		int count;
+		do {
+			count = this.refCount;
+			if (count <= 0) {
+				throw new IllegalStateException("DataBuffer has already been released");
+			}
+		}
+		while (!REF_COUNT_UPDATER.compareAndSet(this, count, count + 1));
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		if (this.parent != null) {
+			return this.parent.release();
+		}
+		int count;
+		do {
+			count = this.refCount;
+			if (count <= 0) {
+				throw new IllegalStateException("DataBuffer has already been released");
+			}
+		}
+		while (!REF_COUNT_UPDATER.compareAndSet(this, count, count - 1));
+		if (count == 1) {
+			DataBufferUtils.release(this.delegate);
+			this.region.release();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return whether the region that this buffer is part of is still mapped.
+	 */
+	boolean isRegionMapped() {
+		return this.region.isMapped();
+	}
+
+	private void checkAllocated() {
+		if (!isAllocated()) {
+			throw new IllegalStateException("DataBuffer has already been released");
+		}
+	}
+
+
+	@Override
+	public String toString() {
+		return "MappedDataBuffer (" + this.delegate + ")";
+	}
+
+
+	/**
+	 * Return whether mapped regions are unmapped on release on this JVM;
+	 * if not, they are unmapped once garbage collected.
+	 */
+	static boolean isUnmappingSupported() {
+		return (unmapper != null);
+	}
+
+	/**
+	 * Determine how to unmap a {@link MappedByteBuffer}: through
+	 * {@code sun.misc.Unsafe#invokeCleaner} on JDK 9+, or through the
+	 * buffer's {@code sun.misc.Cleaner} on JDK 8.
+	 */
+	@Nullable
+	private static Consumer<ByteBuffer> createUnmapper() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Object unsafe = theUnsafe.get(null);
+			return buffer -> invoke(invokeCleaner, unsafe, buffer);
+		}
+		catch (Throwable ex) {
+			// Not on JDK 9+
+		}
+		try {
+			Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+			Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+			return buffer -> {
+				Object bufferCleaner = invoke(cleaner, buffer);
+				if (bufferCleaner != null) {
+					invoke(clean, bufferCleaner);
+				}
+			};
+		}
+		catch (Throwable ex) {
+			// Leave unmapping to the garbage collector
+			return null;
+		}
+	}
+
+	@Nullable
+	private static Object invoke(Method method, Object target, Object... args) {
+		try {
+			return method.invoke(target, args);
+		}
+		catch (Throwable ex) {
+			// Leave unmapping to the garbage collector
+			return null;
+		}
+	}
+
+
+
+	/**
+	 * A memory-mapped region of a file, shared by the data buffers created for
+	 * its parts. Holds one reference for the code that hands out those buffers,
+	 * plus one for each buffer that has not been released yet, and unmaps the
+	 * region once all of them are gone.
+	 */
+	static final class Region {
+
+		private static final AtomicIntegerFieldUpdater<Region> REF_COUNT_UPDATER =
+				AtomicIntegerFieldUpdater.newUpdater(Region.class, "refCount");
+
+		private final MappedByteBuffer mappedByteBuffer;
+
+		private volatile int refCount = 1;
+
+		Region(MappedByteBuffer mappedByteBuffer) {
+			this.mappedByteBuffer = mappedByteBuffer;
+		}
+
+		/**
+		 * Return a new view of the mapped region, with its own position and limit.
+		 */
+		ByteBuffer getByteBuffer() {
+			return this.mappedByteBuffer.duplicate();
+		}
+
+		/**
+		 * Return whether the region is still mapped, i.e. whether it has not
+		 * been released completely.
+		 */
+		boolean isMapped() {
+			return (this.refCount > 0);
+		}
+
+		void retain() {
+			int count;
+			do {
+				count = this.refCount;
+				if (count <= 0) {
+					throw new IllegalStateException("Mapped region has already been released");
+				}
+			}
+			while (!REF_COUNT_UPDATER.compareAndSet(this, count, count + 1));
+		}
+
+		void release() {
+			if (REF_COUNT_UPDATER.decrementAndGet(this) == 0 && unmapper != null) {
+				unmapper.accept(this.mappedByteBuffer);
+			}
+		}
+	}
+
+}
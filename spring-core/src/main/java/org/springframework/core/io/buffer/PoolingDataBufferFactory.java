@@ -0,0 +1,600 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link DataBufferFactory} that recycles the memory of released buffers,
+ * for use on runtimes without Netty (e.g. Servlet containers or Undertow)
+ * where {@link DefaultDataBufferFactory} would allocate a new {@link ByteBuffer}
+ * for every buffer.
+ *
+ * <p>Allocated buffers implement {@link PooledDataBuffer}: their memory is
+ * returned to the pool once the reference count drops to zero through
+ * {@link DataBufferUtils#release(DataBuffer)}. Memory is organized in
+ * power-of-two size classes, from {@value #MIN_POOLED_CAPACITY} bytes up to
+ * the configured {@linkplain #PoolingDataBufferFactory(boolean, int) maximum
+ * pooled capacity}; larger requests are allocated (and discarded) as usual.
+ * Each size class is backed by a shared, bounded arena with a small cache
+ * per thread in front of it, so that buffers allocated and released on the
+ * same thread do not hit shared state at all.
+ *
+ * <p>Buffers that are not released are not returned to the pool, but are
+ * otherwise reclaimed by the garbage collector. For tracking down such cases,
+ * {@linkplain #setLeakDetection leak detection} may be switched on, recording
+ * the allocation site of each buffer and logging it for buffers that have been
+ * garbage collected without having been released.
+ *
+ * @author agent
+ * @since 5.2
+ * @see DataBufferUtils#release(DataBuffer)
+ */
+public class PoolingDataBufferFactory extends DefaultDataBufferFactory {
+
+	/**
+	 * The capacity of the smallest size class.
+	 */
+	public static final int MIN_POOLED_CAPACITY = 64;
+
+	/**
+	 * The default maximum capacity of pooled buffers.
+	 * @see #PoolingDataBufferFactory(boolean, int)
+	 */
+	public static final int DEFAULT_MAX_POOLED_CAPACITY = 64 * 1024;
+
+	/**
+	 * The default number of buffers that each size class retains.
+	 * @see #setMaxBuffersPerSizeClass
+	 */
+	public static final int DEFAULT_MAX_BUFFERS_PER_SIZE_CLASS = 256;
+
+	/**
+	 * The default number of buffers per size class cached by each thread.
+	 * @see #setThreadCacheSize
+	 */
+	public static final int DEFAULT_THREAD_CACHE_SIZE = 16;
+
+	private static final int MIN_POOLED_CAPACITY_SHIFT = Integer.numberOfTrailingZeros(MIN_POOLED_CAPACITY);
+
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+	private static final Log logger = LogFactory.getLog(PoolingDataBufferFactory.class);
+
+
+	private final boolean preferDirect;
+
+	private final int maxPooledCapacity;
+
+	private final Arena[] arenas;
+
+	private final ThreadLocal<ThreadCache> threadCache;
+
+	private volatile int maxBuffersPerSizeClass = DEFAULT_MAX_BUFFERS_PER_SIZE_CLASS;
+
+	private volatile int threadCacheSize = DEFAULT_THREAD_CACHE_SIZE;
+
+	private volatile boolean leakDetection;
+
+	private final Set<LeakRecord> leakRecords = ConcurrentHashMap.newKeySet();
+
+	private final ReferenceQueue<Object> leakQueue = new ReferenceQueue<>();
+
+	private final AtomicLong detectedLeakCount = new AtomicLong();
+
+
+	/**
+	 * Create a new {@code PoolingDataBufferFactory} with default settings,
+	 * pooling heap buffers.
+	 */
+	public PoolingDataBufferFactory() {
+		this(false);
+	}
+
+	/**
+	 * Create a new {@code PoolingDataBufferFactory}, indicating whether direct
+	 * buffers should be pooled rather than heap buffers.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 */
+	public PoolingDataBufferFactory(boolean preferDirect) {
+		this(preferDirect, DEFAULT_MAX_POOLED_CAPACITY);
+	}
+
+	/**
+	 * Create a new {@code PoolingDataBufferFactory}, indicating whether direct
+	 * buffers should be pooled rather than heap buffers, and what the capacity
+	 * of the largest buffers to pool is.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 * @param maxPooledCapacity the largest capacity to pool, a power of two
+	 * not smaller than {@value #MIN_POOLED_CAPACITY}
+	 */
+	public PoolingDataBufferFactory(boolean preferDirect, int maxPooledCapacity) {
+		super(preferDirect);
+		Assert.isTrue(maxPooledCapacity >= MIN_POOLED_CAPACITY && Integer.bitCount(maxPooledCapacity) == 1,
+				"'maxPooledCapacity' must be a power of two not smaller than " + MIN_POOLED_CAPACITY);
+		this.preferDirect = preferDirect;
+		this.maxPooledCapacity = maxPooledCapacity;
+		this.arenas = new Arena[sizeClassIndex(maxPooledCapacity) + 1];
+		for (int i = 0; i < this.arenas.length; i++) {
+			this.arenas[i] = new Arena(MIN_POOLED_CAPACITY << i);
+		}
+		this.threadCache = ThreadLocal.withInitial(() -> new ThreadCache(this.arenas.length));
+	}
+
+
+	/**
+	 * Set the maximum number of released buffers that each size class retains
+	 * across all threads, in addition to the per-thread caches.
+	 * <p>Default is {@value #DEFAULT_MAX_BUFFERS_PER_SIZE_CLASS}.
+	 */
+	public void setMaxBuffersPerSizeClass(int maxBuffersPerSizeClass) {
+		Assert.isTrue(maxBuffersPerSizeClass >= 0, "'maxBuffersPerSizeClass' must not be negative");
+		this.maxBuffersPerSizeClass = maxBuffersPerSizeClass;
+	}
+
+	/**
+	 * Return the maximum number of released buffers that each size class retains.
+	 */
+	public int getMaxBuffersPerSizeClass() {
+		return this.maxBuffersPerSizeClass;
+	}
+
+	/**
+	 * Set the maximum number of released buffers per size class that each thread
+	 * keeps for itself, avoiding contention on the shared size classes.
+	 * <p>Default is {@value #DEFAULT_THREAD_CACHE_SIZE}. Set this to 0 in order
+	 * to turn off thread-local caching.
+	 */
+	public void setThreadCacheSize(int threadCacheSize) {
+		Assert.isTrue(threadCacheSize >= 0, "'threadCacheSize' must not be negative");
+		this.threadCacheSize = threadCacheSize;
+	}
+
+	/**
+	 * Return the maximum number of released buffers per size class cached by each thread.
+	 */
+	public int getThreadCacheSize() {
+		return this.threadCacheSize;
+	}
+
+	/**
+	 * Set whether to record the allocation site of every buffer, logging it at
+	 * error level for buffers that are garbage collected without having been
+	 * released.
+	 * <p>Default is {@code false}. Note that recording allocation sites involves
+	 * capturing a stack trace per buffer, which is not meant for production use.
+	 * @see #getDetectedLeakCount()
+	 */
+	public void setLeakDetection(boolean leakDetection) {
+		this.leakDetection = leakDetection;
+	}
+
+	/**
+	 * Return whether leak detection is switched on.
+	 */
+	public boolean isLeakDetection() {
+		return this.leakDetection;
+	}
+
+	/**
+	 * Return the number of leaked buffers reported so far, i.e. buffers that
+	 * have been garbage collected without having been released.
+	 * <p>Only available with {@linkplain #setLeakDetection leak detection}
+	 * switched on; leaks are detected on subsequent allocations.
+	 */
+	public long getDetectedLeakCount() {
+		return this.detectedLeakCount.get();
+	}
+
+	/**
+	 * Return the maximum capacity of pooled buffers.
+	 */
+	public int getMaxPooledCapacity() {
+		return this.maxPooledCapacity;
+	}
+
+
+	@Override
+	public DefaultDataBuffer allocateBuffer(int initialCapacity) {
+		Assert.isTrue(initialCapacity >= 0, "'initialCapacity' must not be negative");
+		PooledDefaultDataBuffer dataBuffer = new PooledDefaultDataBuffer(this, initialCapacity);
+		if (this.leakDetection) {
+			reportLeaks();
+			dataBuffer.leakRecord = new LeakRecord(dataBuffer, this.leakQueue);
+			this.leakRecords.add(dataBuffer.leakRecord);
+		}
+		return dataBuffer;
+	}
+
+
+	/**
+	 * Obtain a chunk of memory of at least the given capacity,
+	 * either from the pool or freshly allocated.
+	 */
+	ByteBuffer acquire(int capacity) {
+		int index = sizeClassIndex(capacity);
+		if (index >= this.arenas.length) {
+			return allocate(capacity);
+		}
+		ByteBuffer chunk = null;
+		if (this.threadCacheSize > 0) {
+			chunk = this.threadCache.get().poll(index);
+		}
+		if (chunk == null) {
+			chunk = this.arenas[index].poll();
+		}
+		return (chunk != null ? chunk : allocate(this.arenas[index].capacity));
+	}
+
+	/**
+	 * Return the given chunk of memory to the pool, if it belongs to a size class.
+	 */
+	void recycle(ByteBuffer chunk) {
+		int capacity = chunk.capacity();
+		int index = sizeClassIndex(capacity);
+		if (index >= this.arenas.length || capacity != this.arenas[index].capacity) {
+			return;
+		}
+		((Buffer) chunk).clear();
+		int threadCacheSize = this.threadCacheSize;
+		if (threadCacheSize > 0 && this.threadCache.get().offer(index, chunk, threadCacheSize)) {
+			return;
+		}
+		this.arenas[index].offer(chunk, this.maxBuffersPerSizeClass);
+	}
+
+	private ByteBuffer allocate(int capacity) {
+		return (this.preferDirect ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity));
+	}
+
+	private void reportLeaks() {
+		Reference<?> reference;
+		while ((reference = this.leakQueue.poll()) != null) {
+			LeakRecord record = (LeakRecord) reference;
+			if (this.leakRecords.remove(record)) {
+				this.detectedLeakCount.incrementAndGet();
+				logger.error("DataBuffer garbage collected without having been released - " +
+						"its memory was not returned to the pool", record.allocationSite);
+			}
+		}
+	}
+
+	private void releaseLeakRecord(@Nullable LeakRecord record) {
+		if (record != null) {
+			record.clear();
+			this.leakRecords.remove(record);
+		}
+	}
+
+	private static int sizeClassIndex(int capacity) {
+		if (capacity <= MIN_POOLED_CAPACITY) {
+			return 0;
+		}
+		int ceilingShift = Integer.SIZE - Integer.numberOfLeadingZeros(capacity - 1);
+		return ceilingShift - MIN_POOLED_CAPACITY_SHIFT;
+	}
+
+	/**
+	 * Return a view of the given chunk with exactly the given capacity.
+	 */
+	private static ByteBuffer view(ByteBuffer chunk, int capacity) {
+		ByteBuffer duplicate = chunk.duplicate();
+		((Buffer) duplicate).clear().limit(capacity);
+		return duplicate.slice();
+	}
+
+
+	@Override
+	public String toString() {
+		return "PoolingDataBufferFactory (preferDirect=" + this.preferDirect +
+				", maxPooledCapacity=" + this.maxPooledCapacity + ")";
+	}
+
+
+	/**
+	 * Shared pool of released chunks of one size class.
+	 */
+	private static final class Arena {
+
+		private final int capacity;
+
+		private final Queue<ByteBuffer> chunks = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		Arena(int capacity) {
+			this.capacity = capacity;
+		}
+
+		@Nullable
+		ByteBuffer poll() {
+			ByteBuffer chunk = this.chunks.poll();
+			if (chunk != null) {
+				this.count.decrementAndGet();
+			}
+			return chunk;
+		}
+
+		void offer(ByteBuffer chunk, int maxCount) {
+			if (this.count.incrementAndGet() > maxCount) {
+				this.count.decrementAndGet();
+				return;
+			}
+			this.chunks.offer(chunk);
+		}
+	}
+
+
+	/**
+	 * Unsynchronized per-thread stacks of released chunks, one per size class.
+	 */
+	private static final class ThreadCache {
+
+		private final ByteBuffer[][] chunks;
+
+		private final int[] counts;
+
+		ThreadCache(int sizeClasses) {
+			this.chunks = new ByteBuffer[sizeClasses][];
+			this.counts = new int[sizeClasses];
+		}
+
+		@Nullable
+		ByteBuffer poll(int index) {
+			int count = this.counts[index];
+			if (count == 0) {
+				return null;
+			}
+			ByteBuffer[] stack = this.chunks[index];
+			ByteBuffer chunk = stack[--count];
+			stack[count] = null;
+			this.counts[index] = count;
+			return chunk;
+		}
+
+		boolean offer(int index, ByteBuffer chunk, int maxCount) {
+			ByteBuffer[] stack = this.chunks[index];
+			if (stack == null) {
+				stack = new ByteBuffer[maxCount];
+				this.chunks[index] = stack;
+			}
+			int count = this.counts[index];
+			if (count >= Math.min(stack.length, maxCount)) {
+				return false;
+			}
+			stack[count] = chunk;
+			this.counts[index] = count + 1;
+			return true;
+		}
+	}
+
+
+	/**
+	 * Weak reference to an allocated buffer, remembering where it was allocated.
+	 */
+	private static final class LeakRecord extends WeakReference<Object> {
+
+		private final Throwable allocationSite;
+
+		LeakRecord(DataBuffer dataBuffer, ReferenceQueue<Object> queue) {
+			super(dataBuffer, queue);
+			this.allocationSite = new Throwable("Allocation site of leaked DataBuffer");
+		}
+	}
+
+
+	/**
+	 * {@link DefaultDataBuffer} whose memory is taken from and returned to the pool.
+	 */
+	private static class PooledDefaultDataBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private static final AtomicIntegerFieldUpdater<PooledDefaultDataBuffer> REF_COUNT_UPDATER =
+				AtomicIntegerFieldUpdater.newUpdater(PooledDefaultDataBuffer.class, "refCount");
+
+		private final PoolingDataBufferFactory pool;
+
+		private ByteBuffer chunk;
+
+		private volatile int refCount = 1;
+
+		@Nullable
+		LeakRecord leakRecord;
+
+		PooledDefaultDataBuffer(PoolingDataBufferFactory pool, int capacity) {
+			this(pool, pool.acquire(capacity), capacity);
+		}
+
+		private PooledDefaultDataBuffer(PoolingDataBufferFactory pool, ByteBuffer chunk, int capacity) {
+			super(pool, view(chunk, capacity));
+			this.pool = pool;
+			this.chunk = chunk;
+		}
+
+		@Override
+		ByteBuffer allocateNativeBuffer(int capacity, boolean direct) {
+			if (!isAllocated()) {
+				throw new IllegalStateException("DataBuffer has already been released");
+			}
+			if (capacity > this.chunk.capacity()) {
+				// Switch to a larger chunk: capacity(int) copies the content over
+				this.chunk = this.pool.acquire(capacity);
+			}
+			return view(this.chunk, capacity);
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			ByteBuffer oldChunk = this.chunk;
+			super.capacity(newCapacity);
+			if (this.chunk != oldChunk) {
+				this.pool.recycle(oldChunk);
+			}
+			return this;
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			return new PooledSlice(this, asByteBuffer(index, length));
+		}
+
+		@Override
+		public InputStream asInputStream(boolean releaseOnClose) {
+			InputStream inputStream = asInputStream();
+			return (releaseOnClose ? new ReleasingInputStream(inputStream, this) : inputStream);
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return (this.refCount > 0);
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			int count;
+			do {
+				count = this.refCount;
+				if (count <= 0) {
+					throw new IllegalStateException("DataBuffer has already been released");
+				}
+			}
+			while (!REF_COUNT_UPDATER.compareAndSet(this, count, count + 1));
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			int count;
+			do {
+				count = this.refCount;
+				if (count <= 0) {
+					throw new IllegalStateException("DataBuffer has already been released");
+				}
+			}
+			while (!REF_COUNT_UPDATER.compareAndSet(this, count, count - 1));
+			if (count == 1) {
+				deallocate();
+				return true;
+			}
+			return false;
+		}
+
+		private void deallocate() {
+			this.pool.releaseLeakRecord(this.leakRecord);
+			this.leakRecord = null;
+			readPosition(0);
+			writePosition(0);
+			setNativeBuffer(EMPTY_BUFFER);
+			ByteBuffer chunk = this.chunk;
+			this.chunk = EMPTY_BUFFER;
+			this.pool.recycle(chunk);
+		}
+	}
+
+
+	/**
+	 * Slice of a {@link PooledDefaultDataBuffer}, sharing its reference count.
+	 */
+	private static class PooledSlice extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private final PooledDefaultDataBuffer parent;
+
+		PooledSlice(PooledDefaultDataBuffer parent, ByteBuffer byteBuffer) {
+			super(parent.pool, byteBuffer);
+			this.parent = parent;
+			writePosition(byteBuffer.remaining());
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			return new PooledSlice(this.parent, asByteBuffer(index, length));
+		}
+
+		@Override
+		public InputStream asInputStream(boolean releaseOnClose) {
+			InputStream inputStream = asInputStream();
+			return (releaseOnClose ? new ReleasingInputStream(inputStream, this) : inputStream);
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.parent.isAllocated();
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			this.parent.retain();
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			return this.parent.release();
+		}
+	}
+
+
+	/**
+	 * {@code InputStream} that releases its buffer when closed.
+	 */
+	private static class ReleasingInputStream extends FilterInputStream {
+
+		private final PooledDataBuffer dataBuffer;
+
+		private boolean closed;
+
+		ReleasingInputStream(InputStream inputStream, PooledDataBuffer dataBuffer) {
+			super(inputStream);
+			this.dataBuffer = dataBuffer;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!this.closed) {
+				this.closed = true;
+				this.dataBuffer.release();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+import java.lang.reflect.Method;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Internal delegate for virtual thread handling on JDK 21+, accessing the
+ * {@code Thread.ofVirtual()} builder API reflectively since the codebase
+ * needs to remain compatible with JDK 8.
+ *
+ * @author agent
+ * @since 5.2
+ * @see VirtualThreadTaskExecutor
+ */
+abstract class VirtualThreadDelegate {
+
+	@Nullable
+	private static final Method ofVirtualMethod;
+
+	@Nullable
+	private static final Method nameMethod;
+
+	@Nullable
+	private static final Method unstartedMethod;
+
+	static {
+		Method ofVirtual = ClassUtils.getMethodIfAvailable(Thread.class, "ofVirtual");
+		Method name = null;
+		Method unstarted = null;
+		if (ofVirtual != null) {
+			try {
+				Class<?> builderClass = ClassUtils.forName(
+						"java.lang.Thread$Builder", VirtualThreadDelegate.class.getClassLoader());
+				name = builderClass.getMethod("name", String.class);
+				unstarted = builderClass.getMethod("unstarted", Runnable.class);
+				// Preview API on JDK 19 and 20: not usable without --enable-preview
+				ofVirtual.invoke(null);
+			}
+			catch (Throwable ex) {
+				ofVirtual = null;
+			}
+		}
+		ofVirtualMethod = ofVirtual;
+		nameMethod = name;
+		unstartedMethod = unstarted;
+	}
+
+
+	/**
+	 * Return whether virtual threads are supported by the current runtime.
+	 */
+	public static boolean isSupported() {
+		return (ofVirtualMethod != null);
+	}
+
+	/**
+	 * Create a new unstarted virtual thread with the given name.
+	 * @param name the name of the thread
+	 * @param task the task to run on the thread
+	 * @return the unstarted virtual thread
+	 * @throws IllegalStateException if virtual threads are not supported
+	 */
+	public static Thread newVirtualThread(String name, Runnable task) {
+		if (ofVirtualMethod == null || nameMethod == null || unstartedMethod == null) {
+			throw new IllegalStateException("Virtual threads not supported on this runtime");
+		}
+		Object builder = ReflectionUtils.invokeMethod(ofVirtualMethod, null);
+		builder = ReflectionUtils.invokeMethod(nameMethod, builder, name);
+		Thread thread = (Thread) ReflectionUtils.invokeMethod(unstartedMethod, builder, task);
+		if (thread == null) {
+			throw new IllegalStateException("No virtual thread created for " + task);
+		}
+		return thread;
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * {@link TaskExecutor} implementation that fires up a new virtual thread for
+ * each task, on a runtime that supports virtual threads (JDK 21+). Falls back
+ * to a new platform thread per task on earlier runtimes, just like its
+ * {@link SimpleAsyncTaskExecutor} superclass.
+ *
+ * <p>Virtual threads are cheap to create and to block, which makes this
+ * executor a fit for tasks that spend most of their time waiting for blocking
+ * I/O, such as JDBC or HTTP calls, where a platform thread pool would need to
+ * be sized at hundreds of threads to hide the latency.
+ *
+ * <p>Supports limiting concurrent tasks through the inherited
+ * {@link #setConcurrencyLimit "concurrencyLimit"} bean property, e.g. in order
+ * to protect a downstream resource, as well as a
+ * {@link #setTaskDecorator TaskDecorator}. The thread name prefix applies
+ * to virtual threads as well, whereas thread priority, daemon flag and
+ * thread group settings are ignored for virtual threads, as are the
+ * settings of an external {@link #setThreadFactory ThreadFactory}.
+ *
+ * @author agent
+ * @since 5.2
+ * @see #isVirtualThreadSupported()
+ * @see SimpleAsyncTaskExecutor
+ */
+@SuppressWarnings("serial")
+public class VirtualThreadTaskExecutor extends SimpleAsyncTaskExecutor {
+
+	private static final Log logger = LogFactory.getLog(VirtualThreadTaskExecutor.class);
+
+	private static final AtomicBoolean fallbackLogged = new AtomicBoolean();
+
+
+	/**
+	 * Create a new VirtualThreadTaskExecutor with default thread name prefix.
+	 */
+	public VirtualThreadTaskExecutor() {
+		super();
+	}
+
+	/**
+	 * Create a new VirtualThreadTaskExecutor with the given thread name prefix.
+	 * @param threadNamePrefix the prefix to use for the names of newly created threads
+	 */
+	public VirtualThreadTaskExecutor(String threadNamePrefix) {
+		super(threadNamePrefix);
+	}
+
+
+	/**
+	 * Return whether the current runtime supports virtual threads,
+	 * i.e. whether this executor actually runs its tasks on virtual threads.
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return VirtualThreadDelegate.isSupported();
+	}
+
+
+	/**
+	 * Always create a new thread for the given task, even if an external
+	 * {@link #setThreadFactory ThreadFactory} has been specified.
+	 * @see #createThread
+	 */
+	@Override
+	protected void doExecute(Runnable task) {
+		createThread(task).start();
+	}
+
+	/**
+	 * Create a new virtual thread for the given task, if supported;
+	 * a new platform thread otherwise.
+	 * <p>Can also be used as a {@link java.util.concurrent.ThreadFactory}
+	 * through a {@code VirtualThreadTaskExecutor::createThread} reference.
+	 */
+	@Override
+	public Thread createThread(Runnable runnable) {
+		if (VirtualThreadDelegate.isSupported()) {
+			return VirtualThreadDelegate.newVirtualThread(nextThreadName(), runnable);
+		}
+		if (fallbackLogged.compareAndSet(false, true)) {
+			logger.info("Virtual threads not supported on this runtime - using platform threads instead");
+		}
+		return super.createThread(runnable);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -277,7 +277,28 @@ public class MethodInvoker {
 			throw new IllegalArgumentException("Target method must not be non-static without a target");
 		}
 		ReflectionUtils.makeAccessible(preparedMethod);
-		return preparedMethod.invoke(targetObject, getArguments());
+		return doInvoke(preparedMethod, targetObject, getArguments());
+	}
+
+	/**
+	 * Actually invoke the given prepared method, made accessible already.
+	 * <p>The default implementation calls {@link Method#invoke}; subclasses
+	 * may override this to use a different invocation mechanism with the
+	 * same exception semantics.
+	 * @param preparedMethod the prepared method to invoke
+	 * @param targetObject the target object, or {@code null} for a static method
+	 * @param arguments the arguments for the method invocation
+	 * @return the object (possibly null) returned by the method invocation,
+	 * or {@code null} if the method has a void return type
+	 * @throws InvocationTargetException if the target method threw an exception
+	 * @throws IllegalAccessException if the target method couldn't be accessed
+	 * @since 5.2
+	 */
+	@Nullable
+	protected Object doInvoke(Method preparedMethod, @Nullable Object targetObject, Object[] arguments)
+			throws InvocationTargetException, IllegalAccessException {
+
+		return preparedMethod.invoke(targetObject, arguments);
 	}
 
 
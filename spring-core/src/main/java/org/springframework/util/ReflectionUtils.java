@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -188,6 +188,26 @@ public abstract class ReflectionUtils {
 		return null;
 	}
 
+	/**
+	 * Determine whether the given class overrides the specified method,
+	 * i.e. whether the method as found on the class is declared by another
+	 * class than the given declaring class.
+	 * <p>Typically used to decide whether an optimized code path may bypass
+	 * a protected template method of a base class.
+	 * @param clazz the class to introspect
+	 * @param declaringClass the class declaring the original method
+	 * @param name the name of the method
+	 * @param paramTypes the parameter types of the method
+	 * @return {@code true} if the method is overridden, {@code false} if it is
+	 * inherited from the declaring class or not found at all
+	 * @since 5.2
+	 * @see #findMethod(Class, String, Class[])
+	 */
+	public static boolean isOverridden(Class<?> clazz, Class<?> declaringClass, String name, Class<?>... paramTypes) {
+		Method method = findMethod(clazz, name, paramTypes);
+		return (method != null && method.getDeclaringClass() != declaringClass);
+	}
+
 	/**
 	 * Invoke the specified {@link Method} against the supplied target object with no arguments.
 	 * The target object can be {@code null} when invoking a static {@link Method}.
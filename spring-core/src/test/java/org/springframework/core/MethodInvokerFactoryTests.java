@@ -0,0 +1,249 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link MethodInvokerFactory}.
+ *
+ * @author agent
+ */
+public class MethodInvokerFactoryTests {
+
+	private final Handler handler = new Handler();
+
+
+	@Test
+	public void invokeInstanceMethod() throws Exception {
+		Method method = Handler.class.getMethod("handle", String.class, int.class);
+		assertEquals("foo:3", MethodInvokerFactory.getInvoker(method).invoke(this.handler, "foo", 3));
+	}
+
+	@Test
+	public void invokeStaticMethod() throws Exception {
+		Method method = Handler.class.getMethod("concat", String.class, String.class);
+		assertEquals("foobar", MethodInvokerFactory.getInvoker(method).invoke(null, "foo", "bar"));
+	}
+
+	@Test
+	public void invokeVoidMethod() throws Exception {
+		Method method = Handler.class.getMethod("onEvent", Object.class);
+		assertNull(MethodInvokerFactory.getInvoker(method).invoke(this.handler, "event"));
+		assertEquals("event", this.handler.lastEvent);
+	}
+
+	@Test
+	public void invokeNoArgMethodWithNullArgs() throws Exception {
+		Method method = Handler.class.getMethod("run");
+		MethodInvokerFactory.getInvoker(method).invoke(this.handler, (Object[]) null);
+		assertEquals("run", this.handler.lastEvent);
+	}
+
+	@Test
+	public void invokePrimitiveMethod() throws Exception {
+		Method method = Handler.class.getMethod("increment", long.class);
+		assertEquals(4L, MethodInvokerFactory.getInvoker(method).invoke(this.handler, 3L));
+	}
+
+	@Test
+	public void invokeMethodWithManyParameters() throws Exception {
+		Method method = Handler.class.getMethod("sum", int.class, int.class, int.class, int.class,
+				int.class, int.class, int.class);
+		assertEquals(28, MethodInvokerFactory.getInvoker(method).invoke(this.handler, 1, 2, 3, 4, 5, 6, 7));
+	}
+
+	@Test
+	public void invokeVarargsMethod() throws Exception {
+		Method method = Handler.class.getMethod("join", String[].class);
+		assertEquals("a,b", MethodInvokerFactory.getInvoker(method).invoke(null, (Object) new String[] {"a", "b"}));
+	}
+
+	@Test
+	public void invokeNonPublicMethod() throws Exception {
+		Method method = Handler.class.getDeclaredMethod("secret");
+		ReflectionUtils.makeAccessible(method);
+		assertEquals("secret", MethodInvokerFactory.getInvoker(method).invoke(this.handler));
+	}
+
+	@Test
+	public void invokeInaccessibleMethod() throws Exception {
+		Method method = Handler.class.getDeclaredMethod("secret");
+		method.setAccessible(false);
+		try {
+			MethodInvokerFactory.getInvoker(method).invoke(this.handler);
+			fail("Should have thrown IllegalAccessException");
+		}
+		catch (IllegalAccessException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void invokeJdkMethod() throws Exception {
+		Method method = String.class.getMethod("length");
+		assertEquals(3, MethodInvokerFactory.getInvoker(method).invoke("foo"));
+	}
+
+	@Test
+	public void invokeWithWideningConversion() throws Exception {
+		Method method = Handler.class.getMethod("increment", long.class);
+		assertEquals(4L, MethodInvokerFactory.getInvoker(method).invoke(this.handler, 3));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invokeWithArgumentTypeMismatch() throws Exception {
+		Method method = Handler.class.getMethod("handle", String.class, int.class);
+		MethodInvokerFactory.getInvoker(method).invoke(this.handler, 3, "foo");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invokeWithNullPrimitiveArgument() throws Exception {
+		Method method = Handler.class.getMethod("handle", String.class, int.class);
+		MethodInvokerFactory.getInvoker(method).invoke(this.handler, "foo", null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invokeWithWrongNumberOfArguments() throws Exception {
+		Method method = Handler.class.getMethod("handle", String.class, int.class);
+		MethodInvokerFactory.getInvoker(method).invoke(this.handler, "foo");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invokeWithWrongTarget() throws Exception {
+		Method method = Handler.class.getMethod("run");
+		MethodInvokerFactory.getInvoker(method).invoke("foo");
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void invokeInstanceMethodWithNullTarget() throws Exception {
+		Method method = Handler.class.getMethod("run");
+		MethodInvokerFactory.getInvoker(method).invoke(null);
+	}
+
+	@Test
+	public void invokeThrowingMethod() throws Exception {
+		Method method = Handler.class.getMethod("fail", Throwable.class);
+		MethodInvokerFactory.Invoker invoker = MethodInvokerFactory.getInvoker(method);
+		Throwable[] exceptions = {new IllegalStateException(), new IOException(), new ClassCastException(), new Error()};
+		for (Throwable exception : exceptions) {
+			try {
+				invoker.invoke(this.handler, exception);
+				fail("Should have thrown InvocationTargetException");
+			}
+			catch (InvocationTargetException ex) {
+				assertSame(exception, ex.getTargetException());
+			}
+		}
+	}
+
+	@Test
+	public void invokerIsCached() throws Exception {
+		Method method = Handler.class.getMethod("run");
+		MethodInvokerFactory.Invoker invoker = MethodInvokerFactory.getInvoker(method);
+		assertSame(invoker, MethodInvokerFactory.getInvoker(Handler.class.getMethod("run")));
+		MethodInvokerFactory.clearCache();
+		assertNotSame(invoker, MethodInvokerFactory.getInvoker(method));
+	}
+
+	@Test
+	public void invocationPerformance() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+		Method handle = Handler.class.getMethod("handle", String.class, int.class);
+		Method onEvent = Handler.class.getMethod("onEvent", Object.class);
+		MethodInvokerFactory.Invoker handleInvoker = MethodInvokerFactory.getInvoker(handle);
+		MethodInvokerFactory.Invoker onEventInvoker = MethodInvokerFactory.getInvoker(onEvent);
+		Object[] handleArgs = {"foo", 42};
+		Object[] onEventArgs = {"event"};
+		long reflectiveTime = 0;
+		long invokerTime = 0;
+		for (int round = 0; round < 3; round++) {
+			StopWatch watch = new StopWatch("invocationPerformance");
+			watch.start("Method.invoke");
+			for (int i = 0; i < 5000000; i++) {
+				handle.invoke(this.handler, handleArgs);
+				onEvent.invoke(this.handler, onEventArgs);
+			}
+			watch.stop();
+			reflectiveTime = watch.getLastTaskTimeMillis();
+			watch.start("MethodInvokerFactory.Invoker");
+			for (int i = 0; i < 5000000; i++) {
+				handleInvoker.invoke(this.handler, handleArgs);
+				onEventInvoker.invoke(this.handler, onEventArgs);
+			}
+			watch.stop();
+			invokerTime = watch.getLastTaskTimeMillis();
+		}
+		// Compare the last, warmed-up round
+		assertTrue("Invoker took " + invokerTime + " ms vs " + reflectiveTime + " ms for Method.invoke",
+				invokerTime < reflectiveTime);
+	}
+
+
+	public static class Handler {
+
+		Object lastEvent;
+
+		public String handle(String name, int count) {
+			return name + ":" + count;
+		}
+
+		public static String concat(String first, String second) {
+			return first + second;
+		}
+
+		public static String join(String... parts) {
+			return String.join(",", parts);
+		}
+
+		public void onEvent(Object event) {
+			this.lastEvent = event;
+		}
+
+		public void run() {
+			this.lastEvent = "run";
+		}
+
+		public long increment(long value) {
+			return value + 1;
+		}
+
+		public int sum(int a, int b, int c, int d, int e, int f, int g) {
+			return a + b + c + d + e + f + g;
+		}
+
+		public void fail(Throwable ex) throws Throwable {
+			throw ex;
+		}
+
+		private String secret() {
+			return "secret";
+		}
+	}
+
+}
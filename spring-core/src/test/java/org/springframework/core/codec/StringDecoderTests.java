@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,11 @@
 
 package org.springframework.core.codec;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -30,9 +32,15 @@ import reactor.test.StepVerifier;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.lang.Nullable;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StopWatch;
 
 import static java.nio.charset.StandardCharsets.*;
 import static org.junit.Assert.*;
@@ -48,6 +56,8 @@ public class StringDecoderTests extends AbstractDecoderTestCase<StringDecoder> {
 
 	private static final ResolvableType TYPE = ResolvableType.forClass(String.class);
 
+	private static final DataBuffer END_FRAME = new DefaultDataBufferFactory().wrap(new byte[0]);
+
 
 	public StringDecoderTests() {
 		super(StringDecoder.allMimeTypes());
@@ -115,8 +125,9 @@ public class StringDecoderTests extends AbstractDecoderTestCase<StringDecoder> {
 
 		List<DataBuffer> dataBuffers = new ArrayList<>();
 		for (int i = 0; i < bytes.length; i += length) {
-			DataBuffer dataBuffer = this.bufferFactory.allocateBuffer(length);
-			dataBuffer.write(bytes, i, length);
+			int count = Math.min(length, bytes.length - i);
+			DataBuffer dataBuffer = this.bufferFactory.allocateBuffer(count);
+			dataBuffer.write(bytes, i, count);
 			dataBuffers.add(dataBuffer);
 		}
 		return Flux.fromIterable(dataBuffers);
@@ -174,6 +185,157 @@ public class StringDecoderTests extends AbstractDecoderTestCase<StringDecoder> {
 				.verify());
 	}
 
+	@Test
+	public void decodeDelimiterSplitAcrossBuffers() {
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("abc\r"),
+				stringBuffer("\ndef\r"),
+				stringBuffer("\n"),
+				stringBuffer("ghi"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("abc")
+				.expectNext("def")
+				.expectNext("ghi")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodeCustomDelimiters() {
+		this.decoder = StringDecoder.allMimeTypes(Arrays.asList("--", "::"), false);
+
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("abc-"),
+				stringBuffer("-def:"),
+				stringBuffer(":ghi--jkl"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("abc--")
+				.expectNext("def::")
+				.expectNext("ghi--")
+				.expectNext("jkl")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodeLinesPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			builder.append("{\"id\":").append(i).append(",\"message\":\"log line\"}\n");
+		}
+		byte[] content = builder.toString().getBytes(UTF_8);
+		DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+		List<byte[]> delimiters = Arrays.asList("\r\n".getBytes(UTF_8), "\n".getBytes(UTF_8));
+
+		for (int chunkSize : new int[] {64, 4096}) {
+			long decoderTime = 0;
+			long previousTime = 0;
+			for (int round = 0; round < 3; round++) {
+				StopWatch watch = new StopWatch("decodeLinesPerformance");
+				watch.start("StringDecoder");
+				Long count = this.decoder.decode(wrap(bufferFactory, content, chunkSize), TYPE, null,
+						Collections.emptyMap()).count().block();
+				watch.stop();
+				decoderTime = watch.getLastTaskTimeMillis();
+				assertEquals(Long.valueOf(100000), count);
+				watch.start("previous splitting");
+				count = wrap(bufferFactory, content, chunkSize)
+						.flatMapIterable(dataBuffer -> splitOnDelimiter(dataBuffer, delimiters))
+						.bufferUntil(dataBuffer -> dataBuffer == END_FRAME)
+						.map(StringDecoderTests::joinUntilEndFrame)
+						.map(dataBuffer -> this.decoder.decodeDataBuffer(dataBuffer, TYPE, null, null))
+						.count().block();
+				watch.stop();
+				previousTime = watch.getLastTaskTimeMillis();
+				assertEquals(Long.valueOf(100000), count);
+			}
+			// Compare the last, warmed-up round
+			assertTrue("StringDecoder took " + decoderTime + " ms vs " + previousTime +
+					" ms for the previous splitting with chunks of " + chunkSize + " bytes",
+					decoderTime < previousTime);
+		}
+	}
+
+	private static Flux<DataBuffer> wrap(DataBufferFactory bufferFactory, byte[] bytes, int length) {
+		List<DataBuffer> dataBuffers = new ArrayList<>();
+		for (int i = 0; i < bytes.length; i += length) {
+			dataBuffers.add(bufferFactory.wrap(ByteBuffer.wrap(bytes, i, Math.min(length, bytes.length - i)).slice()));
+		}
+		return Flux.fromIterable(dataBuffers);
+	}
+
+	/**
+	 * The splitting of the StringDecoder before it scanned for delimiters in a
+	 * single pass: slices plus an END_FRAME marker after each delimiter.
+	 */
+	private static List<DataBuffer> splitOnDelimiter(DataBuffer dataBuffer, List<byte[]> delimiterBytes) {
+		List<DataBuffer> frames = new ArrayList<>();
+		do {
+			int length = Integer.MAX_VALUE;
+			byte[] matchingDelimiter = null;
+			for (byte[] delimiter : delimiterBytes) {
+				int index = indexOf(dataBuffer, delimiter);
+				if (index >= 0 && index < length) {
+					length = index;
+					matchingDelimiter = delimiter;
+				}
+			}
+			int readPosition = dataBuffer.readPosition();
+			if (matchingDelimiter != null) {
+				DataBuffer frame = dataBuffer.slice(readPosition, length);
+				dataBuffer.readPosition(readPosition + length + matchingDelimiter.length);
+				frames.add(DataBufferUtils.retain(frame));
+				frames.add(END_FRAME);
+			}
+			else {
+				DataBuffer frame = dataBuffer.slice(readPosition, dataBuffer.readableByteCount());
+				dataBuffer.readPosition(readPosition + dataBuffer.readableByteCount());
+				frames.add(DataBufferUtils.retain(frame));
+			}
+		}
+		while (dataBuffer.readableByteCount() > 0);
+
+		DataBufferUtils.release(dataBuffer);
+		return frames;
+	}
+
+	private static int indexOf(DataBuffer dataBuffer, byte[] delimiter) {
+		for (int i = dataBuffer.readPosition(); i < dataBuffer.writePosition(); i++) {
+			int dataBufferPos = i;
+			int delimiterPos = 0;
+			while (delimiterPos < delimiter.length) {
+				if (dataBuffer.getByte(dataBufferPos) != delimiter[delimiterPos]) {
+					break;
+				}
+				else {
+					dataBufferPos++;
+					if (dataBufferPos == dataBuffer.writePosition() &&
+							delimiterPos != delimiter.length - 1) {
+						return -1;
+					}
+				}
+				delimiterPos++;
+			}
+			if (delimiterPos == delimiter.length) {
+				return i - dataBuffer.readPosition();
+			}
+		}
+		return -1;
+	}
+
+	private static DataBuffer joinUntilEndFrame(List<DataBuffer> dataBuffers) {
+		if (!dataBuffers.isEmpty()) {
+			int lastIdx = dataBuffers.size() - 1;
+			if (dataBuffers.get(lastIdx) == END_FRAME) {
+				dataBuffers.remove(lastIdx);
+			}
+		}
+		return dataBuffers.get(0).factory().join(dataBuffers);
+	}
+
 	@Test
 	public void decodeEmptyFlux() {
 		Flux<DataBuffer> input = Flux.empty();
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.springframework.util.StreamUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link CompositeDataBuffer}.
+ *
+ * @author agent
+ */
+public class CompositeDataBufferTests {
+
+	private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+
+	@Test
+	public void composeCreatesComposite() {
+		CompositeDataBuffer composite = compose("abc", "de", "fghi");
+		assertEquals(3, composite.getComponentCount());
+		assertEquals(9, composite.readableByteCount());
+		assertEquals("abcdefghi", readString(composite));
+	}
+
+	@Test
+	public void composeSingleBuffer() {
+		DataBuffer buffer = stringBuffer("abc");
+		CompositeDataBuffer composite = this.bufferFactory.compose(Arrays.asList(buffer));
+		assertEquals(1, composite.getComponentCount());
+		assertEquals("abc", readString(composite));
+	}
+
+	@Test
+	public void joinStillCopies() {
+		DataBuffer first = stringBuffer("abc");
+		DataBuffer second = stringBuffer("de");
+		DefaultDataBuffer joined = this.bufferFactory.join(Arrays.asList(first, second));
+		first.writePosition(0).write((byte) 'x');
+		assertEquals("abcde", readString(joined));
+	}
+
+	@Test
+	public void getByteAndIndexOf() {
+		DataBuffer composite = compose("abc", "de", "fghi");
+		assertEquals('d', composite.getByte(3));
+		assertEquals('i', composite.getByte(8));
+		assertEquals(5, composite.indexOf(b -> b == 'f', 0));
+		assertEquals(-1, composite.indexOf(b -> b == 'a', 1));
+		assertEquals(4, composite.lastIndexOf(b -> b == 'e', 8));
+		assertEquals(-1, composite.lastIndexOf(b -> b == 'i', 7));
+	}
+
+	@Test
+	public void asByteBuffer() {
+		DataBuffer composite = compose("abc", "de", "fghi");
+		assertEquals("bcdefg", StandardCharsets.UTF_8.decode(composite.asByteBuffer(1, 6)).toString());
+		assertEquals("fgh", StandardCharsets.UTF_8.decode(composite.asByteBuffer(5, 3)).toString());
+		composite.readPosition(2);
+		assertEquals("cdefghi", StandardCharsets.UTF_8.decode(composite.asByteBuffer()).toString());
+	}
+
+	@Test
+	public void asByteBufferSharesDataWithinSingleComponent() {
+		DataBuffer composite = compose("abc", "de", "fghi");
+		ByteBuffer byteBuffer = composite.asByteBuffer(5, 3);
+		byteBuffer.put(0, (byte) 'x');
+		assertEquals('x', composite.getByte(5));
+	}
+
+	@Test
+	public void asByteBufferCopiesAcrossComponents() {
+		DataBuffer composite = compose("abc", "de", "fghi");
+		ByteBuffer byteBuffer = composite.asByteBuffer(1, 6);
+		byteBuffer.put(0, (byte) 'x');
+		assertEquals('b', composite.getByte(1));
+		composite.writePosition(2).write((byte) 'y');
+		assertEquals('c', byteBuffer.get(1));
+	}
+
+	@Test
+	public void asInputStream() throws Exception {
+		DataBuffer composite = compose("abc", "de", "fghi");
+		InputStream inputStream = composite.asInputStream();
+		assertEquals("abcdefghi", StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+		assertEquals(0, composite.readableByteCount());
+	}
+
+	@Test
+	public void slice() {
+		DataBuffer composite = compose("abc", "de", "fghi");
+		DataBuffer slice = composite.slice(2, 4);
+		assertEquals('c', slice.getByte(0));
+
+		composite.writePosition(2);
+		composite.write((byte) 'x');
+		assertEquals("xdef", readString(slice));
+	}
+
+	@Test
+	public void writeGrowsComposite() {
+		DataBuffer composite = compose("abc", "de");
+		composite.write("fghijklmnop".getBytes(StandardCharsets.UTF_8));
+		composite.write((byte) 'q');
+		assertEquals("abcdefghijklmnopq", readString(composite));
+	}
+
+	@Test
+	public void decreaseCapacity() {
+		DataBuffer composite = compose("abc", "de", "fghi");
+		composite.capacity(4);
+		assertEquals(4, composite.capacity());
+		assertEquals("abcd", readString(composite));
+	}
+
+	@Test
+	public void decreaseCapacityReleasesDroppedComponents() {
+		PoolingDataBufferFactory pooledFactory = new PoolingDataBufferFactory();
+		PooledDataBuffer first = (PooledDataBuffer) pooledFactory.allocateBuffer(4).write((byte) 'a');
+		PooledDataBuffer second = (PooledDataBuffer) pooledFactory.allocateBuffer(4).write((byte) 'b');
+		PooledDataBuffer third = (PooledDataBuffer) pooledFactory.allocateBuffer(4).write((byte) 'c');
+		CompositeDataBuffer composite = pooledFactory.compose(Arrays.asList(first, second, third));
+
+		composite.capacity(2);
+		assertEquals(2, composite.getComponentCount());
+		assertTrue(first.isAllocated());
+		assertTrue(second.isAllocated());
+		assertFalse(third.isAllocated());
+
+		assertTrue(DataBufferUtils.release(composite));
+		assertFalse(first.isAllocated());
+		assertFalse(second.isAllocated());
+	}
+
+	@Test
+	public void releaseReleasesComponents() {
+		PoolingDataBufferFactory pooledFactory = new PoolingDataBufferFactory();
+		PooledDataBuffer first = (PooledDataBuffer) pooledFactory.allocateBuffer(4).write((byte) 'a');
+		PooledDataBuffer second = (PooledDataBuffer) pooledFactory.allocateBuffer(4).write((byte) 'b');
+		DataBuffer composite = pooledFactory.compose(Arrays.asList(first, second));
+
+		DataBuffer slice = DataBufferUtils.retain(composite.slice(0, 2));
+		assertFalse(DataBufferUtils.release(composite));
+		assertTrue(first.isAllocated());
+		assertTrue(DataBufferUtils.release(slice));
+		assertFalse(first.isAllocated());
+		assertFalse(second.isAllocated());
+	}
+
+
+	private CompositeDataBuffer compose(String... values) {
+		return this.bufferFactory.compose(Arrays.asList(Arrays.stream(values).map(this::stringBuffer).toArray(DataBuffer[]::new)));
+	}
+
+	private DataBuffer stringBuffer(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(bytes.length);
+		buffer.write(bytes);
+		return buffer;
+	}
+
+	private static String readString(DataBuffer buffer) {
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 import io.netty.buffer.ByteBuf;
@@ -201,6 +202,104 @@ public class DataBufferUtilsTests extends AbstractDataBufferAllocatingTestCase {
 				.verify(Duration.ofSeconds(5));
 	}
 
+	@Test
+	public void readMappedFileChannel() throws Exception {
+		URI uri = this.resource.getURI();
+		Flux<DataBuffer> flux = DataBufferUtils.readMappedFileChannel(
+				() -> FileChannel.open(Paths.get(uri), StandardOpenOption.READ),
+				0, this.bufferFactory, 3);
+
+		verifyReadData(flux);
+	}
+
+	@Test
+	public void readMappedFileChannelPosition() throws Exception {
+		URI uri = this.resource.getURI();
+		Flux<DataBuffer> flux = DataBufferUtils.readMappedFileChannel(
+				() -> FileChannel.open(Paths.get(uri), StandardOpenOption.READ),
+				7, this.bufferFactory, 4);
+
+		StepVerifier.create(flux)
+				.consumeNextWith(stringConsumer("azqu"))
+				.consumeNextWith(stringConsumer("x"))
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void readMappedFileChannelSliceAfterRelease() throws Exception {
+		URI uri = this.resource.getURI();
+		Flux<DataBuffer> flux = DataBufferUtils.readMappedFileChannel(
+				() -> FileChannel.open(Paths.get(uri), StandardOpenOption.READ),
+				0, this.bufferFactory, 12);
+
+		StepVerifier.create(flux)
+				.consumeNextWith(dataBuffer -> {
+					DataBuffer slice = DataBufferUtils.retain(dataBuffer.slice(3, 3));
+					assertFalse(DataBufferUtils.release(dataBuffer));
+					assertEquals("bar", DataBufferTestUtils.dumpString(slice, StandardCharsets.UTF_8));
+					assertTrue(((MappedDataBuffer) slice).isRegionMapped());
+					assertTrue(DataBufferUtils.release(slice));
+					assertFalse(((MappedDataBuffer) slice).isRegionMapped());
+				})
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void readMappedFileChannelUnmapsRegionOnRelease() throws Exception {
+		URI uri = this.resource.getURI();
+		Flux<DataBuffer> flux = DataBufferUtils.readMappedFileChannel(
+				() -> FileChannel.open(Paths.get(uri), StandardOpenOption.READ),
+				0, this.bufferFactory, 5);
+
+		List<DataBuffer> dataBuffers = flux.collectList().block(Duration.ofSeconds(5));
+		assertEquals(3, dataBuffers.size());
+		MappedDataBuffer first = (MappedDataBuffer) dataBuffers.get(0);
+		DataBufferUtils.release(first);
+		assertFalse(first.isAllocated());
+		assertTrue(first.isRegionMapped());
+		try {
+			first.getByte(0);
+			fail("IllegalStateException expected");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		DataBufferUtils.release(dataBuffers.get(1));
+		DataBufferUtils.release(dataBuffers.get(2));
+		assertFalse(first.isRegionMapped());
+	}
+
+	@Test
+	public void readMappedFileChannelUnmapsRegionOnCancel() throws Exception {
+		URI uri = this.resource.getURI();
+		Flux<DataBuffer> flux = DataBufferUtils.readMappedFileChannel(
+				() -> FileChannel.open(Paths.get(uri), StandardOpenOption.READ),
+				0, this.bufferFactory, 3);
+
+		DataBuffer dataBuffer = flux.take(1).blockFirst(Duration.ofSeconds(5));
+		assertEquals("foo", DataBufferTestUtils.dumpString(dataBuffer, StandardCharsets.UTF_8));
+		assertTrue(((MappedDataBuffer) dataBuffer).isRegionMapped());
+		DataBufferUtils.release(dataBuffer);
+		assertFalse(((MappedDataBuffer) dataBuffer).isRegionMapped());
+	}
+
+	@Test
+	public void readResourceMapped() throws Exception {
+		Flux<DataBuffer> flux = DataBufferUtils.read(this.resource, 0, this.bufferFactory, 3, true);
+
+		verifyReadData(flux);
+	}
+
+	@Test
+	public void readByteArrayResourceMapped() throws Exception {
+		Resource resource = new ByteArrayResource("foobarbazqux".getBytes());
+		Flux<DataBuffer> flux = DataBufferUtils.read(resource, 0, this.bufferFactory, 3, true);
+
+		verifyReadData(flux);
+	}
+
 	private void verifyReadData(Flux<DataBuffer> buffers) {
 		StepVerifier.create(buffers)
 				.consumeNextWith(stringConsumer("foo"))
@@ -708,6 +807,23 @@ public class DataBufferUtilsTests extends AbstractDataBufferAllocatingTestCase {
 				.verifyComplete();
 	}
 
+	@Test
+	public void joinDefaultDataBuffersWithoutCopying() {
+		DefaultDataBufferFactory factory = new DefaultDataBufferFactory();
+		DataBuffer foo = factory.wrap("foo".getBytes(StandardCharsets.UTF_8));
+		DataBuffer bar = factory.wrap("bar".getBytes(StandardCharsets.UTF_8));
+
+		DataBuffer single = DataBufferUtils.join(Flux.just(foo)).block(Duration.ofSeconds(5));
+		assertSame(foo, single);
+
+		DataBuffer result = DataBufferUtils.join(Flux.just(foo, bar)).block(Duration.ofSeconds(5));
+		assertTrue(result instanceof CompositeDataBuffer);
+		assertEquals(2, ((CompositeDataBuffer) result).getComponentCount());
+		bar.asByteBuffer().put(0, (byte) 'B');
+		assertEquals("fooBar", DataBufferTestUtils.dumpString(result, StandardCharsets.UTF_8));
+		release(result);
+	}
+
 	@Test
 	public void joinErrors() {
 		DataBuffer foo = stringBuffer("foo");
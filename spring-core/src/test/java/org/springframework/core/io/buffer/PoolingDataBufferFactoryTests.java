@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PoolingDataBufferFactory}.
+ *
+ * @author agent
+ */
+public class PoolingDataBufferFactoryTests {
+
+	private final PoolingDataBufferFactory bufferFactory = new PoolingDataBufferFactory();
+
+
+	@Test
+	public void allocatedBufferHasRequestedCapacity() {
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		assertTrue(buffer instanceof PooledDataBuffer);
+		assertEquals(100, buffer.capacity());
+		assertTrue(DataBufferUtils.release(buffer));
+	}
+
+	@Test
+	public void releasedMemoryIsReused() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		byte[] memory = buffer.getNativeBuffer().array();
+		DataBufferUtils.release(buffer);
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(120);
+		assertSame(memory, other.getNativeBuffer().array());
+		assertEquals(0, other.readableByteCount());
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	public void releasedMemoryIsReusedAcrossThreads() throws Exception {
+		this.bufferFactory.setThreadCacheSize(0);
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		byte[] memory = buffer.getNativeBuffer().array();
+		Thread thread = new Thread(() -> DataBufferUtils.release(buffer));
+		thread.start();
+		thread.join();
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(100);
+		assertSame(memory, other.getNativeBuffer().array());
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	public void largeBuffersAreNotPooled() {
+		int capacity = PoolingDataBufferFactory.DEFAULT_MAX_POOLED_CAPACITY + 1;
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(capacity);
+		byte[] memory = buffer.getNativeBuffer().array();
+		DataBufferUtils.release(buffer);
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(capacity);
+		assertNotSame(memory, other.getNativeBuffer().array());
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	public void growingBufferKeepsContent() {
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(8);
+		buffer.write("foo".getBytes(StandardCharsets.UTF_8));
+		buffer.write(new byte[200]);
+		assertEquals(203, buffer.readableByteCount());
+		byte[] result = new byte[3];
+		buffer.read(result);
+		assertEquals("foo", new String(result, StandardCharsets.UTF_8));
+		DataBufferUtils.release(buffer);
+	}
+
+	@Test
+	public void sliceSharesReferenceCount() {
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(8);
+		buffer.write("foobar".getBytes(StandardCharsets.UTF_8));
+		DataBuffer slice = buffer.slice(3, 3);
+		assertTrue(slice instanceof PooledDataBuffer);
+
+		DataBufferUtils.retain(slice);
+		assertFalse(DataBufferUtils.release(buffer));
+		assertTrue(((PooledDataBuffer) buffer).isAllocated());
+		assertTrue(DataBufferUtils.release(slice));
+		assertFalse(((PooledDataBuffer) buffer).isAllocated());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void writeAfterRelease() {
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(8);
+		DataBufferUtils.release(buffer);
+		buffer.write(new byte[16]);
+	}
+
+	@Test
+	public void releasedBuffersAreNotReportedAsLeaks() {
+		this.bufferFactory.setLeakDetection(true);
+		for (int i = 0; i < 100; i++) {
+			DataBufferUtils.release(this.bufferFactory.allocateBuffer(16));
+		}
+		System.gc();
+		DataBufferUtils.release(this.bufferFactory.allocateBuffer(16));
+		assertEquals(0, this.bufferFactory.getDetectedLeakCount());
+	}
+
+	@Test
+	public void unreleasedBufferIsReportedAsLeak() throws Exception {
+		this.bufferFactory.setLeakDetection(true);
+		allocateWithoutRelease();
+		for (int i = 0; i < 50 && this.bufferFactory.getDetectedLeakCount() == 0; i++) {
+			System.gc();
+			Thread.sleep(10);
+			// Leaks are detected on subsequent allocations
+			DataBufferUtils.release(this.bufferFactory.allocateBuffer(16));
+		}
+		assertEquals(1, this.bufferFactory.getDetectedLeakCount());
+	}
+
+	private void allocateWithoutRelease() {
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(16);
+		buffer.write((byte) 1);
+	}
+
+}
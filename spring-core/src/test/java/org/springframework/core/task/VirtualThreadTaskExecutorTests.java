@@ -0,0 +1,157 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * Unit tests for {@link VirtualThreadTaskExecutor}.
+ *
+ * @author agent
+ */
+public class VirtualThreadTaskExecutorTests {
+
+	@Test
+	public void threadNameGetsSetCorrectly() throws Exception {
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("virtual-");
+		Future<String> future = executor.submit(() -> Thread.currentThread().getName());
+		assertTrue(future.get(5, TimeUnit.SECONDS).startsWith("virtual-"));
+	}
+
+	@Test
+	public void runsOnVirtualThreadIfSupported() throws Exception {
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor();
+		Future<Thread> future = executor.submit(Thread::currentThread);
+		assertEquals(VirtualThreadTaskExecutor.isVirtualThreadSupported(), isVirtual(future.get(5, TimeUnit.SECONDS)));
+	}
+
+	@Test
+	public void createThreadAsThreadFactory() throws Exception {
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("factory-");
+		CountDownLatch latch = new CountDownLatch(1);
+		Thread thread = executor.createThread(latch::countDown);
+		assertTrue(thread.getName().startsWith("factory-"));
+		assertEquals(Thread.State.NEW, thread.getState());
+		thread.start();
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void taskDecoratorIsApplied() throws Exception {
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor();
+		AtomicReference<String> decorated = new AtomicReference<>();
+		executor.setTaskDecorator(runnable -> () -> {
+			decorated.set(Thread.currentThread().getName());
+			runnable.run();
+		});
+		executor.submit(() -> {}).get(5, TimeUnit.SECONDS);
+		assertNotNull(decorated.get());
+	}
+
+	@Test
+	public void concurrencyLimitIsHonored() throws Exception {
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor();
+		executor.setConcurrencyLimit(2);
+		AtomicInteger active = new AtomicInteger();
+		AtomicInteger maxActive = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(10);
+		for (int i = 0; i < 10; i++) {
+			executor.execute(() -> {
+				maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(10);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				active.decrementAndGet();
+				latch.countDown();
+			});
+		}
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(maxActive.get() <= 2);
+	}
+
+	@Test
+	public void blockingLoadPerformance() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+		assumeTrue(VirtualThreadTaskExecutor.isVirtualThreadSupported());
+		int taskCount = 10000;
+		StopWatch watch = new StopWatch("blockingLoadPerformance");
+		ExecutorService pool = Executors.newFixedThreadPool(200);
+		try {
+			watch.start("Fixed platform thread pool (200)");
+			runBlockingTasks(pool::execute, taskCount);
+			watch.stop();
+		}
+		finally {
+			pool.shutdown();
+		}
+		long poolTime = watch.getLastTaskTimeMillis();
+		watch.start("VirtualThreadTaskExecutor");
+		runBlockingTasks(new VirtualThreadTaskExecutor(), taskCount);
+		watch.stop();
+		long virtualTime = watch.getLastTaskTimeMillis();
+		// 10000 tasks blocking for 20 ms take at least 1 s on 200 platform threads
+		assertTrue("Virtual threads took " + virtualTime + " ms vs " + poolTime + " ms for the pool",
+				virtualTime < poolTime);
+	}
+
+
+	private static void runBlockingTasks(TaskExecutor executor, int taskCount) throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(taskCount);
+		for (int i = 0; i < taskCount; i++) {
+			executor.execute(() -> {
+				try {
+					Thread.sleep(20);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				latch.countDown();
+			});
+		}
+		assertTrue(latch.await(1, TimeUnit.MINUTES));
+	}
+
+	private static boolean isVirtual(Thread thread) throws Exception {
+		try {
+			Method isVirtual = Thread.class.getMethod("isVirtual");
+			return (Boolean) isVirtual.invoke(thread);
+		}
+		catch (NoSuchMethodException ex) {
+			return false;
+		}
+	}
+
+}
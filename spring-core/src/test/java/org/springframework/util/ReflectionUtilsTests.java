@@ -219,6 +219,14 @@ public class ReflectionUtilsTests {
 		assertNotNull(ReflectionUtils.findMethod(B.class, "getClass"));
 	}
 
+	@Test
+	public void isOverridden() {
+		assertTrue(ReflectionUtils.isOverridden(B.class, Object.class, "toString"));
+		assertFalse(ReflectionUtils.isOverridden(B.class, Object.class, "hashCode"));
+		assertFalse(ReflectionUtils.isOverridden(B.class, A.class, "foo", Integer.class));
+		assertFalse(ReflectionUtils.isOverridden(B.class, A.class, "baz"));
+	}
+
 	@Ignore("[SPR-8644] findMethod() does not currently support var-args")
 	@Test
 	public void findMethodWithVarArgs() throws Exception {
@@ -422,6 +430,11 @@ public class ReflectionUtilsTests {
 		void bar(String s) throws IllegalArgumentException {
 		}
 
+		@Override
+		public String toString() {
+			return "B";
+		}
+
 		int add(int... args) {
 			int sum = 0;
 			for (int i = 0; i < args.length; i++) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -64,7 +64,7 @@ public abstract class TemplateAwareExpressionParser implements ExpressionParser
 			return expressions[0];
 		}
 		else {
-			return new CompositeStringExpression(expressionString, expressions);
+			return createCompositeExpression(expressionString, expressions);
 		}
 	}
 
@@ -235,6 +235,18 @@ public abstract class TemplateAwareExpressionParser implements ExpressionParser
 	protected abstract Expression doParseExpression(String expressionString, @Nullable ParserContext context)
 			throws ParseException;
 
+	/**
+	 * Create a composite expression for the given parts of a template.
+	 * <p>The default implementation creates a {@link CompositeStringExpression}.
+	 * @param expressionString the original template string
+	 * @param expressions the parsed parts of the template
+	 * @return the composite expression
+	 * @since 5.2
+	 */
+	protected Expression createCompositeExpression(String expressionString, Expression[] expressions) {
+		return new CompositeStringExpression(expressionString, expressions);
+	}
+
 
 	/**
 	 * This captures a type of bracket and the position in which it occurs in the
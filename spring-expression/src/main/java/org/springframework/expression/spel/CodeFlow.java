@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -85,9 +85,17 @@ public class CodeFlow implements Opcodes {
 
 	/**
 	 * When code generation requires an intermediate variable within a method,
-	 * this method records the next available variable (variable 0 is 'this').
+	 * this method records the next available variable (variable 0 is 'this',
+	 * 1 is the target and 2 is the evaluation context).
 	 */
-	private int nextFreeVariableId = 1;
+	private int nextFreeVariableId = 3;
+
+	/**
+	 * Local variables currently acting as the target, e.g. the element being
+	 * processed within a projection or selection. Empty means the target passed
+	 * into the compiled expression method (variable 1).
+	 */
+	private final Deque<Integer> targetVariables = new ArrayDeque<>();
 
 
 	/**
@@ -109,7 +117,38 @@ public class CodeFlow implements Opcodes {
 	 * @param mv the visitor into which the load instruction should be inserted
 	 */
 	public void loadTarget(MethodVisitor mv) {
-		mv.visitVarInsn(ALOAD, 1);
+		Integer targetVariable = this.targetVariables.peek();
+		mv.visitVarInsn(ALOAD, (targetVariable != null ? targetVariable : 1));
+	}
+
+	/**
+	 * Enter a new target scope in which {@link #loadTarget} loads the given local
+	 * variable, e.g. holding the current element of a collection being projected.
+	 * @param variableId the local variable holding the new target
+	 * @since 5.2
+	 * @see #exitTargetScope()
+	 */
+	public void enterTargetScope(int variableId) {
+		this.targetVariables.push(variableId);
+	}
+
+	/**
+	 * Enter a new target scope in which {@link #loadTarget} loads the original
+	 * target passed into the compiled expression method again, for sub-expressions
+	 * that are always evaluated against the root object (e.g. indexer keys).
+	 * @since 5.2
+	 * @see #exitTargetScope()
+	 */
+	public void enterRootTargetScope() {
+		this.targetVariables.push(1);
+	}
+
+	/**
+	 * Exit the current target scope, returning to the previous target.
+	 * @since 5.2
+	 */
+	public void exitTargetScope() {
+		this.targetVariables.pop();
 	}
 
 	/**
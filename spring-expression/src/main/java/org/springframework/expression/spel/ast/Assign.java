@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,10 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 
 /**
@@ -40,9 +42,36 @@ public class Assign extends SpelNodeImpl {
 	public TypedValue getValueInternal(ExpressionState state) throws EvaluationException {
 		TypedValue newValue = this.children[1].getValueInternal(state);
 		getChild(0).setValue(state, newValue.getValue());
+		// Only assignments to context variables are compiled
+		SpelNodeImpl target = this.children[0];
+		String valueDescriptor = this.children[1].exitTypeDescriptor;
+		if (target instanceof VariableReference && ((VariableReference) target).isContextVariable() &&
+				valueDescriptor != null && !"V".equals(valueDescriptor)) {
+			this.exitTypeDescriptor = (CodeFlow.isPrimitive(valueDescriptor) ?
+					CodeFlow.toBoxedDescriptor(valueDescriptor) : valueDescriptor);
+		}
+		else {
+			this.exitTypeDescriptor = null;
+		}
 		return newValue;
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return (this.exitTypeDescriptor != null && this.children[1].isCompilable());
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		cf.enterCompilationScope();
+		this.children[1].generateCode(mv, cf);
+		CodeFlow.insertBoxIfNecessary(mv, cf.lastDescriptor());
+		cf.exitCompilationScope();
+		mv.visitInsn(DUP);
+		((VariableReference) this.children[0]).generateStoreCode(mv, cf);
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 	@Override
 	public String toStringAST() {
 		return getChild(0).toStringAST() + "=" + getChild(1).toStringAST();
@@ -194,10 +194,10 @@ public class Indexer extends SpelNodeImpl {
 	@Override
 	public boolean isCompilable() {
 		if (this.indexedType == IndexedType.ARRAY) {
-			return (this.exitTypeDescriptor != null);
+			return (this.exitTypeDescriptor != null && isCompilableIntIndex());
 		}
 		else if (this.indexedType == IndexedType.LIST) {
-			return this.children[0].isCompilable();
+			return isCompilableIntIndex();
 		}
 		else if (this.indexedType == IndexedType.MAP) {
 			return (this.children[0] instanceof PropertyOrFieldReference || this.children[0].isCompilable());
@@ -211,6 +211,12 @@ public class Indexer extends SpelNodeImpl {
 		return false;
 	}
 
+	private boolean isCompilableIntIndex() {
+		SpelNodeImpl index = this.children[0];
+		return (index.isCompilable() &&
+				("I".equals(index.exitTypeDescriptor) || "Ljava/lang/Integer".equals(index.exitTypeDescriptor)));
+	}
+
 	@Override
 	public void generateCode(MethodVisitor mv, CodeFlow cf) {
 		String descriptor = cf.lastDescriptor();
@@ -255,18 +261,13 @@ public class Indexer extends SpelNodeImpl {
 						//depthPlusOne(exitTypeDescriptor)+"Ljava/lang/Object;");
 				insn = AALOAD;
 			}
-			SpelNodeImpl index = this.children[0];
-			cf.enterCompilationScope();
-			index.generateCode(mv, cf);
-			cf.exitCompilationScope();
+			generateIndexCode(mv, cf, this.children[0], 'I');
 			mv.visitInsn(insn);
 		}
 
 		else if (this.indexedType == IndexedType.LIST) {
 			mv.visitTypeInsn(CHECKCAST, "java/util/List");
-			cf.enterCompilationScope();
-			this.children[0].generateCode(mv, cf);
-			cf.exitCompilationScope();
+			generateIndexCode(mv, cf, this.children[0], 'I');
 			mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "get", "(I)Ljava/lang/Object;", true);
 		}
 
@@ -280,9 +281,7 @@ public class Indexer extends SpelNodeImpl {
 				mv.visitLdcInsn(mapKeyName);
 			}
 			else {
-				cf.enterCompilationScope();
-				this.children[0].generateCode(mv, cf);
-				cf.exitCompilationScope();
+				generateIndexCode(mv, cf, this.children[0], 'L');
 			}
 			mv.visitMethodInsn(
 					INVOKEINTERFACE, "java/util/Map", "get", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
@@ -318,6 +317,27 @@ public class Indexer extends SpelNodeImpl {
 		cf.pushDescriptor(this.exitTypeDescriptor);
 	}
 
+	/**
+	 * Generate the code for the index expression, evaluated against the root object
+	 * (just like in interpreted mode) and converted to an {@code int} or an object.
+	 */
+	private void generateIndexCode(MethodVisitor mv, CodeFlow cf, SpelNodeImpl index, char targetDescriptor) {
+		cf.enterCompilationScope();
+		cf.enterRootTargetScope();
+		index.generateCode(mv, cf);
+		String indexDescriptor = cf.lastDescriptor();
+		cf.exitTargetScope();
+		cf.exitCompilationScope();
+		if (targetDescriptor == 'I') {
+			if (!"I".equals(indexDescriptor)) {
+				CodeFlow.insertUnboxInsns(mv, 'I', indexDescriptor);
+			}
+		}
+		else {
+			CodeFlow.insertBoxIfNecessary(mv, indexDescriptor);
+		}
+	}
+
 	@Override
 	public String toStringAST() {
 		StringBuilder sb = new StringBuilder("[");
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -42,7 +43,6 @@ import org.springframework.expression.spel.support.ReflectiveMethodExecutor;
 import org.springframework.expression.spel.support.ReflectiveMethodResolver;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
-import org.springframework.util.ObjectUtils;
 
 /**
  * Expression language AST node that represents a method reference.
@@ -53,6 +53,16 @@ import org.springframework.util.ObjectUtils;
  */
 public class MethodReference extends SpelNodeImpl {
 
+	/**
+	 * The maximum number of target types for which executors are cached,
+	 * beyond which a method reference is considered megamorphic: further
+	 * target types get resolved on every invocation.
+	 */
+	private static final int MAX_CACHED_EXECUTORS = 4;
+
+	private static final CachedMethodExecutor[] NO_CACHED_EXECUTORS = new CachedMethodExecutor[0];
+
+
 	private final String name;
 
 	private final boolean nullSafe;
@@ -60,9 +70,13 @@ public class MethodReference extends SpelNodeImpl {
 	@Nullable
 	private String originalPrimitiveExitTypeDescriptor;
 
+	// The most recently used executor, determining compilability
 	@Nullable
 	private volatile CachedMethodExecutor cachedExecutor;
 
+	// Polymorphic inline cache: the executors resolved per target type and argument types
+	private volatile CachedMethodExecutor[] cachedExecutors = NO_CACHED_EXECUTORS;
+
 
 	public MethodReference(boolean nullSafe, String methodName, int pos, SpelNodeImpl... arguments) {
 		super(pos, arguments);
@@ -89,15 +103,14 @@ public class MethodReference extends SpelNodeImpl {
 	public TypedValue getValueInternal(ExpressionState state) throws EvaluationException {
 		EvaluationContext evaluationContext = state.getEvaluationContext();
 		Object value = state.getActiveContextObject().getValue();
-		TypeDescriptor targetType = state.getActiveContextObject().getTypeDescriptor();
 		Object[] arguments = getArguments(state);
-		TypedValue result = getValueInternal(evaluationContext, value, targetType, arguments);
+		TypedValue result = getValueInternal(evaluationContext, value, arguments);
 		updateExitTypeDescriptor();
 		return result;
 	}
 
 	private TypedValue getValueInternal(EvaluationContext evaluationContext,
-			@Nullable Object value, @Nullable TypeDescriptor targetType, Object[] arguments) {
+			@Nullable Object value, Object[] arguments) {
 
 		List<TypeDescriptor> argumentTypes = getArgumentTypes(arguments);
 		if (value == null) {
@@ -105,10 +118,10 @@ public class MethodReference extends SpelNodeImpl {
 			return TypedValue.NULL;
 		}
 
-		MethodExecutor executorToUse = getCachedExecutor(evaluationContext, value, targetType, argumentTypes);
-		if (executorToUse != null) {
+		CachedMethodExecutor cachedExecutor = getCachedExecutor(evaluationContext, value, argumentTypes);
+		if (cachedExecutor != null) {
 			try {
-				return executorToUse.execute(evaluationContext, value, arguments);
+				return cachedExecutor.get().execute(evaluationContext, value, arguments);
 			}
 			catch (AccessException ex) {
 				// Two reasons this can occur:
@@ -126,14 +139,13 @@ public class MethodReference extends SpelNodeImpl {
 
 				// At this point we know it wasn't a user problem so worth a retry if a
 				// better candidate can be found.
-				this.cachedExecutor = null;
+				evictCachedExecutor(cachedExecutor);
 			}
 		}
 
 		// either there was no accessor or it no longer existed
-		executorToUse = findAccessorForMethod(argumentTypes, value, evaluationContext);
-		this.cachedExecutor = new CachedMethodExecutor(
-				executorToUse, (value instanceof Class ? (Class<?>) value : null), targetType, argumentTypes);
+		MethodExecutor executorToUse = findAccessorForMethod(argumentTypes, value, evaluationContext);
+		cacheExecutor(new CachedMethodExecutor(executorToUse, value, argumentTypes));
 		try {
 			return executorToUse.execute(evaluationContext, value, arguments);
 		}
@@ -178,8 +190,8 @@ public class MethodReference extends SpelNodeImpl {
 	}
 
 	@Nullable
-	private MethodExecutor getCachedExecutor(EvaluationContext evaluationContext, Object value,
-			@Nullable TypeDescriptor target, List<TypeDescriptor> argumentTypes) {
+	private CachedMethodExecutor getCachedExecutor(
+			EvaluationContext evaluationContext, Object value, List<TypeDescriptor> argumentTypes) {
 
 		List<MethodResolver> methodResolvers = evaluationContext.getMethodResolvers();
 		if (methodResolvers.size() != 1 || !(methodResolvers.get(0) instanceof ReflectiveMethodResolver)) {
@@ -187,14 +199,47 @@ public class MethodReference extends SpelNodeImpl {
 			return null;
 		}
 
-		CachedMethodExecutor executorToCheck = this.cachedExecutor;
-		if (executorToCheck != null && executorToCheck.isSuitable(value, target, argumentTypes)) {
-			return executorToCheck.get();
+		for (CachedMethodExecutor executorToCheck : this.cachedExecutors) {
+			if (executorToCheck.isSuitable(value, argumentTypes)) {
+				if (this.cachedExecutor != executorToCheck) {
+					this.cachedExecutor = executorToCheck;
+				}
+				return executorToCheck;
+			}
 		}
-		this.cachedExecutor = null;
 		return null;
 	}
 
+	private void cacheExecutor(CachedMethodExecutor executor) {
+		this.cachedExecutor = executor;
+		CachedMethodExecutor[] executors = this.cachedExecutors;
+		for (int i = 0; i < executors.length; i++) {
+			if (executors[i].hasSameKey(executor)) {
+				CachedMethodExecutor[] newExecutors = executors.clone();
+				newExecutors[i] = executor;
+				this.cachedExecutors = newExecutors;
+				return;
+			}
+		}
+		if (executors.length < MAX_CACHED_EXECUTORS) {
+			CachedMethodExecutor[] newExecutors = Arrays.copyOf(executors, executors.length + 1);
+			newExecutors[executors.length] = executor;
+			this.cachedExecutors = newExecutors;
+		}
+	}
+
+	private void evictCachedExecutor(CachedMethodExecutor executor) {
+		this.cachedExecutor = null;
+		CachedMethodExecutor[] executors = this.cachedExecutors;
+		List<CachedMethodExecutor> remaining = new ArrayList<>(executors.length);
+		for (CachedMethodExecutor executorToCheck : executors) {
+			if (executorToCheck != executor) {
+				remaining.add(executorToCheck);
+			}
+		}
+		this.cachedExecutors = remaining.toArray(NO_CACHED_EXECUTORS);
+	}
+
 	private MethodExecutor findAccessorForMethod(List<TypeDescriptor> argumentTypes, Object targetObject,
 			EvaluationContext evaluationContext) throws SpelEvaluationException {
 
@@ -373,22 +418,18 @@ public class MethodReference extends SpelNodeImpl {
 		@Nullable
 		private final Object value;
 
-		@Nullable
-		private final TypeDescriptor targetType;
-
 		private final Object[] arguments;
 
 		public MethodValueRef(ExpressionState state, Object[] arguments) {
 			this.evaluationContext = state.getEvaluationContext();
 			this.value = state.getActiveContextObject().getValue();
-			this.targetType = state.getActiveContextObject().getTypeDescriptor();
 			this.arguments = arguments;
 		}
 
 		@Override
 		public TypedValue getValue() {
 			TypedValue result = MethodReference.this.getValueInternal(
-					this.evaluationContext, this.value, this.targetType, this.arguments);
+					this.evaluationContext, this.value, this.arguments);
 			updateExitTypeDescriptor();
 			return result;
 		}
@@ -409,30 +450,32 @@ public class MethodReference extends SpelNodeImpl {
 
 		private final MethodExecutor methodExecutor;
 
-		@Nullable
-		private final Class<?> staticClass;
+		private final Class<?> targetClass;
 
 		@Nullable
-		private final TypeDescriptor target;
+		private final Class<?> staticClass;
 
 		private final List<TypeDescriptor> argumentTypes;
 
-		public CachedMethodExecutor(MethodExecutor methodExecutor, @Nullable Class<?> staticClass,
-				@Nullable TypeDescriptor target, List<TypeDescriptor> argumentTypes) {
-
+		public CachedMethodExecutor(MethodExecutor methodExecutor, Object target, List<TypeDescriptor> argumentTypes) {
 			this.methodExecutor = methodExecutor;
-			this.staticClass = staticClass;
-			this.target = target;
+			this.targetClass = target.getClass();
+			this.staticClass = (target instanceof Class ? (Class<?>) target : null);
 			this.argumentTypes = argumentTypes;
 		}
 
-		public boolean isSuitable(Object value, @Nullable TypeDescriptor target, List<TypeDescriptor> argumentTypes) {
-			return ((this.staticClass == null || this.staticClass == value) &&
-					ObjectUtils.nullSafeEquals(this.target, target) && this.argumentTypes.equals(argumentTypes));
+		public boolean isSuitable(Object value, List<TypeDescriptor> argumentTypes) {
+			return ((this.staticClass != null ? this.staticClass == value : this.targetClass == value.getClass()) &&
+					this.argumentTypes.equals(argumentTypes));
+		}
+
+		public boolean hasSameKey(CachedMethodExecutor other) {
+			return (this.targetClass == other.targetClass && this.staticClass == other.staticClass &&
+					this.argumentTypes.equals(other.argumentTypes));
 		}
 
 		public boolean hasProxyTarget() {
-			return (this.target != null && Proxy.isProxyClass(this.target.getType()));
+			return Proxy.isProxyClass(this.targetClass);
 		}
 
 		public MethodExecutor get() {
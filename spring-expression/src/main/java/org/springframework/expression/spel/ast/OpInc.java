@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,9 +19,11 @@ package org.springframework.expression.spel.ast;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.Operation;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -123,6 +125,11 @@ public class OpInc extends Operator {
 			returnValue = newValue;
 		}
 
+		// Only increments of context variables holding a standard number type are compiled
+		this.exitTypeDescriptor = (operand instanceof VariableReference &&
+				((VariableReference) operand).isContextVariable() ?
+				VariableReference.toIncrementDescriptor(value) : null);
+
 		return returnValue;
 	}
 
@@ -131,6 +138,19 @@ public class OpInc extends Operator {
 		return getLeftOperand().toStringAST() + "++";
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return (this.exitTypeDescriptor != null);
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		String descriptor = this.exitTypeDescriptor;
+		Assert.state(descriptor != null, "No exit type descriptor");
+		((VariableReference) getLeftOperand()).generateIncrementCode(mv, cf, descriptor, this.postfix, true);
+		cf.pushDescriptor(descriptor);
+	}
+
 	@Override
 	public SpelNodeImpl getRightOperand() {
 		throw new IllegalStateException("No right operand");
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.expression.spel.ast;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +51,16 @@ import org.springframework.util.ReflectionUtils;
  */
 public class PropertyOrFieldReference extends SpelNodeImpl {
 
+	/**
+	 * The maximum number of target types for which accessors are cached,
+	 * beyond which a property reference is considered megamorphic: further
+	 * target types get resolved on every access.
+	 */
+	private static final int MAX_CACHED_ACCESSORS = 4;
+
+	private static final CachedAccessor[] NO_CACHED_ACCESSORS = new CachedAccessor[0];
+
+
 	private final boolean nullSafe;
 
 	private final String name;
@@ -57,11 +68,14 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 	@Nullable
 	private String originalPrimitiveExitTypeDescriptor;
 
+	// The most recently used read accessor, determining compilability
 	@Nullable
 	private volatile PropertyAccessor cachedReadAccessor;
 
-	@Nullable
-	private volatile PropertyAccessor cachedWriteAccessor;
+	// Polymorphic inline caches: the accessors resolved per target type
+	private volatile CachedAccessor[] cachedReadAccessors = NO_CACHED_ACCESSORS;
+
+	private volatile CachedAccessor[] cachedWriteAccessors = NO_CACHED_ACCESSORS;
 
 
 	public PropertyOrFieldReference(boolean nullSafe, String propertyOrFieldName, int pos) {
@@ -174,18 +188,28 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 			return TypedValue.NULL;
 		}
 
-		PropertyAccessor accessorToUse = this.cachedReadAccessor;
-		if (accessorToUse != null) {
-			if (evalContext.getPropertyAccessors().contains(accessorToUse)) {
-				try {
-					return accessorToUse.read(evalContext, contextObject.getValue(), name);
-				}
-				catch (Exception ex) {
-					// This is OK - it may have gone stale due to a class change,
-					// let's try to get a new one and call it before giving up...
+		CachedAccessor cachedAccessor = findCachedAccessor(
+				this.cachedReadAccessors, targetObject, evalContext.getPropertyAccessors());
+		if (cachedAccessor != null) {
+			PropertyAccessor accessorToUse = cachedAccessor.accessor;
+			if (this.cachedReadAccessor != accessorToUse) {
+				this.cachedReadAccessor = accessorToUse;
+			}
+			try {
+				return accessorToUse.read(evalContext, targetObject, name);
+			}
+			catch (Exception ex) {
+				if (accessorToUse instanceof ReflectivePropertyAccessor.OptimalPropertyAccessor) {
+					// Resolved for this very target type: cannot be stale, so no point in
+					// resolving again (which would invoke a failing getter once more)
+					throw new SpelEvaluationException(
+							ex, SpelMessage.EXCEPTION_DURING_PROPERTY_READ, name, ex.getMessage());
 				}
+				// This is OK - it may have gone stale due to a class change,
+				// let's try to get a new one and call it before giving up...
+				this.cachedReadAccessors = evictCachedAccessor(this.cachedReadAccessors, cachedAccessor);
+				this.cachedReadAccessor = null;
 			}
-			this.cachedReadAccessor = null;
 		}
 
 		List<PropertyAccessor> accessorsToTry =
@@ -196,12 +220,17 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		try {
 			for (PropertyAccessor accessor : accessorsToTry) {
 				if (accessor.canRead(evalContext, contextObject.getValue(), name)) {
+					PropertyAccessor accessorToUse = accessor;
 					if (accessor instanceof ReflectivePropertyAccessor) {
-						accessor = ((ReflectivePropertyAccessor) accessor).createOptimalAccessor(
+						accessorToUse = ((ReflectivePropertyAccessor) accessor).createOptimalAccessor(
 								evalContext, contextObject.getValue(), name);
 					}
-					this.cachedReadAccessor = accessor;
-					return accessor.read(evalContext, contextObject.getValue(), name);
+					this.cachedReadAccessor = accessorToUse;
+					if (targetObject != null) {
+						this.cachedReadAccessors = cacheAccessor(this.cachedReadAccessors,
+								new CachedAccessor(targetObject, accessor, accessorToUse));
+					}
+					return accessorToUse.read(evalContext, contextObject.getValue(), name);
 				}
 			}
 		}
@@ -229,19 +258,18 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 			throw new SpelEvaluationException(getStartPosition(), SpelMessage.PROPERTY_OR_FIELD_NOT_WRITABLE_ON_NULL, name);
 		}
 
-		PropertyAccessor accessorToUse = this.cachedWriteAccessor;
-		if (accessorToUse != null) {
-			if (evalContext.getPropertyAccessors().contains(accessorToUse)) {
-				try {
-					accessorToUse.write(evalContext, contextObject.getValue(), name, newValue);
-					return;
-				}
-				catch (Exception ex) {
-					// This is OK - it may have gone stale due to a class change,
-					// let's try to get a new one and call it before giving up...
-				}
+		CachedAccessor cachedAccessor = findCachedAccessor(
+				this.cachedWriteAccessors, contextObject.getValue(), evalContext.getPropertyAccessors());
+		if (cachedAccessor != null) {
+			try {
+				cachedAccessor.accessor.write(evalContext, contextObject.getValue(), name, newValue);
+				return;
+			}
+			catch (Exception ex) {
+				// This is OK - it may have gone stale due to a class change,
+				// let's try to get a new one and call it before giving up...
+				this.cachedWriteAccessors = evictCachedAccessor(this.cachedWriteAccessors, cachedAccessor);
 			}
-			this.cachedWriteAccessor = null;
 		}
 
 		List<PropertyAccessor> accessorsToTry =
@@ -249,7 +277,8 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		try {
 			for (PropertyAccessor accessor : accessorsToTry) {
 				if (accessor.canWrite(evalContext, contextObject.getValue(), name)) {
-					this.cachedWriteAccessor = accessor;
+					this.cachedWriteAccessors = cacheAccessor(this.cachedWriteAccessors,
+							new CachedAccessor(contextObject.getValue(), accessor, accessor));
 					accessor.write(evalContext, contextObject.getValue(), name, newValue);
 					return;
 				}
@@ -285,6 +314,54 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		return false;
 	}
 
+	/**
+	 * Find the cached accessor for the type of the given target object, provided
+	 * that the accessor it originates from is registered with the current context.
+	 */
+	@Nullable
+	private static CachedAccessor findCachedAccessor(CachedAccessor[] cachedAccessors,
+			@Nullable Object target, List<PropertyAccessor> registeredAccessors) {
+
+		if (target != null) {
+			for (CachedAccessor cachedAccessor : cachedAccessors) {
+				if (cachedAccessor.isSuitable(target) && registeredAccessors.contains(cachedAccessor.origin)) {
+					return cachedAccessor;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Add the given accessor to the given cache, replacing an existing accessor for
+	 * the same target type - or ignoring it if the cache is full already.
+	 */
+	private static CachedAccessor[] cacheAccessor(CachedAccessor[] cachedAccessors, CachedAccessor added) {
+		for (int i = 0; i < cachedAccessors.length; i++) {
+			if (cachedAccessors[i].hasSameKey(added)) {
+				CachedAccessor[] newAccessors = cachedAccessors.clone();
+				newAccessors[i] = added;
+				return newAccessors;
+			}
+		}
+		if (cachedAccessors.length < MAX_CACHED_ACCESSORS) {
+			CachedAccessor[] newAccessors = Arrays.copyOf(cachedAccessors, cachedAccessors.length + 1);
+			newAccessors[cachedAccessors.length] = added;
+			return newAccessors;
+		}
+		return cachedAccessors;
+	}
+
+	private static CachedAccessor[] evictCachedAccessor(CachedAccessor[] cachedAccessors, CachedAccessor evicted) {
+		List<CachedAccessor> remaining = new ArrayList<>(cachedAccessors.length);
+		for (CachedAccessor cachedAccessor : cachedAccessors) {
+			if (cachedAccessor != evicted) {
+				remaining.add(cachedAccessor);
+			}
+		}
+		return remaining.toArray(NO_CACHED_ACCESSORS);
+	}
+
 	/**
 	 * Determines the set of property resolvers that should be used to try and access a property
 	 * on the specified target type. The resolvers are considered to be in an ordered list,
@@ -422,4 +499,36 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		}
 	}
 
+
+	/**
+	 * An accessor resolved for a specific target type, along with the registered
+	 * accessor that it originates from.
+	 */
+	private static class CachedAccessor {
+
+		private final Class<?> targetClass;
+
+		@Nullable
+		private final Class<?> staticClass;
+
+		private final PropertyAccessor origin;
+
+		private final PropertyAccessor accessor;
+
+		public CachedAccessor(Object target, PropertyAccessor origin, PropertyAccessor accessor) {
+			this.targetClass = target.getClass();
+			this.staticClass = (target instanceof Class ? (Class<?>) target : null);
+			this.origin = origin;
+			this.accessor = accessor;
+		}
+
+		public boolean isSuitable(Object target) {
+			return (this.staticClass != null ? this.staticClass == target : this.targetClass == target.getClass());
+		}
+
+		public boolean hasSameKey(CachedAccessor other) {
+			return (this.targetClass == other.targetClass && this.staticClass == other.staticClass);
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -66,7 +66,11 @@ public class VariableReference extends SpelNodeImpl {
 	@Override
 	public TypedValue getValueInternal(ExpressionState state) throws SpelEvaluationException {
 		if (this.name.equals(THIS)) {
-			return state.getActiveContextObject();
+			TypedValue result = state.getActiveContextObject();
+			Object value = result.getValue();
+			this.exitTypeDescriptor = (value == null || !Modifier.isPublic(value.getClass().getModifiers()) ?
+					"Ljava/lang/Object" : CodeFlow.toDescriptorFromObject(value));
+			return result;
 		}
 		if (this.name.equals(ROOT)) {
 			TypedValue result = state.getRootContextObject();
@@ -109,11 +113,30 @@ public class VariableReference extends SpelNodeImpl {
 		return (this.exitTypeDescriptor != null);
 	}
 
+	/**
+	 * Return whether this reference points to a variable in the evaluation
+	 * context, as opposed to the well-known {@code #this} and {@code #root}.
+	 */
+	boolean isContextVariable() {
+		return !(this.name.equals(THIS) || this.name.equals(ROOT));
+	}
+
 	@Override
 	public void generateCode(MethodVisitor mv, CodeFlow cf) {
 		if (this.name.equals(ROOT)) {
 			mv.visitVarInsn(ALOAD,1);
 		}
+		else if (this.name.equals(THIS)) {
+			String descriptor = cf.lastDescriptor();
+			if (descriptor == null) {
+				// The currently active context object, e.g. the element being projected
+				cf.loadTarget(mv);
+			}
+			else {
+				// The result of the previous expression element is on the stack already
+				CodeFlow.insertBoxIfNecessary(mv, descriptor);
+			}
+		}
 		else {
 			mv.visitVarInsn(ALOAD, 2);
 			mv.visitLdcInsn(this.name);
@@ -123,6 +146,80 @@ public class VariableReference extends SpelNodeImpl {
 		cf.pushDescriptor(this.exitTypeDescriptor);
 	}
 
+	/**
+	 * Generate the code to increment or decrement this variable by one, leaving
+	 * the previous (postfix) or the new (prefix) value on the stack, boxed.
+	 * @param descriptor the boxed descriptor of the variable value
+	 * (as determined through {@link #toIncrementDescriptor})
+	 */
+	void generateIncrementCode(MethodVisitor mv, CodeFlow cf, String descriptor, boolean postfix, boolean increment) {
+		char primitive = CodeFlow.toPrimitiveTargetDesc(descriptor);
+		boolean wide = (primitive == 'J' || primitive == 'D');
+		cf.loadEvaluationContext(mv);
+		mv.visitLdcInsn(this.name);
+		mv.visitMethodInsn(INVOKEINTERFACE, "org/springframework/expression/EvaluationContext",
+				"lookupVariable", "(Ljava/lang/String;)Ljava/lang/Object;", true);
+		CodeFlow.insertUnboxInsns(mv, primitive, "Ljava/lang/Object");
+		if (postfix) {
+			mv.visitInsn(wide ? DUP2 : DUP);
+		}
+		switch (primitive) {
+			case 'I':
+				mv.visitInsn(ICONST_1);
+				mv.visitInsn(increment ? IADD : ISUB);
+				break;
+			case 'J':
+				mv.visitInsn(LCONST_1);
+				mv.visitInsn(increment ? LADD : LSUB);
+				break;
+			case 'F':
+				mv.visitInsn(FCONST_1);
+				mv.visitInsn(increment ? FADD : FSUB);
+				break;
+			case 'D':
+				mv.visitInsn(DCONST_1);
+				mv.visitInsn(increment ? DADD : DSUB);
+				break;
+			default:
+				throw new IllegalStateException("Unsupported increment/decrement descriptor: " + descriptor);
+		}
+		CodeFlow.insertBoxIfNecessary(mv, primitive);
+		if (!postfix) {
+			mv.visitInsn(DUP);
+		}
+		generateStoreCode(mv, cf);
+		if (postfix) {
+			CodeFlow.insertBoxIfNecessary(mv, primitive);
+		}
+	}
+
+	/**
+	 * Generate the code to store the value on top of the stack (which is consumed)
+	 * as this variable in the evaluation context.
+	 */
+	void generateStoreCode(MethodVisitor mv, CodeFlow cf) {
+		cf.loadEvaluationContext(mv);
+		mv.visitInsn(SWAP);
+		mv.visitLdcInsn(this.name);
+		mv.visitInsn(SWAP);
+		mv.visitMethodInsn(INVOKEINTERFACE, "org/springframework/expression/EvaluationContext",
+				"setVariable", "(Ljava/lang/String;Ljava/lang/Object;)V", true);
+	}
+
+
+	/**
+	 * Determine the boxed descriptor for incrementing or decrementing a variable
+	 * with the given value in compiled code.
+	 * @return the descriptor, or {@code null} if the value type is not supported
+	 */
+	@Nullable
+	static String toIncrementDescriptor(@Nullable Object value) {
+		if (value instanceof Integer || value instanceof Long || value instanceof Float || value instanceof Double) {
+			return CodeFlow.toDescriptorFromObject(value);
+		}
+		return null;
+	}
+
 
 	private static class VariableRef implements ValueRef {
 
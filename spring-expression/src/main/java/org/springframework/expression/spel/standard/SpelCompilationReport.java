@@ -0,0 +1,233 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.ast.SpelNodeImpl;
+import org.springframework.lang.Nullable;
+
+/**
+ * Report on the compilation state of a set of SpEL expressions, indicating for
+ * every expression that is still being interpreted why it has not been compiled:
+ * typically the first AST node which does not support compilation in its current
+ * state, e.g. since its result type has not been determined through a previous
+ * evaluation yet, or since the specific form of the node is not compilable.
+ *
+ * <p>Expressions need to have been evaluated before they can be compiled, so
+ * a report is most meaningful once an application has been warmed up.
+ *
+ * @author agent
+ * @since 5.2
+ * @see SpelExpression#isCompiled()
+ * @see org.springframework.expression.spel.SpelParserConfiguration#getCompilerMode()
+ */
+public class SpelCompilationReport {
+
+	private final List<Entry> entries;
+
+
+	/**
+	 * Create a report for the given expressions, as parsed by a
+	 * {@link SpelExpressionParser} (other expressions get reported as
+	 * not compilable). Templates are reported as a whole, pointing out
+	 * the first part which has not been compiled.
+	 * @param expressions the expressions to report on
+	 */
+	public SpelCompilationReport(Collection<? extends Expression> expressions) {
+		List<Entry> entries = new ArrayList<>(expressions.size());
+		for (Expression expression : expressions) {
+			if (expression instanceof SpelExpression) {
+				SpelExpression spelExpression = (SpelExpression) expression;
+				entries.add(new Entry(spelExpression.getExpressionString(),
+						spelExpression.isCompiled(), determineReason(spelExpression)));
+			}
+			else if (expression instanceof SpelTemplateExpression) {
+				SpelTemplateExpression templateExpression = (SpelTemplateExpression) expression;
+				entries.add(new Entry(templateExpression.getExpressionString(),
+						templateExpression.isCompiled(), determineReason(templateExpression)));
+			}
+			else {
+				entries.add(new Entry(expression.getExpressionString(), false, "not a SpEL expression"));
+			}
+		}
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+
+	/**
+	 * Return the entries for all expressions in this report.
+	 */
+	public List<Entry> getEntries() {
+		return this.entries;
+	}
+
+	/**
+	 * Return the entries for all expressions which have not been compiled.
+	 */
+	public List<Entry> getFailures() {
+		List<Entry> failures = new ArrayList<>();
+		for (Entry entry : this.entries) {
+			if (!entry.isCompiled()) {
+				failures.add(entry);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Return the number of expressions which have been compiled.
+	 */
+	public int getCompiledCount() {
+		return (this.entries.size() - getFailures().size());
+	}
+
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("SpEL compilation report: ");
+		sb.append(getCompiledCount()).append(" of ").append(this.entries.size()).append(" expressions compiled");
+		for (Entry entry : this.entries) {
+			sb.append("\n  ").append(entry);
+		}
+		return sb.toString();
+	}
+
+
+	@Nullable
+	private static String determineReason(SpelExpression expression) {
+		if (expression.isCompiled()) {
+			return null;
+		}
+		if (expression.getInterpretedCount() == 0) {
+			return "not evaluated yet";
+		}
+		String reason = getFailureReason((SpelNodeImpl) expression.getAST());
+		if (reason != null) {
+			return reason;
+		}
+		if (expression.isCompilationAbandoned()) {
+			return "compilation abandoned after repeated failures";
+		}
+		if (expression.getCompilerMode() == SpelCompilerMode.OFF) {
+			return "compilable but compiler mode is OFF";
+		}
+		return "compilable but not compiled yet (invocation threshold not reached)";
+	}
+
+	@Nullable
+	private static String determineReason(SpelTemplateExpression expression) {
+		if (expression.isCompiled()) {
+			return null;
+		}
+		for (Expression part : expression.getExpressions()) {
+			if (part instanceof SpelExpression && !((SpelExpression) part).isCompiled()) {
+				return "template part '" + part.getExpressionString() + "' not compiled: " +
+						determineReason((SpelExpression) part);
+			}
+		}
+		return "template parts compiled but template not compiled yet";
+	}
+
+	/**
+	 * Determine why the given AST cannot be compiled in its current state,
+	 * pointing out the innermost node which prevents compilation.
+	 * @param ast the root node of the expression
+	 * @return a description of the reason, or {@code null} if the AST is compilable
+	 */
+	@Nullable
+	public static String getFailureReason(SpelNodeImpl ast) {
+		SpelNodeImpl node = findNonCompilableNode(ast);
+		if (node == null) {
+			return null;
+		}
+		return node.getClass().getSimpleName() + " '" + node.toStringAST() + "' at position " +
+				node.getStartPosition() + " is not compilable: " + (node.getExitDescriptor() == null ?
+				"result type unknown (not evaluated yet, evaluated to null, or operand type not supported)" :
+				"not supported in this form");
+	}
+
+	@Nullable
+	private static SpelNodeImpl findNonCompilableNode(SpelNodeImpl node) {
+		if (node.isCompilable()) {
+			// A compilable node takes care of its children (some of which, e.g. map keys,
+			// may be used in a way that does not require compilation)
+			return null;
+		}
+		for (int i = 0; i < node.getChildCount(); i++) {
+			SpelNodeImpl child = findNonCompilableNode((SpelNodeImpl) node.getChild(i));
+			if (child != null) {
+				return child;
+			}
+		}
+		return node;
+	}
+
+
+	/**
+	 * A report entry for a specific expression.
+	 */
+	public static class Entry {
+
+		private final String expressionString;
+
+		private final boolean compiled;
+
+		@Nullable
+		private final String reason;
+
+		Entry(String expressionString, boolean compiled, @Nullable String reason) {
+			this.expressionString = expressionString;
+			this.compiled = compiled;
+			this.reason = reason;
+		}
+
+		/**
+		 * Return the original expression String.
+		 */
+		public String getExpressionString() {
+			return this.expressionString;
+		}
+
+		/**
+		 * Return whether the expression has been compiled.
+		 */
+		public boolean isCompiled() {
+			return this.compiled;
+		}
+
+		/**
+		 * Return the reason why the expression has not been compiled, if any.
+		 */
+		@Nullable
+		public String getReason() {
+			return this.reason;
+		}
+
+		@Override
+		public String toString() {
+			return (this.compiled ? "[compiled] " + this.expressionString :
+					"[interpreted] " + this.expressionString + " - " + this.reason);
+		}
+	}
+
+}
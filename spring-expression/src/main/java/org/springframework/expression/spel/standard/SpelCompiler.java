@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,19 +20,23 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
 import org.springframework.asm.MethodVisitor;
 import org.springframework.asm.Opcodes;
 import org.springframework.expression.Expression;
+import org.springframework.expression.common.LiteralExpression;
 import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.CompiledExpression;
 import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.ast.SpelNodeImpl;
 import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ReflectionUtils;
@@ -114,7 +118,46 @@ public final class SpelCompiler implements Opcodes {
 		}
 
 		if (logger.isDebugEnabled()) {
-			logger.debug("SpEL: unable to compile " + expression.toStringAST());
+			String reason = SpelCompilationReport.getFailureReason(expression);
+			logger.debug("SpEL: unable to compile " + expression.toStringAST() +
+					(reason != null ? " - " + reason : ""));
+		}
+		return null;
+	}
+
+	/**
+	 * Attempt compilation of the given template parts into a single class which
+	 * concatenates the results of all parts, with literal parts inlined as
+	 * constants and the result of every SpEL part converted to a String.
+	 * @param expressions the template parts: {@link LiteralExpression} and
+	 * {@link SpelExpression} instances
+	 * @return an instance of the class implementing the compiled template,
+	 * or {@code null} if compilation is not possible
+	 * @since 5.2
+	 */
+	@Nullable
+	public CompiledExpression compileTemplate(Expression[] expressions) {
+		for (Expression expression : expressions) {
+			if (!(expression instanceof LiteralExpression) && !(expression instanceof SpelExpression &&
+					((SpelNodeImpl) ((SpelExpression) expression).getAST()).isCompilable())) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("SpEL: unable to compile template part '" + expression.getExpressionString() + "'");
+				}
+				return null;
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("SpEL: compiling template with " + expressions.length + " parts");
+		}
+		Class<? extends CompiledExpression> clazz = createExpressionClass(
+				"Template", (mv, cf) -> generateTemplateCode(expressions, mv, cf));
+		if (clazz != null) {
+			try {
+				return ReflectionUtils.accessibleConstructor(clazz).newInstance();
+			}
+			catch (Throwable ex) {
+				throw new IllegalStateException("Failed to instantiate CompiledExpression", ex);
+			}
 		}
 		return null;
 	}
@@ -132,6 +175,21 @@ public final class SpelCompiler implements Opcodes {
 	 */
 	@Nullable
 	private Class<? extends CompiledExpression> createExpressionClass(SpelNodeImpl expressionToCompile) {
+		return createExpressionClass(expressionToCompile.getClass().getSimpleName(), expressionToCompile::generateCode);
+	}
+
+	/**
+	 * Generate a class that is a subtype of CompiledExpression, with a {@code getValue}
+	 * method body as produced by the given code generator, and define it.
+	 * @param description the description of the generated code, for logging purposes
+	 * @param codeGenerator the callback producing the body of the {@code getValue} method
+	 * @return the expression call, or {@code null} if the decision was to opt out of
+	 * compilation during code generation
+	 */
+	@Nullable
+	private Class<? extends CompiledExpression> createExpressionClass(
+			String description, BiConsumer<MethodVisitor, CodeFlow> codeGenerator) {
+
 		// Create class outline 'spel/ExNNN extends org.springframework.expression.spel.CompiledExpression'
 		String className = "spel/Ex" + getNextSuffix();
 		ClassWriter cw = new ExpressionClassWriter();
@@ -157,12 +215,11 @@ public final class SpelCompiler implements Opcodes {
 
 		// Ask the expression AST to generate the body of the method
 		try {
-			expressionToCompile.generateCode(mv, cf);
+			codeGenerator.accept(mv, cf);
 		}
 		catch (IllegalStateException ex) {
 			if (logger.isDebugEnabled()) {
-				logger.debug(expressionToCompile.getClass().getSimpleName() +
-						".generateCode opted out of compilation: " + ex.getMessage());
+				logger.debug(description + ".generateCode opted out of compilation: " + ex.getMessage());
 			}
 			return null;
 		}
@@ -185,6 +242,67 @@ public final class SpelCompiler implements Opcodes {
 		return loadClass(StringUtils.replace(className, "/", "."), data);
 	}
 
+	/**
+	 * Generate the code for concatenating the given template parts, leaving the
+	 * resulting String on the stack.
+	 */
+	private static void generateTemplateCode(Expression[] expressions, MethodVisitor mv, CodeFlow cf) {
+		// Preallocate the builder for the literal parts plus some room for each SpEL part
+		int capacity = 0;
+		for (Expression expression : expressions) {
+			capacity += (expression instanceof LiteralExpression ? expression.getExpressionString().length() : 16);
+		}
+		mv.visitTypeInsn(NEW, "java/lang/StringBuilder");
+		mv.visitInsn(DUP);
+		mv.visitLdcInsn(capacity);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(I)V", false);
+
+		for (Expression expression : expressions) {
+			if (expression instanceof LiteralExpression) {
+				String literal = expression.getExpressionString();
+				if (!literal.isEmpty()) {
+					mv.visitLdcInsn(literal);
+					mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+							"(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+				}
+				continue;
+			}
+
+			cf.enterCompilationScope();
+			((SpelNodeImpl) ((SpelExpression) expression).getAST()).generateCode(mv, cf);
+			String descriptor = cf.lastDescriptor();
+			cf.exitCompilationScope();
+			Assert.state(descriptor != null, "No exit descriptor for template part");
+			if ("V".equals(descriptor)) {
+				// Void method result: nothing to append
+				continue;
+			}
+
+			if (!"Ljava/lang/String".equals(descriptor)) {
+				// Convert through the context's TypeConverter, as in interpreted mode
+				CodeFlow.insertBoxIfNecessary(mv, descriptor);
+				cf.loadEvaluationContext(mv);
+				mv.visitMethodInsn(INVOKESTATIC, "org/springframework/expression/spel/standard/SpelTemplateExpression",
+						"convertToString", "(Ljava/lang/Object;Lorg/springframework/expression/EvaluationContext;)" +
+						"Ljava/lang/String;", false);
+			}
+			// Skip null values, as in interpreted mode
+			Label notNull = new Label();
+			Label end = new Label();
+			mv.visitInsn(DUP);
+			mv.visitJumpInsn(IFNONNULL, notNull);
+			mv.visitInsn(POP);
+			mv.visitJumpInsn(GOTO, end);
+			mv.visitLabel(notNull);
+			mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+					"(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+			mv.visitLabel(end);
+		}
+
+		mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+		cf.pushDescriptor("Ljava/lang/String");
+	}
+
 	/**
 	 * Load a compiled expression class. Makes sure the classloaders aren't used too much
 	 * because they anchor compiled classes in memory and prevent GC.  If you have expressions
@@ -228,6 +346,9 @@ public final class SpelCompiler implements Opcodes {
 	 * @return true if the expression was successfully compiled
 	 */
 	public static boolean compile(Expression expression) {
+		if (expression instanceof SpelTemplateExpression) {
+			return ((SpelTemplateExpression) expression).compileExpression();
+		}
 		return (expression instanceof SpelExpression && ((SpelExpression) expression).compileExpression());
 	}
 
@@ -240,6 +361,9 @@ public final class SpelCompiler implements Opcodes {
 		if (expression instanceof SpelExpression) {
 			((SpelExpression) expression).revertToInterpreted();
 		}
+		else if (expression instanceof SpelTemplateExpression) {
+			((SpelTemplateExpression) expression).revertToInterpreted();
+		}
 	}
 
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -528,6 +528,38 @@ public class SpelExpression implements Expression {
 		this.failedAttempts = 0;
 	}
 
+	/**
+	 * Return whether this expression is currently evaluated in compiled form.
+	 * @since 5.2
+	 * @see SpelCompilationReport
+	 */
+	public boolean isCompiled() {
+		return (this.compiledAst != null);
+	}
+
+	/**
+	 * Return the compiler mode that this expression has been parsed with.
+	 */
+	SpelCompilerMode getCompilerMode() {
+		return this.configuration.getCompilerMode();
+	}
+
+	/**
+	 * Return how many times this expression has been interpreted (since it was
+	 * parsed or reverted to interpreted mode), triggering compilation attempts.
+	 */
+	int getInterpretedCount() {
+		return this.interpretedCount;
+	}
+
+	/**
+	 * Return whether compilation attempts for this expression have been given up
+	 * after repeated failures.
+	 */
+	boolean isCompilationAbandoned() {
+		return (this.failedAttempts > FAILED_ATTEMPTS_THRESHOLD);
+	}
+
 	/**
 	 * Return the Abstract Syntax Tree for the expression.
 	 */
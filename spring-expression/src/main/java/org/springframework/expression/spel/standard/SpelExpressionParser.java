@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,18 @@
 
 package org.springframework.expression.spel.standard;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.expression.Expression;
 import org.springframework.expression.ParseException;
 import org.springframework.expression.ParserContext;
 import org.springframework.expression.common.TemplateAwareExpressionParser;
 import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
 
 /**
  * SpEL parser. Instances are reusable and thread-safe.
@@ -32,8 +38,34 @@ import org.springframework.util.Assert;
  */
 public class SpelExpressionParser extends TemplateAwareExpressionParser {
 
+	/** The maximum number of entries in the expression cache. */
+	private static final int EXPRESSION_CACHE_LIMIT = 1024;
+
+
 	private final SpelParserConfiguration configuration;
 
+	private boolean cacheExpressions = false;
+
+	/** Fast access cache for parsed expressions, returning already parsed instances without a global lock. */
+	private final Map<ExpressionKey, Expression> expressionAccessCache =
+			new ConcurrentHashMap<>(EXPRESSION_CACHE_LIMIT);
+
+	/** LRU cache for parsed expressions, synchronized for parsing. */
+	@SuppressWarnings("serial")
+	private final Map<ExpressionKey, Expression> expressionCreationCache =
+			new LinkedHashMap<ExpressionKey, Expression>(EXPRESSION_CACHE_LIMIT, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<ExpressionKey, Expression> eldest) {
+					if (size() > EXPRESSION_CACHE_LIMIT) {
+						expressionAccessCache.remove(eldest.getKey());
+						return true;
+					}
+					else {
+						return false;
+					}
+				}
+			};
+
 
 	/**
 	 * Create a parser with default settings.
@@ -52,6 +84,51 @@ public class SpelExpressionParser extends TemplateAwareExpressionParser {
 	}
 
 
+	/**
+	 * Set whether to cache parsed expressions in this parser, keyed by expression
+	 * string and template delimiters, so that parsing an identical expression again
+	 * returns the existing instance (with any compiled form that it may have acquired
+	 * in the meantime). The cache is bounded, evicting the least recently parsed
+	 * expressions, and lives as long as this parser instance.
+	 * <p>Default is "false". Only switch this on when the returned expressions are
+	 * not going to be customized: note that a shared {@link SpelExpression} also
+	 * shares its {@link SpelExpression#setEvaluationContext default evaluation context}.
+	 * Expressions parsed through {@link #parseRaw} are never cached.
+	 * @since 5.2
+	 */
+	public void setCacheExpressions(boolean cacheExpressions) {
+		this.cacheExpressions = cacheExpressions;
+	}
+
+	/**
+	 * Return whether parsed expressions are cached in this parser.
+	 * @since 5.2
+	 */
+	public boolean isCacheExpressions() {
+		return this.cacheExpressions;
+	}
+
+
+	@Override
+	public Expression parseExpression(String expressionString, @Nullable ParserContext context) throws ParseException {
+		if (!this.cacheExpressions) {
+			return super.parseExpression(expressionString, context);
+		}
+		ExpressionKey cacheKey = new ExpressionKey(expressionString, context);
+		Expression expression = this.expressionAccessCache.get(cacheKey);
+		if (expression == null) {
+			synchronized (this.expressionCreationCache) {
+				expression = this.expressionCreationCache.get(cacheKey);
+				if (expression == null) {
+					expression = super.parseExpression(expressionString, context);
+					this.expressionAccessCache.put(cacheKey, expression);
+					this.expressionCreationCache.put(cacheKey, expression);
+				}
+			}
+		}
+		return expression;
+	}
+
 	public SpelExpression parseRaw(String expressionString) throws ParseException {
 		return doParseExpression(expressionString, null);
 	}
@@ -61,4 +138,53 @@ public class SpelExpressionParser extends TemplateAwareExpressionParser {
 		return new InternalSpelExpressionParser(this.configuration).doParseExpression(expressionString, context);
 	}
 
+	@Override
+	protected Expression createCompositeExpression(String expressionString, Expression[] expressions) {
+		return new SpelTemplateExpression(expressionString, expressions, this.configuration);
+	}
+
+
+	/**
+	 * Key for the expression cache.
+	 */
+	private static final class ExpressionKey {
+
+		private final String expressionString;
+
+		@Nullable
+		private final String templatePrefix;
+
+		@Nullable
+		private final String templateSuffix;
+
+		public ExpressionKey(String expressionString, @Nullable ParserContext context) {
+			this.expressionString = expressionString;
+			boolean template = (context != null && context.isTemplate());
+			this.templatePrefix = (template ? context.getExpressionPrefix() : null);
+			this.templateSuffix = (template ? context.getExpressionSuffix() : null);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ExpressionKey)) {
+				return false;
+			}
+			ExpressionKey otherKey = (ExpressionKey) other;
+			return (this.expressionString.equals(otherKey.expressionString) &&
+					ObjectUtils.nullSafeEquals(this.templatePrefix, otherKey.templatePrefix) &&
+					ObjectUtils.nullSafeEquals(this.templateSuffix, otherKey.templateSuffix));
+		}
+
+		@Override
+		public int hashCode() {
+			int hashCode = this.expressionString.hashCode();
+			hashCode = 31 * hashCode + ObjectUtils.nullSafeHashCode(this.templatePrefix);
+			hashCode = 31 * hashCode + ObjectUtils.nullSafeHashCode(this.templateSuffix);
+			return hashCode;
+		}
+	}
+
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.common.CompositeStringExpression;
+import org.springframework.expression.common.ExpressionUtils;
+import org.springframework.expression.spel.CompiledExpression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.lang.Nullable;
+
+/**
+ * A {@link CompositeStringExpression} for SpEL templates, as created by
+ * {@link SpelExpressionParser} for templates with several parts.
+ *
+ * <p>Once all SpEL parts of the template have been compiled (according to the
+ * {@link SpelParserConfiguration#getCompilerMode() compiler mode} of the parser),
+ * the template as a whole gets compiled into a single class which appends the
+ * literal parts and the results of the SpEL parts to a presized StringBuilder,
+ * instead of evaluating and converting each part separately.
+ *
+ * @author agent
+ * @since 5.2
+ * @see SpelCompiler#compileTemplate
+ */
+public class SpelTemplateExpression extends CompositeStringExpression {
+
+	private static final int FAILED_ATTEMPTS_THRESHOLD = 100;
+
+
+	private final SpelParserConfiguration configuration;
+
+	// The first SpEL part, providing the default evaluation context
+	@Nullable
+	private final SpelExpression firstSpelExpression;
+
+	// Holds the compiled form of the template (if it has been compiled)
+	@Nullable
+	private volatile CompiledExpression compiledAst;
+
+	// The number of times compilation was attempted and failed
+	private volatile int failedAttempts = 0;
+
+
+	/**
+	 * Construct a template expression, only used by the parser.
+	 */
+	public SpelTemplateExpression(String expressionString, Expression[] expressions,
+			SpelParserConfiguration configuration) {
+
+		super(expressionString, expressions);
+		this.configuration = configuration;
+		SpelExpression firstSpelExpression = null;
+		for (Expression expression : expressions) {
+			if (expression instanceof SpelExpression) {
+				firstSpelExpression = (SpelExpression) expression;
+				break;
+			}
+		}
+		this.firstSpelExpression = firstSpelExpression;
+	}
+
+
+	@Override
+	public String getValue() throws EvaluationException {
+		if (this.compiledAst != null && this.firstSpelExpression != null) {
+			EvaluationContext context = this.firstSpelExpression.getEvaluationContext();
+			String result = getCompiledValue(context.getRootObject().getValue(), context);
+			if (result != null) {
+				return result;
+			}
+		}
+		String result = super.getValue();
+		checkCompile();
+		return result;
+	}
+
+	@Override
+	public String getValue(Object rootObject) throws EvaluationException {
+		if (this.compiledAst != null && this.firstSpelExpression != null) {
+			String result = getCompiledValue(rootObject, this.firstSpelExpression.getEvaluationContext());
+			if (result != null) {
+				return result;
+			}
+		}
+		String result = super.getValue(rootObject);
+		checkCompile();
+		return result;
+	}
+
+	@Override
+	public String getValue(EvaluationContext context) throws EvaluationException {
+		if (this.compiledAst != null) {
+			String result = getCompiledValue(context.getRootObject().getValue(), context);
+			if (result != null) {
+				return result;
+			}
+		}
+		String result = super.getValue(context);
+		checkCompile();
+		return result;
+	}
+
+	@Override
+	public String getValue(EvaluationContext context, Object rootObject) throws EvaluationException {
+		if (this.compiledAst != null) {
+			String result = getCompiledValue(rootObject, context);
+			if (result != null) {
+				return result;
+			}
+		}
+		String result = super.getValue(context, rootObject);
+		checkCompile();
+		return result;
+	}
+
+	/**
+	 * Evaluate the compiled form of the template, if any.
+	 * @return the result, or {@code null} if not compiled (anymore)
+	 */
+	@Nullable
+	private String getCompiledValue(@Nullable Object rootObject, EvaluationContext context) {
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				return (String) compiledAst.getValue(rootObject, context);
+			}
+			catch (Throwable ex) {
+				// If running in mixed mode, revert to interpreted
+				if (this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
+					this.compiledAst = null;
+				}
+				else {
+					// Running in SpelCompilerMode.immediate mode - propagate exception to caller
+					throw new SpelEvaluationException(ex, SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Compile the template once all of its SpEL parts have been compiled.
+	 */
+	private void checkCompile() {
+		if (this.firstSpelExpression != null && this.failedAttempts <= FAILED_ATTEMPTS_THRESHOLD) {
+			for (Expression expression : getExpressions()) {
+				if (expression instanceof SpelExpression && !((SpelExpression) expression).isCompiled()) {
+					return;
+				}
+			}
+			compileExpression();
+		}
+	}
+
+
+	/**
+	 * Perform template compilation. This will only succeed once exit descriptors for all
+	 * nodes of all SpEL parts have been determined. If the compilation has failed more than
+	 * 100 times, the template is no longer considered suitable for compilation.
+	 */
+	public boolean compileExpression() {
+		if (this.firstSpelExpression == null || this.failedAttempts > FAILED_ATTEMPTS_THRESHOLD) {
+			return false;
+		}
+		if (this.compiledAst == null) {
+			synchronized (this) {
+				// Possibly compiled by another thread before this thread got into the sync block
+				if (this.compiledAst != null) {
+					return true;
+				}
+				SpelCompiler compiler = SpelCompiler.getCompiler(this.configuration.getCompilerClassLoader());
+				CompiledExpression compiledAst = compiler.compileTemplate(getExpressions());
+				if (compiledAst == null) {
+					this.failedAttempts++;
+				}
+				this.compiledAst = compiledAst;
+			}
+		}
+		return (this.compiledAst != null);
+	}
+
+	/**
+	 * Cause the template and its SpEL parts to revert to being interpreted,
+	 * resetting the compilation attempt failure counts.
+	 * @see SpelExpression#revertToInterpreted()
+	 */
+	public void revertToInterpreted() {
+		this.compiledAst = null;
+		this.failedAttempts = 0;
+		for (Expression expression : getExpressions()) {
+			if (expression instanceof SpelExpression) {
+				((SpelExpression) expression).revertToInterpreted();
+			}
+		}
+	}
+
+	/**
+	 * Return whether this template is currently evaluated in compiled form.
+	 */
+	public boolean isCompiled() {
+		return (this.compiledAst != null);
+	}
+
+
+	/**
+	 * Convert the given result of a SpEL part to a String, through the
+	 * {@link org.springframework.expression.TypeConverter} of the given context.
+	 * <p>Called by compiled templates: not intended to be used by user code.
+	 * @param value the value of the SpEL part
+	 * @param context the current evaluation context
+	 * @return the converted value (or {@code null} if to be skipped)
+	 */
+	@Nullable
+	public static String convertToString(@Nullable Object value, EvaluationContext context) {
+		if (value instanceof String) {
+			return (String) value;
+		}
+		return ExpressionUtils.convertTypedValue(context, new TypedValue(value), String.class);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.expression.spel.support;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
+import org.springframework.core.MethodInvokerFactory;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.AccessException;
@@ -52,6 +53,9 @@ public class ReflectiveMethodExecutor implements MethodExecutor {
 
 	private boolean argumentConversionOccurred = false;
 
+	@Nullable
+	private MethodInvokerFactory.Invoker invoker;
+
 
 	/**
 	 * Create a new executor for the given method.
@@ -126,8 +130,13 @@ public class ReflectiveMethodExecutor implements MethodExecutor {
 				arguments = ReflectionHelper.setupArgumentsForVarargsInvocation(
 						this.originalMethod.getParameterTypes(), arguments);
 			}
-			ReflectionUtils.makeAccessible(this.methodToInvoke);
-			Object value = this.methodToInvoke.invoke(target, arguments);
+			MethodInvokerFactory.Invoker invoker = this.invoker;
+			if (invoker == null) {
+				ReflectionUtils.makeAccessible(this.methodToInvoke);
+				invoker = MethodInvokerFactory.getInvoker(this.methodToInvoke);
+				this.invoker = invoker;
+			}
+			Object value = invoker.invoke(target, arguments);
 			return new TypedValue(value, new TypeDescriptor(new MethodParameter(this.originalMethod, -1)).narrow(value));
 		}
 		catch (Exception ex) {
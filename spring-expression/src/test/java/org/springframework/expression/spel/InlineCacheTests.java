@@ -0,0 +1,318 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.expression.AccessException;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.MethodExecutor;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.ReflectiveMethodResolver;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the polymorphic inline caches in
+ * {@link org.springframework.expression.spel.ast.PropertyOrFieldReference}
+ * and {@link org.springframework.expression.spel.ast.MethodReference}.
+ *
+ * @author agent
+ */
+public class InlineCacheTests {
+
+	private final SpelExpressionParser parser = new SpelExpressionParser();
+
+	private final CountingPropertyAccessor propertyAccessor = new CountingPropertyAccessor();
+
+	private final CountingMethodResolver methodResolver = new CountingMethodResolver();
+
+	private final StandardEvaluationContext context = new StandardEvaluationContext();
+
+	private final Object[] targets = {new A(), new B(), new C(), new D(), new E(), new F()};
+
+
+	public InlineCacheTests() {
+		this.context.setPropertyAccessors(Collections.singletonList(this.propertyAccessor));
+		this.context.setMethodResolvers(Collections.singletonList(this.methodResolver));
+	}
+
+
+	@Test
+	public void bimorphicPropertyRead() {
+		Expression expression = this.parser.parseExpression("#var.name");
+		for (int i = 0; i < 3; i++) {
+			assertEquals("A", evaluate(expression, this.targets[0]));
+			assertEquals("B", evaluate(expression, this.targets[1]));
+		}
+		assertEquals(2, this.propertyAccessor.resolutions);
+	}
+
+	@Test
+	public void megamorphicPropertyRead() {
+		Expression expression = this.parser.parseExpression("#var.name");
+		for (int i = 0; i < 2; i++) {
+			for (Object target : this.targets) {
+				assertEquals(target.getClass().getSimpleName(), evaluate(expression, target));
+			}
+		}
+		// Only the first four target types are cached
+		assertEquals(8, this.propertyAccessor.resolutions);
+	}
+
+	@Test
+	public void staticPropertyReadOnDifferentClasses() {
+		Expression expression = this.parser.parseExpression("#var.TYPE");
+		for (int i = 0; i < 2; i++) {
+			assertEquals("static A", evaluate(expression, A.class));
+			assertEquals("static B", evaluate(expression, B.class));
+		}
+		assertEquals(2, this.propertyAccessor.resolutions);
+	}
+
+	@Test
+	public void propertyReadWithUnregisteredAccessor() {
+		Expression expression = this.parser.parseExpression("#var.name");
+		assertEquals("A", evaluate(expression, this.targets[0]));
+
+		StandardEvaluationContext otherContext = new StandardEvaluationContext();
+		otherContext.setVariable("var", this.targets[0]);
+		assertEquals("A", expression.getValue(otherContext));
+		assertEquals(1, this.propertyAccessor.resolutions);
+
+		// Replaced by the accessor resolved for the other context
+		assertEquals("A", evaluate(expression, this.targets[0]));
+		assertEquals(2, this.propertyAccessor.resolutions);
+	}
+
+	@Test
+	public void failingGetterInvokedOnce() {
+		Expression expression = this.parser.parseExpression("#var.failure");
+		Failing target = new Failing();
+		for (int i = 1; i <= 2; i++) {
+			try {
+				evaluate(expression, target);
+				fail("Should have thrown SpelEvaluationException");
+			}
+			catch (SpelEvaluationException ex) {
+				assertEquals(SpelMessage.EXCEPTION_DURING_PROPERTY_READ, ex.getMessageCode());
+			}
+			assertEquals(i, target.invocations);
+		}
+	}
+
+	@Test
+	public void bimorphicPropertyWrite() {
+		Expression expression = this.parser.parseExpression("#var.name");
+		for (int i = 0; i < 3; i++) {
+			A a = new A();
+			B b = new B();
+			this.context.setVariable("var", a);
+			expression.setValue(this.context, "a" + i);
+			this.context.setVariable("var", b);
+			expression.setValue(this.context, "b" + i);
+			assertEquals("a" + i, a.name);
+			assertEquals("b" + i, b.name);
+		}
+	}
+
+	@Test
+	public void bimorphicMethodInvocation() {
+		Expression expression = this.parser.parseExpression("#var.getName()");
+		for (int i = 0; i < 3; i++) {
+			assertEquals("A", evaluate(expression, this.targets[0]));
+			assertEquals("B", evaluate(expression, this.targets[1]));
+		}
+		assertEquals(2, this.methodResolver.resolutions);
+	}
+
+	@Test
+	public void megamorphicMethodInvocation() {
+		Expression expression = this.parser.parseExpression("#var.getName()");
+		for (int i = 0; i < 2; i++) {
+			for (Object target : this.targets) {
+				assertEquals(target.getClass().getSimpleName(), evaluate(expression, target));
+			}
+		}
+		assertEquals(8, this.methodResolver.resolutions);
+	}
+
+	@Test
+	public void staticMethodInvocationOnDifferentClasses() {
+		Expression expression = this.parser.parseExpression("#var.type()");
+		for (int i = 0; i < 2; i++) {
+			assertEquals("static A", evaluate(expression, A.class));
+			assertEquals("static B", evaluate(expression, B.class));
+		}
+		assertEquals(2, this.methodResolver.resolutions);
+	}
+
+	@Test
+	public void monomorphicMethodInvocationPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+		assertFasterThanResolution("Monomorphic", this.targets[0]);
+	}
+
+	@Test
+	public void bimorphicMethodInvocationPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+		assertFasterThanResolution("Bimorphic", this.targets[0], this.targets[1]);
+	}
+
+	@Test
+	public void megamorphicMethodInvocationPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+		// Two of six target types miss the inline cache on every evaluation
+		assertFasterThanResolution("Megamorphic", this.targets);
+	}
+
+
+	private Object evaluate(Expression expression, Object target) {
+		this.context.setVariable("var", target);
+		return expression.getValue(this.context);
+	}
+
+	private void assertFasterThanResolution(String callSite, Object... targets) {
+		Expression cached = this.parser.parseExpression("#var.getName()");
+		Expression resolving = this.parser.parseExpression("#var.getName()");
+		// Fill the inline cache with other receiver types, leaving every evaluation
+		// to be resolved: like alternating target types did with the previous
+		// single-entry cache
+		for (Class<?> type : new Class<?>[] {A.class, B.class, String.class, Integer.class}) {
+			evaluate(resolving, type);
+		}
+		long cachedMillis = 0;
+		long resolvingMillis = 0;
+		for (int round = 0; round < 3; round++) {
+			StopWatch watch = new StopWatch(callSite + " method invocation");
+			watch.start("cached");
+			for (int i = 0; i < 1000000; i++) {
+				evaluate(cached, targets[i % targets.length]);
+			}
+			watch.stop();
+			cachedMillis = watch.getLastTaskTimeMillis();
+			watch.start("resolving");
+			for (int i = 0; i < 1000000; i++) {
+				evaluate(resolving, targets[i % targets.length]);
+			}
+			watch.stop();
+			resolvingMillis = watch.getLastTaskTimeMillis();
+		}
+		// Compare the last, warmed-up round
+		assertTrue(callSite + " inline cache took " + cachedMillis + " ms vs " + resolvingMillis +
+				" ms for resolution", cachedMillis < resolvingMillis);
+	}
+
+
+	private static class CountingPropertyAccessor extends ReflectivePropertyAccessor {
+
+		int resolutions;
+
+		@Override
+		public PropertyAccessor createOptimalAccessor(EvaluationContext context, Object target, String name) {
+			this.resolutions++;
+			return super.createOptimalAccessor(context, target, name);
+		}
+	}
+
+
+	private static class CountingMethodResolver extends ReflectiveMethodResolver {
+
+		int resolutions;
+
+		@Override
+		public MethodExecutor resolve(EvaluationContext context, Object targetObject, String name,
+				List<TypeDescriptor> argumentTypes) throws AccessException {
+
+			this.resolutions++;
+			return super.resolve(context, targetObject, name, argumentTypes);
+		}
+	}
+
+
+	public static class A {
+
+		public static final String TYPE = "static A";
+
+		public String name = getClass().getSimpleName();
+
+		public static String type() {
+			return TYPE;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
+	public static class B {
+
+		public static final String TYPE = "static B";
+
+		public String name = getClass().getSimpleName();
+
+		public static String type() {
+			return TYPE;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
+	public static class C extends A {
+	}
+
+	public static class D extends A {
+	}
+
+	public static class E extends B {
+	}
+
+	public static class F extends B {
+	}
+
+	public static class Failing {
+
+		int invocations;
+
+		public String getFailure() {
+			this.invocations++;
+			throw new IllegalStateException("Expected exception");
+		}
+	}
+
+}
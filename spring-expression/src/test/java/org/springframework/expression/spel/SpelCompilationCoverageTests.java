@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -103,20 +104,21 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	 * ConstructorReference
 	 * FunctionReference
 	 * InlineList
+	 * InlineMap
 	 * OpModulus
+	 * OpMatches (with a literal pattern)
+	 * Projection (over a collection)
+	 * Selection (over a collection)
+	 * Assign (to a variable)
+	 * OpInc (on a variable)
+	 * OpDec (on a variable)
+	 * BeanReference
 	 *
 	 * Not yet compiled (some may never need to be):
-	 * Assign
-	 * BeanReference
 	 * Identifier
-	 * OpDec
 	 * OpBetween
-	 * OpMatches
 	 * OpPower
-	 * OpInc
-	 * Projection
 	 * QualifiedId
-	 * Selection
 	 */
 
 
@@ -5038,6 +5040,291 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 		assertTrue(classloadersUsed.size() > 1);
 	}
 
+	@Test
+	public void projection() throws Exception {
+		Inventory inventory = new Inventory();
+		expression = parser.parseExpression("items.![name]");
+		assertCantCompile(expression);
+		assertEquals("[a, b, c]", expression.getValue(inventory).toString());
+		assertCanCompile(expression);
+		assertEquals("[a, b, c]", expression.getValue(inventory).toString());
+
+		// primitive results get boxed, method arguments see the current element
+		expression = parser.parseExpression("items.![price * 2]");
+		assertEquals("[2, 4, 6]", expression.getValue(inventory).toString());
+		assertCanCompile(expression);
+		assertEquals("[2, 4, 6]", expression.getValue(inventory).toString());
+
+		expression = parser.parseExpression("items.![name.concat(#this.name)]");
+		assertEquals("[aa, bb, cc]", expression.getValue(inventory).toString());
+		assertCanCompile(expression);
+		assertEquals("[aa, bb, cc]", expression.getValue(inventory).toString());
+
+		expression = parser.parseExpression("items.![#root.label]");
+		assertEquals("[inv, inv, inv]", expression.getValue(inventory).toString());
+		assertCanCompile(expression);
+		assertEquals("[inv, inv, inv]", expression.getValue(inventory).toString());
+
+		// nested projection
+		expression = parser.parseExpression("{{1,2},{3}}.![#this.![#this * 10]]");
+		assertEquals("[[10, 20], [30]]", expression.getValue().toString());
+		assertCanCompile(expression);
+		assertEquals("[[10, 20], [30]]", expression.getValue().toString());
+
+		// null-safe projection
+		expression = parser.parseExpression("items?.![name]");
+		assertEquals("[a, b, c]", expression.getValue(inventory).toString());
+		assertCanCompile(expression);
+		inventory.items = null;
+		assertNull(expression.getValue(inventory));
+
+		// projections over arrays and maps are not compiled
+		expression = parser.parseExpression("itemArray.![name]");
+		assertEquals("a", ((Object[]) expression.getValue(new Inventory()))[0]);
+		assertCantCompile(expression);
+		expression = parser.parseExpression("{'a':1}.![value]");
+		assertEquals("[1]", expression.getValue().toString());
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void selection() throws Exception {
+		Inventory inventory = new Inventory();
+		expression = parser.parseExpression("items.?[price > 1].![name]");
+		assertCantCompile(expression);
+		assertEquals("[b, c]", expression.getValue(inventory).toString());
+		assertCanCompile(expression);
+		assertEquals("[b, c]", expression.getValue(inventory).toString());
+
+		expression = parser.parseExpression("items.^[price > 1].name");
+		assertEquals("b", expression.getValue(inventory));
+		assertCanCompile(expression);
+		assertEquals("b", expression.getValue(inventory));
+
+		expression = parser.parseExpression("items.$[price > 1].name");
+		assertEquals("c", expression.getValue(inventory));
+		assertCanCompile(expression);
+		assertEquals("c", expression.getValue(inventory));
+
+		expression = parser.parseExpression("items.^[price > 5]");
+		assertNull(expression.getValue(inventory));
+		assertCanCompile(expression);
+		assertNull(expression.getValue(inventory));
+
+		// Boolean criteria result
+		expression = parser.parseExpression("items.?[available].size()");
+		assertEquals(2, expression.getValue(inventory));
+		assertCanCompile(expression);
+		assertEquals(2, expression.getValue(inventory));
+
+		// selections over maps are not compiled
+		expression = parser.parseExpression("{'a':1,'b':2}.?[value > 1]");
+		assertEquals("{b=2}", expression.getValue().toString());
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void inlineMap() throws Exception {
+		expression = parser.parseExpression("{'a':1,b:'x',c:{1,2},d:{'e':true}}");
+		Map<?, ?> map = (Map<?, ?>) expression.getValue();
+		assertEquals("{a=1, b=x, c=[1, 2], d={e=true}}", map.toString());
+		assertCanCompile(expression);
+		Map<?, ?> compiled = (Map<?, ?>) expression.getValue();
+		assertEquals(map, compiled);
+		assertSame(compiled, expression.getValue());
+		try {
+			compiled.clear();
+			fail("Should have thrown UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException ex) {
+			// expected
+		}
+
+		expression = parser.parseExpression("{'name':label,'count':items.size(),'first':items[0].name}");
+		assertEquals("{name=inv, count=3, first=a}", expression.getValue(new Inventory()).toString());
+		assertCanCompile(expression);
+		assertEquals("{name=inv, count=3, first=a}", expression.getValue(new Inventory()).toString());
+
+		expression = parser.parseExpression("{'a':1}['a']");
+		assertEquals(1, expression.getValue());
+		assertCanCompile(expression);
+		assertEquals(1, expression.getValue());
+	}
+
+	@Test
+	public void indexerWithBoxedIndex() throws Exception {
+		StandardEvaluationContext context = new StandardEvaluationContext(new Inventory());
+		context.setVariable("i", 1);
+		expression = parser.parseExpression("items[#i].name");
+		assertEquals("b", expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals("b", expression.getValue(context));
+
+		expression = parser.parseExpression("itemArray[#i].name");
+		assertEquals("b", expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals("b", expression.getValue(context));
+
+		expression = parser.parseExpression("{10:'x'}[10]");
+		assertEquals("x", expression.getValue());
+		assertCanCompile(expression);
+		assertEquals("x", expression.getValue());
+	}
+
+	@Test
+	public void thisReference() throws Exception {
+		expression = parser.parseExpression("#this");
+		assertCantCompile(expression);
+		assertEquals("abc", expression.getValue("abc"));
+		assertCanCompile(expression);
+		assertEquals("abc", expression.getValue("abc"));
+
+		expression = parser.parseExpression("{1,2,3}.?[#this > 1]");
+		assertEquals("[2, 3]", expression.getValue().toString());
+		assertCanCompile(expression);
+		assertEquals("[2, 3]", expression.getValue().toString());
+	}
+
+	@Test
+	public void assign() throws Exception {
+		StandardEvaluationContext context = new StandardEvaluationContext(new Inventory());
+		expression = parser.parseExpression("#x = 42");
+		assertCantCompile(expression);
+		assertEquals(42, expression.getValue(context));
+		assertCanCompile(expression);
+		context.setVariable("x", null);
+		assertEquals(42, expression.getValue(context));
+		assertEquals(42, context.lookupVariable("x"));
+
+		expression = parser.parseExpression("#y = label");
+		assertEquals("inv", expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals("inv", expression.getValue(context, String.class));
+		assertEquals("inv", context.lookupVariable("y"));
+
+		// assignment to properties is not compiled
+		expression = parser.parseExpression("label = 'foo'");
+		Inventory inventory = new Inventory();
+		assertEquals("foo", expression.getValue(context, inventory));
+		assertEquals("foo", inventory.label);
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void incrementAndDecrement() throws Exception {
+		StandardEvaluationContext context = new StandardEvaluationContext();
+		context.setVariable("i", 1);
+		context.setVariable("l", 1L);
+		context.setVariable("d", 1.5d);
+		context.setVariable("f", 1.5f);
+
+		expression = parser.parseExpression("#i++");
+		assertCantCompile(expression);
+		assertEquals(1, expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals(2, expression.getValue(context));
+		assertEquals(3, context.lookupVariable("i"));
+
+		expression = parser.parseExpression("++#i");
+		assertEquals(4, expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals(5, expression.getValue(context));
+		assertEquals(5, context.lookupVariable("i"));
+
+		expression = parser.parseExpression("#l--");
+		assertEquals(1L, expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals(0L, expression.getValue(context));
+		assertEquals(-1L, context.lookupVariable("l"));
+
+		expression = parser.parseExpression("--#d");
+		assertEquals(0.5d, expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals(-0.5d, expression.getValue(context));
+
+		expression = parser.parseExpression("++#f");
+		assertEquals(2.5f, expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals(3.5f, expression.getValue(context));
+
+		expression = parser.parseExpression("#i++ + #i");
+		assertEquals(11, expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals(13, expression.getValue(context));
+
+		// increments of properties are not compiled
+		expression = parser.parseExpression("items[0].price++");
+		assertEquals(1, expression.getValue(new Inventory()));
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void matches() throws Exception {
+		expression = parser.parseExpression("label matches 'i.*'");
+		assertCantCompile(expression);
+		assertTrue(expression.getValue(new Inventory(), Boolean.class));
+		assertCanCompile(expression);
+		assertTrue(expression.getValue(new Inventory(), Boolean.class));
+		Inventory other = new Inventory();
+		other.label = "other";
+		assertFalse(expression.getValue(other, Boolean.class));
+
+		expression = parser.parseExpression("items.?[name matches '[ab]'].size()");
+		assertEquals(2, expression.getValue(new Inventory()));
+		assertCanCompile(expression);
+		assertEquals(2, expression.getValue(new Inventory()));
+
+		// the pattern access guard still applies to compiled expressions
+		expression = parser.parseExpression("label matches '(a+)+b'");
+		assertFalse(expression.getValue(new Inventory(), Boolean.class));
+		assertCanCompile(expression);
+		other.label = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+		try {
+			expression.getValue(other);
+			fail("Should have thrown SpelEvaluationException");
+		}
+		catch (SpelEvaluationException ex) {
+			assertTrue(ex.getCause() instanceof SpelEvaluationException);
+		}
+
+		// a computed pattern is not compiled
+		expression = parser.parseExpression("label matches label");
+		assertTrue(expression.getValue(new Inventory(), Boolean.class));
+		assertCantCompile(expression);
+	}
+
+	@Test
+	public void beanReference() throws Exception {
+		StandardEvaluationContext context = new StandardEvaluationContext();
+		context.setBeanResolver((evaluationContext, beanName) -> "bean:" + beanName);
+		expression = parser.parseExpression("@foo");
+		assertCantCompile(expression);
+		assertEquals("bean:foo", expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals("bean:foo", expression.getValue(context));
+
+		expression = parser.parseExpression("@'foo.bar'.length()");
+		assertEquals(12, expression.getValue(context));
+		assertCanCompile(expression);
+		assertEquals(12, expression.getValue(context));
+	}
+
+	@Test
+	public void safeNavigation() throws Exception {
+		Inventory inventory = new Inventory();
+		expression = parser.parseExpression("current?.name");
+		assertEquals("a", expression.getValue(inventory));
+		assertCanCompile(expression);
+		assertEquals("a", expression.getValue(inventory));
+		inventory.current = null;
+		assertNull(expression.getValue(inventory));
+
+		// no accessor to compile against without having seen a non-null target
+		expression = parser.parseExpression("current?.name");
+		assertNull(expression.getValue(inventory));
+		assertCantCompile(expression);
+	}
+
 
 	// helper methods
 
@@ -5391,6 +5678,34 @@ public class SpelCompilationCoverageTests extends AbstractExpressionTests {
 	}
 
 
+	public static class Inventory {
+
+		public String label = "inv";
+
+		public List<Item> items = new ArrayList<>(Arrays.asList(new Item("a", 1), new Item("b", 2), new Item("c", 3)));
+
+		public Item[] itemArray = this.items.toArray(new Item[0]);
+
+		public Item current = this.items.get(0);
+	}
+
+
+	public static class Item {
+
+		public String name;
+
+		public int price;
+
+		public Boolean available;
+
+		public Item(String name, int price) {
+			this.name = name;
+			this.price = price;
+			this.available = (price < 3);
+		}
+	}
+
+
 	public class Person {
 
 		private int age;
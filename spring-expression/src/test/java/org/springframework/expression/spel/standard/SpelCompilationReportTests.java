@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.LiteralExpression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.ast.SpelNodeImpl;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link SpelCompilationReport}.
+ *
+ * @author agent
+ */
+public class SpelCompilationReportTests {
+
+	private final SpelExpressionParser parser =
+			new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, null));
+
+
+	@Test
+	public void compilationReport() {
+		Expression compiled = this.parser.parseExpression("name.length()");
+		Expression nullTarget = this.parser.parseExpression("nobody?.name");
+		Expression notEvaluated = this.parser.parseExpression("name");
+		Expression arrayProjection = this.parser.parseExpression("names.![#this]");
+		Expression literal = new LiteralExpression("literal");
+		Holder holder = new Holder();
+		for (int i = 0; i < 3; i++) {
+			compiled.getValue(holder);
+			nullTarget.getValue(holder);
+			arrayProjection.getValue(holder);
+		}
+		assertTrue(((SpelExpression) compiled).isCompiled());
+
+		SpelCompilationReport report = new SpelCompilationReport(
+				Arrays.asList(compiled, nullTarget, notEvaluated, arrayProjection, literal));
+		assertEquals(5, report.getEntries().size());
+		assertEquals(1, report.getCompiledCount());
+		List<SpelCompilationReport.Entry> failures = report.getFailures();
+		assertEquals(4, failures.size());
+
+		SpelCompilationReport.Entry entry = report.getEntries().get(0);
+		assertEquals("name.length()", entry.getExpressionString());
+		assertTrue(entry.isCompiled());
+		assertNull(entry.getReason());
+
+		entry = failures.get(0);
+		assertEquals("nobody?.name", entry.getExpressionString());
+		assertFalse(entry.isCompiled());
+		assertTrue(entry.getReason(), entry.getReason().startsWith("PropertyOrFieldReference 'name' at position 8"));
+		assertTrue(entry.getReason(), entry.getReason().contains("result type unknown"));
+		assertEquals("not evaluated yet", failures.get(1).getReason());
+		assertTrue(failures.get(2).getReason(), failures.get(2).getReason().startsWith("Projection"));
+		assertEquals("not a SpEL expression", failures.get(3).getReason());
+		assertTrue(report.toString().startsWith("SpEL compilation report: 1 of 5 expressions compiled"));
+	}
+
+	@Test
+	public void compilableButNotCompiled() {
+		Expression expression = new SpelExpressionParser().parseExpression("name");
+		expression.getValue(new Holder());
+		SpelCompilationReport report = new SpelCompilationReport(Arrays.asList(expression));
+		assertEquals("compilable but compiler mode is OFF", report.getFailures().get(0).getReason());
+
+		expression = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, null))
+				.parseExpression("name");
+		expression.getValue(new Holder());
+		report = new SpelCompilationReport(Arrays.asList(expression));
+		assertTrue(report.getFailures().get(0).getReason().contains("threshold not reached"));
+	}
+
+	@Test
+	public void failureReason() {
+		SpelExpression expression = this.parser.parseRaw("name + nobody?.name");
+		expression.getValue(new Holder());
+		assertEquals("PropertyOrFieldReference 'name' at position 15 is not compilable: result type unknown " +
+				"(not evaluated yet, evaluated to null, or operand type not supported)",
+				SpelCompilationReport.getFailureReason((SpelNodeImpl) expression.getAST()));
+
+		expression = this.parser.parseRaw("name");
+		expression.getValue(new Holder());
+		assertNull(SpelCompilationReport.getFailureReason((SpelNodeImpl) expression.getAST()));
+	}
+
+
+	public static class Holder {
+
+		public String name = "holder";
+
+		public Holder nobody;
+
+		public String[] names = {"a", "b"};
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,8 +19,10 @@ package org.springframework.expression.spel.standard;
 import org.junit.Test;
 
 import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionException;
 import org.springframework.expression.ParseException;
+import org.springframework.expression.common.TemplateParserContext;
 import org.springframework.expression.spel.SpelMessage;
 import org.springframework.expression.spel.SpelNode;
 import org.springframework.expression.spel.SpelParseException;
@@ -402,6 +404,41 @@ public class SpelParserTests {
 		checkNumber("1e+3", 1e3d, Double.class);
 	}
 
+	@Test
+	public void expressionCache() {
+		SpelExpressionParser parser = new SpelExpressionParser();
+		parser.setCacheExpressions(true);
+		Expression expr = parser.parseExpression("'shared' + 1");
+		assertSame(expr, parser.parseExpression("'shared' + 1"));
+		assertEquals("shared1", expr.getValue());
+		assertNotSame(expr, parser.parseRaw("'shared' + 1"));
+		assertNotSame(expr, new SpelExpressionParser().parseExpression("'shared' + 1"));
+	}
+
+	@Test
+	public void expressionCachePerParser() {
+		SpelExpressionParser parser = new SpelExpressionParser();
+		parser.setCacheExpressions(true);
+		SpelExpressionParser otherParser = new SpelExpressionParser();
+		otherParser.setCacheExpressions(true);
+		Expression expr = parser.parseExpression("'config'");
+		assertNotSame(expr, otherParser.parseExpression("'config'"));
+		assertSame(expr, parser.parseExpression("'config'"));
+	}
+
+	@Test
+	public void expressionCacheKeyedByTemplateDelimiters() {
+		SpelExpressionParser parser = new SpelExpressionParser();
+		parser.setCacheExpressions(true);
+		Expression template = parser.parseExpression("a#{'b'}c", new TemplateParserContext());
+		assertSame(template, parser.parseExpression("a#{'b'}c", new TemplateParserContext()));
+		assertEquals("abc", template.getValue());
+		assertEquals("a#{'b'}c", parser.parseExpression(
+				"a#{'b'}c", new TemplateParserContext("${", "}")).getValue());
+		assertNotSame(parser.parseExpression("abc", new TemplateParserContext("#{", "}")),
+				parser.parseExpression("abc", new TemplateParserContext("#{", "]")));
+	}
+
 
 	private void checkNumber(String expression, Object value, Class<?> type) {
 		try {
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel.standard;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.expression.spel.support.StandardTypeConverter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link SpelTemplateExpression}.
+ *
+ * @author agent
+ */
+public class SpelTemplateExpressionTests {
+
+	private static final String TEMPLATE = "Hello #{name}#{nickname}, you are #{age} years old#{isAdult() ? '!' : '?'}";
+
+
+	@Test
+	public void compiledAfterAllPartsCompiled() {
+		Expression expression = parse(SpelCompilerMode.IMMEDIATE, TEMPLATE);
+		assertTrue(expression instanceof SpelTemplateExpression);
+		SpelTemplateExpression template = (SpelTemplateExpression) expression;
+		Person person = new Person("Sam", 42);
+
+		assertEquals("Hello Sam, you are 42 years old!", template.getValue(person));
+		assertFalse(template.isCompiled());
+		assertEquals("Hello Sam, you are 42 years old!", template.getValue(person));
+		assertTrue(template.isCompiled());
+		assertEquals("Hello Sam, you are 42 years old!", template.getValue(person));
+		assertEquals("Hello Sam, you are 42 years old!", template.getValue(new StandardEvaluationContext(person)));
+
+		person.nickname = " (Sammy)";
+		person.age = 12;
+		assertEquals("Hello Sam (Sammy), you are 12 years old?", template.getValue(person, String.class));
+	}
+
+	@Test
+	public void notCompiledInOffMode() {
+		SpelTemplateExpression template = (SpelTemplateExpression) parse(SpelCompilerMode.OFF, TEMPLATE);
+		Person person = new Person("Sam", 42);
+		for (int i = 0; i < 3; i++) {
+			assertEquals("Hello Sam, you are 42 years old!", template.getValue(person));
+		}
+		assertFalse(template.isCompiled());
+		assertTrue(SpelCompiler.compile(template));
+		assertEquals("Hello Sam, you are 42 years old!", template.getValue(person));
+
+		SpelCompiler.revertToInterpreted(template);
+		assertFalse(template.isCompiled());
+		assertFalse(((SpelExpression) template.getExpressions()[1]).isCompiled());
+	}
+
+	@Test
+	public void conversionThroughTypeConverter() {
+		DefaultConversionService conversionService = new DefaultConversionService();
+		conversionService.addConverter(Integer.class, String.class, source -> "#" + source);
+		StandardEvaluationContext context = new StandardEvaluationContext(new Person("Sam", 42));
+		context.setTypeConverter(new StandardTypeConverter(conversionService));
+
+		SpelTemplateExpression template = (SpelTemplateExpression) parse(SpelCompilerMode.IMMEDIATE, TEMPLATE);
+		for (int i = 0; i < 3; i++) {
+			assertEquals("Hello Sam, you are #42 years old!", template.getValue(context));
+		}
+		assertTrue(template.isCompiled());
+	}
+
+	@Test
+	public void revertToInterpretedInMixedMode() {
+		SpelTemplateExpression template = (SpelTemplateExpression) parse(SpelCompilerMode.MIXED, "#{name}: #{age}");
+		assertEquals("Sam: 42", template.getValue(new Person("Sam", 42)));
+		assertTrue(SpelCompiler.compile(template));
+
+		assertEquals("Robot: 1", template.getValue(new Robot()));
+		assertFalse(template.isCompiled());
+	}
+
+	@Test
+	public void failureInImmediateMode() {
+		SpelTemplateExpression template = (SpelTemplateExpression) parse(SpelCompilerMode.IMMEDIATE, "#{name}: #{age}");
+		assertEquals("Sam: 42", template.getValue(new Person("Sam", 42)));
+		assertTrue(SpelCompiler.compile(template));
+		try {
+			template.getValue(new Robot());
+			fail("Should have thrown SpelEvaluationException");
+		}
+		catch (SpelEvaluationException ex) {
+			assertEquals(SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION, ex.getMessageCode());
+		}
+	}
+
+	@Test
+	public void compilationReport() {
+		Expression template = parse(SpelCompilerMode.IMMEDIATE, "#{name}: #{age}");
+		SpelCompilationReport report = new SpelCompilationReport(Collections.singletonList(template));
+		assertEquals("template part 'name' not compiled: not evaluated yet", report.getFailures().get(0).getReason());
+
+		template.getValue(new Person("Sam", 42));
+		template.getValue(new Person("Sam", 42));
+		report = new SpelCompilationReport(Collections.singletonList(template));
+		assertEquals(1, report.getCompiledCount());
+	}
+
+
+	private static Expression parse(SpelCompilerMode compilerMode, String template) {
+		SpelExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(compilerMode, null));
+		return parser.parseExpression(template, new TemplateParserContext());
+	}
+
+
+	public static class Person {
+
+		public String name;
+
+		public String nickname;
+
+		public int age;
+
+		public Person(String name, int age) {
+			this.name = name;
+			this.age = age;
+		}
+
+		public boolean isAdult() {
+			return (this.age >= 18);
+		}
+	}
+
+
+	public static class Robot {
+
+		public String name = "Robot";
+
+		public int age = 1;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,6 +27,8 @@ import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.util.backoff.BackOff;
 import org.springframework.util.backoff.BackOffExecution;
 
@@ -102,6 +104,17 @@ public class DefaultMessageListenerContainerTests {
 		runnable2.waitForCompletion();
 	}
 
+	@Test
+	public void defaultTaskExecutorWithVirtualThreads() {
+		DefaultMessageListenerContainer container = createContainer(createSuccessfulConnectionFactory());
+		container.setBeanName("listener");
+		container.setVirtualThreads(true);
+
+		TaskExecutor taskExecutor = container.createDefaultTaskExecutor();
+		assertTrue(taskExecutor instanceof VirtualThreadTaskExecutor);
+		assertEquals("listener-", ((VirtualThreadTaskExecutor) taskExecutor).getThreadNamePrefix());
+	}
+
 
 	private DefaultMessageListenerContainer createRunningContainer() {
 		DefaultMessageListenerContainer container = createContainer(createSuccessfulConnectionFactory());
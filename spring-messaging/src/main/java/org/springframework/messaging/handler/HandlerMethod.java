@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,6 +27,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.core.BridgeMethodResolver;
 import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.MethodInvokerFactory;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.annotation.SynthesizingMethodParameter;
@@ -34,6 +35,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -73,6 +75,8 @@ public class HandlerMethod {
 
 	private final MethodParameter[] parameters;
 
+	private final MethodInvokerFactory.Invoker invoker;
+
 	@Nullable
 	private HandlerMethod resolvedFromHandlerMethod;
 
@@ -89,6 +93,7 @@ public class HandlerMethod {
 		this.method = method;
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
 		this.parameters = initMethodParameters();
+		this.invoker = initInvoker(this.bridgedMethod);
 	}
 
 	/**
@@ -104,6 +109,7 @@ public class HandlerMethod {
 		this.method = bean.getClass().getMethod(methodName, parameterTypes);
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(this.method);
 		this.parameters = initMethodParameters();
+		this.invoker = initInvoker(this.bridgedMethod);
 	}
 
 	/**
@@ -125,6 +131,7 @@ public class HandlerMethod {
 		this.method = method;
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
 		this.parameters = initMethodParameters();
+		this.invoker = initInvoker(this.bridgedMethod);
 	}
 
 	/**
@@ -138,6 +145,7 @@ public class HandlerMethod {
 		this.method = handlerMethod.method;
 		this.bridgedMethod = handlerMethod.bridgedMethod;
 		this.parameters = handlerMethod.parameters;
+		this.invoker = handlerMethod.invoker;
 		this.resolvedFromHandlerMethod = handlerMethod.resolvedFromHandlerMethod;
 	}
 
@@ -153,6 +161,7 @@ public class HandlerMethod {
 		this.method = handlerMethod.method;
 		this.bridgedMethod = handlerMethod.bridgedMethod;
 		this.parameters = handlerMethod.parameters;
+		this.invoker = handlerMethod.invoker;
 		this.resolvedFromHandlerMethod = handlerMethod;
 	}
 
@@ -168,6 +177,11 @@ public class HandlerMethod {
 		return result;
 	}
 
+	private static MethodInvokerFactory.Invoker initInvoker(Method bridgedMethod) {
+		ReflectionUtils.makeAccessible(bridgedMethod);
+		return MethodInvokerFactory.getInvoker(bridgedMethod);
+	}
+
 
 	/**
 	 * Set an alternative logger to use than the one based on the class name.
@@ -217,6 +231,14 @@ public class HandlerMethod {
 		return this.bridgedMethod;
 	}
 
+	/**
+	 * Return the invoker for the bridged method, resolved once per handler method.
+	 * @since 5.2
+	 */
+	protected MethodInvokerFactory.Invoker getInvoker() {
+		return this.invoker;
+	}
+
 	/**
 	 * Return the method parameters for this handler method.
 	 */
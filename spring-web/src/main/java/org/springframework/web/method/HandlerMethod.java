@@ -30,6 +30,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.core.BridgeMethodResolver;
 import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.MethodInvokerFactory;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotatedElementUtils;
@@ -39,6 +40,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
@@ -63,6 +65,8 @@ public class HandlerMethod {
 
 	private final MethodParameter[] parameters;
 
+	private final MethodInvokerFactory.Invoker invoker;	//bridged方法的调用器
+
 	@Nullable
 	private HttpStatus responseStatus;		//状态码
 
@@ -84,6 +88,7 @@ public class HandlerMethod {
 		this.method = method;
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
 		this.parameters = initMethodParameters();
+		this.invoker = initInvoker(this.bridgedMethod);
 		evaluateResponseStatus();
 	}
 
@@ -96,6 +101,7 @@ public class HandlerMethod {
 		this.method = bean.getClass().getMethod(methodName, parameterTypes);
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(this.method);
 		this.parameters = initMethodParameters();
+		this.invoker = initInvoker(this.bridgedMethod);
 		evaluateResponseStatus();
 	}
 
@@ -113,6 +119,7 @@ public class HandlerMethod {
 		this.method = method;
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
 		this.parameters = initMethodParameters();
+		this.invoker = initInvoker(this.bridgedMethod);
 		evaluateResponseStatus();
 	}
 
@@ -124,6 +131,7 @@ public class HandlerMethod {
 		this.method = handlerMethod.method;
 		this.bridgedMethod = handlerMethod.bridgedMethod;
 		this.parameters = handlerMethod.parameters;
+		this.invoker = handlerMethod.invoker;
 		this.responseStatus = handlerMethod.responseStatus;
 		this.responseStatusReason = handlerMethod.responseStatusReason;
 		this.resolvedFromHandlerMethod = handlerMethod.resolvedFromHandlerMethod;
@@ -138,6 +146,7 @@ public class HandlerMethod {
 		this.method = handlerMethod.method;
 		this.bridgedMethod = handlerMethod.bridgedMethod;
 		this.parameters = handlerMethod.parameters;
+		this.invoker = handlerMethod.invoker;
 		this.responseStatus = handlerMethod.responseStatus;
 		this.responseStatusReason = handlerMethod.responseStatusReason;
 		this.resolvedFromHandlerMethod = handlerMethod;
@@ -154,6 +163,11 @@ public class HandlerMethod {
 		return result;
 	}
 
+	private static MethodInvokerFactory.Invoker initInvoker(Method bridgedMethod) {
+		ReflectionUtils.makeAccessible(bridgedMethod);
+		return MethodInvokerFactory.getInvoker(bridgedMethod);
+	}
+
 	private void evaluateResponseStatus() {
 		ResponseStatus annotation = getMethodAnnotation(ResponseStatus.class);
 		if (annotation == null) {
@@ -181,6 +195,14 @@ public class HandlerMethod {
 		return this.bridgedMethod;
 	}
 
+	/**
+	 * Return the invoker for the bridged method, resolved once per handler method.
+	 * @since 5.2
+	 */
+	protected MethodInvokerFactory.Invoker getInvoker() {
+		return this.invoker;
+	}
+
 	public MethodParameter[] getMethodParameters() {
 		return this.parameters;
 	}
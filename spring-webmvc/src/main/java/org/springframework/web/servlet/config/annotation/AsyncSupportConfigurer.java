@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import java.util.concurrent.Callable;
 
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.lang.Nullable;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.context.request.async.CallableProcessingInterceptor;
@@ -40,6 +41,8 @@ public class AsyncSupportConfigurer {
 	@Nullable
 	private AsyncTaskExecutor taskExecutor;
 
+	private boolean virtualThreads = false;
+
 	@Nullable
 	private Long timeout;
 
@@ -65,6 +68,21 @@ public class AsyncSupportConfigurer {
 		return this;
 	}
 
+	/**
+	 * Specify whether {@link Callable} controller method return values should
+	 * be handled on virtual threads, through a {@link VirtualThreadTaskExecutor},
+	 * if no {@link #setTaskExecutor task executor} has been specified.
+	 * <p>Worth considering for blocking callables on a runtime that supports
+	 * virtual threads (JDK 21+); other runtimes fall back to platform threads.
+	 * Default is "false".
+	 * @param virtualThreads whether to use virtual threads by default
+	 * @since 5.2
+	 */
+	public AsyncSupportConfigurer setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+		return this;
+	}
+
 	/**
 	 * Specify the amount of time, in milliseconds, before asynchronous request
 	 * handling times out. In Servlet 3, the timeout begins after the main request
@@ -105,6 +123,9 @@ public class AsyncSupportConfigurer {
 
 	@Nullable
 	protected AsyncTaskExecutor getTaskExecutor() {
+		if (this.taskExecutor == null && this.virtualThreads) {
+			this.taskExecutor = new VirtualThreadTaskExecutor("MvcAsync");
+		}
 		return this.taskExecutor;
 	}
 
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.config.annotation;
+
+import org.junit.Test;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test fixture for {@link AsyncSupportConfigurer} tests.
+ * @author agent
+ */
+public class AsyncSupportConfigurerTests {
+
+	private final AsyncSupportConfigurer configurer = new AsyncSupportConfigurer();
+
+
+	@Test
+	public void noTaskExecutorByDefault() {
+		assertNull(this.configurer.getTaskExecutor());
+	}
+
+	@Test
+	public void virtualThreads() {
+		this.configurer.setVirtualThreads(true);
+		AsyncTaskExecutor taskExecutor = this.configurer.getTaskExecutor();
+		assertTrue(taskExecutor instanceof VirtualThreadTaskExecutor);
+		assertEquals("MvcAsync", ((VirtualThreadTaskExecutor) taskExecutor).getThreadNamePrefix());
+		assertSame(taskExecutor, this.configurer.getTaskExecutor());
+	}
+
+	@Test
+	public void virtualThreadsWithTaskExecutor() {
+		AsyncTaskExecutor taskExecutor = new ConcurrentTaskExecutor();
+		this.configurer.setVirtualThreads(true).setTaskExecutor(taskExecutor);
+		assertSame(taskExecutor, this.configurer.getTaskExecutor());
+	}
+
+}